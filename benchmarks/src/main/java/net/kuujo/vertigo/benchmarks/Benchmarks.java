@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.benchmarks;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import net.kuujo.vertigo.context.ContextBuilder;
+import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.context.OutputConnectionContext;
+import net.kuujo.vertigo.context.OutputPortContext;
+import net.kuujo.vertigo.instance.ComponentInstance;
+import net.kuujo.vertigo.message.VertigoMessage;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.network.builder.NetworkBuilder;
+import net.kuujo.vertigo.spi.ComponentInstanceFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared benchmark fixtures.
+ */
+public final class Benchmarks {
+  static final String IDENTIFIER = "benchmark";
+  static final String SENDER = "sender";
+  static final String RECEIVER = "receiver-%d";
+  static final String OUT = "out";
+  static final String IN = "in";
+  static final String MESSAGE = "Hello world!";
+
+  private Benchmarks() {
+  }
+
+  /**
+   * Builds a network in which the sender's <code>out</code> port is connected to the
+   * <code>in</code> port of the given number of receivers.
+   */
+  static NetworkContext fanOut(String name, int receivers) {
+    NetworkBuilder builder = NetworkConfig.builder(name);
+    builder.component(SENDER).identifier(IDENTIFIER).output().port(OUT);
+    for (int i = 0; i < receivers; i++) {
+      builder.component(String.format(RECEIVER, i)).identifier(IDENTIFIER).input().port(IN);
+      builder.connect(SENDER).port(OUT).to(String.format(RECEIVER, i)).port(IN);
+    }
+    return ContextBuilder.buildContext(builder.build());
+  }
+
+  /**
+   * Returns the sender's output port context.
+   */
+  static OutputPortContext output(NetworkContext network) {
+    return network.component(SENDER).output().port(OUT);
+  }
+
+  /**
+   * Returns the sender's first output connection context.
+   */
+  static OutputConnectionContext connection(NetworkContext network) {
+    return output(network).connections().iterator().next();
+  }
+
+  /**
+   * Starts receiver instances that ack every message.
+   */
+  static List<ComponentInstance> startReceivers(Vertx vertx, NetworkContext network, ComponentInstanceFactory factory) throws Exception {
+    List<ComponentInstance> instances = new ArrayList<>();
+    for (int i = 0; network.component(String.format(RECEIVER, i)) != null; i++) {
+      ComponentInstance instance = factory.createComponentInstance(vertx, network.component(String.format(RECEIVER, i)));
+      instance.input().<String>port(IN).handler(VertigoMessage::ack);
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      instance.start(complete(future));
+      future.get(10, TimeUnit.SECONDS);
+      instances.add(instance);
+    }
+    return instances;
+  }
+
+  /**
+   * Closes a Vert.x instance and waits for it to close.
+   */
+  static void close(Vertx vertx) throws Exception {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    vertx.close(complete(future));
+    future.get(10, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Returns a handler that completes the given future.
+   */
+  static Handler<AsyncResult<Void>> complete(CompletableFuture<Void> future) {
+    return result -> {
+      if (result.succeeded()) {
+        future.complete(null);
+      } else {
+        future.completeExceptionally(result.cause());
+      }
+    };
+  }
+
+}
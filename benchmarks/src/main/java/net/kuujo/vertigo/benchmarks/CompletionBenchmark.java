@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.benchmarks;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import net.kuujo.vertigo.util.AckAggregator;
+import net.kuujo.vertigo.util.CountingCompletionHandler;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ack aggregation across multiple connections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompletionBenchmark {
+  private static final AsyncResult<Void> SUCCEEDED = Future.succeededFuture();
+
+  @Param({"1", "4", "16"})
+  public int acks;
+
+  @Benchmark
+  public void ackAggregator(Blackhole blackhole) {
+    AckAggregator aggregator = new AckAggregator();
+    @SuppressWarnings("unchecked")
+    Handler<AsyncResult<Void>>[] handlers = new Handler[acks];
+    for (int i = 0; i < acks; i++) {
+      handlers[i] = aggregator.increment();
+    }
+    aggregator.completed(blackhole::consume);
+    for (Handler<AsyncResult<Void>> handler : handlers) {
+      handler.handle(SUCCEEDED);
+    }
+  }
+
+  @Benchmark
+  public void countingCompletionHandler(Blackhole blackhole) {
+    CountingCompletionHandler<Void> counter = new CountingCompletionHandler<>(acks, blackhole::consume);
+    for (int i = 0; i < acks; i++) {
+      counter.handle(SUCCEEDED);
+    }
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.benchmarks;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.instance.OutputConnection;
+import net.kuujo.vertigo.instance.impl.ControlledComponentInstanceFactory;
+import net.kuujo.vertigo.instance.impl.SimpleComponentInstanceFactory;
+import net.kuujo.vertigo.spi.ComponentInstanceFactory;
+import net.kuujo.vertigo.util.CountingCompletionHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Output to input connection round trips.<p>
+ *
+ * Compares the simple and controlled connection implementations, both for a
+ * single acked message and for a pipelined batch of acked messages. Sends are
+ * performed on a Vert.x context just as they would be from a component, so
+ * per-operation allocation reported by the GC profiler covers only the
+ * benchmark thread; event loop allocation shows up in the GC churn figures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectionBenchmark {
+  private static final int BATCH_SIZE = 100;
+
+  @Param({"simple", "controlled"})
+  public String connection;
+
+  private Vertx vertx;
+  private Context context;
+  private OutputConnection<String> output;
+
+  @Setup
+  public void setUp() throws Exception {
+    ComponentInstanceFactory factory = connection.equals("controlled")
+        ? new ControlledComponentInstanceFactory()
+        : new SimpleComponentInstanceFactory();
+    vertx = Vertx.vertx();
+    NetworkContext network = Benchmarks.fanOut("connection-" + connection, 1);
+    Benchmarks.startReceivers(vertx, network, factory);
+    context = vertx.getOrCreateContext();
+    output = factory.createOutputConnection(vertx, Benchmarks.connection(network));
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    Benchmarks.close(vertx);
+  }
+
+  @Benchmark
+  public void roundTrip() throws Exception {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    context.runOnContext(v -> output.send(Benchmarks.MESSAGE, Benchmarks.complete(future)));
+    future.get(10, TimeUnit.SECONDS);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void pipelined() throws Exception {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    context.runOnContext(v -> {
+      CountingCompletionHandler<Void> counter = new CountingCompletionHandler<>(BATCH_SIZE, Benchmarks.complete(future));
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        output.send(Benchmarks.MESSAGE, counter);
+      }
+    });
+    future.get(10, TimeUnit.SECONDS);
+  }
+
+}
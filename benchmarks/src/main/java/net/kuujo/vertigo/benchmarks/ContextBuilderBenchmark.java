@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.benchmarks;
+
+import io.vertx.core.buffer.Buffer;
+import net.kuujo.vertigo.context.ContextBuilder;
+import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.context.NetworkPlan;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.network.builder.NetworkBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Network definition and context build time for growing networks.<p>
+ *
+ * Each generated network is a layered graph in which every component sends to
+ * the next {@link #FANOUT} components, so the number of connections grows
+ * linearly with the number of components. Build time should grow linearly too.
+ * Loading a precompiled {@link NetworkPlan} of the same network is measured
+ * for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextBuilderBenchmark {
+  private static final int FANOUT = 3;
+  private static final String COMPONENT = "component-%d";
+
+  @Param({"10", "100", "1000", "10000"})
+  private int components;
+
+  private NetworkConfig network;
+  private Buffer plan;
+
+  @Setup
+  public void setUp() {
+    network = network(components);
+    plan = NetworkPlan.compile(network);
+  }
+
+  @Benchmark
+  public NetworkConfig buildNetwork() {
+    return network(components);
+  }
+
+  @Benchmark
+  public NetworkContext buildContext() {
+    return ContextBuilder.buildContext(network);
+  }
+
+  @Benchmark
+  public NetworkContext loadPlan() {
+    return NetworkPlan.load(plan);
+  }
+
+  /**
+   * Builds a network with the given number of components.
+   */
+  private static NetworkConfig network(int components) {
+    NetworkBuilder builder = NetworkConfig.builder("context-benchmark");
+    for (int i = 0; i < components; i++) {
+      builder.component(String.format(COMPONENT, i)).identifier(Benchmarks.IDENTIFIER)
+          .input().port(Benchmarks.IN);
+    }
+    for (int i = 0; i < components; i++) {
+      for (int j = 1; j <= FANOUT && i + j < components; j++) {
+        builder.connect(String.format(COMPONENT, i)).port(Benchmarks.OUT)
+            .to(String.format(COMPONENT, i + j)).port(Benchmarks.IN);
+      }
+    }
+    return builder.build();
+  }
+
+}
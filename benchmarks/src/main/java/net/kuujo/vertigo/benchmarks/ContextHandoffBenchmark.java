@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.benchmarks;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.context.ComponentContext;
+import net.kuujo.vertigo.context.ContextCodec;
+import net.kuujo.vertigo.context.ContextRegistry;
+import net.kuujo.vertigo.context.NetworkContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of handing a component context to a newly deployed instance.<p>
+ *
+ * Compares the JSON round trip that used to be done for every instance with
+ * the binary encoding used for remote nodes and the registry lookup used for
+ * local instances. The context is the sender of a fan-out network, so its size
+ * grows with the number of receivers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextHandoffBenchmark {
+  @Param({"1", "16", "256"})
+  private int receivers;
+
+  private Vertx vertx;
+  private NetworkContext network;
+  private ComponentContext component;
+  private JsonObject reference;
+
+  @Setup
+  public void setUp() {
+    vertx = Vertx.vertx();
+    network = Benchmarks.fanOut("handoff-benchmark", receivers);
+    component = network.component(Benchmarks.SENDER);
+    reference = ContextRegistry.reference(network, component);
+    ContextRegistry.register(vertx, network);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    Benchmarks.close(vertx);
+  }
+
+  @Benchmark
+  public ComponentContext json() {
+    JsonObject json = new JsonObject(component.toJson().encode());
+    return ComponentContext.builder().update(json).build();
+  }
+
+  @Benchmark
+  public ComponentContext binary() {
+    Buffer buffer = Buffer.buffer(ContextCodec.encode(component).getBytes());
+    return ContextCodec.decode(buffer);
+  }
+
+  @Benchmark
+  public ComponentContext registry() {
+    return ContextRegistry.lookup(vertx, reference.getString(ContextRegistry.VERSION_KEY), reference.getString(ContextRegistry.COMPONENT_KEY));
+  }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.benchmarks;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.instance.OutputPort;
+import net.kuujo.vertigo.instance.impl.SimpleComponentInstanceFactory;
+import net.kuujo.vertigo.spi.ComponentInstanceFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Output port fan-out.<p>
+ *
+ * Measures the cost of sending a message from an output port to 1, 4 and 16
+ * connections. The fire-and-forget benchmark sends to addresses with no
+ * registered consumers, isolating the sender's per-connection overhead, while
+ * the acked benchmark waits for every receiver to ack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FanoutBenchmark {
+
+  @Param({"1", "4", "16"})
+  public int connections;
+
+  private Vertx vertx;
+  private Context context;
+  private OutputPort<String> port;
+  private OutputPort<String> ackedPort;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() throws Exception {
+    ComponentInstanceFactory factory = new SimpleComponentInstanceFactory();
+    vertx = Vertx.vertx();
+    context = vertx.getOrCreateContext();
+
+    NetworkContext network = Benchmarks.fanOut("fanout", connections);
+    port = factory.createOutputPort(vertx, Benchmarks.output(network));
+
+    NetworkContext ackedNetwork = Benchmarks.fanOut("fanout-acked", connections);
+    Benchmarks.startReceivers(vertx, ackedNetwork, factory);
+    ackedPort = factory.createOutputPort(vertx, Benchmarks.output(ackedNetwork));
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    Benchmarks.close(vertx);
+  }
+
+  @Benchmark
+  public void send() {
+    port.send(Benchmarks.MESSAGE);
+  }
+
+  @Benchmark
+  public void sendAcked() throws Exception {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    context.runOnContext(v -> ackedPort.send(Benchmarks.MESSAGE, Benchmarks.complete(future)));
+    future.get(10, TimeUnit.SECONDS);
+  }
+
+}
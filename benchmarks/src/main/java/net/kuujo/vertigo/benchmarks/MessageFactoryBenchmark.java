@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.benchmarks;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.http.CaseInsensitiveHeaders;
+import net.kuujo.vertigo.message.VertigoMessage;
+import net.kuujo.vertigo.message.impl.VertigoMessageFactoryImpl;
+import net.kuujo.vertigo.spi.VertigoMessageFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vertigo message creation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageFactoryBenchmark {
+  private final VertigoMessageFactory factory = new VertigoMessageFactoryImpl();
+  private final String id = UUID.randomUUID().toString();
+  private Message<String> message;
+
+  @Setup
+  public void setUp() {
+    MultiMap headers = new CaseInsensitiveHeaders()
+        .add("action", "message")
+        .add("name", id)
+        .add("port", Benchmarks.IN);
+    message = new StaticMessage<>("benchmark", headers, Benchmarks.MESSAGE);
+  }
+
+  @Benchmark
+  public void createMessage(Blackhole blackhole) {
+    VertigoMessage<String> vertigoMessage = factory.createVertigoMessage(id, message);
+    blackhole.consume(vertigoMessage);
+  }
+
+  @Benchmark
+  public void createMessageWithId(Blackhole blackhole) {
+    VertigoMessage<String> vertigoMessage = factory.createVertigoMessage(UUID.randomUUID().toString(), message);
+    blackhole.consume(vertigoMessage);
+  }
+
+  /**
+   * Event bus message that ignores replies.
+   */
+  private static class StaticMessage<T> implements Message<T> {
+    private final String address;
+    private final MultiMap headers;
+    private final T body;
+
+    private StaticMessage(String address, MultiMap headers, T body) {
+      this.address = address;
+      this.headers = headers;
+      this.body = body;
+    }
+
+    @Override
+    public String address() {
+      return address;
+    }
+
+    @Override
+    public MultiMap headers() {
+      return headers;
+    }
+
+    @Override
+    public T body() {
+      return body;
+    }
+
+    @Override
+    public String replyAddress() {
+      return null;
+    }
+
+    @Override
+    public void reply(Object message) {
+    }
+
+    @Override
+    public <R> void reply(Object message, Handler<AsyncResult<Message<R>>> replyHandler) {
+    }
+
+    @Override
+    public void reply(Object message, DeliveryOptions options) {
+    }
+
+    @Override
+    public <R> void reply(Object message, DeliveryOptions options, Handler<AsyncResult<Message<R>>> replyHandler) {
+    }
+
+    @Override
+    public void fail(int failureCode, String message) {
+    }
+  }
+
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.benchmarks.load;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import net.kuujo.vertigo.metrics.LatencyHistogram;
+import net.kuujo.vertigo.network.ComponentConfig;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.reference.InputPortReference;
+import net.kuujo.vertigo.reference.NetworkReference;
+import net.kuujo.vertigo.util.CountingCompletionHandler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Open-loop load generator.<p>
+ *
+ * Messages are sent to a network input port on a fixed schedule derived from
+ * the target rate, independent of how quickly the network acks them. Each
+ * message's latency is measured from the time it was scheduled to be sent
+ * rather than the time it was actually sent, so a stalled sender or a backed
+ * up network is reflected in the recorded latencies instead of being hidden
+ * by fewer messages being sent (coordinated omission).<p>
+ *
+ * While running, the generator periodically samples throughput, latency
+ * percentiles, messages in flight, heap usage and the queue depths reported
+ * by each component's metrics. Once the run completes and outstanding acks
+ * have drained, the results are reported as JSON.
+ */
+public class LoadGenerator {
+  private static final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+  private static final long SEND_INTERVAL = 1;
+  private static final long DRAIN_INTERVAL = 100;
+
+  private final Vertx vertx;
+  private final NetworkReference network;
+  private final List<String> components = new ArrayList<>();
+  private final LoadOptions options;
+  private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final LatencyHistogram intervalLatency = new LatencyHistogram();
+  private final JsonArray samples = new JsonArray();
+  private Handler<AsyncResult<JsonObject>> doneHandler;
+  private InputPortReference<String> port;
+  private long startTime;
+  private long start;
+  private long warmupEnd;
+  private long total;
+  private long sent;
+  private long acked;
+  private long failed;
+  private long lastAcked;
+  private long sendTimer = -1;
+  private long sampleTimer = -1;
+  private long drainTimer = -1;
+  private long drainStart;
+
+  public LoadGenerator(Vertx vertx, NetworkReference network, NetworkConfig config, LoadOptions options) {
+    this.vertx = vertx;
+    this.network = network;
+    this.options = options;
+    for (ComponentConfig component : config.getComponents()) {
+      components.add(component.getName());
+    }
+  }
+
+  /**
+   * Runs the load.
+   *
+   * @param doneHandler A handler to be called with the load report once the run completes.
+   */
+  public void run(Handler<AsyncResult<JsonObject>> doneHandler) {
+    if (options.getRate() <= 0) {
+      throw new IllegalArgumentException("rate must be a positive number");
+    }
+    this.doneHandler = doneHandler;
+    Context context = vertx.getOrCreateContext();
+    context.runOnContext(v -> {
+      port = network.input().port(options.getPort());
+      total = options.getDuration() * options.getRate() / 1000;
+      startTime = System.currentTimeMillis();
+      start = System.nanoTime();
+      warmupEnd = start + TimeUnit.MILLISECONDS.toNanos(options.getWarmup());
+      log.info(String.format("Sending %d messages to %s.%s at %d/s", total, network.name(), options.getPort(), options.getRate()));
+      sendTimer = vertx.setPeriodic(SEND_INTERVAL, id -> send());
+      sampleTimer = vertx.setPeriodic(options.getSampleInterval(), id -> sample());
+    });
+  }
+
+  /**
+   * Sends all messages that are due according to the schedule.
+   */
+  private void send() {
+    long elapsed = System.nanoTime() - start;
+    long due = Math.min(total, (long) (elapsed / 1e9 * options.getRate()));
+    while (sent < due) {
+      long intended = start + (long) (sent * 1e9 / options.getRate());
+      sent++;
+      port.send(options.getMessage(), result -> ack(intended, result));
+    }
+    if (sent >= total) {
+      vertx.cancelTimer(sendTimer);
+      sendTimer = -1;
+      drainStart = System.nanoTime();
+      drainTimer = vertx.setPeriodic(DRAIN_INTERVAL, id -> drain());
+    }
+  }
+
+  /**
+   * Records an ack or failure.
+   */
+  private void ack(long intended, AsyncResult<Void> result) {
+    long micros = (System.nanoTime() - intended) / 1000;
+    if (intended >= warmupEnd) {
+      latency.record(micros);
+      intervalLatency.record(micros);
+    }
+    if (result.succeeded()) {
+      acked++;
+    } else {
+      failed++;
+    }
+  }
+
+  /**
+   * Completes the run once all outstanding messages are acked or the drain timeout expires.
+   */
+  private void drain() {
+    long outstanding = sent - acked - failed;
+    boolean expired = System.nanoTime() - drainStart > TimeUnit.MILLISECONDS.toNanos(options.getDrainTimeout());
+    if (outstanding == 0 || expired) {
+      if (outstanding > 0) {
+        log.warn(String.format("Drain timed out with %d messages outstanding", outstanding));
+      }
+      vertx.cancelTimer(drainTimer);
+      vertx.cancelTimer(sampleTimer);
+      // The report is built once the metrics of every component are in the final sample.
+      sample(v -> doneHandler.handle(Future.succeededFuture(report(outstanding))));
+    }
+  }
+
+  /**
+   * Records a sample.
+   */
+  private void sample() {
+    sample(v -> {});
+  }
+
+  /**
+   * Records a sample, calling a handler once the metrics of every component have been fetched.
+   */
+  private void sample(Handler<Void> fetchedHandler) {
+    long elapsed = System.nanoTime() - start;
+    MemoryUsage heap = memory.getHeapMemoryUsage();
+    JsonObject sample = new JsonObject()
+        .put("time", TimeUnit.NANOSECONDS.toMillis(elapsed))
+        .put("sent", sent)
+        .put("acked", acked)
+        .put("failed", failed)
+        .put("inFlight", sent - acked - failed)
+        .put("throughput", (acked - lastAcked) * 1000.0 / options.getSampleInterval())
+        .put("latency", summary(intervalLatency))
+        .put("heapUsed", heap.getUsed())
+        .put("heapCommitted", heap.getCommitted());
+    lastAcked = acked;
+    intervalLatency.reset();
+    samples.add(sample);
+
+    JsonObject queues = new JsonObject();
+    sample.put("components", queues);
+    CountingCompletionHandler<Void> fetched = new CountingCompletionHandler<>(components.size());
+    for (String component : components) {
+      network.component(component).metrics(result -> {
+        if (result.succeeded()) {
+          queues.put(component, summary(result.result()));
+        }
+        fetched.succeed();
+      });
+    }
+    fetched.setHandler(result -> fetchedHandler.handle(null));
+  }
+
+  /**
+   * Summarizes a latency histogram.
+   */
+  private static JsonObject summary(LatencyHistogram histogram) {
+    return new JsonObject()
+        .put("count", histogram.count())
+        .put("p50", histogram.percentile(50))
+        .put("p90", histogram.percentile(90))
+        .put("p99", histogram.percentile(99))
+        .put("p999", histogram.percentile(99.9))
+        .put("max", histogram.max());
+  }
+
+  /**
+   * Summarizes component metrics.
+   */
+  private static JsonObject summary(JsonObject metrics) {
+    int queueSize = 0;
+    long sent = 0;
+    JsonObject output = metrics.getJsonObject("output", new JsonObject());
+    for (String port : output.fieldNames()) {
+      queueSize = Math.max(queueSize, output.getJsonObject(port).getInteger("queueSize", 0));
+      sent += output.getJsonObject(port).getLong("sent", 0L);
+    }
+    long received = 0;
+    long handlerTime = 0;
+    JsonObject input = metrics.getJsonObject("input", new JsonObject());
+    for (String port : input.fieldNames()) {
+      received += input.getJsonObject(port).getLong("received", 0L);
+      handlerTime += input.getJsonObject(port).getLong("handlerTime", 0L);
+    }
+    return new JsonObject()
+        .put("queueSize", queueSize)
+        .put("received", received)
+        .put("sent", sent)
+        .put("handlerTime", handlerTime);
+  }
+
+  /**
+   * Builds the load report.
+   */
+  private JsonObject report(long outstanding) {
+    long measured = Math.max(1, options.getDuration() - options.getWarmup());
+    return new JsonObject()
+        .put("network", network.name())
+        .put("port", options.getPort())
+        .put("startTime", startTime)
+        .put("rate", options.getRate())
+        .put("duration", options.getDuration())
+        .put("warmup", options.getWarmup())
+        .put("sent", sent)
+        .put("acked", acked)
+        .put("failed", failed)
+        .put("outstanding", outstanding)
+        .put("throughput", latency.count() * 1000.0 / measured)
+        .put("latency", latency.toJson())
+        .put("samples", samples);
+  }
+
+}
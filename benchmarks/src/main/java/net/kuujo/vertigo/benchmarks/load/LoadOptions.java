@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.benchmarks.load;
+
+/**
+ * Load generator options.
+ */
+public class LoadOptions {
+  public static final String DEFAULT_PORT = "in";
+  public static final int DEFAULT_RATE = 1000;
+  public static final long DEFAULT_DURATION = 60000;
+  public static final long DEFAULT_WARMUP = 10000;
+  public static final long DEFAULT_SAMPLE_INTERVAL = 1000;
+  public static final long DEFAULT_DRAIN_TIMEOUT = 30000;
+  public static final String DEFAULT_MESSAGE = "Hello world!";
+
+  private String port = DEFAULT_PORT;
+  private int rate = DEFAULT_RATE;
+  private long duration = DEFAULT_DURATION;
+  private long warmup = DEFAULT_WARMUP;
+  private long sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+  private long drainTimeout = DEFAULT_DRAIN_TIMEOUT;
+  private String message = DEFAULT_MESSAGE;
+
+  /**
+   * Returns the network input port to which messages are sent.
+   *
+   * @return The network input port name.
+   */
+  public String getPort() {
+    return port;
+  }
+
+  /**
+   * Sets the network input port to which messages are sent.
+   *
+   * @param port The network input port name.
+   * @return The load options.
+   */
+  public LoadOptions setPort(String port) {
+    this.port = port;
+    return this;
+  }
+
+  /**
+   * Returns the target send rate.
+   *
+   * @return The target send rate in messages per second.
+   */
+  public int getRate() {
+    return rate;
+  }
+
+  /**
+   * Sets the target send rate. Messages are sent on a fixed schedule at this
+   * rate regardless of how quickly the network acks them.
+   *
+   * @param rate The target send rate in messages per second.
+   * @return The load options.
+   */
+  public LoadOptions setRate(int rate) {
+    this.rate = rate;
+    return this;
+  }
+
+  /**
+   * Returns the total load duration, including warmup.
+   *
+   * @return The load duration in milliseconds.
+   */
+  public long getDuration() {
+    return duration;
+  }
+
+  /**
+   * Sets the total load duration, including warmup.
+   *
+   * @param duration The load duration in milliseconds.
+   * @return The load options.
+   */
+  public LoadOptions setDuration(long duration) {
+    this.duration = duration;
+    return this;
+  }
+
+  /**
+   * Returns the warmup period during which latencies are not recorded.
+   *
+   * @return The warmup period in milliseconds.
+   */
+  public long getWarmup() {
+    return warmup;
+  }
+
+  /**
+   * Sets the warmup period during which latencies are not recorded.
+   *
+   * @param warmup The warmup period in milliseconds.
+   * @return The load options.
+   */
+  public LoadOptions setWarmup(long warmup) {
+    this.warmup = warmup;
+    return this;
+  }
+
+  /**
+   * Returns the interval at which samples are recorded.
+   *
+   * @return The sample interval in milliseconds.
+   */
+  public long getSampleInterval() {
+    return sampleInterval;
+  }
+
+  /**
+   * Sets the interval at which samples are recorded.
+   *
+   * @param sampleInterval The sample interval in milliseconds.
+   * @return The load options.
+   */
+  public LoadOptions setSampleInterval(long sampleInterval) {
+    this.sampleInterval = sampleInterval;
+    return this;
+  }
+
+  /**
+   * Returns the time to wait for outstanding acks once sending stops.
+   *
+   * @return The drain timeout in milliseconds.
+   */
+  public long getDrainTimeout() {
+    return drainTimeout;
+  }
+
+  /**
+   * Sets the time to wait for outstanding acks once sending stops.
+   *
+   * @param drainTimeout The drain timeout in milliseconds.
+   * @return The load options.
+   */
+  public LoadOptions setDrainTimeout(long drainTimeout) {
+    this.drainTimeout = drainTimeout;
+    return this;
+  }
+
+  /**
+   * Returns the message body to send.
+   *
+   * @return The message body.
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Sets the message body to send.
+   *
+   * @param message The message body.
+   * @return The load options.
+   */
+  public LoadOptions setMessage(String message) {
+    this.message = message;
+    return this;
+  }
+
+}
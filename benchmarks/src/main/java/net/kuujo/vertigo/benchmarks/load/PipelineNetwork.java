@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.benchmarks.load;
+
+import net.kuujo.vertigo.component.MessageHandlerComponent;
+import net.kuujo.vertigo.instance.OutputPort;
+import net.kuujo.vertigo.message.VertigoMessage;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.network.builder.NetworkBuilder;
+import net.kuujo.vertigo.util.CountingCompletionHandler;
+
+/**
+ * Pipeline network used when no network is given to the soak harness.<p>
+ *
+ * The network's <code>in</code> port is connected to a chain of forwarding
+ * stages ending in a stage that acks every message. Forwarding stages ack a
+ * message once every downstream stage has acked it.
+ */
+public final class PipelineNetwork {
+
+  private PipelineNetwork() {
+  }
+
+  /**
+   * Builds a pipeline network.
+   *
+   * @param name The network name.
+   * @param stages The number of stages, including the final acking stage.
+   * @return The network configuration.
+   */
+  public static NetworkConfig create(String name, int stages) {
+    NetworkBuilder builder = NetworkConfig.builder(name);
+    for (int i = 0; i < stages; i++) {
+      builder.component(stage(i))
+          .identifier(i < stages - 1 ? ForwardingComponent.class.getName() : AckingComponent.class.getName())
+          .input().port("in");
+      if (i < stages - 1) {
+        builder.component(stage(i)).output().port("out");
+      }
+    }
+    builder.connect().network().port("in").to(stage(0)).port("in");
+    for (int i = 1; i < stages; i++) {
+      builder.connect(stage(i - 1)).port("out").to(stage(i)).port("in");
+    }
+    return builder.build();
+  }
+
+  private static String stage(int index) {
+    return String.format("stage-%d", index);
+  }
+
+  /**
+   * Forwards each message to all output ports and acks once all downstream acks are received.
+   */
+  public static class ForwardingComponent extends MessageHandlerComponent<Object> {
+    @Override
+    public void handle(VertigoMessage<Object> message) {
+      CountingCompletionHandler<Void> counter = new CountingCompletionHandler<Void>(output().ports().size())
+          .setHandler(message::handle);
+      for (OutputPort port : output().ports()) {
+        output().port(port.name()).send(message.body(), counter);
+      }
+    }
+  }
+
+  /**
+   * Acks every message.
+   */
+  public static class AckingComponent extends MessageHandlerComponent<Object> {
+    @Override
+    public void handle(VertigoMessage<Object> message) {
+      message.ack();
+    }
+  }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.benchmarks.load;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import net.kuujo.vertigo.Vertigo;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.reference.NetworkReference;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Soak harness.<p>
+ *
+ * Deploys a network, drives it with a {@link LoadGenerator} and writes the
+ * load report to a JSON file. Options are given as <code>--name value</code> pairs:
+ * <ul>
+ *   <li><code>--network</code> - path to a network configuration JSON file; a pipeline network is used by default</li>
+ *   <li><code>--stages</code> - number of stages in the default pipeline network (default <code>3</code>)</li>
+ *   <li><code>--port</code> - network input port (default <code>in</code>)</li>
+ *   <li><code>--rate</code> - target messages per second (default <code>1000</code>)</li>
+ *   <li><code>--duration</code> - run time in seconds, including warmup (default <code>60</code>)</li>
+ *   <li><code>--warmup</code> - warmup time in seconds (default <code>10</code>)</li>
+ *   <li><code>--interval</code> - sample interval in milliseconds (default <code>1000</code>)</li>
+ *   <li><code>--report</code> - report file (default <code>soak-report.json</code>)</li>
+ * </ul>
+ */
+public class Soak {
+  private static final Logger log = LoggerFactory.getLogger(Soak.class);
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> arguments = parse(args);
+
+    NetworkConfig config;
+    if (arguments.containsKey("network")) {
+      String json = new String(Files.readAllBytes(Paths.get(arguments.get("network"))), StandardCharsets.UTF_8);
+      config = NetworkConfig.network(new JsonObject(json));
+    } else {
+      config = PipelineNetwork.create("soak", Integer.parseInt(arguments.getOrDefault("stages", "3")));
+    }
+
+    LoadOptions options = new LoadOptions()
+        .setPort(arguments.getOrDefault("port", LoadOptions.DEFAULT_PORT))
+        .setRate(Integer.parseInt(arguments.getOrDefault("rate", String.valueOf(LoadOptions.DEFAULT_RATE))))
+        .setDuration(TimeUnit.SECONDS.toMillis(Long.parseLong(arguments.getOrDefault("duration", "60"))))
+        .setWarmup(TimeUnit.SECONDS.toMillis(Long.parseLong(arguments.getOrDefault("warmup", "10"))))
+        .setSampleInterval(Long.parseLong(arguments.getOrDefault("interval", String.valueOf(LoadOptions.DEFAULT_SAMPLE_INTERVAL))));
+    Path reportFile = Paths.get(arguments.getOrDefault("report", "soak-report.json"));
+
+    Vertx vertx = Vertx.vertx();
+    try {
+      CompletableFuture<NetworkReference> deployed = new CompletableFuture<>();
+      Vertigo.vertigo(vertx).deployNetwork(config, result -> {
+        if (result.succeeded()) {
+          deployed.complete(result.result());
+        } else {
+          deployed.completeExceptionally(result.cause());
+        }
+      });
+      NetworkReference network = deployed.get(60, TimeUnit.SECONDS);
+
+      CompletableFuture<JsonObject> completed = new CompletableFuture<>();
+      new LoadGenerator(vertx, network, config, options).run(result -> {
+        if (result.succeeded()) {
+          completed.complete(result.result());
+        } else {
+          completed.completeExceptionally(result.cause());
+        }
+      });
+      JsonObject report = completed.get();
+
+      if (reportFile.toAbsolutePath().getParent() != null) {
+        Files.createDirectories(reportFile.toAbsolutePath().getParent());
+      }
+      Files.write(reportFile, report.encodePrettily().getBytes(StandardCharsets.UTF_8));
+      JsonObject latency = report.getJsonObject("latency");
+      log.info(String.format("Sent %d, acked %d, failed %d at %.1f msg/s; latency p50=%dus p99=%dus p99.9=%dus max=%dus. Report written to %s",
+          report.getLong("sent"), report.getLong("acked"), report.getLong("failed"), report.getDouble("throughput"),
+          latency.getLong("p50"), latency.getLong("p99"), latency.getLong("p999"), latency.getLong("max"), reportFile));
+    } finally {
+      CompletableFuture<Void> closed = new CompletableFuture<>();
+      vertx.close(result -> closed.complete(null));
+      closed.get(30, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Parses <code>--name value</code> arguments.
+   */
+  private static Map<String, String> parse(String[] args) {
+    Map<String, String> arguments = new HashMap<>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].startsWith("--") && i + 1 < args.length) {
+        arguments.put(args[i].substring(2), args[++i]);
+      } else {
+        throw new IllegalArgumentException(String.format("Invalid argument %s", args[i]));
+      }
+    }
+    return arguments;
+  }
+
+}
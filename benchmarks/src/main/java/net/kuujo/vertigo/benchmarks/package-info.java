@@ -0,0 +1,7 @@
+/**
+ * JMH benchmarks for the Vertigo messaging hot path.<p>
+ *
+ * Run with the <code>bench</code> Maven profile, which reports throughput, average
+ * time and GC allocation rates and writes JSON results for comparing branches.
+ */
+package net.kuujo.vertigo.benchmarks;
@@ -68,6 +68,18 @@ public interface Cluster {
   @Fluent
   Cluster deployNetwork(NetworkConfig network, Handler<AsyncResult<NetworkReference>> doneHandler);
 
+  /**
+   * Updates a network deployed in the cluster. Only changed components are
+   * deployed or undeployed, and running component instances are patched with
+   * their new ports and connections.
+   *
+   * @param network The updated network configuration.
+   * @param doneHandler An asynchronous handler to be called once the network has been updated.
+   * @return The cluster instance.
+   */
+  @Fluent
+  Cluster updateNetwork(NetworkConfig network, Handler<AsyncResult<NetworkReference>> doneHandler);
+
   /**
    * Undeploys a network from the cluster.
    *
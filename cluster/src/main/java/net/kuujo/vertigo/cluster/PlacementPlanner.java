@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.cluster;
+
+import net.kuujo.vertigo.cluster.impl.RoundRobinPlanner;
+import net.kuujo.vertigo.cluster.impl.TrafficAwarePlanner;
+import net.kuujo.vertigo.context.NetworkContext;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cluster placement planner.<p>
+ *
+ * A placement planner decides on which cluster node each component instance
+ * is deployed. The planner used by the cluster deployment manager is selected
+ * with the <code>vertigo.cluster.placement</code> system property, either
+ * <code>traffic</code> (the default) or <code>round-robin</code>.
+ */
+public interface PlacementPlanner {
+
+  /**
+   * Returns a planner that assigns instances to nodes in turn.
+   *
+   * @return A round-robin placement planner.
+   */
+  static PlacementPlanner roundRobin() {
+    return new RoundRobinPlanner();
+  }
+
+  /**
+   * Returns a planner that co-locates components that exchange the most messages.
+   *
+   * @return A traffic-aware placement planner.
+   */
+  static PlacementPlanner trafficAware() {
+    return new TrafficAwarePlanner();
+  }
+
+  /**
+   * Returns the planner with the given name.
+   *
+   * @param name The planner name, either <code>traffic</code> or <code>round-robin</code>.
+   * @return The placement planner.
+   */
+  static PlacementPlanner planner(String name) {
+    switch (name) {
+      case "traffic":
+        return trafficAware();
+      case "round-robin":
+        return roundRobin();
+      default:
+        throw new IllegalArgumentException(String.format("Invalid placement planner %s", name));
+    }
+  }
+
+  /**
+   * Returns the key of the edge between two components in a rate map.
+   *
+   * @param source The source component name.
+   * @param target The target component name.
+   * @return The edge key.
+   */
+  static String edge(String source, String target) {
+    return source + "->" + target;
+  }
+
+  /**
+   * Plans the placement of a network's component instances.
+   *
+   * @param network The network context.
+   * @param nodes The available node IDs.
+   * @param rates Observed message rates in messages per second, keyed by {@link #edge(String, String)}.
+   *              Connections without an observed rate fall back to their expected rate.
+   * @return The node ID of each instance, keyed by component name.
+   */
+  Map<String, List<String>> plan(NetworkContext network, List<String> nodes, Map<String, Double> rates);
+
+}
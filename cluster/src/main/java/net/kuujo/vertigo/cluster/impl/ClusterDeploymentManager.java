@@ -15,45 +15,1186 @@
  */
 package net.kuujo.vertigo.cluster.impl;
 
-import io.vertx.core.AsyncResult;
-import io.vertx.core.Handler;
-import io.vertx.core.Vertx;
-import net.kuujo.vertigo.deployment.DeploymentManager;
+import io.vertx.core.*;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Lock;
+import net.kuujo.vertigo.VertigoException;
+import net.kuujo.vertigo.cluster.PlacementPlanner;
+import net.kuujo.vertigo.context.ComponentContext;
+import net.kuujo.vertigo.context.ContextBuilder;
+import net.kuujo.vertigo.context.ContextCodec;
+import net.kuujo.vertigo.context.ContextDiff;
+import net.kuujo.vertigo.context.ContextRegistry;
 import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.deployment.DeploymentManager;
+import net.kuujo.vertigo.instance.impl.ComponentInstanceImpl;
+import net.kuujo.vertigo.network.NetworkConfig;
 import net.kuujo.vertigo.reference.NetworkReference;
+import net.kuujo.vertigo.reference.impl.NetworkReferenceImpl;
+import net.kuujo.vertigo.util.Delivery;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
- * Cluster based Vertigo context manager.
+ * Cluster deployment manager.<p>
+ *
+ * Each Vert.x instance that starts a cluster deployment manager becomes a node
+ * of the Vertigo cluster: it adds its node ID to the cluster-wide node list and
+ * deploys component instances on request of other nodes. When a network is
+ * deployed, component replicas are placed on the nodes that respond to a ping
+ * by the configured {@link PlacementPlanner}, and the network configuration,
+ * version, placement plan and deployment IDs are stored in the cluster-wide map
+ * <code>&lt;cluster&gt;.networks</code>. Any node can therefore load the network
+ * context, get a network reference or undeploy the network, regardless of which
+ * node deployed it.<p>
+ *
+ * The node that deployed a network also watches its live metrics every
+ * <code>vertigo.cluster.placement.interval</code> milliseconds (default <code>30000</code>,
+ * <code>0</code> disables re-planning). When a connection carrying at least
+ * <code>vertigo.cluster.placement.hot-edge-rate</code> messages per second (default
+ * <code>1000</code>) crosses nodes, the network is re-planned with the observed
+ * rates and migrated if the new plan reduces cross-node traffic by at least 10%.<p>
+ *
+ * Each node also estimates the utilization of its event loops with {@link LoadProbe}s
+ * and runs a {@link Rebalancer} every <code>vertigo.cluster.rebalance.interval</code>
+ * milliseconds (default <code>10000</code>, <code>0</code> disables rebalancing),
+ * which moves single component instances from overloaded to idle nodes with
+ * {@link #migrate(String, String, String, Handler)}. Instances that are replaced,
+ * either by re-planning or by rebalancing, are drained into their replacement
+ * before they are undeployed: messages still delivered to them are forwarded to
+ * the replacement, and they are only undeployed once every message they received
+ * has been acked or failed, or <code>vertigo.cluster.migration.drain-timeout</code>
+ * milliseconds (default <code>10000</code>) have elapsed.<p>
+ *
+ * Networks are updated in place: only added, removed or changed components are
+ * deployed or undeployed, and the running instances of other components are
+ * patched with their new ports and connections by publishing an update to the
+ * component address. Replaced components are drained and undeployed once every
+ * patched instance has confirmed the update, or after
+ * <code>vertigo.cluster.update-timeout</code> milliseconds (default <code>5000</code>).<p>
+ *
+ * Component contexts are handed to instances by reference through the
+ * {@link ContextRegistry} when they are deployed on the node that deployed the
+ * network, and in a compact binary encoding ({@link ContextCodec}) otherwise.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public class ClusterDeploymentManager implements DeploymentManager {
+  private static final Logger log = LoggerFactory.getLogger(ClusterDeploymentManager.class);
+  static final String DEFAULT_CLUSTER_ADDRESS = "vertigo";
+  private static final long PING_TIMEOUT = Long.getLong("vertigo.cluster.ping-timeout", 5000);
+  private static final long DEPLOY_TIMEOUT = Long.getLong("vertigo.cluster.deploy-timeout", 60000);
+  private static final long REPLAN_INTERVAL = Long.getLong("vertigo.cluster.placement.interval", 30000);
+  private static final double HOT_EDGE_RATE = Double.parseDouble(System.getProperty("vertigo.cluster.placement.hot-edge-rate", "1000"));
+  private static final double MIN_REPLAN_GAIN = 0.1;
+  private static final long REBALANCE_INTERVAL = Long.getLong("vertigo.cluster.rebalance.interval", 10000);
+  private static final long DRAIN_TIMEOUT = Long.getLong("vertigo.cluster.migration.drain-timeout", 10000);
+  private static final long UPDATE_TIMEOUT = Long.getLong("vertigo.cluster.update-timeout", 5000);
+  private static final String ACTION_HEADER = "action";
+  private static final String NODES_KEY = "nodes";
+  private static final String NODE_KEY = "node";
   private final Vertx vertx;
   private final String address;
+  private final PlacementPlanner planner = PlacementPlanner.planner(System.getProperty("vertigo.cluster.placement", "traffic"));
+  private final Map<String, NetworkContext> contexts = new ConcurrentHashMap<>();
+  private final Map<String, String> registered = new ConcurrentHashMap<>();
+  private final Map<String, PlacementMonitor> monitors = new ConcurrentHashMap<>();
+  private final List<Handler<AsyncResult<Void>>> startHandlers = new ArrayList<>();
+  private final Map<String, JsonObject> instances = new ConcurrentHashMap<>();
+  private final List<LoadProbe> probes = new ArrayList<>();
+  private final List<String> probeDeployments = new ArrayList<>();
+  private Rebalancer rebalancer;
+  private String node;
+  private MessageConsumer<JsonObject> consumer;
+  private AsyncResult<Void> started;
+  private boolean starting;
 
   ClusterDeploymentManager(Vertx vertx, String address) {
+    this(vertx, address, UUID.randomUUID().toString());
+  }
+
+  ClusterDeploymentManager(Vertx vertx, String address, String node) {
     this.vertx = vertx;
-    this.address = address;
+    this.address = address != null ? address : DEFAULT_CLUSTER_ADDRESS;
+    this.node = node;
+  }
+
+  /**
+   * Returns the cluster address.
+   *
+   * @return The cluster address.
+   */
+  public String address() {
+    return address;
+  }
+
+  /**
+   * Returns the ID of the local node.
+   *
+   * @return The local node ID.
+   */
+  public String node() {
+    return node;
+  }
+
+  /**
+   * Returns the name of the cluster-wide map holding deployed networks.
+   *
+   * @param address The cluster address.
+   * @return The name of the cluster-wide networks map.
+   */
+  public static String networksMap(String address) {
+    return address + ".networks";
+  }
+
+  /**
+   * Returns the event bus address of a node.
+   */
+  private String nodeAddress(String node) {
+    return String.format("%s.node.%s", address, node);
+  }
+
+  /**
+   * Registers the local Vert.x instance as a node of the cluster. Only one node
+   * is registered per Vert.x instance and cluster address; managers started
+   * later on the same instance share the existing node.
+   *
+   * @param doneHandler An asynchronous handler to be called once the node is registered.
+   */
+  public void start(Handler<AsyncResult<Void>> doneHandler) {
+    synchronized (this) {
+      if (starting) {
+        whenStarted(doneHandler);
+        return;
+      }
+      starting = true;
+    }
+
+    LocalMap<String, String> local = vertx.sharedData().getLocalMap(address);
+    String existing = local.putIfAbsent(NODE_KEY, node);
+    if (existing != null) {
+      node = existing;
+      started(Future.succeededFuture(), doneHandler);
+      return;
+    }
+
+    consumer = vertx.eventBus().consumer(nodeAddress(node), this::handleCommand);
+    consumer.completionHandler(registered -> {
+      if (registered.failed()) {
+        started(registered, doneHandler);
+      } else {
+        updateNodes(nodes -> nodes.add(node), result -> {
+          if (result.succeeded() && REBALANCE_INTERVAL > 0) {
+            startRebalancing();
+          }
+          started(result, doneHandler);
+        });
+      }
+    });
+  }
+
+  /**
+   * Deploys a load probe on each event loop and starts the rebalancer.
+   */
+  private void startRebalancing() {
+    int count = Integer.getInteger("vertigo.cluster.rebalance.probes", VertxOptions.DEFAULT_EVENT_LOOP_POOL_SIZE);
+    for (int i = 0; i < count; i++) {
+      LoadProbe probe = new LoadProbe();
+      synchronized (probes) {
+        probes.add(probe);
+      }
+      vertx.deployVerticle(probe, result -> {
+        if (result.succeeded()) {
+          synchronized (probes) {
+            probeDeployments.add(result.result());
+          }
+        }
+      });
+    }
+    rebalancer = new Rebalancer(this, vertx);
+    rebalancer.start(REBALANCE_INTERVAL);
+  }
+
+  /**
+   * Stops the rebalancer and undeploys the load probes.
+   */
+  private void stopRebalancing() {
+    if (rebalancer != null) {
+      rebalancer.stop();
+      rebalancer = null;
+    }
+    synchronized (probes) {
+      probeDeployments.forEach(vertx::undeploy);
+      probeDeployments.clear();
+      probes.clear();
+    }
+  }
+
+  /**
+   * Unregisters the local node from the cluster. Component instances deployed
+   * on the node are left running.
+   *
+   * @param doneHandler An asynchronous handler to be called once the node is unregistered.
+   */
+  public void stop(Handler<AsyncResult<Void>> doneHandler) {
+    if (consumer == null) {
+      Future.<Void>succeededFuture().setHandler(doneHandler);
+      return;
+    }
+    vertx.sharedData().<String, String>getLocalMap(address).removeIfPresent(NODE_KEY, node);
+    stopRebalancing();
+    consumer.unregister();
+    consumer = null;
+    updateNodes(nodes -> nodes.remove(node), doneHandler);
+  }
+
+  /**
+   * Completes startup of the node.
+   */
+  private void started(AsyncResult<Void> result, Handler<AsyncResult<Void>> doneHandler) {
+    List<Handler<AsyncResult<Void>>> handlers;
+    synchronized (this) {
+      started = result;
+      handlers = new ArrayList<>(startHandlers);
+      startHandlers.clear();
+    }
+    if (doneHandler != null) {
+      doneHandler.handle(result);
+    }
+    handlers.forEach(handler -> handler.handle(result));
+  }
+
+  /**
+   * Calls the given handler once the node has been registered, or immediately
+   * if the node is not being registered.
+   */
+  private void whenStarted(Handler<AsyncResult<Void>> handler) {
+    if (handler == null) {
+      return;
+    }
+    AsyncResult<Void> result;
+    synchronized (this) {
+      if (starting && started == null) {
+        startHandlers.add(handler);
+        return;
+      }
+      result = started != null ? started : Future.succeededFuture();
+    }
+    handler.handle(result);
+  }
+
+  /**
+   * Handles a command sent to the local node.
+   */
+  private void handleCommand(Message<JsonObject> message) {
+    JsonObject command = message.body();
+    switch (command.getString("action", "")) {
+      case "ping":
+        message.reply(node);
+        break;
+      case "deploy":
+        vertx.deployVerticle(command.getString("main"), new DeploymentOptions(command.getJsonObject("options")), result -> {
+          if (result.failed()) {
+            message.fail(1, result.cause().getMessage());
+          } else {
+            if (command.containsKey("network")) {
+              instances.put(result.result(), new JsonObject()
+                  .put("id", result.result())
+                  .put("network", command.getString("network"))
+                  .put("component", command.getString("component")));
+            }
+            message.reply(result.result());
+          }
+        });
+        break;
+      case "load":
+        message.reply(load());
+        break;
+      case "undeploy":
+        instances.remove(command.getString("id"));
+        vertx.undeploy(command.getString("id"), result -> {
+          if (result.failed()) {
+            message.fail(1, result.cause().getMessage());
+          } else {
+            message.reply(null);
+          }
+        });
+        break;
+      default:
+        message.fail(0, String.format("Invalid action %s", command.getString("action")));
+    }
+  }
+
+  /**
+   * Returns the load of the local node as <code>{node, utilization, lag, instances}</code>.
+   */
+  private JsonObject load() {
+    double utilization = 0;
+    long lag = 0;
+    synchronized (probes) {
+      for (LoadProbe probe : probes) {
+        utilization += probe.utilization();
+        lag = Math.max(lag, probe.maxLag());
+      }
+      if (!probes.isEmpty()) {
+        utilization /= probes.size();
+      }
+    }
+    return new JsonObject()
+        .put("node", node)
+        .put("utilization", utilization)
+        .put("lag", lag)
+        .put("instances", new JsonArray(new ArrayList<>(instances.values())));
+  }
+
+  /**
+   * Loads the current load of all nodes that respond within the ping timeout.
+   *
+   * @param handler An asynchronous handler to be called with the node loads.
+   */
+  void loads(Handler<AsyncResult<List<JsonObject>>> handler) {
+    nodes(nodesResult -> {
+      if (nodesResult.failed()) {
+        Future.<List<JsonObject>>failedFuture(nodesResult.cause()).setHandler(handler);
+        return;
+      }
+      Set<String> nodes = nodesResult.result();
+      List<JsonObject> loads = new ArrayList<>();
+      if (nodes.isEmpty()) {
+        Future.succeededFuture(loads).setHandler(handler);
+        return;
+      }
+      AtomicInteger remaining = new AtomicInteger(nodes.size());
+      DeliveryOptions options = new DeliveryOptions().setSendTimeout(PING_TIMEOUT);
+      for (String node : nodes) {
+        vertx.eventBus().<JsonObject>send(nodeAddress(node), new JsonObject().put("action", "load"), options, reply -> {
+          if (reply.succeeded()) {
+            synchronized (loads) {
+              loads.add(reply.result().body());
+            }
+          }
+          if (remaining.decrementAndGet() == 0) {
+            Future.succeededFuture(loads).setHandler(handler);
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Loads the cluster-wide networks map.
+   */
+  private void networks(Handler<AsyncResult<AsyncMap<String, JsonObject>>> handler) {
+    vertx.sharedData().getClusterWideMap(networksMap(address), handler);
+  }
+
+  /**
+   * Applies an update to the cluster-wide node list while holding the node list lock.
+   */
+  private void updateNodes(Consumer<Set<String>> update, Handler<AsyncResult<Void>> doneHandler) {
+    vertx.sharedData().getLock(address + ".nodes", lockResult -> {
+      if (lockResult.failed()) {
+        Future.<Void>failedFuture(lockResult.cause()).setHandler(doneHandler);
+        return;
+      }
+      Lock lock = lockResult.result();
+      nodes(nodesResult -> {
+        if (nodesResult.failed()) {
+          lock.release();
+          Future.<Void>failedFuture(nodesResult.cause()).setHandler(doneHandler);
+          return;
+        }
+        Set<String> nodes = nodesResult.result();
+        update.accept(nodes);
+        vertx.sharedData().<String, JsonObject>getClusterWideMap(address + ".nodes", mapResult -> {
+          if (mapResult.failed()) {
+            lock.release();
+            Future.<Void>failedFuture(mapResult.cause()).setHandler(doneHandler);
+          } else {
+            mapResult.result().put(NODES_KEY, new JsonObject().put(NODES_KEY, new JsonArray(new ArrayList<>(nodes))), putResult -> {
+              lock.release();
+              if (putResult.failed()) {
+                Future.<Void>failedFuture(putResult.cause()).setHandler(doneHandler);
+              } else {
+                Future.<Void>succeededFuture().setHandler(doneHandler);
+              }
+            });
+          }
+        });
+      });
+    });
+  }
+
+  /**
+   * Loads the set of registered nodes.
+   */
+  private void nodes(Handler<AsyncResult<Set<String>>> handler) {
+    vertx.sharedData().<String, JsonObject>getClusterWideMap(address + ".nodes", mapResult -> {
+      if (mapResult.failed()) {
+        Future.<Set<String>>failedFuture(mapResult.cause()).setHandler(handler);
+      } else {
+        mapResult.result().get(NODES_KEY, getResult -> {
+          if (getResult.failed()) {
+            Future.<Set<String>>failedFuture(getResult.cause()).setHandler(handler);
+          } else {
+            Set<String> nodes = new TreeSet<>();
+            if (getResult.result() != null) {
+              getResult.result().getJsonArray(NODES_KEY).forEach(node -> nodes.add((String) node));
+            }
+            Future.succeededFuture(nodes).setHandler(handler);
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Loads the registered nodes that respond to a ping, in a stable order.
+   */
+  private void liveNodes(Handler<AsyncResult<List<String>>> handler) {
+    nodes(nodesResult -> {
+      if (nodesResult.failed()) {
+        Future.<List<String>>failedFuture(nodesResult.cause()).setHandler(handler);
+        return;
+      }
+      Set<String> nodes = nodesResult.result();
+      if (nodes.isEmpty()) {
+        Future.<List<String>>succeededFuture(Collections.emptyList()).setHandler(handler);
+        return;
+      }
+      Set<String> live = Collections.synchronizedSet(new TreeSet<>());
+      AtomicInteger remaining = new AtomicInteger(nodes.size());
+      DeliveryOptions options = new DeliveryOptions().setSendTimeout(PING_TIMEOUT);
+      for (String node : nodes) {
+        vertx.eventBus().send(nodeAddress(node), new JsonObject().put("action", "ping"), options, reply -> {
+          if (reply.succeeded()) {
+            live.add(node);
+          }
+          if (remaining.decrementAndGet() == 0) {
+            Future.<List<String>>succeededFuture(new ArrayList<>(live)).setHandler(handler);
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Converts a placement plan to JSON.
+   */
+  private static JsonObject planToJson(Map<String, List<String>> plan) {
+    JsonObject json = new JsonObject();
+    plan.forEach((component, nodes) -> json.put(component, new JsonArray(new ArrayList<>(nodes))));
+    return json;
+  }
+
+  /**
+   * Returns the placement plan of a set of deployments.
+   */
+  private static Map<String, List<String>> planFromDeployments(NetworkContext network, JsonArray deployments) {
+    Map<String, List<String>> plan = new LinkedHashMap<>();
+    for (ComponentContext component : network.components()) {
+      plan.put(component.name(), new ArrayList<>());
+    }
+    for (Object value : deployments) {
+      JsonObject deployment = (JsonObject) value;
+      plan.computeIfAbsent(deployment.getString("component"), component -> new ArrayList<>()).add(deployment.getString("node"));
+    }
+    return plan;
+  }
+
+  /**
+   * Converts a placement plan from JSON.
+   */
+  @SuppressWarnings("unchecked")
+  private static Map<String, List<String>> planFromJson(JsonObject json) {
+    Map<String, List<String>> plan = new LinkedHashMap<>();
+    for (String component : json.fieldNames()) {
+      plan.put(component, new ArrayList<>(json.getJsonArray(component).getList()));
+    }
+    return plan;
+  }
+
+  /**
+   * Returns the individual instance placements of a plan as <code>{component, node}</code> objects.
+   */
+  private static JsonArray placements(Map<String, List<String>> plan) {
+    JsonArray placements = new JsonArray();
+    plan.forEach((component, nodes) -> nodes.forEach(node -> placements.add(new JsonObject()
+        .put("component", component)
+        .put("node", node))));
+    return placements;
+  }
+
+  /**
+   * Returns deployment options for an instance of the given component.
+   */
+  private DeploymentOptions deploymentOptions(NetworkContext network, ComponentContext component) {
+    JsonObject config = ContextRegistry.reference(network, component)
+        .put(ContextRegistry.BINARY_KEY, ContextCodec.encode(component).getBytes());
+
+    if (component.config() != null) {
+      config.mergeIn(component.config());
+    }
+
+    return new DeploymentOptions()
+        .setConfig(config)
+        .setWorker(component.worker())
+        .setMultiThreaded(component.multiThreaded());
+  }
+
+  /**
+   * Registers a network context with the local {@link ContextRegistry}, replacing
+   * any previously registered version of the same network.
+   */
+  private void register(NetworkContext network) {
+    ContextRegistry.register(vertx, network);
+    String previous = registered.put(network.name(), network.version());
+    if (previous != null && !previous.equals(network.version())) {
+      ContextRegistry.unregister(vertx, previous);
+    }
+  }
+
+  /**
+   * Returns the context of a deployed network, rebuilding it from the stored
+   * configuration if the cached context is missing or outdated.
+   */
+  private NetworkContext context(JsonObject record) {
+    String name = record.getString("name");
+    String version = record.getString("version");
+    NetworkContext context = contexts.get(name);
+    if (context == null || !context.version().equals(version)) {
+      context = ContextBuilder.buildContext(NetworkConfig.network(record.getJsonObject("config")), version);
+      contexts.put(name, context);
+    }
+    return context;
   }
 
   @Override
   public DeploymentManager getNetwork(String id, Handler<AsyncResult<NetworkContext>> doneHandler) {
+    networks(mapResult -> {
+      if (mapResult.failed()) {
+        Future.<NetworkContext>failedFuture(mapResult.cause()).setHandler(doneHandler);
+        return;
+      }
+      mapResult.result().get(id, getResult -> {
+        if (getResult.failed()) {
+          Future.<NetworkContext>failedFuture(getResult.cause()).setHandler(doneHandler);
+        } else if (getResult.result() == null) {
+          Future.<NetworkContext>failedFuture(new VertigoException(String.format("Invalid network %s: NetworkConfig not found", id))).setHandler(doneHandler);
+        } else {
+          NetworkContext context;
+          try {
+            context = context(getResult.result());
+          } catch (Exception e) {
+            Future.<NetworkContext>failedFuture(e).setHandler(doneHandler);
+            return;
+          }
+          Future.succeededFuture(context).setHandler(doneHandler);
+        }
+      });
+    });
     return this;
   }
 
   @Override
   public DeploymentManager deployNetwork(NetworkContext network, Handler<AsyncResult<Void>> doneHandler) {
+    whenStarted(startResult -> {
+      if (startResult.failed()) {
+        Future.<Void>failedFuture(startResult.cause()).setHandler(doneHandler);
+        return;
+      }
+      networks(mapResult -> {
+        if (mapResult.failed()) {
+          Future.<Void>failedFuture(mapResult.cause()).setHandler(doneHandler);
+          return;
+        }
+
+        AsyncMap<String, JsonObject> networks = mapResult.result();
+        JsonObject record = new JsonObject()
+            .put("name", network.name())
+            .put("version", network.version())
+            .put("config", network.config().toJson());
+
+        // Claim the network name first so that concurrent deployments from other nodes fail.
+        networks.putIfAbsent(network.name(), record, putResult -> {
+          if (putResult.failed()) {
+            Future.<Void>failedFuture(putResult.cause()).setHandler(doneHandler);
+          } else if (putResult.result() != null) {
+            Future.<Void>failedFuture(new VertigoException(String.format("Network %s is already deployed", network.name()))).setHandler(doneHandler);
+          } else {
+            liveNodes(nodesResult -> {
+              if (nodesResult.failed() || nodesResult.result().isEmpty()) {
+                Throwable cause = nodesResult.failed() ? nodesResult.cause() : new VertigoException(String.format("No cluster nodes available at %s", address));
+                networks.remove(network.name(), removeResult -> Future.<Void>failedFuture(cause).setHandler(doneHandler));
+                return;
+              }
+
+              Map<String, List<String>> plan = planner.plan(network, nodesResult.result(), Collections.emptyMap());
+              deployInstances(network, placements(plan), deployResult -> {
+                JsonArray deployments = deployResult.result();
+                if (deployResult.failed()) {
+                  networks.remove(network.name(), removeResult -> Future.<Void>failedFuture(deployResult.cause()).setHandler(doneHandler));
+                } else {
+                  record.put("plan", planToJson(plan)).put("deployments", deployments);
+                  networks.put(network.name(), record, recordResult -> {
+                    if (recordResult.failed()) {
+                      Future.<Void>failedFuture(recordResult.cause()).setHandler(doneHandler);
+                    } else {
+                      contexts.put(network.name(), network);
+                      if (REPLAN_INTERVAL > 0) {
+                        PlacementMonitor monitor = new PlacementMonitor(this, new NetworkReferenceImpl(vertx, network).analyzer(), network.name());
+                        PlacementMonitor previous = monitors.put(network.name(), monitor);
+                        if (previous != null) {
+                          previous.stop();
+                        }
+                        monitor.start(REPLAN_INTERVAL);
+                      }
+                      Future.<Void>succeededFuture().setHandler(doneHandler);
+                    }
+                  });
+                }
+              });
+            });
+          }
+        });
+      });
+    });
     return this;
   }
 
+  /**
+   * Deploys component instances on the given nodes. If any instance fails to
+   * deploy, all instances that were deployed are undeployed again.
+   *
+   * @param placements The instances to deploy as <code>{component, node}</code> objects.
+   * @return The deployments as an array of <code>{component, node, id}</code> objects.
+   */
+  private void deployInstances(NetworkContext network, JsonArray placements, Handler<AsyncResult<JsonArray>> doneHandler) {
+    JsonArray deployments = new JsonArray();
+    if (placements.isEmpty()) {
+      Future.succeededFuture(deployments).setHandler(doneHandler);
+      return;
+    }
+
+    register(network);
+    List<Throwable> failures = new ArrayList<>();
+    AtomicInteger remaining = new AtomicInteger(placements.size());
+    DeliveryOptions options = new DeliveryOptions().setSendTimeout(DEPLOY_TIMEOUT);
+    Map<String, JsonObject> componentOptions = new HashMap<>();
+    for (Object value : placements) {
+      JsonObject placement = (JsonObject) value;
+      ComponentContext component = network.component(placement.getString("component"));
+      String node = placement.getString("node");
+      JsonObject command = new JsonObject()
+          .put("action", "deploy")
+          .put("network", network.name())
+          .put("component", component.name())
+          .put("main", component.main())
+          .put("options", componentOptions.computeIfAbsent(component.name(), name -> deploymentOptions(network, component).toJson()));
+
+      vertx.eventBus().<String>send(nodeAddress(node), command, options, reply -> {
+        synchronized (deployments) {
+          if (reply.failed()) {
+            failures.add(reply.cause());
+          } else {
+            deployments.add(new JsonObject()
+                .put("component", component.name())
+                .put("node", node)
+                .put("id", reply.result().body()));
+          }
+        }
+        if (remaining.decrementAndGet() == 0) {
+          if (failures.isEmpty()) {
+            Future.succeededFuture(deployments).setHandler(doneHandler);
+          } else {
+            undeployInstances(deployments, undeployResult -> Future.<JsonArray>failedFuture(failures.get(0)).setHandler(doneHandler));
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Undeploys component instances. Instances on nodes that are no longer
+   * registered on the event bus are considered undeployed.
+   */
+  private void undeployInstances(JsonArray deployments, Handler<AsyncResult<Void>> doneHandler) {
+    if (deployments.isEmpty()) {
+      Future.<Void>succeededFuture().setHandler(doneHandler);
+      return;
+    }
+
+    List<Throwable> failures = new ArrayList<>();
+    AtomicInteger remaining = new AtomicInteger(deployments.size());
+    DeliveryOptions options = new DeliveryOptions().setSendTimeout(DEPLOY_TIMEOUT);
+    for (Object value : deployments) {
+      JsonObject deployment = (JsonObject) value;
+      JsonObject command = new JsonObject()
+          .put("action", "undeploy")
+          .put("id", deployment.getString("id"));
+      vertx.eventBus().send(nodeAddress(deployment.getString("node")), command, options, reply -> {
+        if (reply.failed() && !isNoHandlers(reply.cause())) {
+          synchronized (failures) {
+            failures.add(reply.cause());
+          }
+        }
+        if (remaining.decrementAndGet() == 0) {
+          if (failures.isEmpty()) {
+            Future.<Void>succeededFuture().setHandler(doneHandler);
+          } else {
+            Future.<Void>failedFuture(failures.get(0)).setHandler(doneHandler);
+          }
+        }
+      });
+    }
+  }
+
+  private static boolean isNoHandlers(Throwable cause) {
+    return cause instanceof ReplyException && ((ReplyException) cause).failureType() == ReplyFailure.NO_HANDLERS;
+  }
+
+  /**
+   * Drains component instances into replacement instances of the same component
+   * and undeploys them. Instances without a replacement, or that are not
+   * reachable on their instance address, are undeployed directly.
+   *
+   * @param removed The deployments to replace.
+   * @param added The replacement deployments.
+   */
+  private void replaceInstances(NetworkContext network, JsonArray removed, JsonArray added, Handler<AsyncResult<Void>> doneHandler) {
+    if (removed.isEmpty()) {
+      Future.<Void>succeededFuture().setHandler(doneHandler);
+      return;
+    }
+
+    Map<String, List<String>> replacements = new HashMap<>();
+    for (Object value : added) {
+      JsonObject deployment = (JsonObject) value;
+      replacements.computeIfAbsent(deployment.getString("component"), component -> new ArrayList<>()).add(deployment.getString("id"));
+    }
+
+    AtomicInteger remaining = new AtomicInteger(removed.size());
+    DeliveryOptions options = new DeliveryOptions()
+        .addHeader(ACTION_HEADER, ComponentInstanceImpl.DRAIN_ACTION)
+        .setSendTimeout(DRAIN_TIMEOUT + PING_TIMEOUT);
+    Map<String, Integer> next = new HashMap<>();
+    for (Object value : removed) {
+      JsonObject deployment = (JsonObject) value;
+      ComponentContext component = network.component(deployment.getString("component"));
+      List<String> targets = replacements.get(deployment.getString("component"));
+      Handler<AsyncResult<Message<JsonObject>>> drained = result -> {
+        if (result.failed() && !isNoHandlers(result.cause())) {
+          log.warn(String.format("Failed to drain instance %s", deployment.getString("id")), result.cause());
+        }
+        if (remaining.decrementAndGet() == 0) {
+          undeployInstances(removed, doneHandler);
+        }
+      };
+      if (component == null || targets == null) {
+        drained.handle(Future.failedFuture(new ReplyException(ReplyFailure.NO_HANDLERS)));
+      } else {
+        int index = next.merge(component.name(), 1, Integer::sum) - 1;
+        JsonObject request = new JsonObject()
+            .put("forward", ComponentInstanceImpl.instanceAddress(component.address(), targets.get(index % targets.size())))
+            .put("timeout", DRAIN_TIMEOUT);
+        vertx.eventBus().send(ComponentInstanceImpl.instanceAddress(component.address(), deployment.getString("id")), request, options, drained);
+      }
+    }
+  }
+
+  /**
+   * Patches the running instances of components and waits until each instance has
+   * confirmed the update or the update timeout elapses.
+   */
+  private void patchComponents(NetworkContext network, Collection<ComponentContext> components, Handler<Void> doneHandler) {
+    if (components.isEmpty()) {
+      doneHandler.handle(null);
+      return;
+    }
+
+    AtomicInteger remaining = new AtomicInteger(components.size());
+    DeliveryOptions options = new DeliveryOptions().addHeader(ACTION_HEADER, ComponentInstanceImpl.UPDATE_ACTION);
+    for (ComponentContext component : components) {
+      int replicas = Math.max(1, component.replicas());
+      JsonObject reference = ContextRegistry.reference(network, component)
+          .put(ContextRegistry.BINARY_KEY, ContextCodec.encode(component).getBytes());
+      Delivery.publish(vertx, component.address(), reference, options, replicas, UPDATE_TIMEOUT, result -> {
+        if (result.failed() || result.result().size() < replicas) {
+          log.warn(String.format("Not all instances of %s confirmed the update", component.name()));
+        }
+        if (remaining.decrementAndGet() == 0) {
+          doneHandler.handle(null);
+        }
+      });
+    }
+  }
+
   @Override
   public DeploymentManager undeployNetwork(NetworkContext network, Handler<AsyncResult<Void>> doneHandler) {
+    networks(mapResult -> {
+      if (mapResult.failed()) {
+        Future.<Void>failedFuture(mapResult.cause()).setHandler(doneHandler);
+        return;
+      }
+      AsyncMap<String, JsonObject> networks = mapResult.result();
+      networks.get(network.name(), getResult -> {
+        if (getResult.failed()) {
+          Future.<Void>failedFuture(getResult.cause()).setHandler(doneHandler);
+        } else if (getResult.result() == null) {
+          Future.<Void>failedFuture(new VertigoException(String.format("Invalid network %s: NetworkConfig not found", network.name()))).setHandler(doneHandler);
+        } else {
+          undeployInstances(getResult.result().getJsonArray("deployments", new JsonArray()), undeployResult -> {
+            if (undeployResult.failed()) {
+              Future.<Void>failedFuture(undeployResult.cause()).setHandler(doneHandler);
+            } else {
+              networks.remove(network.name(), removeResult -> {
+                contexts.remove(network.name());
+                String version = registered.remove(network.name());
+                if (version != null) {
+                  ContextRegistry.unregister(vertx, version);
+                }
+                PlacementMonitor monitor = monitors.remove(network.name());
+                if (monitor != null) {
+                  monitor.stop();
+                }
+                if (removeResult.failed()) {
+                  Future.<Void>failedFuture(removeResult.cause()).setHandler(doneHandler);
+                } else {
+                  Future.<Void>succeededFuture().setHandler(doneHandler);
+                }
+              });
+            }
+          });
+        }
+      });
+    });
     return this;
   }
 
   @Override
-  public DeploymentManager getNetworkReference(String id, Handler<AsyncResult<NetworkReference>> doneHandler) {
+  public DeploymentManager updateNetwork(NetworkContext network, Handler<AsyncResult<Void>> doneHandler) {
+    whenStarted(startResult -> {
+      if (startResult.failed()) {
+        Future.<Void>failedFuture(startResult.cause()).setHandler(doneHandler);
+        return;
+      }
+      networks(mapResult -> {
+        if (mapResult.failed()) {
+          Future.<Void>failedFuture(mapResult.cause()).setHandler(doneHandler);
+          return;
+        }
+        AsyncMap<String, JsonObject> networks = mapResult.result();
+        networks.get(network.name(), getResult -> {
+          if (getResult.failed()) {
+            Future.<Void>failedFuture(getResult.cause()).setHandler(doneHandler);
+            return;
+          }
+          JsonObject record = getResult.result();
+          if (record == null || !record.containsKey("deployments")) {
+            Future.<Void>failedFuture(new VertigoException(String.format("Invalid network %s: NetworkConfig not found", network.name()))).setHandler(doneHandler);
+            return;
+          }
+
+          ContextDiff diff;
+          try {
+            diff = ContextDiff.diff(context(record), network);
+          } catch (Exception e) {
+            Future.<Void>failedFuture(e).setHandler(doneHandler);
+            return;
+          }
+
+          Set<String> replacedComponents = new HashSet<>();
+          diff.removed().forEach(component -> replacedComponents.add(component.name()));
+          diff.redeployed().forEach(component -> replacedComponents.add(component.name()));
+          JsonArray kept = new JsonArray();
+          JsonArray replaced = new JsonArray();
+          for (Object value : record.getJsonArray("deployments")) {
+            JsonObject deployment = (JsonObject) value;
+            if (replacedComponents.contains(deployment.getString("component"))) {
+              replaced.add(deployment);
+            } else {
+              kept.add(deployment);
+            }
+          }
+
+          liveNodes(nodesResult -> {
+            if (nodesResult.failed() || nodesResult.result().isEmpty()) {
+              Throwable cause = nodesResult.failed() ? nodesResult.cause() : new VertigoException(String.format("No cluster nodes available at %s", address));
+              Future.<Void>failedFuture(cause).setHandler(doneHandler);
+              return;
+            }
+
+            Map<String, List<String>> plan = planner.plan(network, nodesResult.result(), Collections.emptyMap());
+            JsonArray placements = new JsonArray();
+            for (ComponentContext component : diff.added()) {
+              plan.get(component.name()).forEach(node -> placements.add(new JsonObject().put("component", component.name()).put("node", node)));
+            }
+            for (ComponentContext component : diff.redeployed()) {
+              plan.get(component.name()).forEach(node -> placements.add(new JsonObject().put("component", component.name()).put("node", node)));
+            }
+
+            // New components are deployed before running components are patched to send to them.
+            // Replaced components are only drained and undeployed once every patched instance has
+            // confirmed that it no longer sends to them.
+            deployInstances(network, placements, deployResult -> {
+              if (deployResult.failed()) {
+                Future.<Void>failedFuture(deployResult.cause()).setHandler(doneHandler);
+                return;
+              }
+              deployResult.result().forEach(kept::add);
+              record.put("version", network.version())
+                  .put("config", network.config().toJson())
+                  .put("plan", planToJson(planFromDeployments(network, kept)))
+                  .put("deployments", kept);
+              networks.put(network.name(), record, putResult -> {
+                if (putResult.failed()) {
+                  undeployInstances(deployResult.result(), undeployResult -> Future.<Void>failedFuture(putResult.cause()).setHandler(doneHandler));
+                  return;
+                }
+                contexts.put(network.name(), network);
+                PlacementMonitor monitor = monitors.get(network.name());
+                if (monitor != null) {
+                  monitor.stop();
+                  monitor = new PlacementMonitor(this, new NetworkReferenceImpl(vertx, network).analyzer(), network.name());
+                  monitors.put(network.name(), monitor);
+                  monitor.start(REPLAN_INTERVAL);
+                }
+                patchComponents(network, diff.patched(), patched -> replaceInstances(network, replaced, deployResult.result(), doneHandler));
+              });
+            });
+          });
+        });
+      });
+    });
     return this;
   }
 
+  /**
+   * Re-plans a deployed network using observed message rates. The network is
+   * only migrated if a connection carrying at least the hot edge rate crosses
+   * nodes and the new plan reduces cross-node traffic by at least 10%.
+   *
+   * @param name The network name.
+   * @param rates Observed message rates keyed by {@link PlacementPlanner#edge(String, String)}.
+   * @param doneHandler An asynchronous handler to be called with whether the network was migrated.
+   */
+  public void replan(String name, Map<String, Double> rates, Handler<AsyncResult<Boolean>> doneHandler) {
+    networks(mapResult -> {
+      if (mapResult.failed()) {
+        Future.<Boolean>failedFuture(mapResult.cause()).setHandler(doneHandler);
+        return;
+      }
+      AsyncMap<String, JsonObject> networks = mapResult.result();
+      networks.get(name, getResult -> {
+        if (getResult.failed()) {
+          Future.<Boolean>failedFuture(getResult.cause()).setHandler(doneHandler);
+          return;
+        }
+        JsonObject record = getResult.result();
+        if (record == null || !record.containsKey("plan")) {
+          Future.<Boolean>failedFuture(new VertigoException(String.format("Invalid network %s: NetworkConfig not found", name))).setHandler(doneHandler);
+          return;
+        }
+
+        NetworkContext network;
+        try {
+          network = context(record);
+        } catch (Exception e) {
+          Future.<Boolean>failedFuture(e).setHandler(doneHandler);
+          return;
+        }
+
+        Map<String, List<String>> current = planFromJson(record.getJsonObject("plan"));
+        Map<String, Double> edges = TrafficAwarePlanner.edges(network, rates);
+        boolean hot = false;
+        for (Map.Entry<String, Double> edge : edges.entrySet()) {
+          String[] components = edge.getKey().split("->", 2);
+          if (rates.getOrDefault(edge.getKey(), 0d) >= HOT_EDGE_RATE && TrafficAwarePlanner.crossFraction(current, components[0], components[1]) > 0) {
+            hot = true;
+          }
+        }
+        if (!hot) {
+          Future.succeededFuture(false).setHandler(doneHandler);
+          return;
+        }
+
+        liveNodes(nodesResult -> {
+          if (nodesResult.failed() || nodesResult.result().isEmpty()) {
+            Future.succeededFuture(false).setHandler(doneHandler);
+            return;
+          }
+          Map<String, List<String>> next = planner.plan(network, nodesResult.result(), rates);
+          if (TrafficAwarePlanner.crossTraffic(edges, next) > TrafficAwarePlanner.crossTraffic(edges, current) * (1 - MIN_REPLAN_GAIN)) {
+            Future.succeededFuture(false).setHandler(doneHandler);
+          } else {
+            migrate(networks, network, record, next, doneHandler);
+          }
+        });
+      });
+    });
+  }
+
+  /**
+   * Migrates a single component instance to another node. The new instance is
+   * deployed first, then the old instance is drained into the new instance and
+   * undeployed.
+   *
+   * @param name The network name.
+   * @param id The deployment ID of the instance to migrate.
+   * @param node The ID of the node to which to migrate the instance.
+   * @param doneHandler An asynchronous handler to be called once the instance has been migrated.
+   */
+  public void migrate(String name, String id, String node, Handler<AsyncResult<Void>> doneHandler) {
+    networks(mapResult -> {
+      if (mapResult.failed()) {
+        Future.<Void>failedFuture(mapResult.cause()).setHandler(doneHandler);
+        return;
+      }
+      AsyncMap<String, JsonObject> networks = mapResult.result();
+      networks.get(name, getResult -> {
+        if (getResult.failed()) {
+          Future.<Void>failedFuture(getResult.cause()).setHandler(doneHandler);
+          return;
+        }
+        JsonObject record = getResult.result();
+        if (record == null || !record.containsKey("deployments")) {
+          Future.<Void>failedFuture(new VertigoException(String.format("Invalid network %s: NetworkConfig not found", name))).setHandler(doneHandler);
+          return;
+        }
+
+        JsonArray kept = new JsonArray();
+        JsonObject removed = null;
+        for (Object value : record.getJsonArray("deployments")) {
+          JsonObject deployment = (JsonObject) value;
+          if (deployment.getString("id").equals(id)) {
+            removed = deployment;
+          } else {
+            kept.add(deployment);
+          }
+        }
+        if (removed == null) {
+          Future.<Void>failedFuture(new VertigoException(String.format("Invalid deployment %s of network %s", id, name))).setHandler(doneHandler);
+          return;
+        }
+        if (removed.getString("node").equals(node)) {
+          Future.<Void>succeededFuture().setHandler(doneHandler);
+          return;
+        }
+
+        NetworkContext network;
+        try {
+          network = context(record);
+        } catch (Exception e) {
+          Future.<Void>failedFuture(e).setHandler(doneHandler);
+          return;
+        }
+
+        JsonObject old = removed;
+        JsonArray placements = new JsonArray().add(new JsonObject().put("component", old.getString("component")).put("node", node));
+        deployInstances(network, placements, deployResult -> {
+          if (deployResult.failed()) {
+            Future.<Void>failedFuture(deployResult.cause()).setHandler(doneHandler);
+            return;
+          }
+          deployResult.result().forEach(kept::add);
+          record.put("plan", planToJson(planFromDeployments(network, kept))).put("deployments", kept);
+          networks.put(name, record, putResult -> {
+            if (putResult.failed()) {
+              Future.<Void>failedFuture(putResult.cause()).setHandler(doneHandler);
+            } else {
+              replaceInstances(network, new JsonArray().add(old), deployResult.result(), doneHandler);
+            }
+          });
+        });
+      });
+    });
+  }
+
+  /**
+   * Migrates a network to a new placement plan. Instances that stay on the same
+   * node are kept, new instances are deployed before the instances they replace
+   * are drained and undeployed.
+   */
+  private void migrate(AsyncMap<String, JsonObject> networks, NetworkContext network, JsonObject record,
+                       Map<String, List<String>> plan, Handler<AsyncResult<Boolean>> doneHandler) {
+    List<JsonObject> deployments = new ArrayList<>();
+    record.getJsonArray("deployments", new JsonArray()).forEach(deployment -> deployments.add((JsonObject) deployment));
+
+    JsonArray kept = new JsonArray();
+    JsonArray placements = new JsonArray();
+    for (Map.Entry<String, List<String>> entry : plan.entrySet()) {
+      for (String node : entry.getValue()) {
+        JsonObject match = null;
+        for (JsonObject deployment : deployments) {
+          if (deployment.getString("component").equals(entry.getKey()) && deployment.getString("node").equals(node)) {
+            match = deployment;
+            break;
+          }
+        }
+        if (match != null) {
+          deployments.remove(match);
+          kept.add(match);
+        } else {
+          placements.add(new JsonObject().put("component", entry.getKey()).put("node", node));
+        }
+      }
+    }
+    JsonArray removed = new JsonArray(new ArrayList<>(deployments));
+    if (placements.isEmpty() && removed.isEmpty()) {
+      Future.succeededFuture(false).setHandler(doneHandler);
+      return;
+    }
+
+    deployInstances(network, placements, deployResult -> {
+      if (deployResult.failed()) {
+        Future.<Boolean>failedFuture(deployResult.cause()).setHandler(doneHandler);
+        return;
+      }
+      deployResult.result().forEach(kept::add);
+      record.put("plan", planToJson(plan)).put("deployments", kept);
+      networks.put(network.name(), record, putResult -> {
+        if (putResult.failed()) {
+          Future.<Boolean>failedFuture(putResult.cause()).setHandler(doneHandler);
+        } else {
+          replaceInstances(network, removed, deployResult.result(), undeployResult -> {
+            if (undeployResult.failed()) {
+              Future.<Boolean>failedFuture(undeployResult.cause()).setHandler(doneHandler);
+            } else {
+              Future.succeededFuture(true).setHandler(doneHandler);
+            }
+          });
+        }
+      });
+    });
+  }
+
+  @Override
+  public DeploymentManager getNetworkReference(String id, Handler<AsyncResult<NetworkReference>> doneHandler) {
+    return getNetwork(id, result -> {
+      if (result.succeeded()) {
+        try {
+          NetworkReferenceImpl ref = new NetworkReferenceImpl(vertx, result.result());
+          doneHandler.handle(Future.succeededFuture(ref));
+        } catch (Throwable throwable) {
+          doneHandler.handle(Future.failedFuture(throwable));
+        }
+      } else {
+        doneHandler.handle(Future.failedFuture(result.cause()));
+      }
+    });
+  }
+
 }
@@ -18,18 +18,33 @@ package net.kuujo.vertigo.cluster.impl;
 import io.vertx.core.Vertx;
 import net.kuujo.vertigo.deployment.DeploymentManager;
 import net.kuujo.vertigo.VertigoOptions;
+import net.kuujo.vertigo.deployment.impl.LocalDeploymentManagerFactory;
 import net.kuujo.vertigo.spi.DeploymentManagerFactory;
 
 /**
- * Cluster context manager factory implementation.
+ * Cluster deployment manager factory implementation.<p>
+ *
+ * Clustered Vert.x instances get a {@link ClusterDeploymentManager} which
+ * registers the instance as a node of the Vertigo cluster. Non-clustered
+ * instances fall back to the local deployment manager.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
-public class ClusterContextManagerFactory implements DeploymentManagerFactory {
+public class ClusterDeploymentManagerFactory implements DeploymentManagerFactory {
 
   @Override
   public DeploymentManager createContextManager(Vertx vertx, VertigoOptions options) {
-    return new ClusterDeploymentManager(vertx, options.getClusterAddress());
+    if (!vertx.isClustered()) {
+      return new LocalDeploymentManagerFactory().createContextManager(vertx, options);
+    }
+    ClusterDeploymentManager manager = new ClusterDeploymentManager(vertx, options.getClusterAddress());
+    manager.start(null);
+    return manager;
+  }
+
+  @Override
+  public int priority() {
+    return 1;
   }
 
 }
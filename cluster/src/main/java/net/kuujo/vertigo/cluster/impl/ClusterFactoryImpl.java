@@ -29,12 +29,12 @@ public class ClusterFactoryImpl implements ClusterFactory {
 
   @Override
   public Cluster createCluster(Vertx vertx, ClusterOptions options) {
-    return null;
+    return new ClusterImpl(new ClusterDeploymentManager(vertx, options.getClusterAddress(), options.getNodeAddress()), vertx, true);
   }
 
   @Override
   public Cluster createClusterProxy(Vertx vertx, String address) {
-    return null;
+    return new ClusterImpl(new ClusterDeploymentManager(vertx, address), vertx, false);
   }
 
 }
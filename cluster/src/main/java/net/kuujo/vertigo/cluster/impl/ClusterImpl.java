@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.cluster.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import net.kuujo.vertigo.cluster.Cluster;
+import net.kuujo.vertigo.context.ContextBuilder;
+import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.reference.NetworkReference;
+import net.kuujo.vertigo.reference.impl.NetworkReferenceImpl;
+
+/**
+ * Cluster implementation.<p>
+ *
+ * A cluster created through {@link Cluster#create(Vertx, net.kuujo.vertigo.cluster.ClusterOptions)}
+ * registers the Vert.x instance as a node once started. A cluster proxy only
+ * deploys to and undeploys from the existing nodes.
+ */
+public class ClusterImpl implements Cluster {
+  private final ClusterDeploymentManager manager;
+  private final Vertx vertx;
+  private final boolean member;
+
+  ClusterImpl(ClusterDeploymentManager manager, Vertx vertx, boolean member) {
+    this.manager = manager;
+    this.vertx = vertx;
+    this.member = member;
+  }
+
+  @Override
+  public Cluster deployNetwork(NetworkConfig network, Handler<AsyncResult<NetworkReference>> doneHandler) {
+    NetworkContext context;
+    try {
+      context = ContextBuilder.buildContext(network);
+    } catch (Exception e) {
+      Future.<NetworkReference>failedFuture(e).setHandler(doneHandler);
+      return this;
+    }
+    manager.deployNetwork(context, result -> {
+      if (result.failed()) {
+        Future.<NetworkReference>failedFuture(result.cause()).setHandler(doneHandler);
+      } else {
+        Future.<NetworkReference>succeededFuture(new NetworkReferenceImpl(vertx, context)).setHandler(doneHandler);
+      }
+    });
+    return this;
+  }
+
+  @Override
+  public Cluster updateNetwork(NetworkConfig network, Handler<AsyncResult<NetworkReference>> doneHandler) {
+    NetworkContext context;
+    try {
+      context = ContextBuilder.buildContext(network);
+    } catch (Exception e) {
+      Future.<NetworkReference>failedFuture(e).setHandler(doneHandler);
+      return this;
+    }
+    manager.updateNetwork(context, result -> {
+      if (result.failed()) {
+        Future.<NetworkReference>failedFuture(result.cause()).setHandler(doneHandler);
+      } else {
+        Future.<NetworkReference>succeededFuture(new NetworkReferenceImpl(vertx, context)).setHandler(doneHandler);
+      }
+    });
+    return this;
+  }
+
+  @Override
+  public Cluster undeployNetwork(String id, Handler<AsyncResult<Void>> doneHandler) {
+    manager.getNetwork(id, result -> {
+      if (result.failed()) {
+        Future.<Void>failedFuture(result.cause()).setHandler(doneHandler);
+      } else {
+        manager.undeployNetwork(result.result(), doneHandler);
+      }
+    });
+    return this;
+  }
+
+  @Override
+  public Cluster undeployNetwork(NetworkConfig network, Handler<AsyncResult<Void>> doneHandler) {
+    return undeployNetwork(network.getName(), doneHandler);
+  }
+
+  @Override
+  public void start(Handler<AsyncResult<Void>> doneHandler) {
+    if (member) {
+      manager.start(doneHandler);
+    } else {
+      Future.<Void>succeededFuture().setHandler(doneHandler);
+    }
+  }
+
+  @Override
+  public void stop(Handler<AsyncResult<Void>> doneHandler) {
+    manager.stop(doneHandler);
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.cluster.impl;
+
+import io.vertx.core.AbstractVerticle;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event loop utilization probe.<p>
+ *
+ * The probe runs on a single event loop and schedules a timer every
+ * {@link #PERIOD} milliseconds. The time by which each timer fires late is time
+ * the event loop spent on other tasks, so the sum of these delays over a window
+ * is used as an estimate of how busy the event loop was during that window.
+ * One probe is deployed per event loop.
+ */
+class LoadProbe extends AbstractVerticle {
+  static final long PERIOD = 100;
+  private static final long WINDOW = TimeUnit.SECONDS.toNanos(1);
+  private long timer = -1;
+  private long expected;
+  private long windowStart;
+  private long windowLag;
+  private long windowMaxLag;
+  private volatile double utilization;
+  private volatile long maxLag;
+
+  @Override
+  public void start() {
+    windowStart = System.nanoTime();
+    schedule();
+  }
+
+  @Override
+  public void stop() {
+    if (timer != -1) {
+      vertx.cancelTimer(timer);
+      timer = -1;
+    }
+  }
+
+  /**
+   * Schedules the next probe timer.
+   */
+  private void schedule() {
+    expected = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PERIOD);
+    timer = vertx.setTimer(PERIOD, this::tick);
+  }
+
+  /**
+   * Records the delay of a probe timer.
+   */
+  private void tick(long id) {
+    long now = System.nanoTime();
+    long lag = Math.max(0, now - expected);
+    windowLag += lag;
+    windowMaxLag = Math.max(windowMaxLag, lag);
+    long elapsed = now - windowStart;
+    if (elapsed >= WINDOW) {
+      utilization = Math.min(1, (double) windowLag / elapsed);
+      maxLag = TimeUnit.NANOSECONDS.toMillis(windowMaxLag);
+      windowStart = now;
+      windowLag = 0;
+      windowMaxLag = 0;
+    }
+    schedule();
+  }
+
+  /**
+   * Returns the estimated utilization of the event loop during the last window.
+   *
+   * @return The estimated utilization between <code>0</code> and <code>1</code>.
+   */
+  double utilization() {
+    return utilization;
+  }
+
+  /**
+   * Returns the highest timer delay during the last window.
+   *
+   * @return The highest timer delay in milliseconds.
+   */
+  long maxLag() {
+    return maxLag;
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.cluster.impl;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import net.kuujo.vertigo.cluster.PlacementPlanner;
+import net.kuujo.vertigo.metrics.NetworkAnalyzer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Feeds observed connection rates from a network analyzer to the cluster
+ * deployment manager so that the network can be re-planned.
+ */
+class PlacementMonitor {
+  private static final Logger log = LoggerFactory.getLogger(PlacementMonitor.class);
+  private final ClusterDeploymentManager manager;
+  private final NetworkAnalyzer analyzer;
+  private final String network;
+  private boolean replanning;
+
+  PlacementMonitor(ClusterDeploymentManager manager, NetworkAnalyzer analyzer, String network) {
+    this.manager = manager;
+    this.analyzer = analyzer;
+    this.network = network;
+  }
+
+  /**
+   * Starts monitoring the network.
+   *
+   * @param interval The sampling interval in milliseconds.
+   */
+  void start(long interval) {
+    analyzer.handler(this::handleAnalysis).start(interval);
+  }
+
+  /**
+   * Stops monitoring the network.
+   */
+  void stop() {
+    analyzer.stop();
+  }
+
+  /**
+   * Handles an analysis snapshot.
+   */
+  private void handleAnalysis(JsonObject analysis) {
+    if (replanning) {
+      return;
+    }
+
+    Map<String, Double> rates = new HashMap<>();
+    JsonArray connections = analysis.getJsonArray("connections", new JsonArray());
+    for (int i = 0; i < connections.size(); i++) {
+      JsonObject connection = connections.getJsonObject(i);
+      String source = connection.getJsonObject("source").getString("component");
+      String target = connection.getJsonObject("target").getString("component");
+      if (source != null && target != null) {
+        rates.merge(PlacementPlanner.edge(source, target), connection.getDouble("rate", 0d), Double::sum);
+      }
+    }
+
+    replanning = true;
+    manager.replan(network, rates, result -> {
+      replanning = false;
+      if (result.failed()) {
+        log.warn(String.format("Failed to re-plan network %s, stopping placement monitor", network), result.cause());
+        stop();
+      } else if (result.result()) {
+        log.info(String.format("Migrated network %s to reduce cross-node traffic", network));
+      }
+    });
+  }
+
+}
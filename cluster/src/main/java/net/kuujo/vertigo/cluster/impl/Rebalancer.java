@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.cluster.impl;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.shareddata.Lock;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Periodically moves a component instance from the busiest to the idlest
+ * cluster node.<p>
+ *
+ * Every node runs a rebalancer, but a tick only proceeds if it acquires the
+ * cluster-wide rebalance lock, so at most one instance is migrated at a time
+ * across the cluster. A migration only happens if the busiest node's estimated
+ * event loop utilization is at least <code>vertigo.cluster.rebalance.high</code>
+ * (default <code>0.75</code>) and the idlest node's is at most
+ * <code>vertigo.cluster.rebalance.low</code> (default <code>0.5</code>).
+ */
+public class Rebalancer {
+  private static final Logger log = LoggerFactory.getLogger(Rebalancer.class);
+  public static final double HIGH_UTILIZATION = Double.parseDouble(System.getProperty("vertigo.cluster.rebalance.high", "0.75"));
+  public static final double LOW_UTILIZATION = Double.parseDouble(System.getProperty("vertigo.cluster.rebalance.low", "0.5"));
+  private static final long LOCK_TIMEOUT = 10;
+  private final ClusterDeploymentManager manager;
+  private final Vertx vertx;
+  private long timer = -1;
+  private boolean rebalancing;
+
+  Rebalancer(ClusterDeploymentManager manager, Vertx vertx) {
+    this.manager = manager;
+    this.vertx = vertx;
+  }
+
+  /**
+   * Selects an instance to migrate.
+   *
+   * @param loads Node loads as <code>{node, utilization, instances: [{id, network, component}]}</code> objects.
+   * @param high The utilization at or above which a node is overloaded.
+   * @param low The utilization at or below which a node may receive an instance.
+   * @return The migration as a <code>{network, id, from, to}</code> object, or <code>null</code>
+   *         if no migration is needed.
+   */
+  public static JsonObject select(List<JsonObject> loads, double high, double low) {
+    JsonObject busiest = null;
+    JsonObject idlest = null;
+    for (JsonObject load : loads) {
+      double utilization = load.getDouble("utilization", 0d);
+      if (busiest == null || utilization > busiest.getDouble("utilization", 0d)) {
+        busiest = load;
+      }
+      if (idlest == null || utilization < idlest.getDouble("utilization", 0d)) {
+        idlest = load;
+      }
+    }
+    if (busiest == null || busiest == idlest
+        || busiest.getDouble("utilization", 0d) < high
+        || idlest.getDouble("utilization", 0d) > low) {
+      return null;
+    }
+
+    // Prefer a component that has no instance on the target node yet.
+    Set<String> present = new HashSet<>();
+    for (Object value : idlest.getJsonArray("instances", new JsonArray())) {
+      JsonObject instance = (JsonObject) value;
+      present.add(instance.getString("network") + "." + instance.getString("component"));
+    }
+    JsonObject selected = null;
+    for (Object value : busiest.getJsonArray("instances", new JsonArray())) {
+      JsonObject instance = (JsonObject) value;
+      if (selected == null) {
+        selected = instance;
+      }
+      if (!present.contains(instance.getString("network") + "." + instance.getString("component"))) {
+        selected = instance;
+        break;
+      }
+    }
+    if (selected == null) {
+      return null;
+    }
+    return new JsonObject()
+        .put("network", selected.getString("network"))
+        .put("id", selected.getString("id"))
+        .put("from", busiest.getString("node"))
+        .put("to", idlest.getString("node"));
+  }
+
+  /**
+   * Starts rebalancing.
+   *
+   * @param interval The rebalance interval in milliseconds.
+   */
+  void start(long interval) {
+    timer = vertx.setPeriodic(interval, id -> rebalance());
+  }
+
+  /**
+   * Stops rebalancing.
+   */
+  void stop() {
+    if (timer != -1) {
+      vertx.cancelTimer(timer);
+      timer = -1;
+    }
+  }
+
+  /**
+   * Performs a single rebalance step if the rebalance lock is free.
+   */
+  private void rebalance() {
+    if (rebalancing) {
+      return;
+    }
+    rebalancing = true;
+    vertx.sharedData().getLockWithTimeout(manager.address() + ".rebalance", LOCK_TIMEOUT, lockResult -> {
+      if (lockResult.failed()) {
+        rebalancing = false;
+        return;
+      }
+      Lock lock = lockResult.result();
+      manager.loads(loadsResult -> {
+        JsonObject migration = loadsResult.succeeded() ? select(loadsResult.result(), HIGH_UTILIZATION, LOW_UTILIZATION) : null;
+        if (migration == null) {
+          lock.release();
+          rebalancing = false;
+          return;
+        }
+        manager.migrate(migration.getString("network"), migration.getString("id"), migration.getString("to"), result -> {
+          lock.release();
+          rebalancing = false;
+          if (result.failed()) {
+            log.warn(String.format("Failed to migrate instance %s of network %s", migration.getString("id"), migration.getString("network")), result.cause());
+          } else {
+            log.info(String.format("Migrated instance %s of network %s from node %s to node %s", migration.getString("id"),
+                migration.getString("network"), migration.getString("from"), migration.getString("to")));
+          }
+        });
+      });
+    });
+  }
+
+}
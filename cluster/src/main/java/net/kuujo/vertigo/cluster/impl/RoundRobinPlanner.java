@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.cluster.impl;
+
+import net.kuujo.vertigo.cluster.PlacementPlanner;
+import net.kuujo.vertigo.context.ComponentContext;
+import net.kuujo.vertigo.context.NetworkContext;
+
+import java.util.*;
+
+/**
+ * Round-robin placement planner.<p>
+ *
+ * Instances are assigned to nodes in turn, in component name order, so that
+ * consecutive instances land on different nodes. Message rates are ignored.
+ */
+public class RoundRobinPlanner implements PlacementPlanner {
+
+  @Override
+  public Map<String, List<String>> plan(NetworkContext network, List<String> nodes, Map<String, Double> rates) {
+    List<ComponentContext> components = new ArrayList<>(network.components());
+    components.sort(Comparator.comparing(ComponentContext::name));
+    Map<String, List<String>> plan = new LinkedHashMap<>();
+    int next = 0;
+    for (ComponentContext component : components) {
+      List<String> instances = new ArrayList<>();
+      for (int i = 0; i < Math.max(1, component.replicas()); i++) {
+        instances.add(nodes.get(next++ % nodes.size()));
+      }
+      plan.put(component.name(), instances);
+    }
+    return plan;
+  }
+
+}
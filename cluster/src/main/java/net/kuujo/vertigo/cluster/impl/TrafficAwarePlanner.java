@@ -0,0 +1,248 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.cluster.impl;
+
+import net.kuujo.vertigo.cluster.PlacementPlanner;
+import net.kuujo.vertigo.context.ComponentContext;
+import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.network.ConnectionConfig;
+
+import java.util.*;
+
+/**
+ * Traffic-aware placement planner.<p>
+ *
+ * The component graph is weighted by the message rate of each connection: the
+ * observed rate if one is known, otherwise the connection's expected rate, or
+ * <code>1</code> if neither is known. Components are then placed greedily,
+ * starting with the most heavily connected component and continuing with the
+ * component most strongly connected to those already placed. Each instance goes
+ * to the node holding the most traffic to its neighbours, so that chatty
+ * components end up on the same node. Replicas of the same component are spread
+ * when no node is preferred. Finally, single instances are moved between nodes
+ * for as long as a move reduces the total cross-node traffic.<p>
+ *
+ * No node holds more than <code>ceil((1 + imbalance) * instances / nodes)</code>
+ * instances, where the imbalance is set with the <code>vertigo.cluster.placement.imbalance</code>
+ * system property and defaults to <code>1.0</code>.
+ */
+public class TrafficAwarePlanner implements PlacementPlanner {
+  private static final double IMBALANCE = Double.parseDouble(System.getProperty("vertigo.cluster.placement.imbalance", "1.0"));
+  private static final double DEFAULT_WEIGHT = 1;
+  private static final int MAX_REFINE_PASSES = 16;
+
+  @Override
+  public Map<String, List<String>> plan(NetworkContext network, List<String> nodes, Map<String, Double> rates) {
+    Map<String, Map<String, Double>> weights = weights(network, rates);
+    Map<String, Integer> replicas = new HashMap<>();
+    int instances = 0;
+    for (ComponentContext component : network.components()) {
+      replicas.put(component.name(), Math.max(1, component.replicas()));
+      instances += Math.max(1, component.replicas());
+    }
+    int capacity = Math.max(1, (int) Math.ceil((1 + IMBALANCE) * instances / nodes.size()));
+
+    int[] load = new int[nodes.size()];
+    Map<String, int[]> counts = new HashMap<>();
+    Map<String, List<String>> plan = new LinkedHashMap<>();
+    for (String component : order(network, weights)) {
+      int[] placed = new int[nodes.size()];
+      counts.put(component, placed);
+      List<String> placement = new ArrayList<>();
+      for (int i = 0; i < replicas.get(component); i++) {
+        int best = -1;
+        double bestScore = -1;
+        for (int node = 0; node < nodes.size(); node++) {
+          if (load[node] >= capacity) {
+            continue;
+          }
+          double score = 0;
+          for (Map.Entry<String, Double> neighbour : weights.get(component).entrySet()) {
+            int[] neighbourCounts = counts.get(neighbour.getKey());
+            if (neighbourCounts != null) {
+              score += neighbour.getValue() * neighbourCounts[node] / (replicas.get(component) * replicas.get(neighbour.getKey()));
+            }
+          }
+          if (best == -1 || score > bestScore
+              || (score == bestScore && (placed[node] < placed[best] || (placed[node] == placed[best] && load[node] < load[best])))) {
+            best = node;
+            bestScore = score;
+          }
+        }
+        placed[best]++;
+        load[best]++;
+        placement.add(nodes.get(best));
+      }
+      plan.put(component, placement);
+    }
+    refine(plan, nodes, load, capacity, edges(network, rates));
+    return plan;
+  }
+
+  /**
+   * Moves single instances to other nodes with spare capacity for as long as a
+   * move reduces cross-node traffic. This fixes placements where the greedy pass
+   * filled a node before the other end of a heavy edge could be placed on it.
+   */
+  private static void refine(Map<String, List<String>> plan, List<String> nodes, int[] load, int capacity, Map<String, Double> edges) {
+    double traffic = crossTraffic(edges, plan);
+    for (int pass = 0; pass < MAX_REFINE_PASSES && traffic > 0; pass++) {
+      boolean improved = false;
+      for (List<String> placement : plan.values()) {
+        for (int i = 0; i < placement.size(); i++) {
+          String current = placement.get(i);
+          int from = nodes.indexOf(current);
+          for (int to = 0; to < nodes.size(); to++) {
+            if (to == from || load[to] >= capacity) {
+              continue;
+            }
+            placement.set(i, nodes.get(to));
+            double moved = crossTraffic(edges, plan);
+            if (moved < traffic - 1e-9) {
+              traffic = moved;
+              load[from]--;
+              load[to]++;
+              current = nodes.get(to);
+              from = to;
+              improved = true;
+            } else {
+              placement.set(i, current);
+            }
+          }
+        }
+      }
+      if (!improved) {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Returns the order in which components are placed: the most heavily connected
+   * component first, then repeatedly the component most strongly connected to
+   * the components already placed.
+   */
+  private static List<String> order(NetworkContext network, Map<String, Map<String, Double>> weights) {
+    Map<String, Double> totals = new HashMap<>();
+    for (Map.Entry<String, Map<String, Double>> entry : weights.entrySet()) {
+      totals.put(entry.getKey(), entry.getValue().values().stream().mapToDouble(Double::doubleValue).sum());
+    }
+    Set<String> remaining = new TreeSet<>(weights.keySet());
+    Map<String, Double> attached = new HashMap<>();
+    List<String> order = new ArrayList<>();
+    while (!remaining.isEmpty()) {
+      String next = null;
+      for (String component : remaining) {
+        if (next == null || compare(component, next, attached, totals) > 0) {
+          next = component;
+        }
+      }
+      remaining.remove(next);
+      order.add(next);
+      for (Map.Entry<String, Double> neighbour : weights.get(next).entrySet()) {
+        attached.merge(neighbour.getKey(), neighbour.getValue(), Double::sum);
+      }
+    }
+    return order;
+  }
+
+  private static int compare(String a, String b, Map<String, Double> attached, Map<String, Double> totals) {
+    int result = Double.compare(attached.getOrDefault(a, 0d), attached.getOrDefault(b, 0d));
+    return result != 0 ? result : Double.compare(totals.get(a), totals.get(b));
+  }
+
+  /**
+   * Returns the directed message rate of each connection between two components.
+   *
+   * @param network The network context.
+   * @param rates Observed message rates keyed by {@link PlacementPlanner#edge(String, String)}.
+   * @return The rate of each edge keyed by {@link PlacementPlanner#edge(String, String)}.
+   */
+  public static Map<String, Double> edges(NetworkContext network, Map<String, Double> rates) {
+    Map<String, Double> expected = new HashMap<>();
+    for (ConnectionConfig connection : network.config().getConnections()) {
+      if (connection.getSource().getIsNetwork() || connection.getTarget().getIsNetwork()) {
+        continue;
+      }
+      String source = connection.getSource().getComponent();
+      String target = connection.getTarget().getComponent();
+      if (!source.equals(target) && network.hasComponent(source) && network.hasComponent(target)) {
+        expected.merge(PlacementPlanner.edge(source, target), connection.getRate(), Double::sum);
+      }
+    }
+    Map<String, Double> edges = new HashMap<>();
+    for (Map.Entry<String, Double> entry : expected.entrySet()) {
+      Double observed = rates.get(entry.getKey());
+      edges.put(entry.getKey(), observed != null && observed > 0 ? observed : entry.getValue() > 0 ? entry.getValue() : DEFAULT_WEIGHT);
+    }
+    return edges;
+  }
+
+  /**
+   * Returns the undirected weight between each pair of connected components.
+   */
+  private static Map<String, Map<String, Double>> weights(NetworkContext network, Map<String, Double> rates) {
+    Map<String, Map<String, Double>> weights = new HashMap<>();
+    for (ComponentContext component : network.components()) {
+      weights.put(component.name(), new HashMap<>());
+    }
+    for (Map.Entry<String, Double> edge : edges(network, rates).entrySet()) {
+      String[] components = edge.getKey().split("->", 2);
+      weights.get(components[0]).merge(components[1], edge.getValue(), Double::sum);
+      weights.get(components[1]).merge(components[0], edge.getValue(), Double::sum);
+    }
+    return weights;
+  }
+
+  /**
+   * Returns the fraction of an edge's traffic that crosses nodes under a plan,
+   * assuming messages are spread evenly over the target instances.
+   *
+   * @param plan The placement plan.
+   * @param source The source component name.
+   * @param target The target component name.
+   * @return The fraction of traffic between the two components that crosses nodes.
+   */
+  public static double crossFraction(Map<String, List<String>> plan, String source, String target) {
+    List<String> sources = plan.get(source);
+    List<String> targets = plan.get(target);
+    if (sources == null || targets == null || sources.isEmpty() || targets.isEmpty()) {
+      return 0;
+    }
+    double local = 0;
+    for (String node : new HashSet<>(sources)) {
+      local += (double) Collections.frequency(sources, node) / sources.size() * Collections.frequency(targets, node) / targets.size();
+    }
+    return 1 - local;
+  }
+
+  /**
+   * Returns the total message rate that crosses nodes under a plan.
+   *
+   * @param edges The edge rates as returned by {@link #edges(NetworkContext, Map)}.
+   * @param plan The placement plan.
+   * @return The cross-node message rate in messages per second.
+   */
+  public static double crossTraffic(Map<String, Double> edges, Map<String, List<String>> plan) {
+    double traffic = 0;
+    for (Map.Entry<String, Double> edge : edges.entrySet()) {
+      String[] components = edge.getKey().split("->", 2);
+      traffic += edge.getValue() * crossFraction(plan, components[0], components[1]);
+    }
+    return traffic;
+  }
+
+}
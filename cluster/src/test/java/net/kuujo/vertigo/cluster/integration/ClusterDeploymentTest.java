@@ -0,0 +1,175 @@
+package net.kuujo.vertigo.cluster.integration;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.spi.cluster.ClusterManager;
+import io.vertx.test.core.VertxTestBase;
+import io.vertx.test.fakecluster.FakeClusterManager;
+import net.kuujo.vertigo.Vertigo;
+import net.kuujo.vertigo.VertigoOptions;
+import net.kuujo.vertigo.cluster.Cluster;
+import net.kuujo.vertigo.cluster.ClusterOptions;
+import net.kuujo.vertigo.cluster.impl.ClusterDeploymentManager;
+import net.kuujo.vertigo.component.MessageHandlerComponent;
+import net.kuujo.vertigo.message.VertigoMessage;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.network.builder.NetworkBuilder;
+import net.kuujo.vertigo.util.CountingCompletionHandler;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ClusterDeploymentTest extends VertxTestBase {
+
+  private static final String CLUSTER = "test-cluster";
+  private static final String STARTED = "test-cluster.started";
+  private static final String OUTPUT = "test-cluster.output";
+  private static final int NODES = 3;
+  private static final int MESSAGES = 20;
+
+  private Cluster[] clusters;
+
+  @Override
+  protected ClusterManager getClusterManager() {
+    return new FakeClusterManager();
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    startNodes(NODES);
+    clusters = new Cluster[NODES];
+    CountDownLatch latch = new CountDownLatch(NODES);
+    for (int i = 0; i < NODES; i++) {
+      clusters[i] = Cluster.create(vertices[i], new ClusterOptions().setClusterAddress(CLUSTER));
+      clusters[i].start(onSuccess(v -> latch.countDown()));
+    }
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+  }
+
+  private NetworkConfig createNetwork() {
+    NetworkBuilder builder = NetworkConfig.builder("cluster-test");
+    builder.component("worker")
+        .identifier(ReportingComponent.class.getName())
+        .replicas(NODES)
+        .input().port("in");
+    builder.connect().network().port("in").to("worker").port("in");
+    return builder.build();
+  }
+
+  @Test
+  public void testDeploySpreadsReplicasAcrossNodes() throws Exception {
+    Set<String> started = new HashSet<>();
+    CountDownLatch startedLatch = new CountDownLatch(NODES);
+    vertices[0].eventBus().<String>consumer(STARTED, message -> {
+      synchronized (started) {
+        started.add(message.body());
+      }
+      startedLatch.countDown();
+    });
+
+    clusters[0].deployNetwork(createNetwork(), onSuccess(network -> {
+      vertices[0].sharedData().<String, JsonObject>getClusterWideMap(ClusterDeploymentManager.networksMap(CLUSTER), onSuccess(map -> {
+        map.get("cluster-test", onSuccess(record -> {
+          assertNotNull(record);
+          JsonArray placement = record.getJsonObject("plan").getJsonArray("worker");
+          assertEquals(NODES, placement.size());
+          assertEquals(NODES, placement.stream().distinct().count());
+          assertEquals(NODES, record.getJsonArray("deployments").size());
+          testComplete();
+        }));
+      }));
+    }));
+
+    await();
+    assertTrue(startedLatch.await(10, TimeUnit.SECONDS));
+    assertEquals(NODES, started.size());
+  }
+
+  @Test
+  public void testReferenceAndUndeployFromAnyNode() {
+    vertices[1].eventBus().<String>consumer(OUTPUT, message -> {
+      assertEquals("Hello world!", message.body());
+
+      clusters[2].undeployNetwork("cluster-test", onSuccess(v -> {
+        Vertigo.vertigo(vertices[1], new VertigoOptions().setClusterAddress(CLUSTER)).network("cluster-test", result -> {
+          assertTrue(result.failed());
+          testComplete();
+        });
+      }));
+    });
+
+    clusters[0].deployNetwork(createNetwork(), onSuccess(deployed -> {
+      Vertigo.vertigo(vertices[2], new VertigoOptions().setClusterAddress(CLUSTER)).network("cluster-test", onSuccess(network -> {
+        assertEquals(deployed.name(), network.name());
+        network.input().port("in").send("Hello world!");
+      }));
+    }));
+
+    await();
+  }
+
+  @Test
+  public void testAggregatesMetricsOfAllReplicas() {
+    NetworkBuilder builder = NetworkConfig.builder("cluster-metrics");
+    builder.component("worker")
+        .identifier(ReportingComponent.class.getName())
+        .replicas(2)
+        .input().port("in");
+    builder.connect().network().port("in").to("worker").port("in");
+
+    clusters[0].deployNetwork(builder.build(), onSuccess(network -> {
+      CountingCompletionHandler<Void> counter = new CountingCompletionHandler<Void>(MESSAGES).setHandler(onSuccess(v -> {
+        network.component("worker").metrics(onSuccess(metrics -> {
+          JsonObject instances = metrics.getJsonObject("instances");
+          assertEquals(2, instances.size());
+          long received = 0;
+          for (String instance : instances.fieldNames()) {
+            received += instances.getJsonObject(instance).getJsonObject("input").getJsonObject("in").getLong("received");
+          }
+          assertEquals(MESSAGES, received);
+          assertEquals(MESSAGES, (long) metrics.getJsonObject("input").getJsonObject("in").getLong("received"));
+          testComplete();
+        }));
+      }));
+      for (int i = 0; i < MESSAGES; i++) {
+        network.input().port("in").send("Hello world!", counter);
+      }
+    }));
+
+    await();
+  }
+
+  public static class ReportingComponent extends MessageHandlerComponent<String> {
+    @Override
+    public void start() throws Exception {
+      vertx.eventBus().send(STARTED, String.valueOf(System.identityHashCode(vertx)));
+    }
+
+    @Override
+    public void handle(VertigoMessage<String> message) {
+      vertx.eventBus().publish(OUTPUT, message.body());
+      message.ack();
+    }
+  }
+
+}
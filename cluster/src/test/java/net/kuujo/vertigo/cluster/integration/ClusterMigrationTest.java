@@ -0,0 +1,164 @@
+package net.kuujo.vertigo.cluster.integration;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.spi.cluster.ClusterManager;
+import io.vertx.test.core.VertxTestBase;
+import io.vertx.test.fakecluster.FakeClusterManager;
+import net.kuujo.vertigo.VertigoOptions;
+import net.kuujo.vertigo.cluster.Cluster;
+import net.kuujo.vertigo.cluster.ClusterOptions;
+import net.kuujo.vertigo.cluster.impl.ClusterDeploymentManager;
+import net.kuujo.vertigo.cluster.impl.ClusterDeploymentManagerFactory;
+import net.kuujo.vertigo.component.MessageHandlerComponent;
+import net.kuujo.vertigo.message.VertigoMessage;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.network.builder.NetworkBuilder;
+import net.kuujo.vertigo.reference.InputPortReference;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ClusterMigrationTest extends VertxTestBase {
+
+  private static final String CLUSTER = "test-migration";
+  private static final String OUTPUT = "test-migration.output";
+  private static final int NODES = 2;
+  private static final int MESSAGES = 200;
+
+  private Cluster[] clusters;
+  private final Set<Integer> received = Collections.synchronizedSet(new HashSet<>());
+  private final AtomicInteger acked = new AtomicInteger();
+  private final AtomicBoolean migrated = new AtomicBoolean();
+  private final AtomicBoolean completed = new AtomicBoolean();
+
+  @Override
+  protected ClusterManager getClusterManager() {
+    return new FakeClusterManager();
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    startNodes(NODES);
+    clusters = new Cluster[NODES];
+    CountDownLatch latch = new CountDownLatch(NODES);
+    for (int i = 0; i < NODES; i++) {
+      clusters[i] = Cluster.create(vertices[i], new ClusterOptions().setClusterAddress(CLUSTER));
+      clusters[i].start(onSuccess(v -> latch.countDown()));
+    }
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+  }
+
+  private NetworkConfig createNetwork() {
+    NetworkBuilder builder = NetworkConfig.builder("migration-test");
+    builder.component("worker")
+        .identifier(DelayedAckComponent.class.getName())
+        .input().port("in");
+    builder.connect().network().port("in").to("worker").port("in").sendTimeout(2000);
+    return builder.build();
+  }
+
+  @Test
+  public void testMigrateInstanceWithoutMessageLoss() {
+    ClusterDeploymentManager manager = (ClusterDeploymentManager) new ClusterDeploymentManagerFactory()
+        .createContextManager(vertices[0], new VertigoOptions().setClusterAddress(CLUSTER));
+
+    vertices[0].eventBus().<Integer>consumer(OUTPUT, message -> {
+      received.add(message.body());
+      checkComplete();
+    });
+
+    clusters[0].deployNetwork(createNetwork(), onSuccess(network -> {
+      vertices[0].sharedData().<String, JsonObject>getClusterWideMap(ClusterDeploymentManager.networksMap(CLUSTER), onSuccess(map -> {
+        map.get("migration-test", onSuccess(record -> {
+          JsonObject deployment = record.getJsonArray("deployments").getJsonObject(0);
+          String source = deployment.getString("node");
+          vertices[0].sharedData().<String, JsonObject>getClusterWideMap(CLUSTER + ".nodes", onSuccess(nodes -> {
+            nodes.get("nodes", onSuccess(json -> {
+              String target = json.getJsonArray("nodes").getString(0).equals(source)
+                  ? json.getJsonArray("nodes").getString(1)
+                  : json.getJsonArray("nodes").getString(0);
+
+              InputPortReference<Integer> port = network.input().port("in");
+              AtomicInteger sent = new AtomicInteger();
+              vertices[0].setPeriodic(1, timer -> {
+                int i = sent.getAndIncrement();
+                if (i >= MESSAGES) {
+                  vertices[0].cancelTimer(timer);
+                  return;
+                }
+                if (i == MESSAGES / 2) {
+                  manager.migrate("migration-test", deployment.getString("id"), target, onSuccess(v -> {
+                    map.get("migration-test", onSuccess(migratedRecord -> {
+                      assertEquals(1, migratedRecord.getJsonArray("deployments").size());
+                      assertEquals(target, migratedRecord.getJsonArray("deployments").getJsonObject(0).getString("node"));
+                      assertEquals(target, migratedRecord.getJsonObject("plan").getJsonArray("worker").getString(0));
+                      migrated.set(true);
+                      checkComplete();
+                    }));
+                  }));
+                }
+                send(port, i);
+              });
+            }));
+          }));
+        }));
+      }));
+    }));
+
+    await();
+  }
+
+  /**
+   * Sends a message, resending it until it is acked.
+   */
+  private void send(InputPortReference<Integer> port, int message) {
+    port.send(message, result -> {
+      if (result.failed()) {
+        send(port, message);
+      } else {
+        acked.incrementAndGet();
+        checkComplete();
+      }
+    });
+  }
+
+  private void checkComplete() {
+    if (migrated.get() && acked.get() == MESSAGES && received.size() == MESSAGES && completed.compareAndSet(false, true)) {
+      testComplete();
+    }
+  }
+
+  public static class DelayedAckComponent extends MessageHandlerComponent<Integer> {
+    @Override
+    public void handle(VertigoMessage<Integer> message) {
+      vertx.setTimer(5, id -> {
+        vertx.eventBus().publish(OUTPUT, message.body());
+        message.ack();
+      });
+    }
+  }
+
+}
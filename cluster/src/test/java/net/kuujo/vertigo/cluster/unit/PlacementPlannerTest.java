@@ -0,0 +1,105 @@
+package net.kuujo.vertigo.cluster.unit;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import net.kuujo.vertigo.cluster.PlacementPlanner;
+import net.kuujo.vertigo.cluster.impl.TrafficAwarePlanner;
+import net.kuujo.vertigo.component.AbstractComponent;
+import net.kuujo.vertigo.context.ContextBuilder;
+import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.network.builder.NetworkBuilder;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PlacementPlannerTest {
+
+  private static final List<String> NODES = Arrays.asList("node-1", "node-2", "node-3");
+
+  private NetworkContext chain(double... rates) {
+    NetworkBuilder builder = NetworkConfig.builder("placement");
+    for (int i = 0; i < rates.length; i++) {
+      builder.connect(name(i)).identifier(StubComponent.class.getName()).port("out")
+          .to(name(i + 1)).identifier(StubComponent.class.getName()).port("in").rate(rates[i]);
+    }
+    return ContextBuilder.buildContext(builder.build());
+  }
+
+  private static String name(int index) {
+    return String.valueOf((char) ('a' + index));
+  }
+
+  @Test
+  public void roundRobin_Spread_Test() {
+    Map<String, List<String>> plan = PlacementPlanner.roundRobin().plan(chain(1, 1), NODES, Collections.emptyMap());
+    assertEquals(Arrays.asList("node-1"), plan.get("a"));
+    assertEquals(Arrays.asList("node-2"), plan.get("b"));
+    assertEquals(Arrays.asList("node-3"), plan.get("c"));
+  }
+
+  @Test
+  public void trafficAware_Colocate_Test() {
+    NetworkContext network = chain(1000, 10, 1000);
+    Map<String, List<String>> plan = PlacementPlanner.trafficAware().plan(network, NODES, Collections.emptyMap());
+    assertEquals(plan.get("a"), plan.get("b"));
+    assertEquals(plan.get("c"), plan.get("d"));
+    assertEquals(10, TrafficAwarePlanner.crossTraffic(TrafficAwarePlanner.edges(network, Collections.emptyMap()), plan), 0.001);
+  }
+
+  @Test
+  public void trafficAware_ObservedRates_Test() {
+    NetworkContext network = chain(1, 1000);
+    Map<String, List<String>> expected = PlacementPlanner.trafficAware().plan(network, NODES, Collections.emptyMap());
+    assertEquals(expected.get("b"), expected.get("c"));
+
+    Map<String, Double> observed = new HashMap<>();
+    observed.put(PlacementPlanner.edge("a", "b"), 5000d);
+    observed.put(PlacementPlanner.edge("b", "c"), 10d);
+    Map<String, List<String>> replanned = PlacementPlanner.trafficAware().plan(network, NODES, observed);
+    assertEquals(replanned.get("a"), replanned.get("b"));
+    assertNotEquals(replanned.get("b"), replanned.get("c"));
+  }
+
+  @Test
+  public void trafficAware_Capacity_Test() {
+    NetworkContext network = chain(1, 1, 1, 1, 1, 1, 1, 1);
+    Map<String, List<String>> plan = PlacementPlanner.trafficAware().plan(network, NODES, Collections.emptyMap());
+    Map<String, Integer> load = new HashMap<>();
+    plan.values().forEach(nodes -> nodes.forEach(node -> load.merge(node, 1, Integer::sum)));
+    // Nine instances on three nodes may use at most twice the average per node.
+    assertTrue(load.values().stream().allMatch(count -> count <= 6));
+    assertTrue(load.size() > 1);
+  }
+
+  @Test
+  public void trafficAware_SpreadReplicas_Test() {
+    NetworkBuilder builder = NetworkConfig.builder("replicas");
+    builder.component("worker").identifier(StubComponent.class.getName()).replicas(3).input().port("in");
+    builder.connect().network().port("in").to("worker").port("in");
+    Map<String, List<String>> plan = PlacementPlanner.trafficAware().plan(ContextBuilder.buildContext(builder.build()), NODES, Collections.emptyMap());
+    assertEquals(3, new HashSet<>(plan.get("worker")).size());
+  }
+
+  public static class StubComponent extends AbstractComponent {
+  }
+
+}
@@ -0,0 +1,67 @@
+package net.kuujo.vertigo.cluster.unit;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.cluster.impl.Rebalancer;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RebalancerTest {
+
+  private static JsonObject load(String node, double utilization, JsonObject... instances) {
+    return new JsonObject()
+        .put("node", node)
+        .put("utilization", utilization)
+        .put("instances", new JsonArray(Arrays.asList(instances)));
+  }
+
+  private static JsonObject instance(String id, String component) {
+    return new JsonObject().put("id", id).put("network", "test").put("component", component);
+  }
+
+  @Test
+  public void testSelectPrefersComponentMissingOnTarget() {
+    JsonObject migration = Rebalancer.select(Arrays.asList(
+        load("a", 0.9, instance("1", "x"), instance("2", "y")),
+        load("b", 0.4, instance("3", "x")),
+        load("c", 0.6)), 0.75, 0.5);
+    assertEquals("2", migration.getString("id"));
+    assertEquals("test", migration.getString("network"));
+    assertEquals("a", migration.getString("from"));
+    assertEquals("b", migration.getString("to"));
+  }
+
+  @Test
+  public void testSelectRequiresImbalance() {
+    assertNull(Rebalancer.select(Arrays.asList(
+        load("a", 0.7, instance("1", "x")),
+        load("b", 0.1)), 0.75, 0.5));
+    assertNull(Rebalancer.select(Arrays.asList(
+        load("a", 0.9, instance("1", "x")),
+        load("b", 0.6)), 0.75, 0.5));
+    assertNull(Rebalancer.select(Arrays.asList(
+        load("a", 0.9),
+        load("b", 0.1)), 0.75, 0.5));
+  }
+
+}
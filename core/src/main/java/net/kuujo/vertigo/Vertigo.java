@@ -129,6 +129,63 @@ public interface Vertigo {
   @Fluent
   Vertigo deployNetwork(NetworkConfig network, Handler<AsyncResult<NetworkReference>> doneHandler);
 
+  /**
+   * Deploys a compiled network plan.<p>
+   *
+   * The plan file must have been written with {@link net.kuujo.vertigo.context.NetworkPlan}.
+   * It already contains the resolved and validated network context, so no
+   * configuration resolution, validation or context building is done.
+   *
+   * @param planFile The path to the plan file.
+   * @return The Vertigo instance.
+   */
+  @Fluent
+  Vertigo deployPlan(String planFile);
+
+  /**
+   * Deploys a compiled network plan.<p>
+   *
+   * The plan file must have been written with {@link net.kuujo.vertigo.context.NetworkPlan}.
+   * It already contains the resolved and validated network context, so no
+   * configuration resolution, validation or context building is done.
+   *
+   * @param planFile The path to the plan file.
+   * @param doneHandler An asynchronous handler to be called once the network has
+   *        completed deployment.
+   * @return The Vertigo instance.
+   */
+  @Fluent
+  Vertigo deployPlan(String planFile, Handler<AsyncResult<NetworkReference>> doneHandler);
+
+  /**
+   * Updates a deployed network.<p>
+   *
+   * The given configuration replaces the configuration of the running network
+   * with the same name. Only components that were added, removed or changed are
+   * deployed or undeployed, and the ports and connections of running component
+   * instances are patched in place, so the rest of the network keeps running.
+   *
+   * @param network The updated network configuration.
+   * @return The Vertigo instance.
+   */
+  @Fluent
+  Vertigo updateNetwork(NetworkConfig network);
+
+  /**
+   * Updates a deployed network.<p>
+   *
+   * The given configuration replaces the configuration of the running network
+   * with the same name. Only components that were added, removed or changed are
+   * deployed or undeployed, and the ports and connections of running component
+   * instances are patched in place, so the rest of the network keeps running.
+   *
+   * @param network The updated network configuration.
+   * @param doneHandler An asynchronous handler to be called once the network has been updated.
+   * @return The Vertigo instance.
+   */
+  @Fluent
+  Vertigo updateNetwork(NetworkConfig network, Handler<AsyncResult<NetworkReference>> doneHandler);
+
   /**
    * Undeploys a completed network.<p>
    *
@@ -40,19 +40,29 @@ public interface ConnectionContext<T extends ConnectionContext<T, U>, U extends
    */
   TargetContext target();
 
-//  /**
-//   * Returns whether the connection is ordered.
-//   *
-//   * @return Whether the connection is ordered.
-//   */
-//  boolean ordered();
-//
-//  /**
-//   * Returns whether the connection is at-least-once.
-//   *
-//   * @return Whether the connection is at-least-once.
-//   */
-//  boolean atLeastOnce();
+  /**
+   * Returns the connection address.<p>
+   *
+   * Messages on the connection are sent to this address, on which the
+   * receiving connection listens directly.
+   *
+   * @return The connection address.
+   */
+  String address();
+
+  /**
+   * Returns whether the connection is ordered.
+   *
+   * @return Whether the connection is ordered.
+   */
+  boolean ordered();
+
+  /**
+   * Returns whether the connection is at-least-once.
+   *
+   * @return Whether the connection is at-least-once.
+   */
+  boolean atLeastOnce();
 
   /**
    * Returns the connection's parent port.
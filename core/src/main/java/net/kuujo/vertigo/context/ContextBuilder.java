@@ -34,6 +34,7 @@ import java.util.UUID;
  */
 public final class ContextBuilder {
   private static final String COMPONENT_ADDRESS_PATTERN = System.getProperty("vertigo.component.address", "%1$s.%2$s");
+  private static final String CONNECTION_ADDRESS_PATTERN = System.getProperty("vertigo.connection.address", "%1$s.%2$s->%3$s.%4$s");
 
   /**
    * Builds a network context from a network definition.
@@ -42,6 +43,21 @@ public final class ContextBuilder {
    * @return A new network context.
    */
   public static NetworkContext buildContext(NetworkConfig network) {
+    return buildContext(network, UUID.randomUUID().toString());
+  }
+
+  /**
+   * Builds a network context for a known network version.<p>
+   *
+   * This is used to rebuild the context of a network that has already been
+   * deployed, e.g. on another cluster node, so that both contexts agree on
+   * the version.
+   *
+   * @param network The network definition.
+   * @param version The network version.
+   * @return A new network context.
+   */
+  public static NetworkContext buildContext(NetworkConfig network, String version) {
     // Validate the network configuration.
     Validators.validate(network, NetworkValidator.class);
 
@@ -50,12 +66,15 @@ public final class ContextBuilder {
     // Set basic network configuration options.
     context.setName(network.getName());
     context.setAddress(network.getName());
-    context.setVersion(UUID.randomUUID().toString());
+    context.setVersion(version);
     context.setConfig(network);
 
     // Set up network components without inputs. Inputs are stored in a map so
     // that they can be set up after all component partitions have been set up.
+    // Component configurations are indexed as well so that each connection is
+    // resolved in constant time whatever the NetworkConfig implementation.
     Map<String, ComponentContext> components = new HashMap<>(network.getComponents().size());
+    Map<String, ComponentConfig> configs = new HashMap<>(network.getComponents().size());
     for (ComponentConfig componentConfig : network.getComponents()) {
       // Validate the component configuration.
       Validators.validate(componentConfig, ComponentValidator.class);
@@ -110,6 +129,7 @@ public final class ContextBuilder {
       component.setOutput(output.build());
 
       components.put(componentConfig.getName(), cc);
+      configs.put(componentConfig.getName(), componentConfig);
     }
 
     // Iterate through connections and create connection contexts.
@@ -135,11 +155,19 @@ public final class ContextBuilder {
           ? network.getName()
           : target.address();
 
+      // Each connection gets its own address so that receiving connections can
+      // listen on it directly. Connections to the network keep the network
+      // address, on which network outputs are consumed.
+      String connectionAddress = connection.getTarget().getIsNetwork()
+          ? targetAddress
+          : String.format(CONNECTION_ADDRESS_PATTERN, sourceAddress, connection.getSource().getPort(),
+              targetAddress, connection.getTarget().getPort());
+
       // Only add connections if both components are currently in the network configuration.
       // If a component is added to the configuration later then the context will need to
-      // be rebuilt.
+      // be rebuilt, and running networks can be updated with Vertigo.updateNetwork().
       if (source != null) {
-        ComponentConfig sourceInfo = network.getComponent(source.name());
+        ComponentConfig sourceInfo = configs.get(source.name());
 
         // Add the connection to the source's output port context.
         OutputPortContext.Builder output = OutputPortContext.builder(source.output().port(connection.getSource().getPort()))
@@ -157,12 +185,15 @@ public final class ContextBuilder {
                 .setPort(connection.getTarget().getPort())
                 .setAddress(targetAddress)
                 .build())
+            .setAddress(connectionAddress)
+            .setOrdered(connection.isOrdered())
+            .setAtLeastOnce(connection.isAtLeastOnce())
             .setSendTimeout(connection.getSendTimeout())
             .setPort(output.build()).build());
       }
 
       if (target != null) {
-        ComponentConfig targetInfo = network.getComponent(target.name());
+        ComponentConfig targetInfo = configs.get(target.name());
 
       // Add the connection to the target's input port context.
         InputPortContext.Builder input = InputPortContext.builder(target.input().port(connection.getTarget().getPort()))
@@ -180,6 +211,9 @@ public final class ContextBuilder {
                 .setPort(connection.getTarget().getPort())
                 .setAddress(targetAddress)
                 .build())
+            .setAddress(connectionAddress)
+            .setOrdered(connection.isOrdered())
+            .setAtLeastOnce(connection.isAtLeastOnce())
             .setPort(input.build())
             .build());
       }
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.context;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.VertigoException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact binary encoding of component and network contexts.<p>
+ *
+ * This is used to ship component contexts to remote nodes and to store
+ * compiled network plans. Strings are written
+ * once and referred to by index afterwards, since component names, ports and
+ * addresses repeat across connections, and port type and codec classes are
+ * resolved once per JVM rather than once per decoded port.
+ */
+public final class ContextCodec {
+  private static final byte VERSION = 3;
+  private static final int NULL = -1;
+  private static final Map<String, Class<?>> classes = new ConcurrentHashMap<>();
+
+  private ContextCodec() {
+  }
+
+  /**
+   * Encodes a component context.
+   *
+   * @param component The component context to encode.
+   * @return The encoded component context.
+   */
+  public static Buffer encode(ComponentContext component) {
+    Writer writer = new Writer();
+    writer.buffer.appendByte(VERSION);
+    writer.writeComponent(component);
+    return writer.buffer;
+  }
+
+  /**
+   * Encodes a network context, including its configuration.
+   *
+   * @param network The network context to encode.
+   * @return The encoded network context.
+   */
+  public static Buffer encode(NetworkContext network) {
+    Writer writer = new Writer();
+    writer.buffer.appendByte(VERSION);
+    writer.writeString(network.name());
+    writer.writeString(network.address());
+    writer.writeString(network.version());
+    writer.writeString(network.config() != null ? network.config().toJson().encode() : null);
+    writer.buffer.appendInt(network.components().size());
+    for (ComponentContext component : network.components()) {
+      writer.writeComponent(component);
+    }
+    return writer.buffer;
+  }
+
+  /**
+   * Decodes a component context.
+   *
+   * @param buffer The encoded component context.
+   * @return The decoded component context.
+   * @throws VertigoException if the context cannot be decoded.
+   */
+  public static ComponentContext decode(Buffer buffer) {
+    Reader reader = new Reader(buffer);
+    reader.readVersion();
+    return reader.readComponent();
+  }
+
+  /**
+   * Decodes a network context.<p>
+   *
+   * The network configuration is not resolved until it is first accessed.
+   *
+   * @param buffer The encoded network context.
+   * @return The decoded network context.
+   * @throws VertigoException if the context cannot be decoded.
+   */
+  public static NetworkContext decodeNetwork(Buffer buffer) {
+    Reader reader = new Reader(buffer);
+    reader.readVersion();
+    NetworkContext.Builder network = NetworkContext.builder()
+        .setName(reader.readString())
+        .setAddress(reader.readString())
+        .setVersion(reader.readString());
+    String config = reader.readString();
+    if (config != null) {
+      network.setConfig(new LazyNetworkConfig(new JsonObject(config)));
+    }
+    int count = reader.readInt();
+    List<ComponentContext> components = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      components.add(reader.readComponent());
+    }
+    network.setComponents(components);
+    return network.build();
+  }
+
+  /**
+   * Resolves a class by name, caching the result.
+   */
+  private static Class<?> resolve(String name) {
+    Class<?> type = classes.get(name);
+    if (type == null) {
+      try {
+        type = Class.forName(name);
+      } catch (ClassNotFoundException e) {
+        throw new VertigoException(e.getMessage(), e);
+      }
+      classes.put(name, type);
+    }
+    return type;
+  }
+
+  /**
+   * Context writer.
+   */
+  private static class Writer {
+    private final Buffer buffer = Buffer.buffer(256);
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    private void writeString(String value) {
+      if (value == null) {
+        buffer.appendInt(NULL);
+        return;
+      }
+      Integer index = strings.get(value);
+      if (index != null) {
+        buffer.appendInt(-index - 2);
+      } else {
+        strings.put(value, strings.size());
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.appendInt(bytes.length);
+        buffer.appendBytes(bytes);
+      }
+    }
+
+    private void writeComponent(ComponentContext component) {
+      writeString(component.name());
+      writeString(component.address());
+      writeString(component.main());
+      writeString(component.config() != null ? component.config().encode() : null);
+      buffer.appendByte((byte) ((component.worker() ? 1 : 0) | (component.multiThreaded() ? 2 : 0)));
+      buffer.appendInt(component.replicas());
+
+      buffer.appendInt(component.input().ports().size());
+      for (InputPortContext port : component.input().ports()) {
+        writePort(port);
+        buffer.appendInt(port.connections().size());
+        for (InputConnectionContext connection : port.connections()) {
+          writeEndpoint(connection.source());
+          writeEndpoint(connection.target());
+          writeDelivery(connection);
+        }
+      }
+
+      buffer.appendInt(component.output().ports().size());
+      for (OutputPortContext port : component.output().ports()) {
+        writePort(port);
+        buffer.appendInt(port.connections().size());
+        for (OutputConnectionContext connection : port.connections()) {
+          writeEndpoint(connection.source());
+          writeEndpoint(connection.target());
+          writeDelivery(connection);
+          buffer.appendLong(connection.sendTimeout());
+        }
+      }
+    }
+
+    private void writeDelivery(ConnectionContext<?, ?> connection) {
+      writeString(connection.address());
+      buffer.appendByte((byte) ((connection.ordered() ? 1 : 0) | (connection.atLeastOnce() ? 2 : 0)));
+    }
+
+    private void writePort(PortContext<?, ?> port) {
+      writeString(port.name());
+      writeString(port.type() != null && port.type() != Object.class ? port.type().getName() : null);
+      writeString(port.codec() != null ? port.codec().getName() : null);
+    }
+
+    private void writeEndpoint(EndpointContext<?> endpoint) {
+      writeString(endpoint.component());
+      writeString(endpoint.port());
+      writeString(endpoint.address());
+    }
+  }
+
+  /**
+   * Context reader.
+   */
+  private static class Reader {
+    private final Buffer buffer;
+    private final List<String> strings = new ArrayList<>();
+    private int position;
+
+    private Reader(Buffer buffer) {
+      this.buffer = buffer;
+    }
+
+    private int readInt() {
+      int value = buffer.getInt(position);
+      position += 4;
+      return value;
+    }
+
+    private long readLong() {
+      long value = buffer.getLong(position);
+      position += 8;
+      return value;
+    }
+
+    private String readString() {
+      int length = readInt();
+      if (length == NULL) {
+        return null;
+      } else if (length < NULL) {
+        return strings.get(-length - 2);
+      }
+      String value = buffer.getString(position, position + length, StandardCharsets.UTF_8.name());
+      position += length;
+      strings.add(value);
+      return value;
+    }
+
+    private Class<?> readClass(Class<?> defaultType) {
+      String name = readString();
+      return name != null ? resolve(name) : defaultType;
+    }
+
+    private void readVersion() {
+      byte version = buffer.getByte(position++);
+      if (version != VERSION) {
+        throw new VertigoException(String.format("Unsupported context encoding version %d", version));
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ComponentContext readComponent() {
+      ComponentContext.Builder component = ComponentContext.builder()
+          .setName(readString())
+          .setAddress(readString())
+          .setIdentifier(readString());
+      String config = readString();
+      component.setConfig(config != null ? new JsonObject(config) : null);
+      byte flags = buffer.getByte(position++);
+      component.setWorker((flags & 1) != 0);
+      component.setMultiThreaded((flags & 2) != 0);
+      component.setReplicas(readInt());
+      ComponentContext cc = component.build();
+
+      InputContext.Builder input = InputContext.builder().setComponent(cc);
+      int inputPorts = readInt();
+      for (int i = 0; i < inputPorts; i++) {
+        InputPortContext.Builder port = InputPortContext.builder()
+            .setName(readString())
+            .setType(readClass(Object.class))
+            .setCodec((Class<? extends MessageCodec>) readClass(null))
+            .setInput(input.build());
+        int connections = readInt();
+        for (int j = 0; j < connections; j++) {
+          InputConnectionContext.Builder connection = InputConnectionContext.builder()
+              .setSource(readSource())
+              .setTarget(readTarget())
+              .setAddress(readString());
+          byte delivery = buffer.getByte(position++);
+          port.addConnection(connection
+              .setOrdered((delivery & 1) != 0)
+              .setAtLeastOnce((delivery & 2) != 0)
+              .setPort(port.build())
+              .build());
+        }
+        input.addPort(port.build());
+      }
+      component.setInput(input.build());
+
+      OutputContext.Builder output = OutputContext.builder().setComponent(cc);
+      int outputPorts = readInt();
+      for (int i = 0; i < outputPorts; i++) {
+        OutputPortContext.Builder port = OutputPortContext.builder()
+            .setName(readString())
+            .setType(readClass(Object.class))
+            .setCodec((Class<? extends MessageCodec>) readClass(null))
+            .setOutput(output.build());
+        int connections = readInt();
+        for (int j = 0; j < connections; j++) {
+          OutputConnectionContext.Builder connection = OutputConnectionContext.builder()
+              .setSource(readSource())
+              .setTarget(readTarget())
+              .setAddress(readString());
+          byte delivery = buffer.getByte(position++);
+          port.addConnection(connection
+              .setOrdered((delivery & 1) != 0)
+              .setAtLeastOnce((delivery & 2) != 0)
+              .setSendTimeout(readLong())
+              .setPort(port.build())
+              .build());
+        }
+        output.addPort(port.build());
+      }
+      component.setOutput(output.build());
+      return component.build();
+    }
+
+    private SourceContext readSource() {
+      return SourceContext.builder()
+          .setComponent(readString())
+          .setPort(readString())
+          .setAddress(readString())
+          .build();
+    }
+
+    private TargetContext readTarget() {
+      return TargetContext.builder()
+          .setComponent(readString())
+          .setPort(readString())
+          .setAddress(readString())
+          .build();
+    }
+  }
+
+}
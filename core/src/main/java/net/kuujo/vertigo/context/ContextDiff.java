@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.context;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Difference between two versions of a network context.<p>
+ *
+ * Components are matched by name. A component whose verticle, configuration,
+ * threading model or number of replicas changed must be redeployed, while a
+ * component whose only changes are its ports and connections can be patched
+ * in place on its running instances.
+ */
+public final class ContextDiff {
+  private final List<ComponentContext> added = new ArrayList<>();
+  private final List<ComponentContext> removed = new ArrayList<>();
+  private final List<ComponentContext> redeployed = new ArrayList<>();
+  private final List<ComponentContext> patched = new ArrayList<>();
+
+  private ContextDiff() {
+  }
+
+  /**
+   * Computes the difference between two versions of a network.
+   *
+   * @param current The currently deployed network context.
+   * @param updated The updated network context.
+   * @return The difference between the two contexts.
+   */
+  public static ContextDiff diff(NetworkContext current, NetworkContext updated) {
+    ContextDiff diff = new ContextDiff();
+    for (ComponentContext component : updated.components()) {
+      ComponentContext previous = current.component(component.name());
+      if (previous == null) {
+        diff.added.add(component);
+      } else if (!sameDeployment(previous, component)) {
+        diff.redeployed.add(component);
+      } else if (!previous.input().toJson().equals(component.input().toJson())
+          || !previous.output().toJson().equals(component.output().toJson())) {
+        diff.patched.add(component);
+      }
+    }
+    for (ComponentContext component : current.components()) {
+      if (updated.component(component.name()) == null) {
+        diff.removed.add(component);
+      }
+    }
+    return diff;
+  }
+
+  /**
+   * Returns whether two component contexts can share the same deployed instances.
+   */
+  private static boolean sameDeployment(ComponentContext previous, ComponentContext component) {
+    return Objects.equals(previous.main(), component.main())
+        && Objects.equals(previous.config(), component.config())
+        && previous.worker() == component.worker()
+        && previous.multiThreaded() == component.multiThreaded()
+        && previous.replicas() == component.replicas();
+  }
+
+  /**
+   * Returns the components that were added to the network.
+   *
+   * @return The added components.
+   */
+  public Collection<ComponentContext> added() {
+    return added;
+  }
+
+  /**
+   * Returns the components that were removed from the network.
+   *
+   * @return The removed components, as they appear in the current context.
+   */
+  public Collection<ComponentContext> removed() {
+    return removed;
+  }
+
+  /**
+   * Returns the components that must be redeployed.
+   *
+   * @return The redeployed components, as they appear in the updated context.
+   */
+  public Collection<ComponentContext> redeployed() {
+    return redeployed;
+  }
+
+  /**
+   * Returns the components whose running instances must be patched with new ports or connections.
+   *
+   * @return The patched components, as they appear in the updated context.
+   */
+  public Collection<ComponentContext> patched() {
+    return patched;
+  }
+
+  /**
+   * Returns whether the two contexts describe the same deployment.
+   *
+   * @return Indicates whether there are no changes.
+   */
+  public boolean isEmpty() {
+    return added.isEmpty() && removed.isEmpty() && redeployed.isEmpty() && patched.isEmpty();
+  }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.context;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Registry of deployed network contexts, keyed by network version.<p>
+ *
+ * Deployment managers register a network context before deploying its
+ * components so that components deployed on the same Vert.x instance receive
+ * their context by reference, with only the network version and component
+ * name in the verticle configuration. Contexts are immutable, so all instances
+ * of a component share the same context object.
+ */
+public final class ContextRegistry {
+  /**
+   * Verticle configuration key holding the network version.
+   */
+  public static final String VERSION_KEY = "vertigo_network_version";
+
+  /**
+   * Verticle configuration key holding the component name.
+   */
+  public static final String COMPONENT_KEY = "vertigo_component_name";
+
+  /**
+   * Verticle configuration key holding the binary encoded component context,
+   * used when the network context is not registered on the deploying node.
+   */
+  public static final String BINARY_KEY = "vertigo_component_binary";
+
+  private static final String REGISTRY_KEY = "vertigo.contexts";
+
+  private ContextRegistry() {
+  }
+
+  /**
+   * Registers a network context.
+   *
+   * @param vertx The Vert.x instance.
+   * @param network The network context.
+   */
+  public static void register(Vertx vertx, NetworkContext network) {
+    vertx.sharedData().<String, NetworkContext>getLocalMap(REGISTRY_KEY).put(network.version(), network);
+  }
+
+  /**
+   * Unregisters a network context.
+   *
+   * @param vertx The Vert.x instance.
+   * @param version The network version.
+   */
+  public static void unregister(Vertx vertx, String version) {
+    vertx.sharedData().<String, NetworkContext>getLocalMap(REGISTRY_KEY).remove(version);
+  }
+
+  /**
+   * Looks up a registered component context.
+   *
+   * @param vertx The Vert.x instance.
+   * @param version The network version.
+   * @param component The component name.
+   * @return The component context or <code>null</code> if the network version is not registered.
+   */
+  public static ComponentContext lookup(Vertx vertx, String version, String component) {
+    NetworkContext network = vertx.sharedData().<String, NetworkContext>getLocalMap(REGISTRY_KEY).get(version);
+    return network != null ? network.component(component) : null;
+  }
+
+  /**
+   * Resolves a component context from a reference. The context is looked up by
+   * network version if it is registered, and decoded from its binary encoding otherwise.
+   *
+   * @param vertx The Vert.x instance.
+   * @param reference A reference as returned by {@link #reference(NetworkContext, ComponentContext)},
+   *                  optionally with the binary encoded context under {@link #BINARY_KEY}.
+   * @return The component context or <code>null</code> if it could not be resolved.
+   */
+  public static ComponentContext resolve(Vertx vertx, JsonObject reference) {
+    String version = reference.getString(VERSION_KEY);
+    String name = reference.getString(COMPONENT_KEY);
+    if (version != null && name != null) {
+      ComponentContext context = lookup(vertx, version, name);
+      if (context != null) {
+        return context;
+      }
+    }
+    byte[] binary = reference.getBinary(BINARY_KEY);
+    return binary != null ? ContextCodec.decode(Buffer.buffer(binary)) : null;
+  }
+
+  /**
+   * Returns the verticle configuration referring to a registered component context.
+   *
+   * @param network The network context.
+   * @param component The component context.
+   * @return The component's verticle configuration.
+   */
+  public static JsonObject reference(NetworkContext network, ComponentContext component) {
+    return new JsonObject()
+        .put(VERSION_KEY, network.version())
+        .put(COMPONENT_KEY, component.name());
+  }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.context;
+
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.network.*;
+
+import java.util.Collection;
+
+/**
+ * Network configuration of a decoded network context.<p>
+ *
+ * The configuration is kept as JSON and only resolved into a {@link NetworkConfig}
+ * the first time it is accessed other than by name or as JSON, so that deploying
+ * a compiled network plan does not run the configuration resolvers.
+ */
+class LazyNetworkConfig implements NetworkConfig {
+  private final JsonObject json;
+  private NetworkConfig network;
+
+  LazyNetworkConfig(JsonObject json) {
+    this.json = json;
+  }
+
+  /**
+   * Returns the resolved network configuration.
+   */
+  private synchronized NetworkConfig network() {
+    if (network == null) {
+      network = NetworkConfig.network(json.copy());
+    }
+    return network;
+  }
+
+  @Override
+  public String getName() {
+    return network != null ? network.getName() : json.getString(NETWORK_NAME);
+  }
+
+  @Override
+  public NetworkConfig setName(String name) {
+    network().setName(name);
+    return this;
+  }
+
+  @Override
+  public Collection<ComponentConfig> getComponents() {
+    return network().getComponents();
+  }
+
+  @Override
+  public ComponentConfig getComponent(String name) {
+    return network().getComponent(name);
+  }
+
+  @Override
+  public boolean hasComponent(String name) {
+    return network().hasComponent(name);
+  }
+
+  @Override
+  public ComponentConfig addComponent(String name) {
+    return network().addComponent(name);
+  }
+
+  @Override
+  public ComponentConfig addComponent(ComponentConfig component) {
+    return network().addComponent(component);
+  }
+
+  @Override
+  public ComponentConfig removeComponent(String name) {
+    return network().removeComponent(name);
+  }
+
+  @Override
+  public ComponentConfig removeComponent(ComponentConfig component) {
+    return network().removeComponent(component);
+  }
+
+  @Override
+  public Collection<ConnectionConfig> getConnections() {
+    return network().getConnections();
+  }
+
+  @Override
+  public ConnectionConfig createConnection(ConnectionConfig connection) {
+    return network().createConnection(connection);
+  }
+
+  @Override
+  public ConnectionConfig createConnection(OutputPortConfig output, InputPortConfig input) {
+    return network().createConnection(output, input);
+  }
+
+  @Override
+  public ConnectionConfig destroyConnection(ConnectionConfig connection) {
+    return network().destroyConnection(connection);
+  }
+
+  @Override
+  public void update(JsonObject config) {
+    network().update(config);
+  }
+
+  @Override
+  public synchronized JsonObject toJson() {
+    return network != null ? network.toJson() : json.copy();
+  }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.context;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.VertigoException;
+import net.kuujo.vertigo.network.NetworkConfig;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Compiled network plans.<p>
+ *
+ * A plan is a fully resolved and validated {@link NetworkContext} in the
+ * {@link ContextCodec} binary encoding, preceded by a magic number and a plan
+ * format version. Plans are compiled ahead of time, e.g. at build time with
+ * <code>java net.kuujo.vertigo.context.NetworkPlan &lt;network&gt; &lt;plan-file&gt;</code>,
+ * and deployed with {@link net.kuujo.vertigo.Vertigo#deployPlan(String)}, which
+ * skips configuration resolution, validation and context building.<p>
+ *
+ * The network version is fixed when the plan is compiled, so every deployment
+ * of a plan reports the same version.
+ */
+public final class NetworkPlan {
+  private static final int MAGIC = 0x56504c4e;
+  private static final int FORMAT = 1;
+
+  private NetworkPlan() {
+  }
+
+  /**
+   * Compiles a network configuration into a plan.
+   *
+   * @param network The network configuration.
+   * @return The compiled plan.
+   * @throws net.kuujo.vertigo.network.validators.ValidationException if the network is invalid.
+   */
+  public static Buffer compile(NetworkConfig network) {
+    return compile(ContextBuilder.buildContext(network));
+  }
+
+  /**
+   * Compiles a network context into a plan.
+   *
+   * @param network The network context.
+   * @return The compiled plan.
+   */
+  public static Buffer compile(NetworkContext network) {
+    return Buffer.buffer()
+        .appendInt(MAGIC)
+        .appendInt(FORMAT)
+        .appendBuffer(ContextCodec.encode(network));
+  }
+
+  /**
+   * Loads the network context from a compiled plan.
+   *
+   * @param plan The compiled plan.
+   * @return The network context.
+   * @throws VertigoException if the plan is not a valid plan or was compiled with an unsupported format.
+   */
+  public static NetworkContext load(Buffer plan) {
+    if (plan.length() < 8 || plan.getInt(0) != MAGIC) {
+      throw new VertigoException("Invalid network plan");
+    }
+    int format = plan.getInt(4);
+    if (format != FORMAT) {
+      throw new VertigoException(String.format("Unsupported network plan format %d", format));
+    }
+    return ContextCodec.decodeNetwork(plan.getBuffer(8, plan.length()));
+  }
+
+  /**
+   * Compiles a network into a plan file.<p>
+   *
+   * The network is either a path to a JSON network configuration or the name of
+   * a network that is resolved by the configured network resolvers.
+   *
+   * @param args The network and the path of the plan file to write.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: NetworkPlan <network-name|network.json> <plan-file>");
+      System.exit(1);
+    }
+
+    Path source = Paths.get(args[0]);
+    NetworkConfig network = args[0].endsWith(".json") && Files.exists(source)
+        ? NetworkConfig.network(new JsonObject(new String(Files.readAllBytes(source), StandardCharsets.UTF_8)))
+        : NetworkConfig.network(args[0]);
+
+    NetworkContext context = ContextBuilder.buildContext(network);
+    Files.write(Paths.get(args[1]), compile(context).getBytes());
+    System.out.println(String.format("Compiled network %s version %s with %d components to %s",
+        context.name(), context.version(), context.components().size(), args[1]));
+  }
+
+}
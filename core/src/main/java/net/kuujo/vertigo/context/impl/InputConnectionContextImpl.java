@@ -33,8 +33,9 @@ public class InputConnectionContextImpl implements InputConnectionContext {
 
   protected SourceContext source;
   protected TargetContext target;
-  //  protected boolean ordered;
-//  protected boolean atLeastOnce;
+  protected String address;
+  protected boolean ordered;
+  protected boolean atLeastOnce;
   protected long sendTimeout;
   protected InputPortContext port;
 
@@ -48,15 +49,20 @@ public class InputConnectionContextImpl implements InputConnectionContext {
     return target;
   }
 
-//  @Override
-//  public boolean ordered() {
-//    return ordered;
-//  }
-//
-//  @Override
-//  public boolean atLeastOnce() {
-//    return atLeastOnce;
-//  }
+  @Override
+  public String address() {
+    return address != null ? address : target.address();
+  }
+
+  @Override
+  public boolean ordered() {
+    return ordered;
+  }
+
+  @Override
+  public boolean atLeastOnce() {
+    return atLeastOnce;
+  }
 
   @Override
   public long sendTimeout() {
@@ -78,6 +84,9 @@ public class InputConnectionContextImpl implements InputConnectionContext {
     return new JsonObject()
         .put("source", source.toJson())
         .put("target", target.toJson())
+        .put("address", address)
+        .put("ordered", ordered)
+        .put("atLeastOnce", atLeastOnce)
         .put("sendTimeout", sendTimeout);
   }
   /**
@@ -108,17 +117,23 @@ public class InputConnectionContextImpl implements InputConnectionContext {
       return this;
     }
 
-//    @Override
-//    public Builder setOrdered(boolean ordered) {
-//      connection.ordered = ordered;
-//      return this;
-//    }
-//
-//    @Override
-//    public Builder setAtLeastOnce(boolean atLeastOnce) {
-//      connection.atLeastOnce = atLeastOnce;
-//      return this;
-//    }
+    @Override
+    public Builder setAddress(String address) {
+      connection.address = address;
+      return this;
+    }
+
+    @Override
+    public Builder setOrdered(boolean ordered) {
+      connection.ordered = ordered;
+      return this;
+    }
+
+    @Override
+    public Builder setAtLeastOnce(boolean atLeastOnce) {
+      connection.atLeastOnce = atLeastOnce;
+      return this;
+    }
 
     @Override
     public Builder setPort(InputPortContext port) {
@@ -137,6 +152,9 @@ public class InputConnectionContextImpl implements InputConnectionContext {
           .builder()
           .update(json.getJsonObject("target"))
           .build();
+      connection.address = json.getString("address");
+      connection.ordered = json.getBoolean("ordered", false);
+      connection.atLeastOnce = json.getBoolean("atLeastOnce", false);
       connection.sendTimeout = json.getLong("sendTimeout");
       return this;
     }
@@ -33,8 +33,9 @@ public class OutputConnectionContextImpl implements OutputConnectionContext {
 
   protected SourceContext source;
   protected TargetContext target;
-  //  protected boolean ordered;
-//  protected boolean atLeastOnce;
+  protected String address;
+  protected boolean ordered;
+  protected boolean atLeastOnce;
   protected long sendTimeout;
   protected OutputPortContext port;
 
@@ -48,15 +49,20 @@ public class OutputConnectionContextImpl implements OutputConnectionContext {
     return target;
   }
 
-//  @Override
-//  public boolean ordered() {
-//    return ordered;
-//  }
-//
-//  @Override
-//  public boolean atLeastOnce() {
-//    return atLeastOnce;
-//  }
+  @Override
+  public String address() {
+    return address != null ? address : target.address();
+  }
+
+  @Override
+  public boolean ordered() {
+    return ordered;
+  }
+
+  @Override
+  public boolean atLeastOnce() {
+    return atLeastOnce;
+  }
 
   @Override
   public long sendTimeout() {
@@ -78,6 +84,9 @@ public class OutputConnectionContextImpl implements OutputConnectionContext {
     return new JsonObject()
         .put("source", source.toJson())
         .put("target", target.toJson())
+        .put("address", address)
+        .put("ordered", ordered)
+        .put("atLeastOnce", atLeastOnce)
         .put("sendTimeout", sendTimeout);
   }
   /**
@@ -108,17 +117,23 @@ public class OutputConnectionContextImpl implements OutputConnectionContext {
       return this;
     }
 
-//    @Override
-//    public Builder setOrdered(boolean ordered) {
-//      connection.ordered = ordered;
-//      return this;
-//    }
-//
-//    @Override
-//    public Builder setAtLeastOnce(boolean atLeastOnce) {
-//      connection.atLeastOnce = atLeastOnce;
-//      return this;
-//    }
+    @Override
+    public Builder setAddress(String address) {
+      connection.address = address;
+      return this;
+    }
+
+    @Override
+    public Builder setOrdered(boolean ordered) {
+      connection.ordered = ordered;
+      return this;
+    }
+
+    @Override
+    public Builder setAtLeastOnce(boolean atLeastOnce) {
+      connection.atLeastOnce = atLeastOnce;
+      return this;
+    }
 
     @Override
     public Builder setPort(OutputPortContext port) {
@@ -141,6 +156,9 @@ public class OutputConnectionContextImpl implements OutputConnectionContext {
       connection.target = TargetContext.builder()
           .update(json.getJsonObject("target"))
           .build();
+      connection.address = json.getString("address");
+      connection.ordered = json.getBoolean("ordered", false);
+      connection.atLeastOnce = json.getBoolean("atLeastOnce", false);
       connection.sendTimeout = json.getLong("sendTimeout");
       return this;
     }
@@ -24,6 +24,8 @@ import net.kuujo.vertigo.context.NetworkContext;
 import net.kuujo.vertigo.reference.NetworkReference;
 import net.kuujo.vertigo.spi.DeploymentManagerFactory;
 
+import java.util.Comparator;
+
 /**
  * Vertigo context manager.
  *
@@ -60,6 +62,25 @@ public interface DeploymentManager {
    */
   DeploymentManager deployNetwork(NetworkContext network, Handler<AsyncResult<Void>> doneHandler);
 
+  /**
+   * Updates a deployed network.<p>
+   *
+   * The updated network is compared with the deployed network. Components that
+   * were added are deployed, components that were removed are undeployed, and
+   * components whose verticle, configuration or number of replicas changed are
+   * redeployed. Running instances of the remaining components whose ports or
+   * connections changed are patched in place. Removed and redeployed components
+   * are only undeployed once the patched instances have confirmed the update,
+   * and redeployed instances are drained into their replacements first. If any
+   * component fails to deploy, the components that were deployed are undeployed
+   * again and the previous network is kept.
+   *
+   * @param network The updated network.
+   * @param doneHandler An asynchronous handler to be called once the network has been updated.
+   * @return The context manager.
+   */
+  DeploymentManager updateNetwork(NetworkContext network, Handler<AsyncResult<Void>> doneHandler);
+
   /**
    * Undeploys a network.
    *
@@ -77,6 +98,8 @@ public interface DeploymentManager {
    */
   DeploymentManager getNetworkReference(String id, Handler<AsyncResult<NetworkReference>> doneHandler);
 
-  static DeploymentManagerFactory factory = ServiceHelper.loadFactory(DeploymentManagerFactory.class);
+  static DeploymentManagerFactory factory = ServiceHelper.loadFactories(DeploymentManagerFactory.class).stream()
+      .max(Comparator.comparingInt(DeploymentManagerFactory::priority))
+      .orElseThrow(() -> new IllegalStateException("No " + DeploymentManagerFactory.class.getName() + " found on the classpath"));
 
 }
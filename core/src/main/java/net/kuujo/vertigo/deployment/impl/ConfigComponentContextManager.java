@@ -2,7 +2,9 @@ package net.kuujo.vertigo.deployment.impl;
 
 import io.vertx.core.*;
 import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.VertigoException;
 import net.kuujo.vertigo.context.ComponentContext;
+import net.kuujo.vertigo.context.ContextRegistry;
 import net.kuujo.vertigo.instance.ComponentInstance;
 import net.kuujo.vertigo.spi.ComponentInstanceFactory;
 import net.kuujo.vertigo.spi.ComponentInstanceProvider;
@@ -15,11 +17,7 @@ public class ConfigComponentContextManager implements ComponentInstanceProvider
   public void registerAndGet(Vertx vertx, JsonObject config, Handler<AsyncResult<ComponentInstance>> handler) {
     try {
       // Only supports configuration during component startup
-      JsonObject contextJson = config.getJsonObject("vertigo_component_context");
-      ComponentContext context = ComponentContext
-          .builder()
-          .update(contextJson)
-          .build();
+      ComponentContext context = context(vertx, config);
       ComponentInstance component = factory.createComponentInstance(vertx, context);
       component.start(result -> handler.handle(Future.succeededFuture(component)));
 
@@ -28,4 +26,27 @@ public class ConfigComponentContextManager implements ComponentInstanceProvider
       throw throwable;
     }
   }
+
+  /**
+   * Resolves the component context from the verticle configuration. Contexts
+   * registered on this Vert.x instance are used by reference. Otherwise the
+   * context is decoded from its binary encoding, or from JSON for verticles
+   * that were deployed with a full context.
+   */
+  private static ComponentContext context(Vertx vertx, JsonObject config) {
+    ComponentContext context = ContextRegistry.resolve(vertx, config);
+    if (context != null) {
+      return context;
+    }
+
+    JsonObject contextJson = config.getJsonObject("vertigo_component_context");
+    if (contextJson != null) {
+      return ComponentContext
+          .builder()
+          .update(contextJson)
+          .build();
+    }
+    throw new VertigoException(String.format("No context found for component %s of network version %s",
+        config.getString(ContextRegistry.COMPONENT_KEY), config.getString(ContextRegistry.VERSION_KEY)));
+  }
 }
@@ -16,15 +16,27 @@
 package net.kuujo.vertigo.deployment.impl;
 
 import io.vertx.core.*;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.shareddata.LocalMap;
 import net.kuujo.vertigo.deployment.DeploymentManager;
+import net.kuujo.vertigo.instance.impl.ComponentInstanceImpl;
 import net.kuujo.vertigo.VertigoException;
 import net.kuujo.vertigo.context.ComponentContext;
+import net.kuujo.vertigo.context.ContextDiff;
+import net.kuujo.vertigo.context.ContextRegistry;
 import net.kuujo.vertigo.context.NetworkContext;
 import net.kuujo.vertigo.reference.NetworkReference;
 import net.kuujo.vertigo.reference.impl.NetworkReferenceImpl;
 import net.kuujo.vertigo.util.CountingCompletionHandler;
+import net.kuujo.vertigo.util.Delivery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Local context manager implementation.
@@ -33,6 +45,8 @@ import net.kuujo.vertigo.util.CountingCompletionHandler;
  */
 public class LocalDeploymentManager implements DeploymentManager {
   private static final String NETWORKS_KEY = "vertigo";
+  private static final long UPDATE_TIMEOUT = Long.getLong("vertigo.update-timeout", 5000);
+  private static final long DRAIN_TIMEOUT = Long.getLong("vertigo.drain-timeout", 10000);
   private final Vertx vertx;
 
   LocalDeploymentManager(Vertx vertx) {
@@ -55,38 +69,199 @@ public class LocalDeploymentManager implements DeploymentManager {
 
     // Add to local map to make it accessible from the component.start() methods
     vertx.sharedData().<String, NetworkContext>getLocalMap(NETWORKS_KEY).put(network.name(), network);
+    ContextRegistry.register(vertx, network);
 
     CountingCompletionHandler<Void> counter = new CountingCompletionHandler<Void>(network.components().size()).setHandler(result -> {
       if (result.failed()) {
         vertx.sharedData().<String, NetworkContext>getLocalMap(NETWORKS_KEY).remove(network.name());
+        ContextRegistry.unregister(vertx, network.version());
       }
       doneHandler.handle(result);
     });
 
     for (ComponentContext component : network.components()) {
+      deployComponent(network, component, counter);
+    }
+    return this;
+  }
+
+  /**
+   * Deploys a single component and records its deployment ID. The component
+   * context is passed by reference through the {@link ContextRegistry}.
+   */
+  private void deployComponent(NetworkContext network, ComponentContext component, Handler<AsyncResult<Void>> doneHandler) {
+    JsonObject config = ContextRegistry.reference(network, component);
 
-      JsonObject config = new JsonObject()
-          .put("vertigo_component_context", component.toJson());
+    if (component.config() != null) {
+      config.mergeIn(component.config());
+    }
 
-      if (component.config() != null) {
-        config.mergeIn(component.config());
+    DeploymentOptions options = new DeploymentOptions()
+        .setConfig(config)
+        .setWorker(component.worker())
+        .setMultiThreaded(component.multiThreaded());
+
+    vertx.deployVerticle(component.main(), options, result -> {
+      if (result.failed()) {
+        Future.<Void>failedFuture(result.cause()).setHandler(doneHandler);
+      } else {
+        vertx.sharedData().<String, String>getLocalMap(network.name()).put(component.address(), result.result());
+        Future.<Void>succeededFuture().setHandler(doneHandler);
       }
+    });
+  }
 
-      DeploymentOptions options = new DeploymentOptions()
-          .setConfig(config)
-          .setWorker(component.worker())
-          .setMultiThreaded(component.multiThreaded());
+  @Override
+  public DeploymentManager updateNetwork(NetworkContext network, Handler<AsyncResult<Void>> doneHandler) {
+    LocalMap<String, NetworkContext> networks = vertx.sharedData().getLocalMap(NETWORKS_KEY);
+    NetworkContext current = networks.get(network.name());
+    if (current == null) {
+      Future.<Void>failedFuture(new VertigoException(String.format("Invalid network %s: NetworkConfig not found", network.name()))).setHandler(doneHandler);
+      return this;
+    }
+
+    ContextDiff diff = ContextDiff.diff(current, network);
+    LocalMap<String, String> deploymentIds = vertx.sharedData().getLocalMap(network.name());
+    List<ComponentContext> deploy = new ArrayList<>(diff.added());
+    deploy.addAll(diff.redeployed());
+    Map<String, String> previous = new HashMap<>();
+    for (ComponentContext component : deploy) {
+      previous.put(component.address(), deploymentIds.get(component.address()));
+    }
 
-      vertx.deployVerticle(component.main(), options, result -> {
+    // New components are deployed before running components are patched to send to them,
+    // and removed components are only undeployed once every patched instance has confirmed
+    // that it no longer sends to them. Redeployed components are drained into their
+    // replacements so that messages they already received are not lost.
+    networks.put(network.name(), network);
+    ContextRegistry.register(vertx, network);
+    deployComponents(network, deploy, deployResult -> {
+      if (deployResult.failed()) {
+        List<String> deployed = new ArrayList<>();
+        for (Map.Entry<String, String> entry : previous.entrySet()) {
+          String deploymentId = deploymentIds.get(entry.getKey());
+          if (deploymentId != null && !deploymentId.equals(entry.getValue())) {
+            deployed.add(deploymentId);
+          }
+          if (entry.getValue() != null) {
+            deploymentIds.put(entry.getKey(), entry.getValue());
+          } else {
+            deploymentIds.remove(entry.getKey());
+          }
+        }
+        networks.put(network.name(), current);
+        ContextRegistry.unregister(vertx, network.version());
+        undeployAll(deployed, undeployResult -> Future.<Void>failedFuture(deployResult.cause()).setHandler(doneHandler));
+        return;
+      }
+
+      patchComponents(network, diff.patched(), patched -> {
+        List<String> removed = new ArrayList<>();
+        for (ComponentContext component : diff.removed()) {
+          String deploymentId = deploymentIds.remove(component.address());
+          if (deploymentId != null) {
+            removed.add(deploymentId);
+          }
+        }
+        CountingCompletionHandler<Void> undeployed = new CountingCompletionHandler<>(2);
+        undeployAll(removed, undeployed);
+        replaceComponents(diff.redeployed(), previous, deploymentIds, undeployed);
+        undeployed.setHandler(undeployResult -> {
+          ContextRegistry.unregister(vertx, current.version());
+          if (undeployResult.failed()) {
+            Future.<Void>failedFuture(undeployResult.cause()).setHandler(doneHandler);
+          } else {
+            Future.<Void>succeededFuture().setHandler(doneHandler);
+          }
+        });
+      });
+    });
+    return this;
+  }
+
+  /**
+   * Deploys components, waiting for every deployment to complete before calling
+   * the handler so that a failed deployment can be rolled back completely.
+   */
+  private void deployComponents(NetworkContext network, List<ComponentContext> components, Handler<AsyncResult<Void>> doneHandler) {
+    if (components.isEmpty()) {
+      Future.<Void>succeededFuture().setHandler(doneHandler);
+      return;
+    }
+
+    List<Throwable> failures = new ArrayList<>();
+    AtomicInteger remaining = new AtomicInteger(components.size());
+    for (ComponentContext component : components) {
+      deployComponent(network, component, result -> {
         if (result.failed()) {
-          counter.fail(result.cause());
-        } else {
-          vertx.sharedData().<String, String>getLocalMap(network.name()).put(component.address(), result.result());
-          counter.succeed();
+          synchronized (failures) {
+            failures.add(result.cause());
+          }
+        }
+        if (remaining.decrementAndGet() == 0) {
+          if (failures.isEmpty()) {
+            Future.<Void>succeededFuture().setHandler(doneHandler);
+          } else {
+            Future.<Void>failedFuture(failures.get(0)).setHandler(doneHandler);
+          }
         }
       });
     }
-    return this;
+  }
+
+  /**
+   * Patches the running instances of components and waits until each instance has
+   * confirmed the update or the update timeout elapses.
+   */
+  private void patchComponents(NetworkContext network, Collection<ComponentContext> components, Handler<Void> doneHandler) {
+    if (components.isEmpty()) {
+      doneHandler.handle(null);
+      return;
+    }
+
+    AtomicInteger remaining = new AtomicInteger(components.size());
+    DeliveryOptions options = new DeliveryOptions().addHeader("action", ComponentInstanceImpl.UPDATE_ACTION);
+    for (ComponentContext component : components) {
+      Delivery.publish(vertx, component.address(), ContextRegistry.reference(network, component), options, 1, UPDATE_TIMEOUT, result -> {
+        if (remaining.decrementAndGet() == 0) {
+          doneHandler.handle(null);
+        }
+      });
+    }
+  }
+
+  /**
+   * Drains the previous instances of redeployed components into their replacements
+   * and undeploys them.
+   */
+  private void replaceComponents(Collection<ComponentContext> components, Map<String, String> previous,
+                                 LocalMap<String, String> deploymentIds, Handler<AsyncResult<Void>> doneHandler) {
+    CountingCompletionHandler<Void> counter = new CountingCompletionHandler<Void>(components.size()).setHandler(doneHandler);
+    DeliveryOptions options = new DeliveryOptions()
+        .addHeader("action", ComponentInstanceImpl.DRAIN_ACTION)
+        .setSendTimeout(DRAIN_TIMEOUT * 2);
+    for (ComponentContext component : components) {
+      String deploymentId = previous.get(component.address());
+      if (deploymentId == null) {
+        counter.succeed();
+        continue;
+      }
+      JsonObject request = new JsonObject()
+          .put("forward", ComponentInstanceImpl.instanceAddress(component.address(), deploymentIds.get(component.address())))
+          .put("timeout", DRAIN_TIMEOUT);
+      vertx.eventBus().send(ComponentInstanceImpl.instanceAddress(component.address(), deploymentId), request, options,
+          drained -> vertx.undeploy(deploymentId, counter));
+    }
+  }
+
+  /**
+   * Undeploys deployments.
+   */
+  private void undeployAll(List<String> deploymentIds, Handler<AsyncResult<Void>> doneHandler) {
+    CountingCompletionHandler<Void> counter = new CountingCompletionHandler<Void>(deploymentIds.size()).setHandler(doneHandler);
+    for (String deploymentId : deploymentIds) {
+      vertx.undeploy(deploymentId, counter);
+    }
   }
 
   @Override
@@ -97,6 +272,7 @@ public class LocalDeploymentManager implements DeploymentManager {
       if (result.succeeded()) {
         vertx.sharedData().<String, NetworkContext>getLocalMap(NETWORKS_KEY).remove(network.name());
         vertx.sharedData().<String, String>getLocalMap(network.name()).clear();
+        ContextRegistry.unregister(vertx, network.version());
       }
       doneHandler.handle(result);
     });
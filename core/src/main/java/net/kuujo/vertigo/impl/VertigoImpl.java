@@ -25,6 +25,7 @@ import net.kuujo.vertigo.VertigoOptions;
 import net.kuujo.vertigo.network.NetworkConfig;
 import net.kuujo.vertigo.context.ContextBuilder;
 import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.context.NetworkPlan;
 import net.kuujo.vertigo.reference.NetworkReference;
 import net.kuujo.vertigo.reference.impl.NetworkReferenceImpl;
 
@@ -74,6 +75,60 @@ public class VertigoImpl implements Vertigo {
     return this;
   }
 
+  @Override
+  public Vertigo deployPlan(String planFile) {
+    return deployPlan(planFile, null);
+  }
+
+  @Override
+  public Vertigo deployPlan(String planFile, Handler<AsyncResult<NetworkReference>> doneHandler) {
+    vertx.fileSystem().readFile(planFile, readResult -> {
+      if (readResult.failed()) {
+        Future.<NetworkReference>failedFuture(readResult.cause()).setHandler(doneHandler);
+        return;
+      }
+      NetworkContext context;
+      try {
+        context = NetworkPlan.load(readResult.result());
+      } catch (Exception e) {
+        Future.<NetworkReference>failedFuture(e).setHandler(doneHandler);
+        return;
+      }
+      manager.deployNetwork(context, result -> {
+        if (result.failed()) {
+          Future.<NetworkReference>failedFuture(result.cause()).setHandler(doneHandler);
+        } else {
+          Future.<NetworkReference>succeededFuture(new NetworkReferenceImpl(vertx, context)).setHandler(doneHandler);
+        }
+      });
+    });
+    return this;
+  }
+
+  @Override
+  public Vertigo updateNetwork(NetworkConfig network) {
+    return updateNetwork(network, null);
+  }
+
+  @Override
+  public Vertigo updateNetwork(NetworkConfig network, Handler<AsyncResult<NetworkReference>> doneHandler) {
+    NetworkContext context;
+    try {
+      context = ContextBuilder.buildContext(network);
+    } catch (Exception e) {
+      Future.<NetworkReference>failedFuture(e).setHandler(doneHandler);
+      return this;
+    }
+    manager.updateNetwork(context, result -> {
+      if (result.failed()) {
+        Future.<NetworkReference>failedFuture(result.cause()).setHandler(doneHandler);
+      } else {
+        Future.<NetworkReference>succeededFuture(new NetworkReferenceImpl(vertx, context)).setHandler(doneHandler);
+      }
+    });
+    return this;
+  }
+
   @Override
   public Vertigo undeployNetwork(String id) {
     return undeployNetwork(id, null);
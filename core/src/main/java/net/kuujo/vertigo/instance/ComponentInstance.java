@@ -23,6 +23,7 @@ import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import net.kuujo.vertigo.context.ComponentContext;
+import net.kuujo.vertigo.metrics.ComponentMetrics;
 
 /**
  * The component is the primary unit of processing in Vertigo. Vertigo
@@ -80,6 +81,15 @@ public interface ComponentInstance {
    */
   OutputCollector output();
 
+  /**
+   * Returns the component's {@link ComponentMetrics}. Metrics are a live view of
+   * message counts, pauses, queue depths and handler times for each port and
+   * connection of the component.
+   *
+   * @return The component's {@link ComponentMetrics}.
+   */
+  ComponentMetrics metrics();
+
 //  /**
 //   * Returns the partition logger. This is a special logger that references the
 //   * Vertigo component partition and can allow for fine grained control of logging
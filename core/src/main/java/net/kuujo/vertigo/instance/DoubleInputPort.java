@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.instance;
+
+import io.vertx.core.Handler;
+import net.kuujo.vertigo.message.DoubleChunk;
+
+/**
+ * Input port receiving chunks of unboxed <code>double</code> values sent by a {@link DoubleOutputPort}.<p>
+ *
+ * Each chunk is a view over the received message, so reading values allocates
+ * nothing. Chunks are acked once the handler returns, or failed if it throws.
+ */
+public interface DoubleInputPort {
+
+  /**
+   * Returns the port name.
+   *
+   * @return The port name.
+   */
+  String name();
+
+  /**
+   * Sets a chunk handler on the port, replacing the port's message handler.
+   *
+   * @param handler The chunk handler.
+   * @return The input port.
+   */
+  DoubleInputPort handler(Handler<DoubleChunk> handler);
+
+}
@@ -18,6 +18,7 @@ package net.kuujo.vertigo.instance;
 import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.core.Handler;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.streams.ReadStream;
 
 /**
  * Input port on which messages are received.<p>
@@ -31,4 +32,38 @@ import io.vertx.core.eventbus.Message;
  */
 @VertxGen
 public interface InputPort<T> extends Port<InputPort<T>>, Input<InputPort<T>, T>, Handler<Message<T>> {
+
+  /**
+   * Returns the port as a read stream of message bodies.<p>
+   *
+   * The stream takes over the port's message handler. Messages are acked once
+   * they have been passed to the stream handler, and messages received while the
+   * stream is paused are held without being acked, so that senders waiting for
+   * acks are held back. The end handler is called once every source connected
+   * to the port has ended its stream, e.g. with {@link OutputPort#writeStream()}.
+   *
+   * @return The port read stream.
+   */
+  ReadStream<T> readStream();
+
+  /**
+   * Returns the port as an input port for chunks of <code>long</code> values
+   * sent with {@link OutputPort#longs()}.<p>
+   *
+   * Setting a handler on the returned port replaces the port's message handler.
+   *
+   * @return The long input port.
+   */
+  LongInputPort longs();
+
+  /**
+   * Returns the port as an input port for chunks of <code>double</code> values
+   * sent with {@link OutputPort#doubles()}.<p>
+   *
+   * Setting a handler on the returned port replaces the port's message handler.
+   *
+   * @return The double input port.
+   */
+  DoubleInputPort doubles();
+
 }
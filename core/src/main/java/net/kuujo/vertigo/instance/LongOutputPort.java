@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.instance;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+
+/**
+ * Output port sending unboxed <code>long</code> values in chunks.<p>
+ *
+ * Values are appended to a buffer without boxing and sent to every target of
+ * the port as a single message once the chunk holds <code>vertigo.port.chunk-size</code>
+ * values (default <code>1024</code>), or at the end of the current event loop task.
+ * The targets receive the chunks on a {@link LongInputPort}.
+ */
+public interface LongOutputPort {
+
+  /**
+   * Returns the port name.
+   *
+   * @return The port name.
+   */
+  String name();
+
+  /**
+   * Appends a value to the current chunk.
+   *
+   * @param value The value to send.
+   * @return The output port.
+   */
+  LongOutputPort send(long value);
+
+  /**
+   * Sends the current chunk.
+   *
+   * @return The output port.
+   */
+  LongOutputPort flush();
+
+  /**
+   * Sends the current chunk.
+   *
+   * @param ackHandler An asynchronous handler to be called once the chunk has been acked.
+   * @return The output port.
+   */
+  LongOutputPort flush(Handler<AsyncResult<Void>> ackHandler);
+
+}
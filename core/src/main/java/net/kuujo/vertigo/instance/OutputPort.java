@@ -18,6 +18,7 @@ package net.kuujo.vertigo.instance;
 import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.core.Handler;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.streams.WriteStream;
 
 /**
  * Output port to which messages are sent.
@@ -26,4 +27,37 @@ import io.vertx.core.eventbus.Message;
  */
 @VertxGen
 public interface OutputPort<T> extends Port<OutputPort<T>>, Output<OutputPort<T>, T>, Handler<Message<T>> {
+
+  /**
+   * Returns the port as a write stream.<p>
+   *
+   * Messages written to the stream are sent with an ack handler, and the write
+   * queue is full while too many messages are unacked or the port's send queue
+   * is full. Ending the stream sends an end-of-stream marker to every target
+   * of the port, which ends the target's {@link InputPort#readStream()}.
+   *
+   * @return The port write stream.
+   */
+  WriteStream<T> writeStream();
+
+  /**
+   * Returns the port as an output port for unboxed <code>long</code> values.<p>
+   *
+   * Values are sent in chunks of raw eight-byte values, to be received on
+   * {@link InputPort#longs()}.
+   *
+   * @return The long output port.
+   */
+  LongOutputPort longs();
+
+  /**
+   * Returns the port as an output port for unboxed <code>double</code> values.<p>
+   *
+   * Values are sent in chunks of raw eight-byte values, to be received on
+   * {@link InputPort#doubles()}.
+   *
+   * @return The double output port.
+   */
+  DoubleOutputPort doubles();
+
 }
@@ -15,6 +15,8 @@
  */
 package net.kuujo.vertigo.instance;
 
+import net.kuujo.vertigo.metrics.PortMetrics;
+
 /**
  * Base port type.
  *
@@ -43,4 +45,11 @@ public interface Port<T extends Port<T>> {
    */
   T replay();
 
+  /**
+   * Returns the port metrics.
+   *
+   * @return The port metrics.
+   */
+  PortMetrics metrics();
+
 }
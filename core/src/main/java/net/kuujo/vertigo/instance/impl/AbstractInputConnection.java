@@ -9,6 +9,9 @@ import io.vertx.core.logging.LoggerFactory;
 import net.kuujo.vertigo.context.InputConnectionContext;
 import net.kuujo.vertigo.instance.InputConnection;
 import net.kuujo.vertigo.message.VertigoMessage;
+import net.kuujo.vertigo.metrics.ConnectionMetrics;
+import net.kuujo.vertigo.metrics.impl.ConnectionMetricsImpl;
+import net.kuujo.vertigo.metrics.impl.Tracing;
 import net.kuujo.vertigo.spi.VertigoMessageFactory;
 
 import java.util.UUID;
@@ -30,6 +33,7 @@ public abstract class AbstractInputConnection<T> implements InputConnection<T>,
   protected final InputConnectionContext context;
 
   protected final VertigoMessageFactory messageFactory;
+  protected final ConnectionMetricsImpl metrics;
   protected Handler<VertigoMessage<T>> messageHandler;
 
   protected AbstractInputConnection(Vertx vertx, InputConnectionContext context, VertigoMessageFactory messageFactory) {
@@ -37,6 +41,14 @@ public abstract class AbstractInputConnection<T> implements InputConnection<T>,
     this.eventBus = vertx.eventBus();
     this.context = context;
     this.messageFactory = messageFactory;
+    this.metrics = new ConnectionMetricsImpl(context != null
+        ? ConnectionMetricsImpl.name(context.source().component(), context.source().address(), context.source().port())
+        : "external");
+  }
+
+  @Override
+  public ConnectionMetrics metrics() {
+    return metrics;
   }
 
   @Override
@@ -50,6 +62,12 @@ public abstract class AbstractInputConnection<T> implements InputConnection<T>,
     return this;
   }
 
+  /**
+   * Closes the connection, releasing any timers it holds.
+   */
+  public void close() {
+  }
+
   /**
    * Handles receiving a message.
    * @param message the message to handle
@@ -72,7 +90,17 @@ public abstract class AbstractInputConnection<T> implements InputConnection<T>,
    * @param vertigoMessage the message to handle
    */
   protected void doVertigoMessage(VertigoMessage<T> vertigoMessage) {
-    messageHandler.handle(vertigoMessage);
+    metrics.messageReceived();
+    boolean traced = Tracing.enter(vertigoMessage.headers(), metrics);
+    long start = System.nanoTime();
+    try {
+      messageHandler.handle(vertigoMessage);
+    } finally {
+      metrics.handlerTime(System.nanoTime() - start);
+      if (traced) {
+        Tracing.exit();
+      }
+    }
   }
 
   @Override
@@ -4,11 +4,22 @@ import io.vertx.core.*;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
 import io.vertx.core.http.CaseInsensitiveHeaders;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 import net.kuujo.vertigo.context.OutputConnectionContext;
+import net.kuujo.vertigo.VertigoException;
 import net.kuujo.vertigo.instance.OutputConnection;
+import net.kuujo.vertigo.metrics.ConnectionMetrics;
+import net.kuujo.vertigo.metrics.impl.ConnectionMetricsImpl;
+import net.kuujo.vertigo.metrics.impl.Tracing;
+import net.kuujo.vertigo.util.AckBatcher;
+import net.kuujo.vertigo.util.TimingWheel;
 
 import java.util.UUID;
 
@@ -28,13 +39,29 @@ public abstract class AbstractOutputConnection<T> implements OutputConnection<T>
   protected final Vertx vertx;
   protected final EventBus eventBus;
   protected final OutputConnectionContext context;
-
+  protected final ConnectionMetricsImpl metrics;
+  protected final TcpTransport transport;
+  private TimingWheel<Handler<AsyncResult<Void>>> acks;
+  private MessageConsumer<JsonObject> ackConsumer;
+  private String ackAddress;
+  private long ackTimerID = -1;
+  private long lastAckId;
+
+  private static final long ACK_TICK = Long.getLong("vertigo.ack.tick", 100);
+  private static final int ACK_WHEEL_SIZE = 512;
   private static final Logger logger = LoggerFactory.getLogger(AbstractOutputConnection.class);
 
   public AbstractOutputConnection(Vertx vertx, OutputConnectionContext context) {
     this.vertx = vertx;
     this.eventBus = vertx.eventBus();
     this.context = context;
+    this.metrics = new ConnectionMetricsImpl(ConnectionMetricsImpl.name(context.target().component(), context.target().address(), context.target().port()), this::size);
+    this.transport = TcpTransport.ENABLED ? TcpTransport.get(vertx) : null;
+  }
+
+  @Override
+  public ConnectionMetrics metrics() {
+    return metrics;
   }
 
   @Override
@@ -43,9 +70,11 @@ public abstract class AbstractOutputConnection<T> implements OutputConnection<T>
     Long id = Long.valueOf(message.headers().get(INDEX_HEADER));
     switch (action) {
       case PAUSE_ACTION:
+        metrics.paused();
         doPause(id);
         break;
       case RESUME_ACTION:
+        metrics.resumed();
         doResume(id);
         break;
     }
@@ -74,6 +103,10 @@ public abstract class AbstractOutputConnection<T> implements OutputConnection<T>
    * @return a reference to this object
    */
   protected OutputConnection<T> trySend(Object message, MultiMap headers, Handler<AsyncResult<Void>> ackHandler) {
+    // Reject bodies the transport cannot encode before any state is held for them.
+    if (transport != null) {
+      TcpTransport.checkBody(message);
+    }
     Payload payload = createPayload(message, headers, ackHandler);
     if (!isPaused()) {
       doSend(payload);
@@ -91,33 +124,151 @@ public abstract class AbstractOutputConnection<T> implements OutputConnection<T>
       logger.debug("{} - Send: Message[name={}, message={}]", this, payload.getId(), payload.getMessage());
     }
 
+    // The ack is only tracked once the message was written, so a send that
+    // throws does not also time out later.
+    transmit(payload);
+    metrics.messageSent();
     if (payload.getAckHandler() != null) {
-      eventBus.send(context.target().address(), payload.getMessage(), payload.getOptions(), r -> {
-        if (r.succeeded()) {
-          payload.getAckHandler().handle(Future.succeededFuture());
-        } else {
-          payload.getAckHandler().handle(Future.failedFuture(r.cause()));
-        }
-      });
+      trackAck(payload.getAckId(), payload.getAckHandler());
+    }
+    return this;
+  }
+
+  /**
+   * Writes a message to the connection address, through the TCP transport if it is enabled.
+   */
+  protected void transmit(Payload payload) {
+    if (transport != null) {
+      transport.send(context.address(), payload.getMessage(), payload.getOptions(), metrics);
     } else {
-      eventBus.send(context.target().address(), payload.getMessage(), payload.getOptions());
+      eventBus.send(context.address(), payload.getMessage(), payload.getOptions());
     }
+  }
 
-    return this;
+  /**
+   * Returns the control address of the sending instance, to which receivers send feedback.
+   */
+  protected String senderAddress() {
+    String deploymentId = vertx.getOrCreateContext().deploymentID();
+    return ComponentInstanceImpl.controlAddress(deploymentId != null
+        ? ComponentInstanceImpl.instanceAddress(context.source().address(), deploymentId)
+        : context.source().address());
+  }
+
+  /**
+   * Returns the address on which the receiver batches acks for this connection.
+   */
+  private String ackAddress() {
+    if (ackAddress == null) {
+      ackAddress = String.format("%s.acks.%s", context.source().address(), UUID.randomUUID().toString());
+      ackConsumer = eventBus.<JsonObject>consumer(ackAddress).handler(this::handleAcks);
+    }
+    return ackAddress;
+  }
+
+  /**
+   * Schedules the timeout of an acked send on the connection's timing wheel.
+   */
+  private void trackAck(long id, Handler<AsyncResult<Void>> ackHandler) {
+    long timeout = context.sendTimeout() > 0 ? context.sendTimeout() : DeliveryOptions.DEFAULT_TIMEOUT;
+    if (acks == null) {
+      acks = new TimingWheel<>(Math.max(1, Math.min(ACK_TICK, timeout)), ACK_WHEEL_SIZE);
+    }
+    acks.schedule(id, timeout, ackHandler);
+    if (ackTimerID == -1) {
+      ackTimerID = vertx.setPeriodic(acks.tickDuration(), this::expireAcks);
+    }
+  }
+
+  /**
+   * Fails every acked send whose timeout expired on this tick.
+   */
+  private void expireAcks(long timerID) {
+    for (Handler<AsyncResult<Void>> ackHandler : acks.tick()) {
+      completeAck(ackHandler, Future.failedFuture(new ReplyException(ReplyFailure.TIMEOUT, "Timed out waiting for ack")));
+    }
+    if (acks.size() == 0) {
+      vertx.cancelTimer(ackTimerID);
+      ackTimerID = -1;
+    }
+  }
+
+  /**
+   * Handles a batch of acks and failures from the receiver.
+   */
+  private void handleAcks(Message<JsonObject> message) {
+    JsonArray ranges = message.body().getJsonArray(AckBatcher.ACKS_KEY);
+    for (int i = 0; i < ranges.size(); i += 2) {
+      for (long id = ranges.getLong(i), last = ranges.getLong(i + 1); id <= last; id++) {
+        Handler<AsyncResult<Void>> ackHandler = acks.remove(id);
+        if (ackHandler != null) {
+          completeAck(ackHandler, Future.succeededFuture());
+        }
+      }
+    }
+    JsonArray fails = message.body().getJsonArray(AckBatcher.FAILS_KEY);
+    for (int i = 0; i < fails.size(); i++) {
+      JsonArray fail = fails.getJsonArray(i);
+      Handler<AsyncResult<Void>> ackHandler = acks.remove(fail.getLong(0));
+      if (ackHandler != null) {
+        completeAck(ackHandler, Future.failedFuture(new ReplyException(ReplyFailure.RECIPIENT_FAILURE, fail.getInteger(1), fail.getString(2))));
+      }
+    }
+  }
+
+  /**
+   * Closes the connection.<p>
+   *
+   * The ack address is unregistered, and sends still waiting for an ack are failed.
+   */
+  public void close() {
+    if (ackConsumer != null) {
+      ackConsumer.unregister();
+      ackConsumer = null;
+      ackAddress = null;
+    }
+    if (ackTimerID != -1) {
+      vertx.cancelTimer(ackTimerID);
+      ackTimerID = -1;
+    }
+    if (acks != null) {
+      for (Handler<AsyncResult<Void>> ackHandler : acks.clear()) {
+        completeAck(ackHandler, Future.failedFuture(new VertigoException("Connection closed")));
+      }
+    }
+  }
+
+  protected void completeAck(Handler<AsyncResult<Void>> ackHandler, AsyncResult<Void> result) {
+    if (result.succeeded()) {
+      metrics.messageAcked();
+    } else {
+      metrics.messageFailed();
+    }
+    ackHandler.handle(result);
   }
 
   protected Payload createPayload(Object message, MultiMap headers, Handler<AsyncResult<Void>> ackHandler) {
     String id = UUID.randomUUID().toString();
 
-    // Set up the message headers.
+    // Set up the message headers. Ports pass the same headers to every connection,
+    // so the per-connection headers are set on a copy.
     DeliveryOptions options = new DeliveryOptions();
-    if (headers == null) {
-      headers = new CaseInsensitiveHeaders();
+    MultiMap callerHeaders = headers;
+    headers = new CaseInsensitiveHeaders();
+    if (callerHeaders != null) {
+      headers.addAll(callerHeaders);
+    }
+    headers.set(ACTION_HEADER, MESSAGE_ACTION)
+        .set(ID_HEADER, id)
+        .set(PORT_HEADER, context.target().port())
+        .set(TARGET_HEADER, context.target().address());
+    long ackId = 0;
+    if (ackHandler != null) {
+      ackId = ++lastAckId;
+      headers.set(AckBatcher.ADDRESS_HEADER, ackAddress())
+          .set(AckBatcher.ID_HEADER, String.valueOf(ackId));
     }
-    headers.add(ACTION_HEADER, MESSAGE_ACTION)
-        .add(ID_HEADER, id)
-        .add(PORT_HEADER, context.target().port())
-        .add(TARGET_HEADER, context.target().address());
+    Tracing.propagate(headers);
 
     options.setHeaders(headers);
     if (context.sendTimeout() > 0) {
@@ -129,6 +280,7 @@ public abstract class AbstractOutputConnection<T> implements OutputConnection<T>
         .setId(id)
         .setHeaders(headers)
         .setOptions(options)
+        .setAckId(ackId)
         .setAckHandler(ackHandler);
   }
 
@@ -164,6 +316,7 @@ public abstract class AbstractOutputConnection<T> implements OutputConnection<T>
     private DeliveryOptions options;
     private Object message;
     private Handler<AsyncResult<Void>> ackHandler;
+    private long ackId;
 
     public Payload setId(String id) {
       this.id = id;
@@ -209,6 +362,15 @@ public abstract class AbstractOutputConnection<T> implements OutputConnection<T>
       this.ackHandler = ackHandler;
       return this;
     }
+
+    public long getAckId() {
+      return ackId;
+    }
+
+    public Payload setAckId(long ackId) {
+      this.ackId = ackId;
+      return this;
+    }
   }
 
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.instance.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import net.kuujo.vertigo.instance.OutputPort;
+
+/**
+ * Base class for output ports that pack primitive values into chunks.<p>
+ *
+ * Subclasses append each value to {@link #chunk} and then call {@link #added()},
+ * which sends the chunk once it holds <code>vertigo.port.chunk-size</code> values
+ * (default <code>1024</code>) and otherwise schedules it to be sent at the end
+ * of the current event loop task.
+ */
+public abstract class ChunkedOutputPort {
+  private static final int CHUNK_SIZE = Integer.getInteger("vertigo.port.chunk-size", 1024);
+  private final Vertx vertx;
+  private final OutputPort<Buffer> port;
+  private final int valueSize;
+  protected Buffer chunk;
+  private int count;
+  private boolean scheduled;
+
+  protected ChunkedOutputPort(Vertx vertx, OutputPort<Buffer> port, int valueSize) {
+    this.vertx = vertx;
+    this.port = port;
+    this.valueSize = valueSize;
+    this.chunk = Buffer.buffer(CHUNK_SIZE * valueSize);
+  }
+
+  /**
+   * Returns the port name.
+   *
+   * @return The port name.
+   */
+  public String name() {
+    return port.name();
+  }
+
+  /**
+   * Records a value appended to the chunk.
+   */
+  protected void added() {
+    if (++count >= CHUNK_SIZE) {
+      send(null);
+    } else if (!scheduled) {
+      scheduled = true;
+      vertx.runOnContext(v -> {
+        scheduled = false;
+        send(null);
+      });
+    }
+  }
+
+  /**
+   * Sends the current chunk, if it holds any values.
+   */
+  protected void send(Handler<AsyncResult<Void>> ackHandler) {
+    if (count == 0) {
+      if (ackHandler != null) {
+        ackHandler.handle(Future.succeededFuture());
+      }
+      return;
+    }
+
+    Buffer full = chunk;
+    chunk = Buffer.buffer(CHUNK_SIZE * valueSize);
+    count = 0;
+    if (ackHandler != null) {
+      port.send(full, ackHandler);
+    } else {
+      port.send(full);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return port.toString();
+  }
+
+}
@@ -18,21 +18,77 @@ package net.kuujo.vertigo.instance.impl;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
 import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.ReplyException;
 import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.http.CaseInsensitiveHeaders;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 import net.kuujo.vertigo.context.ComponentContext;
+import net.kuujo.vertigo.context.ContextRegistry;
+import net.kuujo.vertigo.context.InputConnectionContext;
+import net.kuujo.vertigo.context.InputPortContext;
 import net.kuujo.vertigo.instance.ComponentInstance;
 import net.kuujo.vertigo.spi.ComponentInstanceFactory;
 import net.kuujo.vertigo.instance.InputCollector;
+import net.kuujo.vertigo.instance.InputConnection;
+import net.kuujo.vertigo.instance.InputPort;
 import net.kuujo.vertigo.instance.OutputCollector;
+import net.kuujo.vertigo.metrics.ComponentMetrics;
+import net.kuujo.vertigo.metrics.impl.ComponentMetricsImpl;
+import net.kuujo.vertigo.util.AckBatcher;
+import net.kuujo.vertigo.util.CountingCompletionHandler;
+import net.kuujo.vertigo.util.Delivery;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
 
 /**
- * Component partition implementation.
+ * Component partition implementation.<p>
+ *
+ * Besides the component address shared by all replicas, each instance deployed
+ * as a verticle listens on its own instance address (see {@link #instanceAddress(String, String)}),
+ * which receives messages forwarded from other instances and <code>drain</code>
+ * requests. A drain request hands the instance over to a replacement: messages
+ * that still arrive on the component address are forwarded to the replacement
+ * with their acks relayed back, and once every received message has been acked
+ * or failed, or the drain timeout elapses, the instance stops listening on the
+ * component address and replies with the number of unfinished messages.
+ * Messages sent with an ack handler that reach the instance just as it stops
+ * listening are dropped by the event bus and fail with a timeout, so senders
+ * resend them as with any other failed message.<p>
+ *
+ * Each input connection also has its own address (see
+ * {@link net.kuujo.vertigo.context.ConnectionContext#address()}), on which the
+ * instance passes messages straight to the connection rather than dispatching
+ * them by their <code>port</code> and <code>source</code> headers. Messages sent
+ * to the component and instance addresses are still dispatched by header.<p>
+ *
+ * When the {@link TcpTransport} is enabled, the instance also registers each
+ * input connection address with the transport.<p>
+ *
+ * Flow control and ack messages for the instance's output connections are sent
+ * to a separate control address (see {@link #controlAddress(String)}) for both
+ * the component and instance addresses. Data messages are handled as they arrive
+ * until <code>vertigo.instance.batch-size</code> (default <code>64</code>) of them
+ * have been handled without yielding to the event loop. Further messages are then
+ * queued and handled in batches of that size, so control messages arriving in
+ * between are handled before the rest of the backlog rather than behind it.<p>
+ *
+ * An <code>update</code> message published to the component address with a
+ * reference to an updated component context (see {@link ContextRegistry#resolve(Vertx, JsonObject)}) patches the ports and connections of every running
+ * instance of the component, as done by network updates. Each instance confirms
+ * the update as described in {@link Delivery}, so that components that are no
+ * longer sent to are only undeployed once every sender has been patched.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
@@ -43,24 +99,72 @@ public class ComponentInstanceImpl implements ComponentInstance, Handler<Message
   protected static final String FAIL_ACTION = "fail";
   protected static final String PAUSE_ACTION = "pause";
   protected static final String RESUME_ACTION = "resume";
+  public static final String DRAIN_ACTION = "drain";
+  public static final String UPDATE_ACTION = "update";
+  private static final long DEFAULT_DRAIN_TIMEOUT = 10000;
+  private static final long DRAIN_CHECK_INTERVAL = 10;
+  private static final int BATCH_SIZE = Integer.getInteger("vertigo.instance.batch-size", 64);
+  private static final Logger log = LoggerFactory.getLogger(ComponentInstanceImpl.class);
   private final Vertx vertx;
-  private final ComponentContext context;
+  private ComponentContext context;
   private final InputCollector input;
   private final OutputCollector output;
 //  private final Logger logger;
 //  private JsonObject state;
 //  private Handler<JsonObject> checkpointHandler;
 //  private Handler<JsonObject> recoverHandler;
+  private final ComponentMetricsImpl metrics;
+  private final AckBatcher acks;
   private MessageConsumer<Object> consumer;
+  private MessageConsumer<Object> metricsConsumer;
+  private long metricsTimer = -1;
+  private MessageConsumer<Object> instanceConsumer;
+  private MessageConsumer<Object> controlConsumer;
+  private MessageConsumer<Object> instanceControlConsumer;
+  private final Map<String, MessageConsumer<Object>> connectionConsumers = new HashMap<>();
+  private final Map<String, Handler<Message<Object>>> transportHandlers = new HashMap<>();
+  private final TcpTransport transport;
+  private final Queue<Runnable> pending = new ArrayDeque<>();
+  private boolean processing;
+  private int received;
+  private final Handler<Void> resetReceived = v -> received = 0;
+  private String forwardAddress;
+  private int inFlight;
+  private long forwarded;
+  private long drainTimer = -1;
 
   public ComponentInstanceImpl(Vertx vertx, ComponentContext context, ComponentInstanceFactory factory) {
     this.vertx = vertx;
     this.context = context;
+    this.acks = new AckBatcher(vertx);
+    this.transport = TcpTransport.ENABLED ? TcpTransport.get(vertx) : null;
     this.input = factory.createInputCollector(vertx, context.input());
     this.output = factory.createOutputCollector(vertx, context.output());
+    this.metrics = new ComponentMetricsImpl(context, input, output);
 //    this.logger = LoggerFactory.getLogger(String.format("%s-%s", ComponentInstance.class.getName(), context.address()));
   }
 
+  /**
+   * Returns the address of a single component instance.
+   *
+   * @param address The component address.
+   * @param deploymentId The deployment ID of the component instance.
+   * @return The instance address.
+   */
+  public static String instanceAddress(String address, String deploymentId) {
+    return String.format("%s.instance.%s", address, deploymentId);
+  }
+
+  /**
+   * Returns the control address for a component or instance address.
+   *
+   * @param address The component or instance address.
+   * @return The address on which ack, fail, pause and resume messages are handled.
+   */
+  public static String controlAddress(String address) {
+    return String.format("%s.control", address);
+  }
+
   @Override
   public Vertx vertx() {
     return vertx;
@@ -81,6 +185,11 @@ public class ComponentInstanceImpl implements ComponentInstance, Handler<Message
     return output;
   }
 
+  @Override
+  public ComponentMetrics metrics() {
+    return metrics;
+  }
+
 //  @Override
 //  public Logger logger() {
 //    return logger;
@@ -89,25 +198,257 @@ public class ComponentInstanceImpl implements ComponentInstance, Handler<Message
   @Override
   public void handle(Message<Object> message) {
     String action = message.headers().get(ACTION_HEADER);
-    if (action == null) {
-      input.handle(message);
+    if (action == null || action.equals(MESSAGE_ACTION)) {
+      enqueue(message, input);
     } else {
       switch (action) {
-        case MESSAGE_ACTION:
-          input.handle(message);
-          break;
         case ACK_ACTION:
         case FAIL_ACTION:
         case PAUSE_ACTION:
         case RESUME_ACTION:
           output.handle(message);
           break;
+        case DRAIN_ACTION:
+          drain(message);
+          break;
+        case UPDATE_ACTION:
+          update(message);
+          break;
         default:
           message.fail(ReplyFailure.RECIPIENT_FAILURE.toInt(), String.format("Invalid action %s", action));
       }
     }
   }
 
+  /**
+   * Handles a message received on a control address.
+   */
+  private void control(Message<Object> message) {
+    String action = message.headers().get(ACTION_HEADER);
+    if (action == null) {
+      message.fail(ReplyFailure.RECIPIENT_FAILURE.toInt(), "Invalid action");
+      return;
+    }
+    switch (action) {
+      case ACK_ACTION:
+      case FAIL_ACTION:
+      case PAUSE_ACTION:
+      case RESUME_ACTION:
+        output.handle(message);
+        break;
+      default:
+        message.fail(ReplyFailure.RECIPIENT_FAILURE.toInt(), String.format("Invalid action %s", action));
+    }
+  }
+
+  /**
+   * Receives a data message right away, or queues it once a batch of messages has
+   * been received without yielding to the event loop.
+   */
+  private void enqueue(Message<Object> message, Handler<Message<Object>> handler) {
+    if (!processing) {
+      if (received++ == 0) {
+        vertx.runOnContext(resetReceived);
+      }
+      if (received <= BATCH_SIZE) {
+        receive(message, handler);
+        return;
+      }
+    }
+    pending.add(() -> receive(message, handler));
+    if (!processing) {
+      processing = true;
+      vertx.runOnContext(this::processPending);
+    }
+  }
+
+  /**
+   * Handles a batch of queued data messages, rescheduling itself while messages remain.
+   */
+  private void processPending(Void ignore) {
+    Runnable next;
+    for (int i = 0; i < BATCH_SIZE && (next = pending.poll()) != null; i++) {
+      next.run();
+    }
+    if (pending.isEmpty()) {
+      processing = false;
+    } else {
+      vertx.runOnContext(this::processPending);
+    }
+  }
+
+  /**
+   * Patches the instance's ports and connections with an updated component context
+   * and confirms the update once the instance sends through the patched connections.
+   */
+  private void update(Message<Object> message) {
+    ComponentContext updated = message.body() instanceof JsonObject ? ContextRegistry.resolve(vertx, (JsonObject) message.body()) : null;
+    if (updated == null) {
+      log.warn(String.format("Failed to resolve the updated context of %s", context.name()));
+      return;
+    }
+    if (input instanceof InputCollectorImpl) {
+      ((InputCollectorImpl) input).update(updated.input());
+    }
+    if (output instanceof OutputCollectorImpl) {
+      ((OutputCollectorImpl) output).update(updated.output());
+    }
+    context = updated;
+    if (consumer != null) {
+      registerConnections(null);
+    }
+    Delivery.reply(vertx, message, null);
+  }
+
+  /**
+   * Returns the instance's input connections by connection address.
+   */
+  @SuppressWarnings("unchecked")
+  private Map<String, InputConnection<Object>> inputConnections() {
+    Map<String, InputConnection<Object>> connections = new HashMap<>();
+    for (InputPortContext port : context.input().ports()) {
+      InputPort<Object> inputPort = input.port(port.name());
+      if (inputPort instanceof InputPortImpl) {
+        for (InputConnectionContext connection : port.connections()) {
+          InputConnection<Object> inputConnection = ((InputPortImpl<Object>) inputPort).connection(connection.address());
+          if (inputConnection != null) {
+            connections.put(connection.address(), inputConnection);
+          }
+        }
+      }
+    }
+    return connections;
+  }
+
+  /**
+   * Listens on the address of each input connection, passing messages straight
+   * to the connection, and stops listening on addresses of removed connections.
+   */
+  private void registerConnections(Handler<AsyncResult<Void>> completionHandler) {
+    Map<String, InputConnection<Object>> connections = inputConnections();
+    Iterator<Map.Entry<String, MessageConsumer<Object>>> iterator = connectionConsumers.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, MessageConsumer<Object>> entry = iterator.next();
+      if (!connections.containsKey(entry.getKey())) {
+        entry.getValue().unregister();
+        iterator.remove();
+        if (transport != null) {
+          transport.unregister(entry.getKey(), transportHandlers.remove(entry.getKey()));
+        }
+      }
+    }
+    for (Map.Entry<String, InputConnection<Object>> entry : connections.entrySet()) {
+      if (!connectionConsumers.containsKey(entry.getKey())) {
+        InputConnection<Object> connection = entry.getValue();
+        Handler<Message<Object>> handler = message -> enqueue(message, connection);
+        MessageConsumer<Object> connectionConsumer = vertx.eventBus().consumer(entry.getKey());
+        connectionConsumer.handler(handler);
+        if (transport != null) {
+          transport.register(entry.getKey(), handler);
+          transportHandlers.put(entry.getKey(), handler);
+        }
+        if (completionHandler != null) {
+          connectionConsumer.completionHandler(completionHandler);
+        }
+        connectionConsumers.put(entry.getKey(), connectionConsumer);
+      }
+    }
+  }
+
+  /**
+   * Stops listening on the addresses of input connections.
+   */
+  private void unregisterConnections() {
+    for (MessageConsumer<Object> connectionConsumer : connectionConsumers.values()) {
+      connectionConsumer.unregister();
+    }
+    connectionConsumers.clear();
+    for (Map.Entry<String, Handler<Message<Object>>> entry : transportHandlers.entrySet()) {
+      transport.unregister(entry.getKey(), entry.getValue());
+    }
+    transportHandlers.clear();
+  }
+
+  /**
+   * Passes a received message to its handler, or forwards it if the instance is draining.
+   */
+  private void receive(Message<Object> message, Handler<Message<Object>> handler) {
+    if (forwardAddress != null) {
+      forward(message);
+      return;
+    }
+    message = acks.wrap(message);
+    if (message.replyAddress() != null) {
+      inFlight++;
+      handler.handle(new TrackedMessage(message));
+    } else {
+      handler.handle(message);
+    }
+  }
+
+  /**
+   * Releases a received message that an input connection dropped without acking or
+   * failing it, e.g. a duplicate, so that it is no longer counted as in flight.
+   *
+   * @param message The dropped message.
+   */
+  static void release(Message<?> message) {
+    if (message instanceof ComponentInstanceImpl.TrackedMessage) {
+      ((ComponentInstanceImpl.TrackedMessage) message).done();
+    }
+  }
+
+  /**
+   * Forwards a message to the replacement instance and relays its reply.
+   */
+  private void forward(Message<Object> message) {
+    forwarded++;
+    DeliveryOptions options = new DeliveryOptions().setHeaders(new CaseInsensitiveHeaders().addAll(message.headers()));
+    // Batched acks are sent by the replacement straight to the sender.
+    if (message.replyAddress() != null && !AckBatcher.isBatched(message)) {
+      Delivery.send(vertx, forwardAddress, message.body(), options, result -> {
+        if (result.succeeded()) {
+          message.reply(result.result().body());
+        } else if (result.cause() instanceof ReplyException) {
+          message.fail(((ReplyException) result.cause()).failureCode(), result.cause().getMessage());
+        } else {
+          message.fail(-1, result.cause().getMessage());
+        }
+      });
+    } else {
+      vertx.eventBus().send(forwardAddress, message.body(), options);
+    }
+  }
+
+  /**
+   * Hands the instance over to a replacement instance.
+   */
+  private void drain(Message<Object> request) {
+    JsonObject body = (JsonObject) request.body();
+    if (forwardAddress != null || body == null || body.getString("forward") == null) {
+      request.fail(ReplyFailure.RECIPIENT_FAILURE.toInt(), "Invalid drain request");
+      return;
+    }
+    forwardAddress = body.getString("forward");
+    long deadline = System.currentTimeMillis() + body.getLong("timeout", DEFAULT_DRAIN_TIMEOUT);
+    drainTimer = vertx.setPeriodic(DRAIN_CHECK_INTERVAL, id -> {
+      if ((inFlight == 0 && pending.isEmpty()) || System.currentTimeMillis() >= deadline) {
+        vertx.cancelTimer(drainTimer);
+        drainTimer = -1;
+        JsonObject result = new JsonObject()
+            .put("inFlight", inFlight)
+            .put("forwarded", forwarded);
+        unregisterConnections();
+        if (consumer != null) {
+          consumer.unregister(unregistered -> request.reply(result));
+          consumer = null;
+        } else {
+          request.reply(result);
+        }
+      }
+    });
+  }
+
 //  @Override
 //  public JsonObject state() {
 //    return state;
@@ -133,17 +474,103 @@ public class ComponentInstanceImpl implements ComponentInstance, Handler<Message
   @Override
   public ComponentInstance start(Handler<AsyncResult<Void>> doneHandler) {
     if (consumer == null) {
+      startMetrics();
+      String deploymentId = vertx.getOrCreateContext().deploymentID();
+      int connections = inputConnections().size();
+      CountingCompletionHandler<Void> counter = new CountingCompletionHandler<Void>((deploymentId != null ? 4 : 2) + connections).setHandler(doneHandler);
       consumer = vertx.eventBus().consumer(context.address());
       consumer.handler(this);
-      consumer.completionHandler(doneHandler);
+      consumer.completionHandler(counter);
+      controlConsumer = vertx.eventBus().consumer(controlAddress(context.address()));
+      controlConsumer.handler(this::control);
+      controlConsumer.completionHandler(counter);
+      if (deploymentId != null) {
+        String address = instanceAddress(context.address(), deploymentId);
+        instanceConsumer = vertx.eventBus().consumer(address);
+        instanceConsumer.handler(this);
+        instanceConsumer.completionHandler(counter);
+        instanceControlConsumer = vertx.eventBus().consumer(controlAddress(address));
+        instanceControlConsumer.handler(this::control);
+        instanceControlConsumer.completionHandler(counter);
+      }
+      registerConnections(counter);
     } else {
       Future.<Void>succeededFuture().setHandler(doneHandler);
     }
     return this;
   }
 
+  /**
+   * Registers the metrics query handler and starts periodic metrics publishing.
+   */
+  private void startMetrics() {
+    String deploymentId = vertx.getOrCreateContext().deploymentID();
+    String instance = deploymentId != null ? deploymentId : UUID.randomUUID().toString();
+    metricsConsumer = vertx.eventBus().consumer(context.address() + ComponentMetrics.METRICS_ADDRESS_SUFFIX);
+    metricsConsumer.handler(message -> Delivery.reply(vertx, message, metrics.toJson().put(ComponentMetrics.INSTANCE_KEY, instance)));
+    if (ComponentMetrics.METRICS_INTERVAL > 0) {
+      metricsTimer = vertx.setPeriodic(ComponentMetrics.METRICS_INTERVAL, id -> {
+        vertx.eventBus().publish(ComponentMetrics.METRICS_ADDRESS, metrics.toJson().put(ComponentMetrics.INSTANCE_KEY, instance));
+      });
+    }
+  }
+
+  /**
+   * Stops metrics publishing and unregisters the metrics query handler.
+   */
+  private void stopMetrics() {
+    if (metricsTimer != -1) {
+      vertx.cancelTimer(metricsTimer);
+      metricsTimer = -1;
+    }
+    if (metricsConsumer != null) {
+      metricsConsumer.unregister();
+      metricsConsumer = null;
+    }
+  }
+
+  /**
+   * Stops draining and unregisters the instance address handler.
+   */
+  private void stopInstance() {
+    if (drainTimer != -1) {
+      vertx.cancelTimer(drainTimer);
+      drainTimer = -1;
+    }
+    if (instanceConsumer != null) {
+      instanceConsumer.unregister();
+      instanceConsumer = null;
+    }
+    if (instanceControlConsumer != null) {
+      instanceControlConsumer.unregister();
+      instanceControlConsumer = null;
+    }
+  }
+
+  /**
+   * Unregisters the control and connection address handlers, drops queued messages
+   * and closes the input and output connections.
+   */
+  private void stopControl() {
+    if (controlConsumer != null) {
+      controlConsumer.unregister();
+      controlConsumer = null;
+    }
+    unregisterConnections();
+    pending.clear();
+    if (input instanceof InputCollectorImpl) {
+      ((InputCollectorImpl) input).close();
+    }
+    if (output instanceof OutputCollectorImpl) {
+      ((OutputCollectorImpl) output).close();
+    }
+  }
+
   @Override
   public void stop() {
+    stopMetrics();
+    stopInstance();
+    stopControl();
     if (consumer != null) {
       consumer.unregister();
     }
@@ -151,6 +578,9 @@ public class ComponentInstanceImpl implements ComponentInstance, Handler<Message
 
   @Override
   public void stop(Handler<AsyncResult<Void>> doneHandler) {
+    stopMetrics();
+    stopInstance();
+    stopControl();
     if (consumer != null) {
       consumer.unregister(doneHandler);
     } else {
@@ -158,4 +588,73 @@ public class ComponentInstanceImpl implements ComponentInstance, Handler<Message
     }
   }
 
+  /**
+   * Message wrapper that tracks when a received message has been acked or failed.
+   */
+  private class TrackedMessage implements Message<Object> {
+    private final Message<Object> message;
+    private boolean done;
+
+    private TrackedMessage(Message<Object> message) {
+      this.message = message;
+    }
+
+    private void done() {
+      if (!done) {
+        done = true;
+        inFlight--;
+      }
+    }
+
+    @Override
+    public String address() {
+      return message.address();
+    }
+
+    @Override
+    public MultiMap headers() {
+      return message.headers();
+    }
+
+    @Override
+    public Object body() {
+      return message.body();
+    }
+
+    @Override
+    public String replyAddress() {
+      return message.replyAddress();
+    }
+
+    @Override
+    public void reply(Object reply) {
+      done();
+      message.reply(reply);
+    }
+
+    @Override
+    public <R> void reply(Object reply, Handler<AsyncResult<Message<R>>> replyHandler) {
+      done();
+      message.reply(reply, replyHandler);
+    }
+
+    @Override
+    public void reply(Object reply, DeliveryOptions options) {
+      done();
+      message.reply(reply, options);
+    }
+
+    @Override
+    public <R> void reply(Object reply, DeliveryOptions options, Handler<AsyncResult<Message<R>>> replyHandler) {
+      done();
+      message.reply(reply, options, replyHandler);
+    }
+
+    @Override
+    public void fail(int failureCode, String failureMessage) {
+      done();
+      message.fail(failureCode, failureMessage);
+    }
+  }
+
 }
@@ -2,6 +2,7 @@ package net.kuujo.vertigo.instance.impl;
 
 import io.vertx.core.ServiceHelper;
 import io.vertx.core.Vertx;
+import net.kuujo.vertigo.context.ConnectionContext;
 import net.kuujo.vertigo.context.ComponentContext;
 import net.kuujo.vertigo.instance.ComponentInstance;
 import net.kuujo.vertigo.spi.ComponentInstanceFactory;
@@ -15,11 +16,33 @@ import net.kuujo.vertigo.context.OutputPortContext;
 import net.kuujo.vertigo.spi.VertigoMessageFactory;
 
 /**
- * Default ComponentInstanceFactory.
+ * Default ComponentInstanceFactory.<p>
+ *
+ * Connections are created according to their delivery guarantees. Unordered
+ * at-least-once connections use a bitmap ack window that delivers messages as
+ * they arrive, and every other connection uses the controlled index-checking
+ * protocol, which is also what connections without any delivery flags get.<p>
+ *
+ * Connections with neither guarantee are only sent fire-and-forget when that is
+ * explicitly enabled, either by setting the <code>vertigo.connection.fire-and-forget</code>
+ * system property to <code>true</code> or by constructing the factory with
+ * {@link #ControlledComponentInstanceFactory(boolean)}.
  */
 public class ControlledComponentInstanceFactory implements ComponentInstanceFactory {
 
   final VertigoMessageFactory messageFactory = ServiceHelper.loadFactory(VertigoMessageFactory.class);
+  private final boolean fireAndForget;
+
+  public ControlledComponentInstanceFactory() {
+    this(Boolean.getBoolean("vertigo.connection.fire-and-forget"));
+  }
+
+  /**
+   * @param fireAndForget Whether connections that are neither ordered nor at-least-once are sent fire-and-forget.
+   */
+  public ControlledComponentInstanceFactory(boolean fireAndForget) {
+    this.fireAndForget = fireAndForget;
+  }
 
   @Override
   public ComponentInstance createComponentInstance(Vertx vertx, ComponentContext context) {
@@ -48,11 +71,21 @@ public class ControlledComponentInstanceFactory implements ComponentInstanceFact
 
   @Override
   public <T> InputConnection<T> createInputConnection(Vertx vertx, InputConnectionContext connection) {
+    if (isFireAndForget(connection)) {
+      return new SimpleInputConnection<T>(vertx, connection, messageFactory);
+    } else if (connection.atLeastOnce() && !connection.ordered()) {
+      return new UnorderedInputConnection<T>(vertx, connection, messageFactory);
+    }
     return new ControlledInputConnection<T>(vertx, connection, messageFactory);
   }
 
   @Override
   public <T> OutputConnection<T> createOutputConnection(Vertx vertx, OutputConnectionContext connection) {
+    if (isFireAndForget(connection)) {
+      return new SimpleOutputConnection<T>(vertx, connection);
+    } else if (connection.atLeastOnce() && !connection.ordered()) {
+      return new UnorderedOutputConnection<T>(vertx, connection);
+    }
     return new ControlledOutputConnection<T>(vertx, connection);
   }
 
@@ -61,4 +94,11 @@ public class ControlledComponentInstanceFactory implements ComponentInstanceFact
     return new ExternalInputConnection<T>(vertx, input, messageFactory);
   }
 
+  /**
+   * Returns whether a connection opted out of delivery guarantees.
+   */
+  private boolean isFireAndForget(ConnectionContext connection) {
+    return fireAndForget && !connection.ordered() && !connection.atLeastOnce();
+  }
+
 }
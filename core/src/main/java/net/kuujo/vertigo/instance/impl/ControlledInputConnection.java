@@ -25,17 +25,40 @@ import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 import net.kuujo.vertigo.message.VertigoMessage;
+import net.kuujo.vertigo.metrics.ConnectionMetrics;
+import net.kuujo.vertigo.metrics.impl.ConnectionMetricsImpl;
+import net.kuujo.vertigo.metrics.impl.Tracing;
 import net.kuujo.vertigo.spi.VertigoMessageFactory;
 import net.kuujo.vertigo.instance.InputConnection;
 import net.kuujo.vertigo.context.InputConnectionContext;
+import net.kuujo.vertigo.util.DuplicateWindow;
+
+import java.util.HashMap;
+import java.util.Map;
 
 /**
- * Input connection implementation.
+ * Input connection implementation.<p>
+ *
+ * Indices received within the last <code>vertigo.connection.dedup-window</code>
+ * messages (default <code>4096</code>) are remembered in a {@link DuplicateWindow},
+ * and messages resent with one of those indices are dropped rather than passed
+ * to the handler again.<p>
+ *
+ * Indices are tracked separately for each sending instance, identified by the
+ * <code>sender</code> header. When the <code>sender-id</code> of a sender changes,
+ * its connection was recreated and restarted its indices, so the indices
+ * received from it so far are forgotten. Acks and fails are sent to that address, the
+ * control address of the sending instance, and pauses and resumes are published
+ * to the control address of the source component.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public class ControlledInputConnection<T> implements InputConnection<T>, Handler<Message<T>> {
   protected static final String ACTION_HEADER = "action";
+  protected static final String PORT_HEADER = "port";
+  protected static final String SOURCE_HEADER = "source";
+  protected static final String SENDER_HEADER = "sender";
+  protected static final String SENDER_ID_HEADER = "sender-id";
   protected static final String ID_HEADER = "name";
   protected static final String INDEX_HEADER = "index";
   protected static final String MESSAGE_ACTION = "message";
@@ -45,29 +68,36 @@ public class ControlledInputConnection<T> implements InputConnection<T>, Handler
   protected static final String RESUME_ACTION = "resume";
   private static final long BATCH_SIZE = 1000;
   private static final long MAX_BATCH_TIME = 100;
+  private static final int DEDUP_WINDOW_SIZE = Integer.getInteger("vertigo.connection.dedup-window", 4096);
   private final Logger log;
   protected final Vertx vertx;
   protected final EventBus eventBus;
   protected final InputConnectionContext context;
   protected final String inAddress;
-  protected final String outAddress;
   protected final VertigoMessageFactory messageFactory;
+  protected final ConnectionMetricsImpl metrics;
   private MessageConsumer<T> consumer;
   protected Handler<VertigoMessage<T>> messageHandler;
-  private long lastReceived;
-  private long lastFeedbackTime;
+  private final Map<String, Sender> senders = new HashMap<>();
   private long feedbackTimerID;
   private boolean paused;
 
   private final Handler<Long> internalTimer = new Handler<Long>() {
     @Override
     public void handle(Long timerID) {
-      // Ensure that feedback messages are sent at least every second or so.
-      // This will ensure that feedback is still provided when output connections
-      // are full, otherwise the feedback will never be triggered.
-      long currentTime = System.currentTimeMillis();
-      if (currentTime - lastFeedbackTime > 1000) {
-        ack();
+      // Ack every sender that delivered messages since its last ack. This
+      // ensures that feedback is still provided when output connections are
+      // full before reaching the end of a batch, otherwise it would never be
+      // triggered and held messages would never be released.
+      // A gap that made no progress for a whole tick is failed again in case
+      // the resent messages were lost as well.
+      for (Sender sender : senders.values()) {
+        if (sender.failed && sender.lastReceived == sender.lastChecked) {
+          fail(sender);
+        } else if (sender.lastReceived != sender.lastAcked) {
+          ack(sender);
+        }
+        sender.lastChecked = sender.lastReceived;
       }
     }
   };
@@ -79,7 +109,7 @@ public class ControlledInputConnection<T> implements InputConnection<T>, Handler
         String action = message.headers().get(ACTION_HEADER);
         switch (action) {
           case MESSAGE_ACTION:
-            if (checkIndex(Long.valueOf(message.headers().get(INDEX_HEADER)))) {
+            if (checkIndex(sender(message), Long.valueOf(message.headers().get(INDEX_HEADER)))) {
               doMessage(message);
             }
             break;
@@ -93,37 +123,77 @@ public class ControlledInputConnection<T> implements InputConnection<T>, Handler
     this.eventBus = vertx.eventBus();
     this.context = context;
     this.messageFactory = messageFactory;
+    this.metrics = new ConnectionMetricsImpl(ConnectionMetricsImpl.name(context.source().component(), context.source().address(), context.source().port()));
     this.inAddress = String.format("%s.in", context.port().input().component().address());
-    this.outAddress = String.format("%s.out", context.port().input().component().address());
     this.log = LoggerFactory.getLogger(String.format("%s-%s", ControlledInputConnection.class.getName(), context.port().input().component().address()));
     feedbackTimerID = vertx.setPeriodic(MAX_BATCH_TIME, internalTimer);
   }
 
+  @Override
+  public ConnectionMetrics metrics() {
+    return metrics;
+  }
+
   @Override
   public void handle(Message<T> message) {
     Long index = Long.valueOf(message.headers().get("index"));
-    if (index != null && checkIndex(index)) {
+    if (index != null && checkIndex(sender(message), index)) {
       doMessage(message);
+    } else {
+      ComponentInstanceImpl.release(message);
     }
   }
 
+  /**
+   * Returns the receive state of the instance that sent a message.
+   */
+  private Sender sender(Message<T> message) {
+    String address = message.headers().get(SENDER_HEADER);
+    String senderId = message.headers().get(SENDER_ID_HEADER);
+    Sender sender = senders.get(address);
+    if (sender == null || (senderId != null && !senderId.equals(sender.senderId))) {
+      if (sender != null) {
+        log.debug("{} - Sender {} restarted", this, address);
+      }
+      sender = new Sender(address != null ? address : ComponentInstanceImpl.controlAddress(context.source().address()), senderId);
+      senders.put(address, sender);
+    }
+    return sender;
+  }
+
   /**
    * Checks that the given index is valid.
    */
-  protected boolean checkIndex(long index) {
+  protected boolean checkIndex(Sender sender, long index) {
+    // Drop messages that have already been received, e.g. when they are
+    // resent after a fail, so that handlers see each message once.
+    if (sender.lastReceived != 0 && index <= sender.lastReceived && sender.received.contains(index)) {
+      if (log.isDebugEnabled()) {
+        log.debug("{} - Dropped duplicate message: {}", this, index);
+      }
+      return false;
+    }
+
     // Ensure that the given ID is a monotonically increasing ID.
     // If the ID is less than the last received ID then reset the
     // last received ID since the connection must have been reset.
-    if (lastReceived == 0 || index == lastReceived + 1 || index < lastReceived) {
-      lastReceived = index;
+    if (sender.lastReceived == 0 || index == sender.lastReceived + 1 || index < sender.lastReceived) {
+      if (index < sender.lastReceived) {
+        sender.received.reset();
+      }
+      sender.received.add(index);
+      sender.lastReceived = index;
+      sender.failed = false;
       // If the ID reaches the end of the current batch then tell the data
       // source that it's okay to remove all previous messages.
-      if (lastReceived % BATCH_SIZE == 0) {
-        ack();
+      if (sender.lastReceived % BATCH_SIZE == 0) {
+        ack(sender);
       }
       return true;
-    } else {
-      fail();
+    } else if (!sender.failed) {
+      // Only fail once per gap, every message after it would otherwise
+      // cause the sender to resend all of its held messages again.
+      fail(sender);
     }
     return false;
   }
@@ -131,43 +201,49 @@ public class ControlledInputConnection<T> implements InputConnection<T>, Handler
   /**
    * Sends an ack message for the current received count.
    */
-  protected void ack() {
+  protected void ack(Sender sender) {
     // Send a message to the other side of the connection indicating the
     // last message that we received in order. This will allow it to
     // purge messages we've already received from its queue.
     if (log.isDebugEnabled()) {
-      log.debug("{} - Acking messages up to: {}", this, lastReceived);
+      log.debug("{} - Acking messages up to: {}", this, sender.lastReceived);
     }
-    eventBus.send(outAddress, null, new DeliveryOptions()
-      .addHeader(ACTION_HEADER, ACK_ACTION)
-      .addHeader(INDEX_HEADER, String.valueOf(lastReceived)));
-    lastFeedbackTime = System.currentTimeMillis();
+    sender.lastAcked = sender.lastReceived;
+    feedback(sender, ACK_ACTION);
   }
 
   /**
    * Sends a fail message for the current received count.
    */
-  protected void fail() {
+  protected void fail(Sender sender) {
     // Send a "fail" message indicating the last message we received in order.
     // This will cause the other side of the connection to resend messages
     // in order from that point on.
     if (log.isDebugEnabled()) {
-      log.debug("{} - Received a message out of order: {}", this, lastReceived);
+      log.debug("{} - Received a message out of order: {}", this, sender.lastReceived);
     }
-    eventBus.send(outAddress, null, new DeliveryOptions()
-      .addHeader(ACTION_HEADER, FAIL_ACTION)
-      .addHeader(INDEX_HEADER, String.valueOf(lastReceived)));
-    lastFeedbackTime = System.currentTimeMillis();
+    sender.failed = true;
+    feedback(sender, FAIL_ACTION);
+  }
+
+  /**
+   * Sends an ack or fail to the control address of a sending instance.
+   */
+  private void feedback(Sender sender, String action) {
+    eventBus.send(sender.address, null, new DeliveryOptions()
+      .addHeader(ACTION_HEADER, action)
+      .addHeader(PORT_HEADER, context.source().port())
+      .addHeader(SOURCE_HEADER, context.address())
+      .addHeader(INDEX_HEADER, String.valueOf(sender.lastReceived)));
   }
 
   @Override
   public InputConnection<T> pause() {
     if (!paused) {
       paused = true;
+      metrics.paused();
       log.debug("{} - Pausing connection: {}", this, context.source());
-      eventBus.send(outAddress, null, new DeliveryOptions()
-        .addHeader(ACTION_HEADER, PAUSE_ACTION)
-        .addHeader(INDEX_HEADER, String.valueOf(lastReceived)));
+      control(PAUSE_ACTION);
     }
     return this;
   }
@@ -176,14 +252,34 @@ public class ControlledInputConnection<T> implements InputConnection<T>, Handler
   public InputConnection<T> resume() {
     if (paused) {
       paused = false;
+      metrics.resumed();
       log.debug("{} - Resuming connection: {}", this, context.source());
-      eventBus.send(outAddress, null, new DeliveryOptions()
-        .addHeader(ACTION_HEADER, RESUME_ACTION)
-        .addHeader(INDEX_HEADER, String.valueOf(lastReceived)));
+      control(RESUME_ACTION);
     }
     return this;
   }
 
+  /**
+   * Publishes a flow control action to every instance of the source component.
+   */
+  private void control(String action) {
+    eventBus.publish(ComponentInstanceImpl.controlAddress(context.source().address()), null, new DeliveryOptions()
+      .addHeader(ACTION_HEADER, action)
+      .addHeader(PORT_HEADER, context.source().port())
+      .addHeader(SOURCE_HEADER, context.address())
+      .addHeader(INDEX_HEADER, "0"));
+  }
+
+  /**
+   * Closes the connection, stopping its periodic feedback.
+   */
+  public void close() {
+    if (feedbackTimerID != -1) {
+      vertx.cancelTimer(feedbackTimerID);
+      feedbackTimerID = -1;
+    }
+  }
+
   @Override
   public InputConnection<T> handler(Handler<VertigoMessage<T>> handler) {
     this.messageHandler = handler;
@@ -202,7 +298,17 @@ public class ControlledInputConnection<T> implements InputConnection<T>, Handler
       if (log.isDebugEnabled()) {
         log.debug("{} - Received: Message[name={}, value={}]", this, id, message);
       }
-      messageHandler.handle(vertigoMessage);
+      metrics.messageReceived();
+      boolean traced = Tracing.enter(vertigoMessage.headers(), metrics);
+      long start = System.nanoTime();
+      try {
+        messageHandler.handle(vertigoMessage);
+      } finally {
+        metrics.handlerTime(System.nanoTime() - start);
+        if (traced) {
+          Tracing.exit();
+        }
+      }
     }
   }
 
@@ -211,4 +317,22 @@ public class ControlledInputConnection<T> implements InputConnection<T>, Handler
     return context.toString();
   }
 
+  /**
+   * Receive state for a single sending instance.
+   */
+  protected static class Sender {
+    private final String address;
+    private final String senderId;
+    private final DuplicateWindow received = new DuplicateWindow(DEDUP_WINDOW_SIZE);
+    private long lastReceived;
+    private long lastAcked;
+    private long lastChecked;
+    private boolean failed;
+
+    private Sender(String address, String senderId) {
+      this.address = address;
+      this.senderId = senderId;
+    }
+  }
+
 }
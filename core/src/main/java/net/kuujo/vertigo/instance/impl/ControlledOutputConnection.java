@@ -15,72 +15,73 @@
  */
 package net.kuujo.vertigo.instance.impl;
 
-import io.vertx.core.*;
-import io.vertx.core.eventbus.DeliveryOptions;
-import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.Message;
-import io.vertx.core.http.CaseInsensitiveHeaders;
-import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 import net.kuujo.vertigo.instance.OutputConnection;
 import net.kuujo.vertigo.context.OutputConnectionContext;
 
+import java.util.ArrayDeque;
+import java.util.Queue;
 import java.util.TreeMap;
 import java.util.UUID;
 
 /**
- * Default output connection implementation.
+ * Default output connection implementation.<p>
+ *
+ * Sends with an ack handler are tracked on the connection's timing wheel and
+ * acked in batches like those of every other output connection, rather than
+ * through a reply handler per message. Messages sent while the connection is
+ * paused are queued and sent once it is resumed.<p>
+ *
+ * Sent messages are held until the {@link ControlledInputConnection} acks them,
+ * and a fail resends every held message after the last one received in order.
+ * Each message carries the control address of the sending instance, to which
+ * the input connection sends its acks and fails, and an identifier unique to
+ * this connection so the input connection notices when a recreated connection
+ * restarts its indices. Sends and resends go through the {@link TcpTransport}
+ * when it is enabled.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
-public class ControlledOutputConnection<T> implements OutputConnection<T>, Handler<Message<T>> {
-  protected static final String ACTION_HEADER = "action";
-  protected static final String PORT_HEADER = "port";
+public class ControlledOutputConnection<T> extends AbstractOutputConnection<T> {
   protected static final String SOURCE_HEADER = "source";
-  protected static final String ID_HEADER = "name";
-  protected static final String INDEX_HEADER = "index";
-  protected static final String MESSAGE_ACTION = "message";
+  protected static final String SENDER_HEADER = "sender";
+  protected static final String SENDER_ID_HEADER = "sender-id";
   protected static final String ACK_ACTION = "ack";
   protected static final String FAIL_ACTION = "fail";
-  protected static final String PAUSE_ACTION = "pause";
-  protected static final String RESUME_ACTION = "resume";
   protected static final int DEFAULT_MAX_QUEUE_SIZE = 1000;
   private final Logger log;
-  protected final Vertx vertx;
-  protected final EventBus eventBus;
-  protected final OutputConnectionContext context;
+  private final String sender;
+  private final String senderId = UUID.randomUUID().toString();
+  private final Queue<Payload> queue = new ArrayDeque<>();
   private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
   private Handler<Void> drainHandler;
   private long currentMessage = 1;
-  private final TreeMap<Long, JsonObject> messages = new TreeMap<>();
-  //protected final TreeMap<Long, Handler<AsyncResult<Void>>> ackHandlers = new TreeMap<>();
+  private final TreeMap<Long, Payload> messages = new TreeMap<>();
   private boolean full;
   private boolean paused;
 
   public ControlledOutputConnection(Vertx vertx, OutputConnectionContext context) {
-    this.vertx = vertx;
-    this.eventBus = vertx.eventBus();
-    this.context = context;
+    super(vertx, context);
+    this.sender = senderAddress();
     this.log = LoggerFactory.getLogger(String.format("%s-%s", ControlledOutputConnection.class.getName(), context.port().output().component().address()));
   }
 
   @Override
   public void handle(Message<T> message) {
     String action = message.headers().get(ACTION_HEADER);
-    Long id = Long.valueOf(message.headers().get(INDEX_HEADER));
     switch (action) {
       case ACK_ACTION:
-        doAck(id);
+        doAck(Long.valueOf(message.headers().get(INDEX_HEADER)));
         break;
       case FAIL_ACTION:
-        doFail(id);
-        break;
-      case PAUSE_ACTION:
-        doPause(id);
+        doFail(Long.valueOf(message.headers().get(INDEX_HEADER)));
         break;
-      case RESUME_ACTION:
-        doResume(id);
+      default:
+        super.handle(message);
         break;
     }
   }
@@ -98,12 +99,12 @@ public class ControlledOutputConnection<T> implements OutputConnection<T>, Handl
 
   @Override
   public int size() {
-    return messages.size();
+    return messages.size() + queue.size();
   }
 
   @Override
   public boolean sendQueueFull() {
-    return paused || messages.size() >= maxQueueSize;
+    return paused || size() >= maxQueueSize;
   }
 
   @Override
@@ -116,7 +117,7 @@ public class ControlledOutputConnection<T> implements OutputConnection<T>, Handl
    * Checks whether the connection is full.
    */
   protected void checkFull() {
-    if (!full && messages.size() >= maxQueueSize) {
+    if (!full && size() >= maxQueueSize) {
       full = true;
       log.debug("{} - Connection to {} is full", this, context.target());
     }
@@ -126,7 +127,7 @@ public class ControlledOutputConnection<T> implements OutputConnection<T>, Handl
    * Checks whether the connection has been drained.
    */
   protected void checkDrain() {
-    if (full && !paused && messages.size() < maxQueueSize / 2) {
+    if (full && !paused && size() < maxQueueSize / 2) {
       full = false;
       log.debug("{} - Connection to {} is drained", this, context.target());
       if (drainHandler != null) {
@@ -144,11 +145,7 @@ public class ControlledOutputConnection<T> implements OutputConnection<T>, Handl
     if (log.isDebugEnabled()) {
       log.debug("{} - Received ack for messages up to {}, removing all previous messages from memory", this, id);
     }
-    if (messages.containsKey(id)) {
-      messages.headMap(id, true).clear();
-    } else {
-      messages.clear();
-    }
+    messages.headMap(id, true).clear();
     checkDrain();
   }
 
@@ -165,108 +162,64 @@ public class ControlledOutputConnection<T> implements OutputConnection<T>, Handl
 
     // Now that all the entries before the given ID have been removed,
     // just iterate over the messages map and resend all the messages.
-    for (JsonObject message : messages.values()) {
-      eventBus.send(context.target().address(), message);
+    for (Payload payload : messages.values()) {
+      transmit(payload);
+    }
+    if (!messages.isEmpty()) {
+      metrics.messagesResent(messages.size());
     }
   }
 
-  /**
-   * Handles a connection pause.
-   */
+  @Override
   protected void doPause(long id) {
     log.debug("{} - Paused connection to {}", this, context.target());
     paused = true;
   }
 
-  /**
-   * Handles a connection resume.
-   */
+  @Override
   protected void doResume(long id) {
     if (paused) {
       log.debug("{} - Resumed connection to {}", this, context.target());
       paused = false;
-      checkDrain();
-    }
-  }
-
-  /**
-   * Sends a message.
-   */
-  protected OutputConnection<T> doSend(Object message, MultiMap headers, Handler<AsyncResult<Void>> ackHandler) {
-    if (!paused) {
-      // Generate a unique ID and monotonically increasing index for the message.
-      String id = UUID.randomUUID().toString();
-      long index = currentMessage++;
-
-      /*
-      Commented out tracking of ackHandlers. Presumably these need to be kept around so new handlers can be created
-      if messages are resent.
-      // if (ackHandler != null) {
-      //   ackHandlers.put(index, ackHandler);
-      // }
-      */
-
-      // Set up the message headers.
-      DeliveryOptions options = new DeliveryOptions();
-      if (headers == null) {
-        headers = new CaseInsensitiveHeaders();
-      }
-      headers.add(ACTION_HEADER, MESSAGE_ACTION)
-          .add(ID_HEADER, id)
-          .add(INDEX_HEADER, String.valueOf(index))
-          .add(PORT_HEADER, context.target().port())
-          .add(SOURCE_HEADER, context.target().address()) // TODO: header is called source, but takes the address...
-          .add(ID_HEADER, id)
-          .add(INDEX_HEADER, String.valueOf(index));
-
-      options.setHeaders(headers);
-      if (context.sendTimeout() > 0) {
-        options.setSendTimeout(context.sendTimeout());
-      }
-
-      if (log.isDebugEnabled()) {
-        log.debug("{} - Send: Message[name={}, message={}]", this, id, message);
+      Payload payload;
+      while (!paused && (payload = queue.poll()) != null) {
+        doSend(payload);
       }
-
-      if (ackHandler != null) {
-        eventBus.send(context.target().address(), message, options, r -> {
-          if (r.succeeded()) {
-            ackHandler.handle(Future.<Void>succeededFuture());
-          } else {
-            ackHandler.handle(Future.<Void>failedFuture(r.cause()));
-          }
-        });
-      } else {
-        eventBus.send(context.target().address(), message, options);
-      }
-      checkFull();
+      checkDrain();
     }
-    return this;
   }
 
   @Override
-  public OutputConnection<T> send(T message) {
-    return doSend(message, null, null);
+  protected boolean isPaused() {
+    return paused;
   }
 
   @Override
-  public OutputConnection<T> send(T message, MultiMap headers) {
-    return doSend(message, headers, null);
+  protected void doQueue(Payload payload) {
+    queue.add(payload);
+    checkFull();
   }
 
   @Override
-  public OutputConnection<T> send(T message, Handler<AsyncResult<Void>> ackHandler) {
-    return doSend(message, null, ackHandler);
-  }
-
-  @Override
-  public OutputConnection<T> send(T message, MultiMap headers, Handler<AsyncResult<Void>> ackHandler) {
-    return doSend(message, headers, ackHandler);
-  }
-
-  @Override
-  public String toString() {
-    return context.toString();
+  protected OutputConnection<T> doSend(Payload payload) {
+    // Add a monotonically increasing index to the connection's own copy of the headers.
+    long index = currentMessage++;
+    payload.getHeaders()
+        .set(INDEX_HEADER, String.valueOf(index))
+        .set(SOURCE_HEADER, context.address())
+        .set(SENDER_HEADER, sender)
+        .set(SENDER_ID_HEADER, senderId);
+    messages.put(index, payload);
+    try {
+      super.doSend(payload);
+    } catch (RuntimeException e) {
+      // Release the index so that receivers don't see a gap that could never be filled.
+      messages.remove(index);
+      currentMessage--;
+      throw e;
+    }
+    checkFull();
+    return this;
   }
 
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.instance.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import net.kuujo.vertigo.instance.DoubleOutputPort;
+import net.kuujo.vertigo.instance.OutputPort;
+
+/**
+ * Double output port implementation.
+ */
+public class DoubleOutputPortImpl extends ChunkedOutputPort implements DoubleOutputPort {
+
+  public DoubleOutputPortImpl(Vertx vertx, OutputPort<Buffer> port) {
+    super(vertx, port, 8);
+  }
+
+  @Override
+  public DoubleOutputPort send(double value) {
+    chunk.appendDouble(value);
+    added();
+    return this;
+  }
+
+  @Override
+  public DoubleOutputPort flush() {
+    send(null);
+    return this;
+  }
+
+  @Override
+  public DoubleOutputPort flush(Handler<AsyncResult<Void>> ackHandler) {
+    send(ackHandler);
+    return this;
+  }
+
+}
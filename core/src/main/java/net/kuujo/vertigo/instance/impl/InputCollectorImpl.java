@@ -66,6 +66,42 @@ public class InputCollectorImpl implements InputCollector, Handler<Message<Objec
     }
   }
 
+  /**
+   * Updates the input with a new context. Ports that were added are created,
+   * and the connections of existing ports are updated. Ports that were removed
+   * from the context are kept with no connections, since the component may
+   * still hold references to them.
+   *
+   * @param context The updated input context.
+   */
+  public void update(InputContext context) {
+    for (InputPort port : ports.values()) {
+      if (port instanceof InputPortImpl && context.port(port.name()) == null) {
+        ((InputPortImpl) port).update(InputPortContext.builder().setInput(context).setName(port.name()).build());
+      }
+    }
+    for (InputPortContext input : context.ports()) {
+      InputPort port = ports.get(input.name());
+      if (port == null) {
+        ports.put(input.name(), factory.createInputPort(vertx, input));
+      } else if (port instanceof InputPortImpl) {
+        ((InputPortImpl) port).update(input);
+      }
+    }
+    this.context = context;
+  }
+
+  /**
+   * Closes the connections of every port.
+   */
+  public void close() {
+    for (InputPort port : ports.values()) {
+      if (port instanceof InputPortImpl) {
+        ((InputPortImpl) port).close();
+      }
+    }
+  }
+
   /**
    * Handles an input message.
    *
@@ -75,11 +111,11 @@ public class InputCollectorImpl implements InputCollector, Handler<Message<Objec
   @SuppressWarnings("unchecked")
   public void handle(Message<Object> message) {
     String portName = message.headers().get("port");
-    if (portName != null) {
-      InputPort port = ports.get(portName);
-      if (port != null) {
-        port.handle(message);
-      }
+    InputPort port = portName != null ? ports.get(portName) : null;
+    if (port != null) {
+      port.handle(message);
+    } else {
+      ComponentInstanceImpl.release(message);
     }
   }
 
@@ -18,19 +18,30 @@ package net.kuujo.vertigo.instance.impl;
 
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.streams.ReadStream;
 import net.kuujo.vertigo.spi.ComponentInstanceFactory;
 import net.kuujo.vertigo.instance.ControllableInput;
+import net.kuujo.vertigo.instance.DoubleInputPort;
+import net.kuujo.vertigo.instance.LongInputPort;
 import net.kuujo.vertigo.message.VertigoMessage;
 import net.kuujo.vertigo.instance.InputConnection;
 import net.kuujo.vertigo.context.InputConnectionContext;
 import net.kuujo.vertigo.instance.InputPort;
 import net.kuujo.vertigo.context.InputPortContext;
+import net.kuujo.vertigo.metrics.ConnectionMetrics;
+import net.kuujo.vertigo.metrics.PortMetrics;
+import net.kuujo.vertigo.metrics.impl.PortMetricsImpl;
 import net.kuujo.vertigo.util.TaskRunner;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -52,6 +63,10 @@ public class InputPortImpl<T> implements InputPort<T>, ControllableInput<InputPo
   private boolean open;
   private boolean paused;
   private InputConnection<T> stubConnection;
+  private ComponentInstanceFactory factory;
+  private InputPortReadStream<T> readStream;
+  private LongInputPort longs;
+  private DoubleInputPort doubles;
 
   public InputPortImpl(Vertx vertx, InputPortContext context, ComponentInstanceFactory factory) {
     this.vertx = vertx;
@@ -64,12 +79,78 @@ public class InputPortImpl<T> implements InputPort<T>, ControllableInput<InputPo
    * @param factory
    */
   private void init(ComponentInstanceFactory factory) {
+    this.factory = factory;
     for (InputConnectionContext connection : context.connections()) {
-      connections.put(connection.target().address(), factory.<T>createInputConnection(vertx, connection));
+      connections.put(connection.address(), factory.<T>createInputConnection(vertx, connection));
     }
     stubConnection = factory.<T>createExternalInputConnection(vertx, context);
   }
 
+  /**
+   * Updates the port's connections. Connections that are no longer in the
+   * port context are closed and removed, and new connections are opened with
+   * the port's current handler and pause state.
+   *
+   * @param context The updated input port context.
+   */
+  public void update(InputPortContext context) {
+    Map<String, InputConnectionContext> updated = new HashMap<>();
+    for (InputConnectionContext connection : context.connections()) {
+      updated.put(connection.address(), connection);
+    }
+    Iterator<Map.Entry<String, InputConnection<T>>> iterator = connections.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, InputConnection<T>> entry = iterator.next();
+      if (!updated.containsKey(entry.getKey())) {
+        close(entry.getValue());
+        iterator.remove();
+      }
+    }
+    for (Map.Entry<String, InputConnectionContext> entry : updated.entrySet()) {
+      if (!connections.containsKey(entry.getKey())) {
+        InputConnection<T> connection = factory.createInputConnection(vertx, entry.getValue());
+        if (messageHandler != null) {
+          connection.handler(messageHandler);
+        }
+        if (paused) {
+          connection.pause();
+        }
+        connections.put(entry.getKey(), connection);
+      }
+    }
+    this.context = context;
+  }
+
+  /**
+   * Closes the port's connections.
+   */
+  public void close() {
+    for (InputConnection<T> connection : connections.values()) {
+      close(connection);
+    }
+    if (stubConnection != null) {
+      close(stubConnection);
+    }
+  }
+
+  private static void close(InputConnection<?> connection) {
+    if (connection instanceof ControlledInputConnection) {
+      ((ControlledInputConnection<?>) connection).close();
+    } else if (connection instanceof AbstractInputConnection) {
+      ((AbstractInputConnection<?>) connection).close();
+    }
+  }
+
+  /**
+   * Returns the connection listening on the given connection address.
+   *
+   * @param address The connection address.
+   * @return The input connection, or <code>null</code> if the port has no connection with the address.
+   */
+  InputConnection<T> connection(String address) {
+    return connections.get(address);
+  }
+
   @Override
   public String name() {
     return context.name();
@@ -85,19 +166,33 @@ public class InputPortImpl<T> implements InputPort<T>, ControllableInput<InputPo
     return this;
   }
 
+  @Override
+  public PortMetrics metrics() {
+    return new PortMetricsImpl(context.name(), this::connectionMetrics);
+  }
+
+  /**
+   * Returns metrics for all of the port's connections.
+   */
+  private Collection<ConnectionMetrics> connectionMetrics() {
+    List<ConnectionMetrics> metrics = new ArrayList<>(connections.size() + 1);
+    for (InputConnection<T> connection : connections.values()) {
+      metrics.add(connection.metrics());
+    }
+    if (stubConnection != null) {
+      metrics.add(stubConnection.metrics());
+    }
+    return metrics;
+  }
+
   @Override
   public void handle(Message<T> message) {
     String source = message.headers().get("source");
-    if (source != null) {
-      InputConnection<T> connection = connections.get(source);
-      if (connection != null) {
-        connection.handle(message);
-      }
-    }
-    else {
-      if (stubConnection != null) {
-        stubConnection.handle(message);
-      }
+    InputConnection<T> connection = source != null ? connections.get(source) : stubConnection;
+    if (connection != null) {
+      connection.handle(message);
+    } else {
+      ComponentInstanceImpl.release(message);
     }
   }
 
@@ -132,6 +227,32 @@ public class InputPortImpl<T> implements InputPort<T>, ControllableInput<InputPo
     return this;
   }
 
+  @Override
+  public ReadStream<T> readStream() {
+    if (readStream == null) {
+      readStream = new InputPortReadStream<>(this, () -> context.connections().size());
+    }
+    return readStream;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public LongInputPort longs() {
+    if (longs == null) {
+      longs = new LongInputPortImpl((InputPort<Buffer>) this);
+    }
+    return longs;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public DoubleInputPort doubles() {
+    if (doubles == null) {
+      doubles = new DoubleInputPortImpl((InputPort<Buffer>) this);
+    }
+    return doubles;
+  }
+
   @Override
   public String toString() {
     return context.toString();
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.instance.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.streams.ReadStream;
+import net.kuujo.vertigo.instance.ControllableInput;
+import net.kuujo.vertigo.instance.InputPort;
+import net.kuujo.vertigo.message.VertigoMessage;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.IntSupplier;
+
+/**
+ * Read stream over an input port.<p>
+ *
+ * Messages are acked after they have been passed to the stream handler, or
+ * failed if the handler throws. Messages received while the stream is paused or
+ * has no handler are queued unacked and delivered in order once it is resumed.<p>
+ *
+ * The stream ends once end-of-stream markers sent by an {@link OutputPortWriteStream}
+ * have been received from every instance of every connected source.
+ */
+public class InputPortReadStream<T> implements ReadStream<T> {
+  private static final Logger logger = LoggerFactory.getLogger(InputPortReadStream.class);
+  private final InputPort<T> port;
+  private final IntSupplier sources;
+  private final Queue<VertigoMessage<T>> queue = new ArrayDeque<>();
+  private final Map<String, Integer> ends = new HashMap<>();
+  private int ended;
+  private Handler<T> handler;
+  private Handler<Void> endHandler;
+  private Handler<Throwable> exceptionHandler;
+  private boolean paused;
+
+  public InputPortReadStream(InputPort<T> port, IntSupplier sources) {
+    this.port = port;
+    this.sources = sources;
+    port.handler(this::handleMessage);
+  }
+
+  @Override
+  public ReadStream<T> exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public ReadStream<T> handler(Handler<T> handler) {
+    this.handler = handler;
+    deliverQueued();
+    return this;
+  }
+
+  @Override
+  public ReadStream<T> pause() {
+    if (!paused) {
+      paused = true;
+      if (port instanceof ControllableInput) {
+        ((ControllableInput<?, ?>) port).pause();
+      }
+    }
+    return this;
+  }
+
+  @Override
+  public ReadStream<T> resume() {
+    if (paused) {
+      paused = false;
+      if (port instanceof ControllableInput) {
+        ((ControllableInput<?, ?>) port).resume();
+      }
+      deliverQueued();
+    }
+    return this;
+  }
+
+  @Override
+  public ReadStream<T> endHandler(Handler<Void> handler) {
+    this.endHandler = handler;
+    return this;
+  }
+
+  /**
+   * Returns whether messages are currently delivered to the handler.
+   */
+  private boolean flowing() {
+    return !paused && handler != null;
+  }
+
+  /**
+   * Handles a message received on the port.
+   */
+  private void handleMessage(VertigoMessage<T> message) {
+    if (flowing() && queue.isEmpty()) {
+      deliver(message);
+    } else {
+      queue.add(message);
+    }
+  }
+
+  /**
+   * Delivers queued messages until the queue is empty or the stream is paused.
+   */
+  private void deliverQueued() {
+    while (flowing() && !queue.isEmpty()) {
+      deliver(queue.poll());
+    }
+  }
+
+  /**
+   * Delivers a message to the handler or handles an end-of-stream marker.
+   */
+  private void deliver(VertigoMessage<T> message) {
+    String source = message.headers().get(OutputPortWriteStream.END_HEADER);
+    if (source != null) {
+      message.ack();
+      doEnd(source, message.headers().get(OutputPortWriteStream.END_INSTANCES_HEADER));
+      return;
+    }
+
+    try {
+      handler.handle(message.body());
+      message.ack();
+    } catch (Exception e) {
+      message.fail(e);
+      if (exceptionHandler != null) {
+        exceptionHandler.handle(e);
+      } else {
+        logger.error(String.format("Failed to handle message on port %s", port.name()), e);
+      }
+    }
+  }
+
+  /**
+   * Records an end-of-stream marker and ends the stream once all sources have ended.
+   */
+  private void doEnd(String source, String instances) {
+    int expected = instances != null ? Integer.parseInt(instances) : 1;
+    int count = ends.merge(source, 1, Integer::sum);
+    if (count == expected) {
+      ended++;
+      if (ended >= Math.max(1, sources.getAsInt()) && endHandler != null) {
+        endHandler.handle((Void) null);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.instance.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import net.kuujo.vertigo.instance.LongInputPort;
+import net.kuujo.vertigo.instance.InputPort;
+import net.kuujo.vertigo.message.LongChunk;
+
+/**
+ * Long input port implementation.
+ */
+public class LongInputPortImpl implements LongInputPort {
+  private static final Logger logger = LoggerFactory.getLogger(LongInputPortImpl.class);
+  private final InputPort<Buffer> port;
+
+  public LongInputPortImpl(InputPort<Buffer> port) {
+    this.port = port;
+  }
+
+  @Override
+  public String name() {
+    return port.name();
+  }
+
+  @Override
+  public LongInputPort handler(Handler<LongChunk> handler) {
+    port.handler(message -> {
+      try {
+        handler.handle(new LongChunk(message.body()));
+        message.ack();
+      } catch (Exception e) {
+        message.fail(e);
+        logger.error(String.format("Failed to handle chunk on port %s", port.name()), e);
+      }
+    });
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return port.toString();
+  }
+
+}
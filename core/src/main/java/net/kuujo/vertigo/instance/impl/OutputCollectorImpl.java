@@ -62,6 +62,42 @@ public class OutputCollectorImpl implements OutputCollector, Handler<Message<Obj
     }
   }
 
+  /**
+   * Updates the output with a new context. Ports that were added are created,
+   * and the connections of existing ports are updated. Ports that were removed
+   * from the context are kept with no connections, since the component may
+   * still hold references to them.
+   *
+   * @param context The updated output context.
+   */
+  public void update(OutputContext context) {
+    for (OutputPort port : ports.values()) {
+      if (port instanceof OutputPortImpl && context.port(port.name()) == null) {
+        ((OutputPortImpl) port).update(OutputPortContext.builder().setOutput(context).setName(port.name()).build());
+      }
+    }
+    for (OutputPortContext output : context.ports()) {
+      OutputPort port = ports.get(output.name());
+      if (port == null) {
+        ports.put(output.name(), factory.createOutputPort(vertx, output));
+      } else if (port instanceof OutputPortImpl) {
+        ((OutputPortImpl) port).update(output);
+      }
+    }
+    this.context = context;
+  }
+
+  /**
+   * Closes the connections of every port.
+   */
+  public void close() {
+    for (OutputPort port : ports.values()) {
+      if (port instanceof OutputPortImpl) {
+        ((OutputPortImpl) port).close();
+      }
+    }
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public void handle(Message<Object> message) {
@@ -19,19 +19,30 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.MultiMap;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.streams.WriteStream;
 import net.kuujo.vertigo.spi.ComponentInstanceFactory;
 import net.kuujo.vertigo.instance.ControllableOutput;
+import net.kuujo.vertigo.instance.DoubleOutputPort;
+import net.kuujo.vertigo.instance.LongOutputPort;
 import net.kuujo.vertigo.instance.OutputConnection;
 import net.kuujo.vertigo.context.OutputConnectionContext;
 import net.kuujo.vertigo.instance.OutputPort;
 import net.kuujo.vertigo.context.OutputPortContext;
+import net.kuujo.vertigo.metrics.ConnectionMetrics;
+import net.kuujo.vertigo.metrics.PortMetrics;
+import net.kuujo.vertigo.metrics.impl.PortMetricsImpl;
 import net.kuujo.vertigo.util.Args;
 import net.kuujo.vertigo.util.CountingCompletionHandler;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -47,6 +58,10 @@ public class OutputPortImpl<T> implements OutputPort<T>, ControllableOutput<Outp
   protected final Map<String, OutputConnection<T>> connections = new HashMap<>();
   private int maxQueueSize = DEFAULT_SEND_QUEUE_MAX_SIZE;
   private Handler<Void> drainHandler;
+  private ComponentInstanceFactory factory;
+  private OutputPortWriteStream<T> writeStream;
+  private LongOutputPort longs;
+  private DoubleOutputPort doubles;
 
   public OutputPortImpl(Vertx vertx, OutputPortContext context, ComponentInstanceFactory factory) {
     this.vertx = vertx;
@@ -59,8 +74,57 @@ public class OutputPortImpl<T> implements OutputPort<T>, ControllableOutput<Outp
    * @param factory
    */
   private void init(ComponentInstanceFactory factory) {
+    this.factory = factory;
     for (OutputConnectionContext connection : context.connections()) {
-      connections.put(connection.target().address(), factory.<T>createOutputConnection(vertx, connection));
+      connections.put(connection.address(), factory.<T>createOutputConnection(vertx, connection));
+    }
+  }
+
+  /**
+   * Updates the port's connections. Connections that are no longer in the
+   * port context are removed, new connections are opened, and connections to
+   * unchanged targets are kept along with their queued messages.
+   *
+   * @param context The updated output port context.
+   */
+  public void update(OutputPortContext context) {
+    Map<String, OutputConnectionContext> updated = new HashMap<>();
+    for (OutputConnectionContext connection : context.connections()) {
+      updated.put(connection.address(), connection);
+    }
+    Iterator<Map.Entry<String, OutputConnection<T>>> iterator = connections.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, OutputConnection<T>> entry = iterator.next();
+      if (!updated.containsKey(entry.getKey())) {
+        close(entry.getValue());
+        iterator.remove();
+      }
+    }
+    for (Map.Entry<String, OutputConnectionContext> entry : updated.entrySet()) {
+      if (!connections.containsKey(entry.getKey())) {
+        OutputConnection<T> connection = factory.createOutputConnection(vertx, entry.getValue());
+        connection.setSendQueueMaxSize(maxQueueSize);
+        if (drainHandler != null) {
+          connection.drainedHandler(drainHandler);
+        }
+        connections.put(entry.getKey(), connection);
+      }
+    }
+    this.context = context;
+  }
+
+  /**
+   * Closes the port's connections.
+   */
+  public void close() {
+    for (OutputConnection<T> connection : connections.values()) {
+      close(connection);
+    }
+  }
+
+  private static void close(OutputConnection<?> connection) {
+    if (connection instanceof AbstractOutputConnection) {
+      ((AbstractOutputConnection<?>) connection).close();
     }
   }
 
@@ -90,6 +154,22 @@ public class OutputPortImpl<T> implements OutputPort<T>, ControllableOutput<Outp
     return this;
   }
 
+  @Override
+  public PortMetrics metrics() {
+    return new PortMetricsImpl(context.name(), this::connectionMetrics);
+  }
+
+  /**
+   * Returns metrics for all of the port's connections.
+   */
+  private Collection<ConnectionMetrics> connectionMetrics() {
+    List<ConnectionMetrics> metrics = new ArrayList<>(connections.size());
+    for (OutputConnection<T> connection : connections.values()) {
+      metrics.add(connection.metrics());
+    }
+    return metrics;
+  }
+
   @Override
   public OutputPort<T> setSendQueueMaxSize(int maxSize) {
     Args.checkPositive(maxSize, "max size must be a positive number");
@@ -169,6 +249,31 @@ public class OutputPortImpl<T> implements OutputPort<T>, ControllableOutput<Outp
     return this;
   }
 
+  @Override
+  public WriteStream<T> writeStream() {
+    if (writeStream == null) {
+      writeStream = new OutputPortWriteStream<>(this, context.output().component().address(), Math.max(1, context.output().component().replicas()));
+    }
+    return writeStream;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public LongOutputPort longs() {
+    if (longs == null) {
+      longs = new LongOutputPortImpl(vertx, (OutputPort<Buffer>) this);
+    }
+    return longs;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public DoubleOutputPort doubles() {
+    if (doubles == null) {
+      doubles = new DoubleOutputPortImpl(vertx, (OutputPort<Buffer>) this);
+    }
+    return doubles;
+  }
 
   @Override
   public String toString() {
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.instance.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.CaseInsensitiveHeaders;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.streams.WriteStream;
+import net.kuujo.vertigo.instance.ControllableOutput;
+import net.kuujo.vertigo.instance.OutputPort;
+
+/**
+ * Write stream over an output port.<p>
+ *
+ * Written messages count against the write queue until they are acked or failed.
+ * The queue is full at <code>vertigo.port.write-queue-max-size</code> unacked
+ * messages (default <code>1000</code>) or while the port's own send queue is full,
+ * and the drain handler is called once both have drained. The stream registers
+ * itself as the port's drained handler.<p>
+ *
+ * Ending the stream sends an empty message carrying the {@link #END_HEADER}
+ * header, set to the address of the sending component, and the
+ * {@link #END_INSTANCES_HEADER} header, set to the number of instances of the
+ * sending component, each of which ends its own stream.
+ */
+public class OutputPortWriteStream<T> implements WriteStream<T> {
+  public static final String END_HEADER = "end";
+  public static final String END_INSTANCES_HEADER = "end-instances";
+  private static final Logger logger = LoggerFactory.getLogger(OutputPortWriteStream.class);
+  private static final int DEFAULT_WRITE_QUEUE_MAX_SIZE = Integer.getInteger("vertigo.port.write-queue-max-size", 1000);
+  private final OutputPort<T> port;
+  private final String source;
+  private final int instances;
+  private int maxQueueSize = DEFAULT_WRITE_QUEUE_MAX_SIZE;
+  private int pending;
+  private boolean full;
+  private Handler<Void> drainHandler;
+  private Handler<Throwable> exceptionHandler;
+
+  public OutputPortWriteStream(OutputPort<T> port, String source, int instances) {
+    this.port = port;
+    this.source = source;
+    this.instances = instances;
+    if (port instanceof ControllableOutput) {
+      ((ControllableOutput<?, ?>) port).drainedHandler(v -> checkDrain());
+    }
+  }
+
+  @Override
+  public WriteStream<T> exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public WriteStream<T> write(T message) {
+    pending++;
+    port.send(message, result -> {
+      pending--;
+      if (result.failed()) {
+        if (exceptionHandler != null) {
+          exceptionHandler.handle(result.cause());
+        } else {
+          logger.warn(String.format("Failed to send message on port %s", port.name()), result.cause());
+        }
+      }
+      checkDrain();
+    });
+    checkFull();
+    return this;
+  }
+
+  @Override
+  public void end() {
+    MultiMap headers = new CaseInsensitiveHeaders()
+        .add(END_HEADER, source)
+        .add(END_INSTANCES_HEADER, String.valueOf(instances));
+    port.send(null, headers);
+  }
+
+  @Override
+  public WriteStream<T> setWriteQueueMaxSize(int maxSize) {
+    this.maxQueueSize = maxSize;
+    return this;
+  }
+
+  @Override
+  public boolean writeQueueFull() {
+    return pending >= maxQueueSize || portFull();
+  }
+
+  @Override
+  public WriteStream<T> drainHandler(Handler<Void> handler) {
+    this.drainHandler = handler;
+    return this;
+  }
+
+  /**
+   * Returns whether the port's send queue is full.
+   */
+  private boolean portFull() {
+    return port instanceof ControllableOutput && ((ControllableOutput<?, ?>) port).sendQueueFull();
+  }
+
+  /**
+   * Checks whether the write queue is full.
+   */
+  private void checkFull() {
+    if (!full && writeQueueFull()) {
+      full = true;
+    }
+  }
+
+  /**
+   * Checks whether the write queue has been drained.
+   */
+  private void checkDrain() {
+    if (full && pending <= maxQueueSize / 2 && !portFull()) {
+      full = false;
+      if (drainHandler != null) {
+        drainHandler.handle((Void) null);
+      }
+    }
+  }
+
+}
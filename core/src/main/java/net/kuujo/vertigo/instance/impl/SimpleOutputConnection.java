@@ -1,58 +1,117 @@
 package net.kuujo.vertigo.instance.impl;
 
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import net.kuujo.vertigo.VertigoException;
 import net.kuujo.vertigo.context.OutputConnectionContext;
 import net.kuujo.vertigo.instance.OutputConnection;
 
+import java.util.ArrayDeque;
+import java.util.Queue;
+
 /**
- * Created by Magnus.Koch on 8/30/2016.
+ * Fire-and-forget output connection.<p>
+ *
+ * Messages are sent as soon as they are written and are not held for resending.
+ * Messages sent while the connection is paused are queued and sent once it is
+ * resumed. The queue holds at most the send queue max size, and messages sent
+ * while it is full are dropped, failing their ack handlers.
  */
 public class SimpleOutputConnection<T> extends AbstractOutputConnection<T> {
+  protected static final int DEFAULT_MAX_QUEUE_SIZE = 1000;
+  private final Logger log;
+  private final Queue<Payload> queue = new ArrayDeque<>();
+  private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+  private Handler<Void> drainHandler;
+  private boolean paused;
 
   public SimpleOutputConnection(Vertx vertx, OutputConnectionContext context) {
     super(vertx, context);
+    this.log = LoggerFactory.getLogger(String.format("%s-%s", SimpleOutputConnection.class.getName(), context.port().output().component().address()));
   }
 
   @Override
   protected void doPause(long id) {
+    log.debug("{} - Paused connection to {}", this, context.target());
+    paused = true;
   }
 
   @Override
   protected void doResume(long id) {
+    if (paused) {
+      log.debug("{} - Resumed connection to {}", this, context.target());
+      paused = false;
+      Payload payload;
+      while (!paused && (payload = queue.poll()) != null) {
+        doSend(payload);
+      }
+      if (!paused && drainHandler != null) {
+        drainHandler.handle((Void) null);
+      }
+    }
   }
 
   @Override
   protected boolean isPaused() {
-    return false;
+    return paused;
   }
 
   @Override
   protected void doQueue(Payload payload) {
+    if (queue.size() < maxQueueSize) {
+      queue.add(payload);
+    } else {
+      log.debug("{} - Send queue to {} is full, dropping message {}", this, context.target(), payload.getId());
+      if (payload.getAckHandler() != null) {
+        completeAck(payload.getAckHandler(), Future.failedFuture(new VertigoException("Send queue full")));
+      }
+    }
   }
 
   @Override
   public int size() {
-    return 0;
+    return queue.size();
   }
 
   @Override
   public OutputConnection<T> setSendQueueMaxSize(int maxSize) {
+    this.maxQueueSize = maxSize;
     return this;
   }
 
   @Override
   public int getSendQueueMaxSize() {
-    return Integer.MAX_VALUE;
+    return maxQueueSize;
   }
 
   @Override
   public boolean sendQueueFull() {
-    return false;
+    return paused || queue.size() >= maxQueueSize || (transport != null && transport.writeQueueFull(context.address()));
   }
 
   @Override
   public OutputConnection<T> drainedHandler(Handler<Void> handler) {
-    return null;
+    this.drainHandler = handler;
+    if (transport != null) {
+      transport.drainHandler(context.address(), handler);
+    }
+    return this;
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    if (transport != null) {
+      transport.drainHandler(context.address(), null);
+    }
+    Payload payload;
+    while ((payload = queue.poll()) != null) {
+      if (payload.getAckHandler() != null) {
+        completeAck(payload.getAckHandler(), Future.failedFuture(new VertigoException("Connection closed")));
+      }
+    }
   }
 }
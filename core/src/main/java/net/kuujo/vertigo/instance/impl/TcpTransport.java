@@ -0,0 +1,1290 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.instance.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.http.CaseInsensitiveHeaders;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.net.NetClient;
+import io.vertx.core.net.NetServer;
+import io.vertx.core.net.NetSocket;
+import io.vertx.core.parsetools.RecordParser;
+import net.kuujo.vertigo.VertigoException;
+import net.kuujo.vertigo.metrics.impl.ConnectionMetricsImpl;
+import net.kuujo.vertigo.util.Args;
+import net.kuujo.vertigo.util.FrameCompressor;
+import net.kuujo.vertigo.util.SharedMemoryRing;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Point-to-point TCP transport between component instances on different nodes.<p>
+ *
+ * The transport is enabled by setting <code>vertigo.transport</code> to <code>tcp</code>.
+ * Each node then runs a single server on <code>vertigo.tcp.host</code> and
+ * <code>vertigo.tcp.port</code> (default <code>localhost</code> and an ephemeral port),
+ * on which component instances register the addresses of their input connections.
+ * The first message sent to a connection address looks up the node listening on it
+ * over the event bus. Messages to connections on other nodes are then written to a
+ * persistent socket per node pair, multiplexed by connection address.<p>
+ *
+ * Each context that sends through the transport keeps its own routes and opens its
+ * own sockets to the nodes it sends to, so event loops never contend with each other
+ * while sending. Messages sent from outside of a Vert.x context share a single context.
+ * Frames are dispatched to registered handlers without locking.<p>
+ *
+ * Messages written in the same event loop task are batched into one length-prefixed
+ * frame, and a frame is written early once it reaches <code>vertigo.tcp.batch-size</code>
+ * bytes (default <code>65536</code>). Setting <code>vertigo.tcp.compression</code> to
+ * <code>true</code> deflates frames written to sockets with a {@link FrameCompressor}
+ * per socket. Frames smaller than <code>vertigo.tcp.compression.min-size</code> bytes
+ * (default <code>1024</code>) are not compressed, and compression is skipped while it
+ * shrinks frames by less than <code>vertigo.tcp.compression.max-ratio</code> (default
+ * <code>0.9</code>) or saves fewer than <code>vertigo.tcp.compression.min-savings</code>
+ * bytes per microsecond of compression (default <code>8</code>), retrying every
+ * <code>vertigo.tcp.compression.probe-interval</code> frames (default <code>64</code>).
+ * The bytes each connection adds to frames, their share of the bytes written and of
+ * the compression time are recorded in the connection metrics.<p>
+ *
+ * Output connections of every kind, simple, unordered and ordered, send messages and
+ * resend held messages through the transport. Messages to local connections and messages
+ * to addresses that could not be located go through the event bus as usual. Every message
+ * to an address takes the same path, so bodies are limited to the types the event bus
+ * encodes by default: strings, buffers, JSON objects and arrays, byte arrays, boxed
+ * primitives and <code>null</code>. Sending any other body fails with an
+ * {@link IllegalArgumentException} rather than falling back to the event bus, where
+ * it could overtake messages written before it.<p>
+ *
+ * Nodes on the same host, as identified by <code>vertigo.shm.host-id</code> (default
+ * the host name), exchange frames through a {@link SharedMemoryRing} instead of a
+ * socket. Each sending context maps a ring of <code>vertigo.shm.size</code> bytes (default
+ * 8 MB) in <code>vertigo.shm.directory</code> (default <code>/dev/shm</code>) and hands
+ * its path to the receiving node, which polls all of its rings from a single thread
+ * while any are attached. The thread spins briefly, then yields, then parks for
+ * <code>vertigo.shm.park-nanos</code> (default <code>50000</code>) between polls while
+ * the rings stay empty. A ring is closed on both nodes when its link is closed. Frames that
+ * do not fit in a full ring are held back and retried every millisecond, and frames larger
+ * than the ring itself are sent through a socket to the same node instead. Shared memory
+ * is disabled by setting <code>vertigo.shm.enabled</code> to <code>false</code>, and
+ * nodes that fail to open a ring fall back to a socket.<p>
+ *
+ * Messages lost with a closed socket or ring are not resent, so the transport has the
+ * same at-most-once guarantees as the event bus. Acks are sent back through the event bus.
+ */
+public class TcpTransport {
+  public static final boolean ENABLED = "tcp".equals(System.getProperty("vertigo.transport"));
+  private static final String HOST = System.getProperty("vertigo.tcp.host", "localhost");
+  private static final int PORT = Integer.getInteger("vertigo.tcp.port", 0);
+  private static final int BATCH_SIZE = Integer.getInteger("vertigo.tcp.batch-size", 65536);
+  private static final long RETRY_INTERVAL = Long.getLong("vertigo.tcp.retry-interval", 5000);
+  private static final boolean COMPRESSION = Boolean.getBoolean("vertigo.tcp.compression");
+  private static final int COMPRESSION_MIN_SIZE = Integer.getInteger("vertigo.tcp.compression.min-size", 1024);
+  private static final double COMPRESSION_MAX_RATIO = Double.parseDouble(System.getProperty("vertigo.tcp.compression.max-ratio", "0.9"));
+  private static final double COMPRESSION_MIN_SAVINGS = Double.parseDouble(System.getProperty("vertigo.tcp.compression.min-savings", "8"));
+  private static final int COMPRESSION_PROBE_INTERVAL = Integer.getInteger("vertigo.tcp.compression.probe-interval", 64);
+  private static final boolean SHM_ENABLED = Boolean.parseBoolean(System.getProperty("vertigo.shm.enabled", "true"));
+  private static final String SHM_HOST_ID = System.getProperty("vertigo.shm.host-id", hostName());
+  private static final String SHM_DIRECTORY = System.getProperty("vertigo.shm.directory",
+      new File("/dev/shm").isDirectory() ? "/dev/shm" : System.getProperty("java.io.tmpdir"));
+  private static final int SHM_SIZE = Integer.getInteger("vertigo.shm.size", 8 * 1024 * 1024);
+  private static final long SHM_PARK_NANOS = Long.getLong("vertigo.shm.park-nanos", 50000);
+  private static final int SHM_SPINS = 100;
+  private static final int SHM_YIELDS = 200;
+  private static final String LOCATE_SUFFIX = ".tcp";
+  private static final String SHM_ADDRESS = "vertigo.transport.%s";
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte BUFFER = 2;
+  private static final byte JSON_OBJECT = 3;
+  private static final byte JSON_ARRAY = 4;
+  private static final byte INTEGER = 5;
+  private static final byte LONG = 6;
+  private static final byte DOUBLE = 7;
+  private static final byte BOOLEAN = 8;
+  private static final byte BYTES = 9;
+  private static final byte FLOAT = 10;
+  private static final byte SHORT = 11;
+  private static final byte CHARACTER = 12;
+  private static final byte BYTE = 13;
+  private static final Map<Vertx, TcpTransport> transports = new WeakHashMap<>();
+  private static final Logger log = LoggerFactory.getLogger(TcpTransport.class);
+
+  private final Vertx vertx;
+  private final String node = UUID.randomUUID().toString();
+  private final String endpointKey = "vertigo.transport.endpoint." + node;
+  private final AtomicInteger endpointIds = new AtomicInteger();
+  private final Map<String, Receivers> receivers = new ConcurrentHashMap<>();
+  private final Set<Endpoint> endpoints = ConcurrentHashMap.newKeySet();
+  private final Map<String, Link> rings = new ConcurrentHashMap<>();
+  private final Set<String> unshared = ConcurrentHashMap.newKeySet();
+  private final List<Message<Object>> waiting = new ArrayList<>();
+  private final Map<String, RingReader> readers = new HashMap<>();
+  private RingPoller poller;
+  private volatile boolean sharedMemory = SHM_ENABLED;
+  private volatile boolean compression = COMPRESSION;
+  private MessageConsumer<JsonObject> shmConsumer;
+  private NetServer server;
+  private NetClient client;
+  private Context defaultContext;
+  private int port;
+
+  public TcpTransport(Vertx vertx) {
+    this.vertx = vertx;
+  }
+
+  /**
+   * Returns the transport shared by all component instances of a Vert.x instance.
+   *
+   * @param vertx The Vert.x instance.
+   * @return The shared transport.
+   */
+  public static TcpTransport get(Vertx vertx) {
+    synchronized (transports) {
+      return transports.computeIfAbsent(vertx, TcpTransport::new);
+    }
+  }
+
+  private static String hostName() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      return "localhost";
+    }
+  }
+
+  /**
+   * Sets whether frames to nodes on the same host are exchanged through shared memory.
+   *
+   * @param sharedMemory Whether to use shared memory between nodes on the same host.
+   * @return The transport.
+   */
+  public TcpTransport setSharedMemory(boolean sharedMemory) {
+    this.sharedMemory = sharedMemory;
+    return this;
+  }
+
+  /**
+   * Sets whether frames written to sockets are compressed.
+   *
+   * @param compression Whether to compress frames written to sockets.
+   * @return The transport.
+   */
+  public TcpTransport setCompression(boolean compression) {
+    this.compression = compression;
+    return this;
+  }
+
+  /**
+   * Registers a handler for messages sent to a connection address.<p>
+   *
+   * Handlers are called on the context from which they were registered, and
+   * messages are delivered round robin when more than one handler is registered
+   * for the same address.
+   *
+   * @param address The connection address.
+   * @param handler The message handler.
+   */
+  public synchronized void register(String address, Handler<Message<Object>> handler) {
+    listen();
+    Receivers entry = receivers.get(address);
+    if (entry == null) {
+      entry = new Receivers(vertx.eventBus().<Object>consumer(address + LOCATE_SUFFIX).handler(this::locate));
+      receivers.put(address, entry);
+    }
+    entry.add(new Receiver(vertx.getOrCreateContext(), handler));
+  }
+
+  /**
+   * Unregisters a handler for messages sent to a connection address.
+   *
+   * @param address The connection address.
+   * @param handler The message handler.
+   */
+  public synchronized void unregister(String address, Handler<Message<Object>> handler) {
+    Receivers entry = receivers.get(address);
+    if (entry != null) {
+      entry.remove(handler);
+      if (entry.handlers.length == 0) {
+        entry.consumer.unregister();
+        receivers.remove(address);
+      }
+    }
+  }
+
+  /**
+   * Sends a message to a connection address.
+   *
+   * @param address The connection address.
+   * @param message The message body.
+   * @param options The delivery options, from which the message headers are sent.
+   */
+  public void send(String address, Object message, DeliveryOptions options) {
+    send(address, message, options, null);
+  }
+
+  /**
+   * Sends a message to a connection address, recording frame statistics in the connection metrics.
+   *
+   * @param address The connection address.
+   * @param message The message body.
+   * @param options The delivery options, from which the message headers are sent.
+   * @param metrics The metrics of the sending connection, or <code>null</code>.
+   * @throws IllegalArgumentException If the transport cannot encode the message body.
+   */
+  public void send(String address, Object message, DeliveryOptions options, ConnectionMetricsImpl metrics) {
+    checkBody(message);
+    endpoint().send(address, message, options, metrics);
+  }
+
+  /**
+   * Checks that the transport can encode a message body.
+   *
+   * @param body The message body.
+   * @throws IllegalArgumentException If the transport cannot encode the message body.
+   */
+  public static void checkBody(Object body) {
+    Args.check(isSupported(body), "Unsupported message body type %s", body != null ? body.getClass().getName() : null);
+  }
+
+  /**
+   * Returns whether the socket or ring for a connection address has a full write queue.
+   *
+   * @param address The connection address.
+   * @return Indicates whether messages to the address should be held back.
+   */
+  public boolean writeQueueFull(String address) {
+    return endpoint().isFull(address);
+  }
+
+  /**
+   * Sets a handler to be called whenever the socket or ring for a connection address
+   * drains after its write queue was full, or is closed. The handler stays registered
+   * for the calling context until it is replaced or removed.
+   *
+   * @param address The connection address.
+   * @param handler The handler to call, or {@code null} to remove the current handler.
+   */
+  public void drainHandler(String address, Handler<Void> handler) {
+    endpoint().drainHandler(address, handler);
+  }
+
+  /**
+   * Closes the server and all sockets and rings.
+   */
+  public void close() {
+    synchronized (this) {
+      for (Receivers entry : receivers.values()) {
+        entry.consumer.unregister();
+      }
+      receivers.clear();
+      for (RingReader reader : readers.values()) {
+        detached(reader.remote, reader.ring.file().getPath());
+        reader.ring.close();
+      }
+      readers.clear();
+      pollRings();
+      if (shmConsumer != null) {
+        shmConsumer.unregister();
+        shmConsumer = null;
+      }
+      if (server != null) {
+        server.close();
+        server = null;
+      }
+      if (client != null) {
+        client.close();
+        client = null;
+      }
+    }
+    for (Endpoint endpoint : endpoints) {
+      endpoint.closed = true;
+      if (Vertx.currentContext() == endpoint.context) {
+        endpoint.close();
+      } else {
+        endpoint.context.runOnContext(v -> endpoint.close());
+      }
+    }
+    endpoints.clear();
+    synchronized (transports) {
+      transports.remove(vertx, this);
+    }
+  }
+
+  /**
+   * Returns the sending state of the current context, creating it on first use.
+   */
+  private Endpoint endpoint() {
+    Context context = Vertx.currentContext();
+    if (context == null) {
+      context = defaultContext();
+    }
+    Endpoint endpoint = context.get(endpointKey);
+    if (endpoint == null || endpoint.closed) {
+      endpoint = new Endpoint(context);
+      context.put(endpointKey, endpoint);
+      endpoints.add(endpoint);
+    }
+    return endpoint;
+  }
+
+  /**
+   * Returns the context used by threads without a context of their own.
+   */
+  private synchronized Context defaultContext() {
+    if (defaultContext == null) {
+      defaultContext = vertx.getOrCreateContext();
+    }
+    return defaultContext;
+  }
+
+  /**
+   * Returns the client with which sockets to other nodes are opened.
+   */
+  private synchronized NetClient client() {
+    if (client == null) {
+      client = vertx.createNetClient();
+    }
+    return client;
+  }
+
+  /**
+   * Starts the server if it is not already listening.
+   */
+  private void listen() {
+    if (server == null) {
+      server = vertx.createNetServer();
+      server.connectHandler(this::accept);
+      server.listen(PORT, HOST, this::listened);
+      shmConsumer = vertx.eventBus().<JsonObject>consumer(String.format(SHM_ADDRESS, node)).handler(this::attach);
+    }
+  }
+
+  private synchronized void listened(AsyncResult<NetServer> result) {
+    if (result.succeeded()) {
+      port = result.result().actualPort();
+      log.debug("{} - Listening on {}:{}", this, HOST, port);
+    } else {
+      log.error(String.format("%s - Failed to listen on %s:%d", this, HOST, PORT), result.cause());
+      server = null;
+    }
+    List<Message<Object>> messages = new ArrayList<>(waiting);
+    waiting.clear();
+    for (Message<Object> message : messages) {
+      locate(message);
+    }
+  }
+
+  /**
+   * Replies to a location request with this node's server.
+   */
+  private synchronized void locate(Message<Object> message) {
+    if (server == null) {
+      message.fail(ReplyFailure.RECIPIENT_FAILURE.toInt(), "Transport closed");
+    } else if (port == 0) {
+      waiting.add(message);
+    } else {
+      message.reply(new JsonObject()
+          .put("node", node)
+          .put("host", HOST)
+          .put("port", port)
+          .put("hostId", SHM_HOST_ID));
+    }
+  }
+
+  /**
+   * Opens a ring shared by another node, or closes one it has released.
+   */
+  private synchronized void attach(Message<JsonObject> message) {
+    String path = message.body().getString("path");
+    if (message.body().getBoolean("closed", false)) {
+      RingReader reader = readers.remove(path);
+      if (reader != null) {
+        pollRings();
+        reader.ring.close();
+      }
+      Link link = rings.get(path);
+      if (link != null) {
+        link.endpoint.context.runOnContext(v -> link.endpoint.drop(link));
+      }
+      return;
+    }
+
+    try {
+      RingReader reader = new RingReader(message.body().getString("node"), SharedMemoryRing.open(new File(path)));
+      readers.put(path, reader);
+      pollRings();
+      message.reply(null);
+    } catch (VertigoException e) {
+      message.fail(ReplyFailure.RECIPIENT_FAILURE.toInt(), e.getMessage());
+    }
+  }
+
+  /**
+   * Hands the attached rings to the poller, starting it for the first ring and
+   * stopping it once no rings are left.
+   */
+  private void pollRings() {
+    if (readers.isEmpty()) {
+      if (poller != null) {
+        poller.stop();
+        poller = null;
+      }
+    } else {
+      if (poller == null) {
+        poller = new RingPoller();
+        poller.start();
+      }
+      poller.readers = readers.values().toArray(new RingReader[readers.size()]);
+    }
+  }
+
+  /**
+   * Tells another node that a ring it shares with this node has been closed.
+   */
+  private void detached(String remote, String path) {
+    vertx.eventBus().send(String.format(SHM_ADDRESS, remote), new JsonObject()
+        .put("path", path)
+        .put("closed", true));
+  }
+
+  /**
+   * Reads frames from a socket opened by another node.
+   */
+  private void accept(NetSocket socket) {
+    SocketReader reader = new SocketReader();
+    socket.handler(reader.parser);
+    socket.closeHandler(v -> reader.release());
+    socket.exceptionHandler(t -> socket.close());
+  }
+
+  private static FrameCompressor compressor() {
+    return new FrameCompressor(COMPRESSION_MIN_SIZE, COMPRESSION_MAX_RATIO, COMPRESSION_MIN_SAVINGS, COMPRESSION_PROBE_INTERVAL);
+  }
+
+  /**
+   * Dispatches the messages in a frame to their registered handlers.
+   */
+  private void receive(Buffer frame) {
+    Reader reader = new Reader(frame);
+    while (reader.position < frame.length()) {
+      String address = reader.readString();
+      MultiMap headers = new CaseInsensitiveHeaders();
+      int count = reader.readInt();
+      for (int i = 0; i < count; i++) {
+        headers.add(reader.readString(), reader.readString());
+      }
+      Object body = reader.readBody();
+      Receivers entry = receivers.get(address);
+      Receiver receiver = entry != null ? entry.next() : null;
+      if (receiver != null) {
+        TransportMessage message = new TransportMessage(address, headers, body);
+        if (Vertx.currentContext() == receiver.context) {
+          receiver.handler.handle(message);
+        } else {
+          receiver.context.runOnContext(v -> receiver.handler.handle(message));
+        }
+      } else {
+        log.debug("{} - No handlers for {}", this, address);
+      }
+    }
+  }
+
+  /**
+   * Returns whether the transport can encode a message body.
+   */
+  private static boolean isSupported(Object body) {
+    return body == null || body instanceof String || body instanceof Buffer
+        || body instanceof JsonObject || body instanceof JsonArray
+        || body instanceof byte[] || body instanceof Integer || body instanceof Long
+        || body instanceof Double || body instanceof Float || body instanceof Short
+        || body instanceof Character || body instanceof Byte || body instanceof Boolean;
+  }
+
+  private static void writeString(Buffer buffer, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    buffer.appendInt(bytes.length).appendBytes(bytes);
+  }
+
+  private static void writeBody(Buffer buffer, Object body) {
+    if (body == null) {
+      buffer.appendByte(NULL);
+    } else if (body instanceof String) {
+      buffer.appendByte(STRING);
+      writeString(buffer, (String) body);
+    } else if (body instanceof Buffer) {
+      buffer.appendByte(BUFFER).appendInt(((Buffer) body).length()).appendBuffer((Buffer) body);
+    } else if (body instanceof JsonObject) {
+      buffer.appendByte(JSON_OBJECT);
+      writeString(buffer, ((JsonObject) body).encode());
+    } else if (body instanceof JsonArray) {
+      buffer.appendByte(JSON_ARRAY);
+      writeString(buffer, ((JsonArray) body).encode());
+    } else if (body instanceof Integer) {
+      buffer.appendByte(INTEGER).appendInt((Integer) body);
+    } else if (body instanceof Long) {
+      buffer.appendByte(LONG).appendLong((Long) body);
+    } else if (body instanceof Double) {
+      buffer.appendByte(DOUBLE).appendDouble((Double) body);
+    } else if (body instanceof byte[]) {
+      buffer.appendByte(BYTES).appendInt(((byte[]) body).length).appendBytes((byte[]) body);
+    } else if (body instanceof Float) {
+      buffer.appendByte(FLOAT).appendFloat((Float) body);
+    } else if (body instanceof Short) {
+      buffer.appendByte(SHORT).appendShort((Short) body);
+    } else if (body instanceof Character) {
+      buffer.appendByte(CHARACTER).appendShort((short) ((Character) body).charValue());
+    } else if (body instanceof Byte) {
+      buffer.appendByte(BYTE).appendByte((Byte) body);
+    } else {
+      buffer.appendByte(BOOLEAN).appendByte((byte) ((Boolean) body ? 1 : 0));
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("TcpTransport[node=%s]", node);
+  }
+
+  /**
+   * Message sent to a connection address before it has been located.
+   */
+  private static class Pending {
+    private final Object message;
+    private final DeliveryOptions options;
+    private final ConnectionMetricsImpl metrics;
+
+    private Pending(Object message, DeliveryOptions options, ConnectionMetricsImpl metrics) {
+      this.message = message;
+      this.options = options;
+      this.metrics = metrics;
+    }
+  }
+
+  /**
+   * Sender-side state of a connection address.
+   */
+  private static class Route {
+    private final List<Pending> pending = new ArrayList<>();
+    private boolean locating;
+    private Link link;
+    private long retry;
+  }
+
+  /**
+   * Handlers registered for a connection address.<p>
+   *
+   * Handlers are only added and removed while holding the transport lock, and
+   * are replaced as a whole so that frames can be dispatched without locking.
+   */
+  private static class Receivers {
+    private final MessageConsumer<Object> consumer;
+    private final AtomicInteger index = new AtomicInteger();
+    private volatile Receiver[] handlers = new Receiver[0];
+
+    private Receivers(MessageConsumer<Object> consumer) {
+      this.consumer = consumer;
+    }
+
+    private void add(Receiver receiver) {
+      Receiver[] handlers = Arrays.copyOf(this.handlers, this.handlers.length + 1);
+      handlers[handlers.length - 1] = receiver;
+      this.handlers = handlers;
+    }
+
+    private void remove(Handler<Message<Object>> handler) {
+      handlers = Arrays.stream(handlers).filter(receiver -> receiver.handler != handler).toArray(Receiver[]::new);
+    }
+
+    private Receiver next() {
+      Receiver[] handlers = this.handlers;
+      if (handlers.length == 0) {
+        return null;
+      }
+      return handlers[Math.floorMod(index.getAndIncrement(), handlers.length)];
+    }
+  }
+
+  private static class Receiver {
+    private final Context context;
+    private final Handler<Message<Object>> handler;
+
+    private Receiver(Context context, Handler<Message<Object>> handler) {
+      this.context = context;
+      this.handler = handler;
+    }
+  }
+
+  /**
+   * Sending state of a single context.<p>
+   *
+   * Routes and links are only used on the context that owns them, so sending
+   * never contends with other event loops. Each context opens its own sockets
+   * and rings to the nodes it sends to.
+   */
+  private class Endpoint {
+    private final Context context;
+    private final int id = endpointIds.incrementAndGet();
+    private final Map<String, Route> routes = new HashMap<>();
+    private final Map<String, Link> links = new HashMap<>();
+    private final Map<String, Handler<Void>> drainHandlers = new HashMap<>();
+    private volatile boolean closed;
+
+    private Endpoint(Context context) {
+      this.context = context;
+    }
+
+    private void send(String address, Object message, DeliveryOptions options, ConnectionMetricsImpl metrics) {
+      Route route = routes.get(address);
+      if (route == null || (route.link == null && !route.locating && System.currentTimeMillis() >= route.retry)) {
+        route = new Route();
+        routes.put(address, route);
+        locate(address, route);
+      }
+
+      if (route.locating) {
+        route.pending.add(new Pending(message, options, metrics));
+      } else if (route.link != null) {
+        route.link.write(address, message, options, metrics);
+      } else {
+        vertx.eventBus().send(address, message, options);
+      }
+    }
+
+    private boolean isFull(String address) {
+      Route route = routes.get(address);
+      return route != null && route.link != null && route.link.isFull();
+    }
+
+    private void drainHandler(String address, Handler<Void> handler) {
+      if (handler != null) {
+        drainHandlers.put(address, handler);
+      } else {
+        drainHandlers.remove(address);
+      }
+    }
+
+    /**
+     * Calls the drain handlers of the addresses routed through a link.
+     */
+    private void drained(Link link) {
+      List<String> addresses = new ArrayList<>();
+      for (Map.Entry<String, Route> entry : routes.entrySet()) {
+        if (entry.getValue().link == link) {
+          addresses.add(entry.getKey());
+        }
+      }
+      drained(addresses);
+    }
+
+    private void drained(List<String> addresses) {
+      for (String address : addresses) {
+        Handler<Void> handler = drainHandlers.get(address);
+        if (handler != null) {
+          handler.handle(null);
+        }
+      }
+    }
+
+    /**
+     * Looks up the node listening on a connection address.
+     */
+    private void locate(String address, Route route) {
+      route.locating = true;
+      vertx.eventBus().<JsonObject>send(address + LOCATE_SUFFIX, null, reply -> located(address, route, reply));
+    }
+
+    private void located(String address, Route route, AsyncResult<Message<JsonObject>> reply) {
+      route.locating = false;
+      if (closed) {
+        route.retry = Long.MAX_VALUE;
+      } else if (reply.failed()) {
+        log.debug("{} - Failed to locate {}, sending through the event bus", TcpTransport.this, address);
+        route.retry = System.currentTimeMillis() + RETRY_INTERVAL;
+      } else if (!node.equals(reply.result().body().getString("node"))) {
+        JsonObject location = reply.result().body();
+        String remote = location.getString("node");
+        boolean shared = sharedMemory && !unshared.contains(remote) && SHM_HOST_ID.equals(location.getString("hostId"));
+        String key = shared ? "shm:" + remote : String.format("%s:%d", location.getString("host"), location.getInteger("port"));
+        Link link = links.get(key);
+        if (link == null) {
+          link = new Link(this, key, remote, location.getString("host"), location.getInteger("port"));
+          links.put(key, link);
+          if (shared) {
+            share(link);
+          } else {
+            connect(link);
+          }
+        }
+        route.link = link;
+      } else {
+        route.retry = Long.MAX_VALUE;
+      }
+
+      for (Pending pending : route.pending) {
+        if (route.link != null) {
+          route.link.write(address, pending.message, pending.options, pending.metrics);
+        } else {
+          vertx.eventBus().send(address, pending.message, pending.options);
+        }
+      }
+      route.pending.clear();
+    }
+
+    /**
+     * Opens a socket to another node.
+     */
+    private void connect(Link link) {
+      client().connect(link.port, link.host, result -> connected(link, result));
+    }
+
+    /**
+     * Returns the socket link to the node a ring link writes to, opening it if needed.
+     */
+    private Link spill(Link link) {
+      String key = String.format("%s:%d", link.host, link.port);
+      Link socketLink = links.get(key);
+      if (socketLink == null) {
+        socketLink = new Link(this, key, link.remote, link.host, link.port);
+        links.put(key, socketLink);
+        connect(socketLink);
+      }
+      return socketLink;
+    }
+
+    /**
+     * Maps a ring for another node on the same host and hands it to that node.
+     */
+    private void share(Link link) {
+      File file = new File(SHM_DIRECTORY, String.format("vertigo-%s-%d-%s", node, id, link.remote));
+      try {
+        link.ring = SharedMemoryRing.create(file, SHM_SIZE);
+      } catch (VertigoException e) {
+        log.warn(String.format("%s - Failed to create ring %s", TcpTransport.this, file), e);
+        unshared.add(link.remote);
+        connect(link);
+        return;
+      }
+      rings.put(file.getPath(), link);
+      vertx.eventBus().send(String.format(SHM_ADDRESS, link.remote), new JsonObject()
+          .put("node", node)
+          .put("path", file.getPath()), reply -> shared(link, reply));
+    }
+
+    private void shared(Link link, AsyncResult<Message<Object>> reply) {
+      if (link.ring == null) {
+        return;
+      }
+      if (reply.succeeded()) {
+        log.debug("{} - Sharing ring {} with {}", TcpTransport.this, link.ring.file(), link.remote);
+        link.ready = true;
+        link.flush();
+      } else {
+        log.warn(String.format("%s - Failed to share ring with %s, connecting to %s", TcpTransport.this, link.remote, link.key), reply.cause());
+        unshared.add(link.remote);
+        link.release();
+        connect(link);
+      }
+    }
+
+    private void connected(Link link, AsyncResult<NetSocket> result) {
+      if (result.failed()) {
+        log.warn(String.format("%s - Failed to connect to %s", TcpTransport.this, link.key), result.cause());
+        drop(link);
+        return;
+      }
+      NetSocket socket = result.result();
+      if (closed) {
+        socket.close();
+        return;
+      }
+      link.socket = socket;
+      if (compression) {
+        link.compressor = compressor();
+      }
+      socket.closeHandler(v -> closed(link));
+      socket.exceptionHandler(t -> socket.close());
+      socket.drainHandler(v -> {
+        // Vert.x also calls the handler once when it is set, so only drains after a full queue count.
+        if (link.full) {
+          link.full = false;
+          drained(link);
+        }
+      });
+      link.flush();
+    }
+
+    private void closed(Link link) {
+      log.debug("{} - Connection to {} closed", TcpTransport.this, link.key);
+      drop(link);
+    }
+
+    /**
+     * Removes a link and the routes through it, so that their addresses are located again.
+     */
+    private void drop(Link link) {
+      List<String> addresses = new ArrayList<>();
+      routes.entrySet().removeIf(entry -> entry.getValue().link == link && addresses.add(entry.getKey()));
+      links.remove(link.key, link);
+      link.release();
+      if (link.compressor != null) {
+        link.compressor.release();
+        link.compressor = null;
+      }
+      drained(addresses);
+    }
+
+    /**
+     * Closes the context's sockets and rings.
+     */
+    private void close() {
+      for (Link link : new ArrayList<>(links.values())) {
+        if (link.socket != null) {
+          link.socket.close();
+        } else if (link.ring != null) {
+          detached(link.remote, link.ring.file().getPath());
+          link.release();
+        }
+      }
+      links.clear();
+      routes.clear();
+      drainHandlers.clear();
+    }
+  }
+
+  /**
+   * Socket or ring to another node, batching messages into frames.
+   */
+  private class Link {
+    private final Endpoint endpoint;
+    private final String key;
+    private final String remote;
+    private final String host;
+    private final int port;
+    private final Deque<Buffer> overflow = new ArrayDeque<>();
+    private final Map<ConnectionMetricsImpl, Integer> framed = new HashMap<>();
+    private Buffer batch = Buffer.buffer();
+    private FrameCompressor compressor;
+    private boolean scheduled;
+    private NetSocket socket;
+    private SharedMemoryRing ring;
+    private boolean ready;
+    private boolean full;
+    private long timerID = -1;
+
+    private Link(Endpoint endpoint, String key, String remote, String host, int port) {
+      this.endpoint = endpoint;
+      this.key = key;
+      this.remote = remote;
+      this.host = host;
+      this.port = port;
+    }
+
+    private void write(String address, Object message, DeliveryOptions options, ConnectionMetricsImpl metrics) {
+      int start = batch.length();
+      writeString(batch, address);
+      MultiMap headers = options.getHeaders();
+      batch.appendInt(headers != null ? headers.size() : 0);
+      if (headers != null) {
+        for (Map.Entry<String, String> header : headers) {
+          writeString(batch, header.getKey());
+          writeString(batch, header.getValue());
+        }
+      }
+      writeBody(batch, message);
+      if (metrics != null) {
+        framed.merge(metrics, batch.length() - start, Integer::sum);
+      }
+      written();
+    }
+
+    /**
+     * Appends the messages of a batch written for another link.
+     */
+    private void append(Buffer messages) {
+      batch.appendBuffer(messages);
+      written();
+    }
+
+    /**
+     * Flushes the batch once it is full, or schedules a flush otherwise.
+     */
+    private void written() {
+      if (batch.length() >= BATCH_SIZE) {
+        flush();
+      } else if (!scheduled) {
+        scheduled = true;
+        endpoint.context.runOnContext(v -> {
+          scheduled = false;
+          flush();
+        });
+      }
+    }
+
+    /**
+     * Writes the current batch as a single frame.
+     */
+    private void flush() {
+      if (batch.length() == 0) {
+        return;
+      }
+      if (socket != null) {
+        Buffer frame;
+        if (compressor != null) {
+          Buffer compressed = compressor.compress(batch);
+          record(compressed.length(), compressor.lastCompressionTime());
+          frame = Buffer.buffer(compressed.length() + 4).appendInt(compressed.length()).appendBuffer(compressed);
+        } else {
+          // Without compression the length, flag and batch are written into the frame in one copy.
+          frame = Buffer.buffer(batch.length() + 5).appendInt(batch.length() + 1).appendByte(FrameCompressor.RAW).appendBuffer(batch);
+          record(batch.length() + 1, 0);
+        }
+        socket.write(frame);
+        batch = Buffer.buffer();
+      } else if (ring != null && ready) {
+        record(batch.length(), 0);
+        if (batch.length() + 4 > ring.capacity()) {
+          // The frame can never fit the ring, so it goes through a socket to the same node instead.
+          log.debug("{} - Sending frame of {} bytes larger than ring {} through {}:{}", TcpTransport.this, batch.length(), ring.file(), host, port);
+          endpoint.spill(this).append(batch);
+        } else if (!overflow.isEmpty() || !ring.offer(batch)) {
+          overflow.add(batch);
+          if (timerID == -1) {
+            timerID = vertx.setPeriodic(1, id -> retry());
+          }
+        }
+        batch = Buffer.buffer();
+      }
+    }
+
+    /**
+     * Splits the bytes written for the current batch and the time spent compressing
+     * it between the connections that wrote to it, by their share of the batch.
+     */
+    private void record(int written, long nanos) {
+      for (Map.Entry<ConnectionMetricsImpl, Integer> entry : framed.entrySet()) {
+        double share = (double) entry.getValue() / batch.length();
+        entry.getKey().framed(entry.getValue(), Math.round(written * share), Math.round(nanos * share));
+      }
+      framed.clear();
+    }
+
+    /**
+     * Writes frames held back while the ring was full.
+     */
+    private void retry() {
+      while (ring != null && !overflow.isEmpty() && ring.offer(overflow.peek())) {
+        overflow.poll();
+      }
+      if (ring == null || overflow.isEmpty()) {
+        vertx.cancelTimer(timerID);
+        timerID = -1;
+        endpoint.drained(this);
+      }
+    }
+
+    private boolean isFull() {
+      if (socket != null) {
+        full |= socket.writeQueueFull();
+        return full;
+      }
+      return !overflow.isEmpty();
+    }
+
+    /**
+     * Stops writing to the ring and deletes it.
+     */
+    private void release() {
+      if (ring != null) {
+        rings.remove(ring.file().getPath(), this);
+        ring.close();
+        ring = null;
+        ready = false;
+        overflow.clear();
+        if (timerID != -1) {
+          vertx.cancelTimer(timerID);
+          timerID = -1;
+        }
+      }
+    }
+  }
+
+  /**
+   * Splits a socket opened by another node into frames and dispatches them.
+   */
+  private class SocketReader implements Handler<Buffer> {
+    private final RecordParser parser = RecordParser.newFixed(4, this);
+    private boolean header = true;
+    private FrameCompressor compressor;
+
+    @Override
+    public void handle(Buffer buffer) {
+      if (header) {
+        header = false;
+        parser.fixedSizeMode(buffer.getInt(0));
+      } else {
+        header = true;
+        parser.fixedSizeMode(4);
+        if (buffer.getByte(0) == FrameCompressor.RAW) {
+          receive(buffer.slice(1, buffer.length()));
+        } else {
+          // The inflater is only created once the peer actually sends a compressed frame.
+          if (compressor == null) {
+            compressor = compressor();
+          }
+          receive(compressor.decompress(buffer));
+        }
+      }
+    }
+
+    private void release() {
+      if (compressor != null) {
+        compressor.release();
+        compressor = null;
+      }
+    }
+  }
+
+  /**
+   * Ring shared by another node.
+   */
+  private static class RingReader {
+    private final String remote;
+    private final SharedMemoryRing ring;
+
+    private RingReader(String remote, SharedMemoryRing ring) {
+      this.remote = remote;
+      this.ring = ring;
+    }
+  }
+
+  /**
+   * Thread polling frames from every ring shared with this transport.<p>
+   *
+   * The thread reads a frame from each ring in turn. It spins while frames keep
+   * arriving and backs off to yielding and then to parking once the rings stay
+   * empty, trading a little latency on idle rings for not burning a core. The
+   * thread runs only while rings are attached.
+   */
+  private class RingPoller implements Runnable {
+    private final Thread thread = new Thread(this, "vertigo-shm-" + node);
+    private volatile RingReader[] readers = new RingReader[0];
+    private volatile boolean running = true;
+
+    private RingPoller() {
+      thread.setDaemon(true);
+    }
+
+    private void start() {
+      thread.start();
+    }
+
+    private void stop() {
+      running = false;
+      LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void run() {
+      int idle = 0;
+      while (running) {
+        boolean read = false;
+        for (RingReader reader : readers) {
+          Buffer frame = reader.ring.poll();
+          if (frame != null) {
+            read = true;
+            try {
+              receive(frame);
+            } catch (RuntimeException e) {
+              log.error(String.format("%s - Failed to read frame from %s", TcpTransport.this, reader.ring.file()), e);
+            }
+          }
+        }
+        if (read) {
+          idle = 0;
+        } else if (idle < SHM_SPINS) {
+          idle++;
+        } else if (idle < SHM_YIELDS) {
+          idle++;
+          Thread.yield();
+        } else {
+          LockSupport.parkNanos(SHM_PARK_NANOS);
+        }
+      }
+    }
+  }
+
+  /**
+   * Sequential reader over a frame.
+   */
+  private static class Reader {
+    private final Buffer buffer;
+    private int position;
+
+    private Reader(Buffer buffer) {
+      this.buffer = buffer;
+    }
+
+    private int readInt() {
+      int value = buffer.getInt(position);
+      position += 4;
+      return value;
+    }
+
+    private String readString() {
+      int length = readInt();
+      String value = buffer.getString(position, position + length, StandardCharsets.UTF_8.name());
+      position += length;
+      return value;
+    }
+
+    private Object readBody() {
+      byte type = buffer.getByte(position++);
+      switch (type) {
+        case STRING:
+          return readString();
+        case BUFFER:
+          int length = readInt();
+          Buffer body = buffer.getBuffer(position, position + length);
+          position += length;
+          return body;
+        case JSON_OBJECT:
+          return new JsonObject(readString());
+        case JSON_ARRAY:
+          return new JsonArray(readString());
+        case INTEGER:
+          return readInt();
+        case LONG:
+          long longValue = buffer.getLong(position);
+          position += 8;
+          return longValue;
+        case DOUBLE:
+          double doubleValue = buffer.getDouble(position);
+          position += 8;
+          return doubleValue;
+        case BOOLEAN:
+          return buffer.getByte(position++) != 0;
+        case BYTES:
+          int size = readInt();
+          byte[] bytes = buffer.getBytes(position, position + size);
+          position += size;
+          return bytes;
+        case FLOAT:
+          float floatValue = buffer.getFloat(position);
+          position += 4;
+          return floatValue;
+        case SHORT:
+          short shortValue = buffer.getShort(position);
+          position += 2;
+          return shortValue;
+        case CHARACTER:
+          char charValue = (char) buffer.getShort(position);
+          position += 2;
+          return charValue;
+        case BYTE:
+          return buffer.getByte(position++);
+        default:
+          return null;
+      }
+    }
+  }
+
+  /**
+   * Message received through the transport.<p>
+   *
+   * Messages sent through the transport have no reply address. Acked messages
+   * carry the headers with which their acks are batched back over the event bus.
+   */
+  private static class TransportMessage implements Message<Object> {
+    private final String address;
+    private final MultiMap headers;
+    private final Object body;
+
+    private TransportMessage(String address, MultiMap headers, Object body) {
+      this.address = address;
+      this.headers = headers;
+      this.body = body;
+    }
+
+    @Override
+    public String address() {
+      return address;
+    }
+
+    @Override
+    public MultiMap headers() {
+      return headers;
+    }
+
+    @Override
+    public Object body() {
+      return body;
+    }
+
+    @Override
+    public String replyAddress() {
+      return null;
+    }
+
+    @Override
+    public void reply(Object message) {
+    }
+
+    @Override
+    public <R> void reply(Object message, Handler<AsyncResult<Message<R>>> replyHandler) {
+    }
+
+    @Override
+    public void reply(Object message, DeliveryOptions options) {
+    }
+
+    @Override
+    public <R> void reply(Object message, DeliveryOptions options, Handler<AsyncResult<Message<R>>> replyHandler) {
+    }
+
+    @Override
+    public void fail(int failureCode, String failureMessage) {
+    }
+  }
+
+}
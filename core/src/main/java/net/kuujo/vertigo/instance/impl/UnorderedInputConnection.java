@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.instance.impl;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import net.kuujo.vertigo.context.InputConnectionContext;
+import net.kuujo.vertigo.instance.InputConnection;
+import net.kuujo.vertigo.spi.VertigoMessageFactory;
+import net.kuujo.vertigo.util.AckWindow;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unordered at-least-once input connection.<p>
+ *
+ * Messages are delivered as soon as they arrive, whatever their index. A bitmap
+ * window per sending instance drops duplicates of resent messages and tracks
+ * gaps in the received indices. The window starts at the <code>base</code> the
+ * sender attaches to each message, its lowest unacked index, so messages that
+ * overtake earlier ones are never mistaken for the start of the stream. A new
+ * <code>sender-id</code> from the same sender means its connection was recreated
+ * and restarted its indices, so the window is reset. A
+ * window spans at most <code>vertigo.connection.ack-window-size</code> indices
+ * (default <code>65536</code>); messages beyond it are dropped unacked and
+ * recovered when the sender resends them. Every <code>vertigo.connection.ack-batch-size</code>
+ * messages (default <code>1000</code>), and otherwise every 100 milliseconds if
+ * anything was received, the window is acked back to the sender. A gap that has
+ * not been filled by the following tick is reported with a <code>fail</code> so
+ * the sender resends the missing messages.
+ */
+public class UnorderedInputConnection<T> extends AbstractInputConnection<T> {
+  protected static final String INDEX_HEADER = "index";
+  protected static final String PORT_HEADER = "port";
+  protected static final String SOURCE_HEADER = "source";
+  protected static final String SENDER_HEADER = "sender";
+  protected static final String BASE_HEADER = "base";
+  protected static final String SENDER_ID_HEADER = "sender-id";
+  protected static final String ACKS_HEADER = "acks";
+  protected static final String ACK_ACTION = "ack";
+  protected static final String FAIL_ACTION = "fail";
+  private static final int BATCH_SIZE = Integer.getInteger("vertigo.connection.ack-batch-size", 1000);
+  private static final long MAX_BATCH_TIME = 100;
+  private static final long WINDOW_SIZE = Long.getLong("vertigo.connection.ack-window-size", 65536);
+  private static final Logger log = LoggerFactory.getLogger(UnorderedInputConnection.class);
+  private final Map<String, Feedback> senders = new HashMap<>();
+  private long feedbackTimerID = -1;
+  private boolean paused;
+
+  public UnorderedInputConnection(Vertx vertx, InputConnectionContext context, VertigoMessageFactory messageFactory) {
+    super(vertx, context, messageFactory);
+  }
+
+  @Override
+  public void handle(Message<T> message) {
+    String index = message.headers().get(INDEX_HEADER);
+    if (index == null) {
+      doMessage(message);
+      return;
+    }
+
+    String sender = message.headers().get(SENDER_HEADER);
+    String senderId = message.headers().get(SENDER_ID_HEADER);
+    String baseHeader = message.headers().get(BASE_HEADER);
+    long base = baseHeader != null ? Long.valueOf(baseHeader) : 1;
+    Feedback feedback = senders.get(sender);
+    if (feedback == null || (senderId != null && !senderId.equals(feedback.senderId))) {
+      if (feedback != null) {
+        log.debug("{} - Sender {} restarted at {}", this, sender, base);
+      }
+      feedback = new Feedback(sender != null ? sender : context.source().address(), senderId, base);
+      senders.put(sender, feedback);
+      if (feedbackTimerID == -1) {
+        feedbackTimerID = vertx.setPeriodic(MAX_BATCH_TIME, this::checkFeedback);
+      }
+    } else {
+      // The sender has released everything below its base, so those indices won't be resent.
+      feedback.window.markTo(base - 1);
+    }
+
+    long i = Long.valueOf(index);
+    if (feedback.window.mark(i)) {
+      doMessage(message);
+      if (++feedback.received >= BATCH_SIZE) {
+        feedback(feedback, ACK_ACTION);
+      }
+    } else {
+      if (!feedback.window.fits(i)) {
+        if (log.isDebugEnabled()) {
+          log.debug("{} - Dropped message {} from {} beyond the ack window", this, index, sender);
+        }
+      } else if (log.isDebugEnabled()) {
+        log.debug("{} - Dropped duplicate message {} from {}", this, index, sender);
+      }
+      ComponentInstanceImpl.release(message);
+    }
+  }
+
+  /**
+   * Acks windows that have changed and fails gaps that have not been filled since the last tick.
+   */
+  private void checkFeedback(long timerID) {
+    for (Feedback feedback : senders.values()) {
+      if (feedback.window.marked() > 0 && feedback.window.base() == feedback.lastBase) {
+        feedback(feedback, FAIL_ACTION);
+      } else if (feedback.received > 0) {
+        feedback(feedback, ACK_ACTION);
+      }
+      feedback.lastBase = feedback.window.base();
+    }
+  }
+
+  /**
+   * Sends the state of a sender's window back to the sender.
+   */
+  private void feedback(Feedback feedback, String action) {
+    if (log.isDebugEnabled()) {
+      log.debug("{} - Sending {} for messages up to {} to {}", this, action, feedback.window.base() - 1, feedback.address);
+    }
+    eventBus.send(feedback.address, null, new DeliveryOptions()
+        .addHeader(ACTION_HEADER, action)
+        .addHeader(PORT_HEADER, context.source().port())
+        .addHeader(SOURCE_HEADER, context.address())
+        .addHeader(INDEX_HEADER, String.valueOf(feedback.window.base() - 1))
+        .addHeader(ACKS_HEADER, feedback.window.encode()));
+    feedback.received = 0;
+  }
+
+  /**
+   * Closes the connection, stopping its periodic feedback.
+   */
+  @Override
+  public void close() {
+    if (feedbackTimerID != -1) {
+      vertx.cancelTimer(feedbackTimerID);
+      feedbackTimerID = -1;
+    }
+  }
+
+  @Override
+  public InputConnection<T> pause() {
+    if (!paused) {
+      paused = true;
+      metrics.paused();
+      control(PAUSE_ACTION);
+    }
+    return this;
+  }
+
+  @Override
+  public InputConnection<T> resume() {
+    if (paused) {
+      paused = false;
+      metrics.resumed();
+      control(RESUME_ACTION);
+    }
+    return this;
+  }
+
+  /**
+   * Publishes a flow control action to every instance of the source component.
+   */
+  private void control(String action) {
+    log.debug("{} - Sending {} to {}", this, action, context.source());
+    vertx.eventBus().publish(ComponentInstanceImpl.controlAddress(context.source().address()), null, new DeliveryOptions()
+        .addHeader(ACTION_HEADER, action)
+        .addHeader(PORT_HEADER, context.source().port())
+        .addHeader(SOURCE_HEADER, context.address())
+        .addHeader(INDEX_HEADER, "0"));
+  }
+
+  /**
+   * Receive state for a single sending instance.
+   */
+  private static class Feedback {
+    private final String address;
+    private final String senderId;
+    private final AckWindow window;
+    private long lastBase;
+    private int received;
+
+    private Feedback(String address, String senderId, long base) {
+      this.address = address;
+      this.senderId = senderId;
+      this.window = new AckWindow(base, WINDOW_SIZE);
+      this.lastBase = base;
+    }
+  }
+
+}
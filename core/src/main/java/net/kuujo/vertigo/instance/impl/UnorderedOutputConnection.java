@@ -0,0 +1,278 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.instance.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.http.CaseInsensitiveHeaders;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import net.kuujo.vertigo.context.OutputConnectionContext;
+import net.kuujo.vertigo.instance.OutputConnection;
+import net.kuujo.vertigo.util.AckWindow;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+
+/**
+ * Unordered at-least-once output connection.<p>
+ *
+ * Each message is sent with a monotonically increasing index and held until the
+ * receiving {@link UnorderedInputConnection} acks it. Every message, including
+ * resent ones, also carries the lowest index still held, from which the
+ * receiver starts and slides its window, and an identifier unique to this
+ * connection so the receiver notices when a recreated connection restarts its indices. Acks carry the index below
+ * which every message was received plus a bitmap of the messages received above
+ * it, so messages that arrive out of order are released without waiting for the
+ * gap to be filled. A <code>fail</code> from the receiver resends only the held
+ * messages below the highest index it has seen. Messages still held after
+ * <code>vertigo.connection.resend-timeout</code> milliseconds (default <code>1000</code>)
+ * are resent as well, which recovers messages lost at the tail of a stream.
+ * Messages sent while the connection is paused are queued and sent once it is resumed.
+ */
+public class UnorderedOutputConnection<T> extends AbstractOutputConnection<T> {
+  protected static final String SOURCE_HEADER = "source";
+  protected static final String SENDER_HEADER = "sender";
+  protected static final String BASE_HEADER = "base";
+  protected static final String SENDER_ID_HEADER = "sender-id";
+  protected static final String ACKS_HEADER = "acks";
+  protected static final String ACK_ACTION = "ack";
+  protected static final String FAIL_ACTION = "fail";
+  protected static final int DEFAULT_MAX_QUEUE_SIZE = 1000;
+  private static final long RESEND_TIMEOUT = Long.getLong("vertigo.connection.resend-timeout", 1000);
+  private static final Logger log = LoggerFactory.getLogger(UnorderedOutputConnection.class);
+  private final String sender;
+  private final String senderId = UUID.randomUUID().toString();
+  private final Map<Long, Payload> messages = new LinkedHashMap<>();
+  private final Queue<Payload> queue = new ArrayDeque<>();
+  private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+  private Handler<Void> drainHandler;
+  private long currentMessage = 1;
+  private long lastSent;
+  private long resendTimerID = -1;
+  private boolean full;
+  private boolean paused;
+
+  public UnorderedOutputConnection(Vertx vertx, OutputConnectionContext context) {
+    super(vertx, context);
+    this.sender = senderAddress();
+  }
+
+  @Override
+  public void handle(Message<T> message) {
+    String action = message.headers().get(ACTION_HEADER);
+    switch (action) {
+      case ACK_ACTION:
+        doAck(Long.valueOf(message.headers().get(INDEX_HEADER)), message.headers().get(ACKS_HEADER));
+        break;
+      case FAIL_ACTION:
+        doFail(Long.valueOf(message.headers().get(INDEX_HEADER)), message.headers().get(ACKS_HEADER));
+        break;
+      default:
+        super.handle(message);
+        break;
+    }
+  }
+
+  @Override
+  public OutputConnection<T> setSendQueueMaxSize(int maxSize) {
+    this.maxQueueSize = maxSize;
+    return this;
+  }
+
+  @Override
+  public int getSendQueueMaxSize() {
+    return maxQueueSize;
+  }
+
+  @Override
+  public int size() {
+    return messages.size() + queue.size();
+  }
+
+  @Override
+  public boolean sendQueueFull() {
+    return paused || size() >= maxQueueSize;
+  }
+
+  @Override
+  public OutputConnection<T> drainedHandler(Handler<Void> handler) {
+    this.drainHandler = handler;
+    return this;
+  }
+
+  /**
+   * Checks whether the connection is full.
+   */
+  protected void checkFull() {
+    if (!full && size() >= maxQueueSize) {
+      full = true;
+      log.debug("{} - Connection to {} is full", this, context.target());
+    }
+  }
+
+  /**
+   * Checks whether the connection has been drained.
+   */
+  protected void checkDrain() {
+    if (full && !paused && size() < maxQueueSize / 2) {
+      full = false;
+      log.debug("{} - Connection to {} is drained", this, context.target());
+      if (drainHandler != null) {
+        drainHandler.handle((Void) null);
+      }
+    }
+  }
+
+  /**
+   * Releases every message up to the given index and every message marked in the ack bitmap.
+   *
+   * @return The highest index the receiver has seen.
+   */
+  protected long doAck(long index, String acks) {
+    Iterator<Long> iterator = messages.keySet().iterator();
+    while (iterator.hasNext() && iterator.next() <= index) {
+      iterator.remove();
+    }
+    long[] highest = {index};
+    AckWindow.decode(index + 1, acks, i -> {
+      messages.remove(i);
+      highest[0] = i;
+    });
+    checkDrain();
+    return highest[0];
+  }
+
+  /**
+   * Resends every held message the receiver has seen a later message than.
+   */
+  protected void doFail(long index, String acks) {
+    long highest = doAck(index, acks);
+    if (log.isDebugEnabled()) {
+      log.debug("{} - Received resend request for messages between {} and {}", this, index, highest);
+    }
+    resend(highest - 1);
+  }
+
+  /**
+   * Resends messages that were already held at the previous timeout.
+   */
+  private void checkTimeout(long timerID) {
+    if (!messages.isEmpty()) {
+      resend(lastSent);
+    }
+    lastSent = currentMessage - 1;
+  }
+
+  /**
+   * Resends every held message up to the given index.
+   */
+  private void resend(long index) {
+    if (messages.isEmpty()) {
+      return;
+    }
+    String base = String.valueOf(messages.keySet().iterator().next());
+    int resent = 0;
+    for (Map.Entry<Long, Payload> entry : messages.entrySet()) {
+      if (entry.getKey() > index) {
+        break;
+      }
+      // Copy the headers rather than updating the base in place, the previous send may still be in flight.
+      Payload payload = entry.getValue();
+      MultiMap headers = new CaseInsensitiveHeaders();
+      headers.addAll(payload.getHeaders()).set(BASE_HEADER, base);
+      payload.setHeaders(headers);
+      payload.getOptions().setHeaders(headers);
+      transmit(payload);
+      resent++;
+    }
+    if (resent > 0) {
+      metrics.messagesResent(resent);
+    }
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    if (resendTimerID != -1) {
+      vertx.cancelTimer(resendTimerID);
+      resendTimerID = -1;
+    }
+  }
+
+  @Override
+  protected void doPause(long id) {
+    log.debug("{} - Paused connection to {}", this, context.target());
+    paused = true;
+  }
+
+  @Override
+  protected void doResume(long id) {
+    if (paused) {
+      log.debug("{} - Resumed connection to {}", this, context.target());
+      paused = false;
+      Payload payload;
+      while (!paused && (payload = queue.poll()) != null) {
+        doSend(payload);
+      }
+      checkDrain();
+    }
+  }
+
+  @Override
+  protected boolean isPaused() {
+    return paused;
+  }
+
+  @Override
+  protected void doQueue(Payload payload) {
+    queue.add(payload);
+    checkFull();
+  }
+
+  @Override
+  protected OutputConnection<T> doSend(Payload payload) {
+    // The payload headers are this connection's own copy, see createPayload.
+    long index = currentMessage++;
+    payload.getHeaders()
+        .set(INDEX_HEADER, String.valueOf(index))
+        .set(SOURCE_HEADER, context.address())
+        .set(SENDER_HEADER, sender)
+        .set(SENDER_ID_HEADER, senderId);
+    messages.put(index, payload);
+    payload.getHeaders().set(BASE_HEADER, String.valueOf(messages.keySet().iterator().next()));
+    if (resendTimerID == -1) {
+      resendTimerID = vertx.setPeriodic(RESEND_TIMEOUT, this::checkTimeout);
+    }
+    try {
+      super.doSend(payload);
+    } catch (RuntimeException e) {
+      // Release the index so that receivers don't see a gap that could never be filled.
+      messages.remove(index);
+      currentMessage--;
+      throw e;
+    }
+    checkFull();
+    return this;
+  }
+
+}
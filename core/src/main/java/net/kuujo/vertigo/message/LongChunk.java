@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.message;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Read-only view over a chunk of <code>long</code> values.<p>
+ *
+ * The chunk reads values directly from the buffer in which they were received,
+ * eight bytes per value.
+ */
+public class LongChunk {
+  private final Buffer buffer;
+
+  public LongChunk(Buffer buffer) {
+    this.buffer = buffer;
+  }
+
+  /**
+   * Returns the number of values in the chunk.
+   *
+   * @return The number of values in the chunk.
+   */
+  public int size() {
+    return buffer.length() / 8;
+  }
+
+  /**
+   * Returns a value in the chunk.
+   *
+   * @param index The index of the value.
+   * @return The value at the given index.
+   */
+  public long get(int index) {
+    return buffer.getLong(index * 8);
+  }
+
+  /**
+   * Calls a consumer with each value in the chunk.
+   *
+   * @param consumer The value consumer.
+   */
+  public void forEach(LongConsumer consumer) {
+    for (int i = 0; i < buffer.length(); i += 8) {
+      consumer.accept(buffer.getLong(i));
+    }
+  }
+
+  /**
+   * Copies the values in the chunk to an array.
+   *
+   * @return A new array holding the values in the chunk.
+   */
+  public long[] toArray() {
+    long[] values = new long[size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = get(i);
+    }
+    return values;
+  }
+
+  /**
+   * Returns the buffer underlying the chunk.
+   *
+   * @return The chunk buffer.
+   */
+  public Buffer buffer() {
+    return buffer;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("LongChunk[size=%d]", size());
+  }
+
+}
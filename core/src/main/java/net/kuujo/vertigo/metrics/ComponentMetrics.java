@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.metrics;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.Collection;
+
+/**
+ * Metrics for a single component instance.<p>
+ *
+ * Component metrics are a live view of the component's port metrics. In
+ * addition to being available through {@link net.kuujo.vertigo.instance.ComponentInstance#metrics()},
+ * each component instance periodically publishes its metrics as JSON on the
+ * {@link #METRICS_ADDRESS} event bus address and replies to metrics requests
+ * sent to the component address suffixed with {@link #METRICS_ADDRESS_SUFFIX}.
+ */
+public interface ComponentMetrics {
+
+  /**
+   * The event bus address to which component metrics are published. Defaults to
+   * <code>vertigo.metrics</code> and may be changed with the <code>vertigo.metrics.address</code>
+   * system property.
+   */
+  String METRICS_ADDRESS = System.getProperty("vertigo.metrics.address", "vertigo.metrics");
+
+  /**
+   * The interval at which component metrics are published in milliseconds. Defaults
+   * to <code>5000</code> and may be changed with the <code>vertigo.metrics.interval</code>
+   * system property. An interval of <code>0</code> disables publishing.
+   */
+  long METRICS_INTERVAL = Long.getLong("vertigo.metrics.interval", 5000);
+
+  /**
+   * The suffix of the per-component address on which metrics requests are answered.
+   * Requests are published to every instance of the component, and each instance
+   * replies with its metrics as described in {@link net.kuujo.vertigo.util.Delivery}.
+   */
+  String METRICS_ADDRESS_SUFFIX = ".metrics";
+
+  /**
+   * The key under which each instance identifies itself in its metrics, and under
+   * which aggregated component metrics hold the metrics of each instance.
+   */
+  String INSTANCE_KEY = "instance";
+
+  /**
+   * How long a metrics request waits for all instances of a component to respond,
+   * in milliseconds. Defaults to <code>1000</code> and may be changed with the
+   * <code>vertigo.metrics.timeout</code> system property.
+   */
+  long METRICS_TIMEOUT = Long.getLong("vertigo.metrics.timeout", 1000);
+
+  /**
+   * Returns the component name.
+   *
+   * @return The component name.
+   */
+  String name();
+
+  /**
+   * Returns the component address.
+   *
+   * @return The component address.
+   */
+  String address();
+
+  /**
+   * Returns metrics for all input ports.
+   *
+   * @return A collection of input port metrics.
+   */
+  Collection<PortMetrics> input();
+
+  /**
+   * Returns metrics for all output ports.
+   *
+   * @return A collection of output port metrics.
+   */
+  Collection<PortMetrics> output();
+
+  /**
+   * Returns the per-hop latency of traced messages received on all input ports.
+   *
+   * @return A histogram of hop latencies in microseconds.
+   */
+  LatencyHistogram hopLatency();
+
+  /**
+   * Returns the cumulative latency of traced messages received on all input ports.
+   *
+   * @return A histogram of the time since traced messages entered the network, in microseconds.
+   */
+  LatencyHistogram latency();
+
+  /**
+   * Returns a JSON representation of the component metrics.
+   *
+   * @return A JSON representation of the component metrics.
+   */
+  JsonObject toJson();
+
+}
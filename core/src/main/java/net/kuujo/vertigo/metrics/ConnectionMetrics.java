@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.metrics;
+
+/**
+ * Metrics for a single input or output connection.<p>
+ *
+ * The connection name is the component and port on the other side
+ * of the connection. Frame statistics are only recorded for output
+ * connections sending through the TCP transport.
+ */
+public interface ConnectionMetrics extends Metrics {
+
+  /**
+   * Returns the number of bytes the connection added to transport frames.
+   *
+   * @return The uncompressed size of messages sent in transport frames, in bytes.
+   */
+  long bytesFramed();
+
+  /**
+   * Returns the connection's share of the bytes written for transport frames.
+   *
+   * @return The size of messages sent in transport frames after compression, in bytes.
+   */
+  long bytesWritten();
+
+  /**
+   * Returns the connection's share of the time spent compressing transport frames.
+   *
+   * @return The compression time in nanoseconds.
+   */
+  long compressionTime();
+
+}
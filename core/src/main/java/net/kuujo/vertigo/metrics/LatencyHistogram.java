@@ -0,0 +1,253 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.metrics;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear latency histogram.<p>
+ *
+ * Values are recorded in microseconds into a fixed set of buckets. Each power
+ * of two is split into {@link #SUB_BUCKETS} linear sub-buckets, so reported
+ * percentiles are within roughly 3% of the recorded value. Recording never
+ * allocates and is safe from multiple threads, and histograms can be merged
+ * either directly or from their JSON representation.
+ */
+public class LatencyHistogram {
+
+  /**
+   * The number of linear sub-buckets per power of two.
+   */
+  public static final int SUB_BUCKETS = 32;
+
+  /**
+   * The highest recordable value in microseconds. Larger values are clamped.
+   */
+  public static final long MAX_VALUE = (1L << 36) - 1;
+
+  private static final int SUB_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+  private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Returns the bucket index for the given value.
+   */
+  private static int index(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int msb = 63 - Long.numberOfLeadingZeros(value);
+    int shift = msb - SUB_BITS;
+    return ((shift + 1) << SUB_BITS) + (int) (value >>> shift) - SUB_BUCKETS;
+  }
+
+  /**
+   * Returns the highest value that falls into the given bucket.
+   */
+  private static long highest(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = (index >>> SUB_BITS) - 1;
+    long lowest = (long) ((index & (SUB_BUCKETS - 1)) + SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  /**
+   * Records a latency.
+   *
+   * @param micros The latency in microseconds. Negative values are recorded as zero.
+   */
+  public void record(long micros) {
+    long value = Math.min(Math.max(micros, 0), MAX_VALUE);
+    counts.incrementAndGet(index(value));
+    count.incrementAndGet();
+    sum.addAndGet(value);
+    long current;
+    while (value < (current = min.get()) && !min.compareAndSet(current, value));
+    while (value > (current = max.get()) && !max.compareAndSet(current, value));
+  }
+
+  /**
+   * Merges another histogram into this histogram.
+   *
+   * @param other The histogram to merge.
+   * @return The merged histogram.
+   */
+  public LatencyHistogram merge(LatencyHistogram other) {
+    if (other.count() == 0) {
+      return this;
+    }
+    for (int i = 0; i < BUCKETS; i++) {
+      long value = other.counts.get(i);
+      if (value > 0) {
+        counts.addAndGet(i, value);
+      }
+    }
+    count.addAndGet(other.count());
+    sum.addAndGet(other.sum.get());
+    long current;
+    long otherMin = other.min.get();
+    while (otherMin < (current = min.get()) && !min.compareAndSet(current, otherMin));
+    long otherMax = other.max.get();
+    while (otherMax > (current = max.get()) && !max.compareAndSet(current, otherMax));
+    return this;
+  }
+
+  /**
+   * Merges a JSON histogram into this histogram.
+   *
+   * @param json A histogram JSON representation as produced by {@link #toJson()}.
+   * @return The merged histogram.
+   */
+  public LatencyHistogram merge(JsonObject json) {
+    long total = json.getLong("count", 0L);
+    if (total == 0) {
+      return this;
+    }
+    JsonArray buckets = json.getJsonArray("buckets", new JsonArray());
+    for (int i = 0; i < buckets.size(); i++) {
+      JsonArray bucket = buckets.getJsonArray(i);
+      int index = bucket.getInteger(0);
+      if (index >= 0 && index < BUCKETS) {
+        counts.addAndGet(index, bucket.getLong(1));
+      }
+    }
+    count.addAndGet(total);
+    sum.addAndGet(json.getLong("sum", 0L));
+    long current;
+    long otherMin = json.getLong("min", 0L);
+    while (otherMin < (current = min.get()) && !min.compareAndSet(current, otherMin));
+    long otherMax = json.getLong("max", 0L);
+    while (otherMax > (current = max.get()) && !max.compareAndSet(current, otherMax));
+    return this;
+  }
+
+  /**
+   * Returns the number of recorded values.
+   *
+   * @return The number of recorded values.
+   */
+  public long count() {
+    return count.get();
+  }
+
+  /**
+   * Returns the lowest recorded value.
+   *
+   * @return The lowest recorded value in microseconds, or <code>0</code> if no values were recorded.
+   */
+  public long min() {
+    return count() > 0 ? min.get() : 0;
+  }
+
+  /**
+   * Returns the highest recorded value.
+   *
+   * @return The highest recorded value in microseconds.
+   */
+  public long max() {
+    return max.get();
+  }
+
+  /**
+   * Returns the mean of all recorded values.
+   *
+   * @return The mean value in microseconds.
+   */
+  public double mean() {
+    long total = count();
+    return total > 0 ? (double) sum.get() / total : 0;
+  }
+
+  /**
+   * Returns the value at the given percentile.
+   *
+   * @param percentile The percentile, between <code>0</code> and <code>100</code>.
+   * @return The upper bound of the bucket containing the percentile, in microseconds.
+   */
+  public long percentile(double percentile) {
+    long total = count();
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highest(i), max());
+      }
+    }
+    return max();
+  }
+
+  /**
+   * Resets the histogram.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    count.set(0);
+    sum.set(0);
+    min.set(Long.MAX_VALUE);
+    max.set(0);
+  }
+
+  /**
+   * Returns a JSON representation of the histogram.<p>
+   *
+   * Only non-empty buckets are included, each as an <code>[index, count]</code> pair.
+   *
+   * @return A JSON representation of the histogram.
+   */
+  public JsonObject toJson() {
+    JsonArray buckets = new JsonArray();
+    for (int i = 0; i < BUCKETS; i++) {
+      long value = counts.get(i);
+      if (value > 0) {
+        buckets.add(new JsonArray().add(i).add(value));
+      }
+    }
+    return new JsonObject()
+        .put("count", count())
+        .put("sum", sum.get())
+        .put("min", min())
+        .put("max", max())
+        .put("mean", mean())
+        .put("p50", percentile(50))
+        .put("p90", percentile(90))
+        .put("p99", percentile(99))
+        .put("p999", percentile(99.9))
+        .put("buckets", buckets);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("LatencyHistogram[count=%d, p50=%d, p99=%d, max=%d]", count(), percentile(50), percentile(99), max());
+  }
+
+}
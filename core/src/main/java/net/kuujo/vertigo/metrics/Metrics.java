@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.metrics;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Base messaging metrics.<p>
+ *
+ * Counters are cumulative from the time the owning connection was created.
+ * Times are reported in nanoseconds.
+ */
+public interface Metrics {
+
+  /**
+   * Returns the metrics name.
+   *
+   * @return The metrics name.
+   */
+  String name();
+
+  /**
+   * Returns the number of messages sent.
+   *
+   * @return The number of messages sent.
+   */
+  long messagesSent();
+
+  /**
+   * Returns the number of messages received.
+   *
+   * @return The number of messages received.
+   */
+  long messagesReceived();
+
+  /**
+   * Returns the number of sent messages that were acked.
+   *
+   * @return The number of acked messages.
+   */
+  long acks();
+
+  /**
+   * Returns the number of sent messages that were failed or timed out.
+   *
+   * @return The number of failed messages.
+   */
+  long fails();
+
+  /**
+   * Returns the number of messages resent after a resend request.
+   *
+   * @return The number of resent messages.
+   */
+  long resends();
+
+  /**
+   * Returns the number of times the connection was paused.
+   *
+   * @return The number of pauses.
+   */
+  long pauses();
+
+  /**
+   * Returns the total time spent paused, including any current pause.
+   *
+   * @return The time spent paused in nanoseconds.
+   */
+  long pausedTime();
+
+  /**
+   * Returns the current queue depth.
+   *
+   * @return The current queue depth.
+   */
+  int queueSize();
+
+  /**
+   * Returns the total time spent in message handlers.
+   *
+   * @return The handler time in nanoseconds.
+   */
+  long handlerTime();
+
+  /**
+   * Returns the per-hop latency of traced messages received.
+   *
+   * @return A histogram of the time between a traced message being sent and received, in microseconds.
+   */
+  LatencyHistogram hopLatency();
+
+  /**
+   * Returns the cumulative latency of traced messages received.
+   *
+   * @return A histogram of the time since traced messages entered the network, in microseconds.
+   */
+  LatencyHistogram latency();
+
+  /**
+   * Returns a JSON representation of the metrics.
+   *
+   * @return A JSON representation of the metrics.
+   */
+  JsonObject toJson();
+
+}
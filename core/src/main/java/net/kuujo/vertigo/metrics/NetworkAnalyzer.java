@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.metrics;
+
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Network bottleneck analyzer.<p>
+ *
+ * The analyzer periodically samples every component's metrics and computes,
+ * for each component, its input arrival rate, output rate, utilization (the
+ * fraction of time spent in message handlers), the fraction of time its output
+ * was paused by downstream components, and its send queue depth. From these it
+ * identifies the critical path through the network and the bottleneck component
+ * on that path, and suggests a replica count for each component.<p>
+ *
+ * Each analysis is a JSON snapshot of the network topology annotated with those
+ * figures. Snapshots are passed to the analyzer's handler and published on the
+ * network address suffixed with {@link #ANALYSIS_ADDRESS_SUFFIX}.
+ */
+public interface NetworkAnalyzer {
+
+  /**
+   * The suffix of the network address on which analysis snapshots are published.
+   */
+  String ANALYSIS_ADDRESS_SUFFIX = ".analysis";
+
+  /**
+   * The default sampling interval in milliseconds.
+   */
+  long DEFAULT_INTERVAL = 5000;
+
+  /**
+   * The utilization above which a component is considered saturated. Suggested
+   * replica counts aim to bring utilization down to this level. Defaults to
+   * <code>0.7</code> and may be changed with the <code>vertigo.analysis.target-utilization</code>
+   * system property.
+   */
+  double TARGET_UTILIZATION = Double.parseDouble(System.getProperty("vertigo.analysis.target-utilization", "0.7"));
+
+  /**
+   * Sets a handler to be called with each analysis snapshot.
+   *
+   * @param handler The snapshot handler.
+   * @return The network analyzer.
+   */
+  NetworkAnalyzer handler(Handler<JsonObject> handler);
+
+  /**
+   * Starts sampling at the default interval.
+   *
+   * @return The network analyzer.
+   */
+  NetworkAnalyzer start();
+
+  /**
+   * Starts sampling at the given interval.
+   *
+   * @param interval The sampling interval in milliseconds.
+   * @return The network analyzer.
+   */
+  NetworkAnalyzer start(long interval);
+
+  /**
+   * Stops sampling.
+   */
+  void stop();
+
+  /**
+   * Returns the most recent analysis snapshot.
+   *
+   * @return The most recent snapshot, or <code>null</code> if fewer than two samples have been taken.
+   */
+  JsonObject snapshot();
+
+}
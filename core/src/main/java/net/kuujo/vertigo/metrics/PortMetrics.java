@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.metrics;
+
+import java.util.Collection;
+
+/**
+ * Port metrics.<p>
+ *
+ * Port counters are the sum of the port's connection counters. The port
+ * queue size is the size of the most backed up connection.
+ */
+public interface PortMetrics extends Metrics {
+
+  /**
+   * Returns the metrics for each connection on the port.
+   *
+   * @return A collection of connection metrics.
+   */
+  Collection<ConnectionMetrics> connections();
+
+}
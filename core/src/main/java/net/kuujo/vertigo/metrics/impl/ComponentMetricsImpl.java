@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.metrics.impl;
+
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.context.ComponentContext;
+import net.kuujo.vertigo.instance.InputCollector;
+import net.kuujo.vertigo.instance.InputPort;
+import net.kuujo.vertigo.instance.OutputCollector;
+import net.kuujo.vertigo.instance.OutputPort;
+import net.kuujo.vertigo.metrics.ComponentMetrics;
+import net.kuujo.vertigo.metrics.LatencyHistogram;
+import net.kuujo.vertigo.metrics.PortMetrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Component metrics implementation.
+ */
+public class ComponentMetricsImpl implements ComponentMetrics {
+  private final ComponentContext context;
+  private final InputCollector input;
+  private final OutputCollector output;
+
+  public ComponentMetricsImpl(ComponentContext context, InputCollector input, OutputCollector output) {
+    this.context = context;
+    this.input = input;
+    this.output = output;
+  }
+
+  @Override
+  public String name() {
+    return context.name();
+  }
+
+  @Override
+  public String address() {
+    return context.address();
+  }
+
+  @Override
+  public Collection<PortMetrics> input() {
+    List<PortMetrics> metrics = new ArrayList<>();
+    for (InputPort port : input.ports()) {
+      metrics.add(port.metrics());
+    }
+    return metrics;
+  }
+
+  @Override
+  public Collection<PortMetrics> output() {
+    List<PortMetrics> metrics = new ArrayList<>();
+    for (OutputPort port : output.ports()) {
+      metrics.add(port.metrics());
+    }
+    return metrics;
+  }
+
+  @Override
+  public LatencyHistogram hopLatency() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (PortMetrics port : input()) {
+      histogram.merge(port.hopLatency());
+    }
+    return histogram;
+  }
+
+  @Override
+  public LatencyHistogram latency() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (PortMetrics port : input()) {
+      histogram.merge(port.latency());
+    }
+    return histogram;
+  }
+
+  @Override
+  public JsonObject toJson() {
+    JsonObject input = new JsonObject();
+    for (PortMetrics port : input()) {
+      input.put(port.name(), port.toJson());
+    }
+    JsonObject output = new JsonObject();
+    for (PortMetrics port : output()) {
+      output.put(port.name(), port.toJson());
+    }
+    return new JsonObject()
+        .put("name", name())
+        .put("address", address())
+        .put("timestamp", System.currentTimeMillis())
+        .put("input", input)
+        .put("output", output)
+        .put("hopLatency", hopLatency().toJson())
+        .put("latency", latency().toJson());
+  }
+
+  /**
+   * Aggregates the metrics of several instances of a component.<p>
+   *
+   * Counters, queue sizes and latency histograms are summed over all instances,
+   * and the metrics of each instance are kept in the <code>instances</code> object
+   * keyed by the instance identifier.
+   *
+   * @param instances The JSON metrics of each instance.
+   * @return The aggregated component metrics.
+   */
+  public static JsonObject aggregate(Collection<JsonObject> instances) {
+    JsonObject aggregate = new JsonObject();
+    JsonObject byInstance = new JsonObject();
+    for (JsonObject instance : instances) {
+      MetricsJson.merge(aggregate, instance);
+      byInstance.put(instance.getString(INSTANCE_KEY, String.valueOf(byInstance.size())), instance);
+    }
+    return aggregate.put("instances", byInstance);
+  }
+
+  @Override
+  public String toString() {
+    return toJson().encode();
+  }
+
+}
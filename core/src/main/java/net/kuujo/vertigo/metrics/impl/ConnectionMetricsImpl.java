@@ -0,0 +1,261 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.metrics.impl;
+
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.metrics.ConnectionMetrics;
+import net.kuujo.vertigo.metrics.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Connection metrics implementation.<p>
+ *
+ * Counters are striped so that recording from multi-threaded workers
+ * does not contend, while reads sum the stripes on demand.
+ */
+public class ConnectionMetricsImpl implements ConnectionMetrics {
+  private final String name;
+  private final IntSupplier queueSize;
+  private final LongAdder sent = new LongAdder();
+  private final LongAdder received = new LongAdder();
+  private final LongAdder acks = new LongAdder();
+  private final LongAdder fails = new LongAdder();
+  private final LongAdder resends = new LongAdder();
+  private final LongAdder pauses = new LongAdder();
+  private final LongAdder pausedTime = new LongAdder();
+  private final LongAdder handlerTime = new LongAdder();
+  private final LongAdder bytesFramed = new LongAdder();
+  private final LongAdder bytesWritten = new LongAdder();
+  private final LongAdder compressionTime = new LongAdder();
+  private final LatencyHistogram hopLatency = new LatencyHistogram();
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private volatile long pauseStart;
+
+  public ConnectionMetricsImpl(String name) {
+    this(name, () -> 0);
+  }
+
+  public ConnectionMetricsImpl(String name, IntSupplier queueSize) {
+    this.name = name;
+    this.queueSize = queueSize;
+  }
+
+  /**
+   * Returns a connection metrics name for the given connection endpoint.
+   *
+   * @param component The endpoint component, or <code>null</code> for network endpoints.
+   * @param address The endpoint address.
+   * @param port The endpoint port.
+   * @return The connection metrics name.
+   */
+  public static String name(String component, String address, String port) {
+    return String.format("%s.%s", component != null ? component : address, port);
+  }
+
+  /**
+   * Records a sent message.
+   */
+  public void messageSent() {
+    sent.increment();
+  }
+
+  /**
+   * Records a received message.
+   */
+  public void messageReceived() {
+    received.increment();
+  }
+
+  /**
+   * Records an acked message.
+   */
+  public void messageAcked() {
+    acks.increment();
+  }
+
+  /**
+   * Records a failed message.
+   */
+  public void messageFailed() {
+    fails.increment();
+  }
+
+  /**
+   * Records resent messages.
+   *
+   * @param count The number of messages resent.
+   */
+  public void messagesResent(int count) {
+    resends.add(count);
+  }
+
+  /**
+   * Records the start of a pause.
+   */
+  public void paused() {
+    if (pauseStart == 0) {
+      pauseStart = System.nanoTime();
+      pauses.increment();
+    }
+  }
+
+  /**
+   * Records the end of a pause.
+   */
+  public void resumed() {
+    long start = pauseStart;
+    if (start != 0) {
+      pauseStart = 0;
+      pausedTime.add(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Records time spent in a message handler.
+   *
+   * @param nanos The handler time in nanoseconds.
+   */
+  public void handlerTime(long nanos) {
+    handlerTime.add(nanos);
+  }
+
+  /**
+   * Records messages added to a transport frame.
+   *
+   * @param bytes The uncompressed size of the messages in bytes.
+   * @param written The share of the written frame taken by the messages in bytes.
+   * @param nanos The share of the frame's compression time in nanoseconds.
+   */
+  public void framed(long bytes, long written, long nanos) {
+    bytesFramed.add(bytes);
+    bytesWritten.add(written);
+    compressionTime.add(nanos);
+  }
+
+  /**
+   * Records the latency of a traced message's last hop.
+   *
+   * @param micros The hop latency in microseconds.
+   */
+  public void hopLatency(long micros) {
+    hopLatency.record(micros);
+  }
+
+  /**
+   * Records the time since a traced message entered the network.
+   *
+   * @param micros The cumulative latency in microseconds.
+   */
+  public void latency(long micros) {
+    latency.record(micros);
+  }
+
+  @Override
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public long messagesSent() {
+    return sent.sum();
+  }
+
+  @Override
+  public long messagesReceived() {
+    return received.sum();
+  }
+
+  @Override
+  public long acks() {
+    return acks.sum();
+  }
+
+  @Override
+  public long fails() {
+    return fails.sum();
+  }
+
+  @Override
+  public long resends() {
+    return resends.sum();
+  }
+
+  @Override
+  public long pauses() {
+    return pauses.sum();
+  }
+
+  @Override
+  public long pausedTime() {
+    long start = pauseStart;
+    return start != 0 ? pausedTime.sum() + (System.nanoTime() - start) : pausedTime.sum();
+  }
+
+  @Override
+  public int queueSize() {
+    return queueSize.getAsInt();
+  }
+
+  @Override
+  public long handlerTime() {
+    return handlerTime.sum();
+  }
+
+  @Override
+  public long bytesFramed() {
+    return bytesFramed.sum();
+  }
+
+  @Override
+  public long bytesWritten() {
+    return bytesWritten.sum();
+  }
+
+  @Override
+  public long compressionTime() {
+    return compressionTime.sum();
+  }
+
+  @Override
+  public LatencyHistogram hopLatency() {
+    return hopLatency;
+  }
+
+  @Override
+  public LatencyHistogram latency() {
+    return latency;
+  }
+
+  @Override
+  public JsonObject toJson() {
+    JsonObject json = MetricsJson.toJson(this);
+    long framed = bytesFramed();
+    if (framed > 0) {
+      json.put("bytesFramed", framed)
+          .put("bytesWritten", bytesWritten())
+          .put("compressionTime", compressionTime());
+    }
+    return json;
+  }
+
+  @Override
+  public String toString() {
+    return toJson().encode();
+  }
+
+}
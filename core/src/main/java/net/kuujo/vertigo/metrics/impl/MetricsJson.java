@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.metrics.impl;
+
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.metrics.ComponentMetrics;
+import net.kuujo.vertigo.metrics.LatencyHistogram;
+import net.kuujo.vertigo.metrics.Metrics;
+
+/**
+ * Metrics JSON helpers.
+ */
+final class MetricsJson {
+
+  private MetricsJson() {
+  }
+
+  /**
+   * Converts metrics counters to JSON.
+   */
+  static JsonObject toJson(Metrics metrics) {
+    JsonObject json = new JsonObject()
+        .put("sent", metrics.messagesSent())
+        .put("received", metrics.messagesReceived())
+        .put("acks", metrics.acks())
+        .put("fails", metrics.fails())
+        .put("resends", metrics.resends())
+        .put("pauses", metrics.pauses())
+        .put("pausedTime", metrics.pausedTime())
+        .put("queueSize", metrics.queueSize())
+        .put("handlerTime", metrics.handlerTime());
+    LatencyHistogram latency = metrics.latency();
+    if (latency.count() > 0) {
+      json.put("hopLatency", metrics.hopLatency().toJson());
+      json.put("latency", latency.toJson());
+    }
+    return json;
+  }
+
+  /**
+   * Merges one metrics JSON object into another.<p>
+   *
+   * Numeric values are summed, latency histograms are merged, the latest timestamp
+   * is kept and nested objects are merged recursively. Instance identifiers are
+   * not merged.
+   */
+  static JsonObject merge(JsonObject into, JsonObject from) {
+    for (String key : from.fieldNames()) {
+      Object value = from.getValue(key);
+      Object current = into.getValue(key);
+      if (key.equals(ComponentMetrics.INSTANCE_KEY) || key.equals("instances")) {
+        continue;
+      } else if (current == null) {
+        into.put(key, value instanceof JsonObject ? merge(new JsonObject(), (JsonObject) value) : value);
+      } else if (key.equals("timestamp") && value instanceof Number && current instanceof Number) {
+        into.put(key, Math.max(((Number) current).longValue(), ((Number) value).longValue()));
+      } else if ((key.equals("latency") || key.equals("hopLatency")) && value instanceof JsonObject && current instanceof JsonObject) {
+        into.put(key, new LatencyHistogram().merge((JsonObject) current).merge((JsonObject) value).toJson());
+      } else if (value instanceof JsonObject && current instanceof JsonObject) {
+        merge((JsonObject) current, (JsonObject) value);
+      } else if (value instanceof Number && current instanceof Number) {
+        if (value instanceof Double || value instanceof Float || current instanceof Double || current instanceof Float) {
+          into.put(key, ((Number) current).doubleValue() + ((Number) value).doubleValue());
+        } else {
+          into.put(key, ((Number) current).longValue() + ((Number) value).longValue());
+        }
+      }
+    }
+    return into;
+  }
+
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.metrics.impl;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.context.ComponentContext;
+import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.context.OutputConnectionContext;
+import net.kuujo.vertigo.context.OutputPortContext;
+import net.kuujo.vertigo.metrics.NetworkAnalyzer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Computes a network analysis snapshot from two consecutive sets of component metrics.<p>
+ *
+ * Rates and utilization are derived from the difference between the two samples,
+ * taken per component instance when the samples hold the metrics of each instance
+ * so that counters of different replicas are never compared with each other.
+ * Each component's residence time is estimated from its per-message handler time
+ * and utilization as <code>serviceTime / (1 - utilization)</code>, and the critical
+ * path is the source-to-sink path with the highest total residence time. The
+ * bottleneck is the most utilized component on that path.
+ */
+public final class NetworkAnalysis {
+  private static final double MIN_IDLE = 0.01;
+
+  private NetworkAnalysis() {
+  }
+
+  /**
+   * Analyzes a network.
+   *
+   * @param network The network context.
+   * @param previous The previous component metrics, keyed by component name.
+   * @param current The current component metrics, keyed by component name.
+   * @return The analysis snapshot.
+   */
+  public static JsonObject analyze(NetworkContext network, Map<String, JsonObject> previous, Map<String, JsonObject> current) {
+    Map<String, List<String>> downstream = new LinkedHashMap<>();
+    Map<String, List<String>> upstream = new HashMap<>();
+    JsonArray connections = new JsonArray();
+    for (ComponentContext component : network.components()) {
+      downstream.put(component.name(), new ArrayList<>());
+      upstream.putIfAbsent(component.name(), new ArrayList<>());
+    }
+    for (ComponentContext component : network.components()) {
+      for (OutputPortContext port : component.output().ports()) {
+        for (OutputConnectionContext connection : port.connections()) {
+          String target = connection.target().address().equals(network.address()) ? null : connection.target().component();
+          if (target != null && downstream.containsKey(target)) {
+            downstream.get(component.name()).add(target);
+            upstream.get(target).add(component.name());
+          }
+          String name = ConnectionMetricsImpl.name(connection.target().component(), connection.target().address(), connection.target().port());
+          double rate = rate(instances(previous.get(component.name()), current.get(component.name())), metrics -> {
+            JsonObject json = metrics.getJsonObject("output", new JsonObject()).getJsonObject(port.name(), new JsonObject())
+                .getJsonObject("connections", new JsonObject()).getJsonObject(name);
+            return json != null ? json.getLong("sent", 0L) : 0L;
+          });
+          connections.add(new JsonObject()
+              .put("source", new JsonObject()
+                  .put("component", component.name())
+                  .put("port", port.name()))
+              .put("target", new JsonObject()
+                  .put("component", target)
+                  .put("port", connection.target().port()))
+              .put("rate", rate));
+        }
+      }
+    }
+
+    JsonObject components = new JsonObject();
+    Map<String, Double> residence = new HashMap<>();
+    Map<String, Double> utilization = new HashMap<>();
+    double interval = 0;
+    for (ComponentContext component : network.components()) {
+      JsonObject before = previous.get(component.name());
+      JsonObject after = current.get(component.name());
+      JsonObject analysis = new JsonObject()
+          .put("address", component.address())
+          .put("replicas", component.replicas())
+          .put("upstream", new JsonArray(new ArrayList<>(upstream.get(component.name()))))
+          .put("downstream", new JsonArray(new ArrayList<>(downstream.get(component.name()))));
+      List<JsonObject[]> instances = instances(before, after);
+      if (!instances.isEmpty()) {
+        double arrivalRate = 0;
+        double outputRate = 0;
+        double busy = 0;
+        double pauseFraction = 0;
+        long received = 0;
+        long handlerTime = 0;
+        for (JsonObject[] instance : instances) {
+          double seconds = seconds(instance[0], instance[1]);
+          interval = Math.max(interval, seconds);
+          if (seconds > 0) {
+            long instanceReceived = delta(instance, metrics -> sum(metrics, "input", "received"));
+            long instanceHandlerTime = delta(instance, metrics -> sum(metrics, "input", "handlerTime"));
+            int outputConnections = Math.max(1, connectionCount(instance[1]));
+            arrivalRate += instanceReceived / seconds;
+            outputRate += delta(instance, metrics -> sum(metrics, "output", "sent")) / seconds;
+            busy += Math.min(1, instanceHandlerTime / (seconds * 1e9));
+            pauseFraction += Math.min(1, delta(instance, metrics -> sum(metrics, "output", "pausedTime")) / (seconds * 1e9 * outputConnections));
+            received += instanceReceived;
+            handlerTime += instanceHandlerTime;
+          }
+        }
+        busy /= instances.size();
+        pauseFraction /= instances.size();
+        double serviceTime = received > 0 ? (double) handlerTime / received : 0;
+        double residenceTime = serviceTime / Math.max(MIN_IDLE, 1 - busy);
+        int replicas = Math.max(1, component.replicas());
+        analysis.put("arrivalRate", arrivalRate)
+            .put("outputRate", outputRate)
+            .put("utilization", busy)
+            .put("pauseFraction", pauseFraction)
+            .put("queueSize", maxQueueSize(after))
+            .put("serviceTime", serviceTime)
+            .put("residenceTime", residenceTime)
+            .put("saturated", busy >= NetworkAnalyzer.TARGET_UTILIZATION)
+            .put("suggestedReplicas", Math.max(1, (int) Math.ceil(busy * replicas / NetworkAnalyzer.TARGET_UTILIZATION)));
+        residence.put(component.name(), residenceTime);
+        utilization.put(component.name(), busy);
+      }
+      components.put(component.name(), analysis);
+    }
+
+    List<String> criticalPath = criticalPath(downstream, upstream, residence);
+    String bottleneck = null;
+    double highest = -1;
+    for (String name : criticalPath) {
+      double busy = utilization.getOrDefault(name, 0d);
+      if (busy > highest) {
+        highest = busy;
+        bottleneck = name;
+      }
+    }
+
+    return new JsonObject()
+        .put("network", network.name())
+        .put("timestamp", System.currentTimeMillis())
+        .put("interval", (long) (interval * 1000))
+        .put("components", components)
+        .put("connections", connections)
+        .put("criticalPath", new JsonArray(criticalPath))
+        .put("bottleneck", bottleneck);
+  }
+
+  /**
+   * Returns the elapsed time between two samples in seconds.
+   */
+  private static double seconds(JsonObject before, JsonObject after) {
+    return (after.getLong("timestamp", 0L) - before.getLong("timestamp", 0L)) / 1000.0;
+  }
+
+  /**
+   * Pairs the previous and current metrics of each instance present in both samples.<p>
+   *
+   * Samples without per-instance metrics are treated as the metrics of a single instance.
+   */
+  private static List<JsonObject[]> instances(JsonObject before, JsonObject after) {
+    List<JsonObject[]> pairs = new ArrayList<>();
+    if (before == null || after == null) {
+      return pairs;
+    }
+    JsonObject previous = before.getJsonObject("instances");
+    JsonObject current = after.getJsonObject("instances");
+    if (previous == null || current == null) {
+      pairs.add(new JsonObject[]{before, after});
+    } else {
+      for (String instance : current.fieldNames()) {
+        JsonObject metrics = previous.getJsonObject(instance);
+        if (metrics != null) {
+          pairs.add(new JsonObject[]{metrics, current.getJsonObject(instance)});
+        }
+      }
+    }
+    return pairs;
+  }
+
+  /**
+   * Returns the change of a counter between the previous and current metrics of an instance.
+   */
+  private static long delta(JsonObject[] instance, ToLongFunction<JsonObject> counter) {
+    return Math.max(0, counter.applyAsLong(instance[1]) - counter.applyAsLong(instance[0]));
+  }
+
+  /**
+   * Returns the per-second rate of change of a counter summed over all instances.
+   */
+  private static double rate(List<JsonObject[]> instances, ToLongFunction<JsonObject> counter) {
+    double rate = 0;
+    for (JsonObject[] instance : instances) {
+      double seconds = seconds(instance[0], instance[1]);
+      if (seconds > 0) {
+        rate += delta(instance, counter) / seconds;
+      }
+    }
+    return rate;
+  }
+
+  /**
+   * Sums a counter over all ports on one side of a component.
+   */
+  private static long sum(JsonObject metrics, String side, String counter) {
+    long sum = 0;
+    JsonObject ports = metrics.getJsonObject(side, new JsonObject());
+    for (String port : ports.fieldNames()) {
+      sum += ports.getJsonObject(port).getLong(counter, 0L);
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the highest send queue depth over all output ports.
+   */
+  private static int maxQueueSize(JsonObject metrics) {
+    int max = 0;
+    JsonObject ports = metrics.getJsonObject("output", new JsonObject());
+    for (String port : ports.fieldNames()) {
+      max = Math.max(max, ports.getJsonObject(port).getInteger("queueSize", 0));
+    }
+    return max;
+  }
+
+  /**
+   * Returns the number of output connections.
+   */
+  private static int connectionCount(JsonObject metrics) {
+    int count = 0;
+    JsonObject ports = metrics.getJsonObject("output", new JsonObject());
+    for (String port : ports.fieldNames()) {
+      count += ports.getJsonObject(port).getJsonObject("connections", new JsonObject()).size();
+    }
+    return count;
+  }
+
+  /**
+   * Returns the source-to-sink path with the highest total residence time.
+   */
+  private static List<String> criticalPath(Map<String, List<String>> downstream, Map<String, List<String>> upstream, Map<String, Double> residence) {
+    Map<String, Double> cost = new HashMap<>();
+    Map<String, String> next = new HashMap<>();
+    List<String> path = new LinkedList<>();
+    String start = null;
+    double highest = -1;
+    boolean cyclic = true;
+    for (List<String> sources : upstream.values()) {
+      cyclic &= !sources.isEmpty();
+    }
+    for (String component : downstream.keySet()) {
+      if (cyclic || upstream.get(component).isEmpty()) {
+        double total = longest(component, downstream, residence, cost, next, new HashSet<>());
+        if (total > highest) {
+          highest = total;
+          start = component;
+        }
+      }
+    }
+    for (String component = start; component != null; component = next.get(component)) {
+      path.add(component);
+    }
+    return Collections.unmodifiableList(path);
+  }
+
+  /**
+   * Computes the highest total residence time from a component to any sink.
+   */
+  private static double longest(String component, Map<String, List<String>> downstream, Map<String, Double> residence,
+                                Map<String, Double> cost, Map<String, String> next, Set<String> visiting) {
+    Double known = cost.get(component);
+    if (known != null) {
+      return known;
+    }
+    visiting.add(component);
+    double best = 0;
+    String bestNext = null;
+    for (String target : downstream.get(component)) {
+      if (!visiting.contains(target)) {
+        double total = longest(target, downstream, residence, cost, next, visiting);
+        if (bestNext == null || total > best) {
+          best = total;
+          bestNext = target;
+        }
+      }
+    }
+    visiting.remove(component);
+    double total = residence.getOrDefault(component, 0d) + best;
+    cost.put(component, total);
+    if (bestNext != null) {
+      next.put(component, bestNext);
+    }
+    return total;
+  }
+
+}
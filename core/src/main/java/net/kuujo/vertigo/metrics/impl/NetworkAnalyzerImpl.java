@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.metrics.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import net.kuujo.vertigo.context.ComponentContext;
+import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.metrics.NetworkAnalyzer;
+import net.kuujo.vertigo.reference.impl.ComponentReferenceImpl;
+import net.kuujo.vertigo.util.CountingCompletionHandler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Network analyzer implementation.
+ */
+public class NetworkAnalyzerImpl implements NetworkAnalyzer {
+  private static final Logger log = LoggerFactory.getLogger(NetworkAnalyzerImpl.class);
+  private final Vertx vertx;
+  private final NetworkContext context;
+  private Handler<JsonObject> handler;
+  private Map<String, JsonObject> previous = new HashMap<>();
+  private JsonObject snapshot;
+  private long timerID = -1;
+
+  public NetworkAnalyzerImpl(Vertx vertx, NetworkContext context) {
+    this.vertx = vertx;
+    this.context = context;
+  }
+
+  @Override
+  public NetworkAnalyzer handler(Handler<JsonObject> handler) {
+    this.handler = handler;
+    return this;
+  }
+
+  @Override
+  public NetworkAnalyzer start() {
+    return start(DEFAULT_INTERVAL);
+  }
+
+  @Override
+  public NetworkAnalyzer start(long interval) {
+    if (timerID == -1) {
+      sample();
+      timerID = vertx.setPeriodic(interval, id -> sample());
+    }
+    return this;
+  }
+
+  @Override
+  public void stop() {
+    if (timerID != -1) {
+      vertx.cancelTimer(timerID);
+      timerID = -1;
+    }
+  }
+
+  @Override
+  public JsonObject snapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Samples all component metrics and analyzes the network once all components have responded.
+   */
+  private void sample() {
+    Map<String, JsonObject> current = new HashMap<>();
+    CountingCompletionHandler<Void> counter = new CountingCompletionHandler<>(context.components().size());
+    for (ComponentContext component : context.components()) {
+      new ComponentReferenceImpl(vertx, component).metrics(result -> {
+        if (result.succeeded()) {
+          current.put(component.name(), result.result());
+        } else {
+          log.debug(String.format("Failed to sample metrics for %s: %s", component.name(), result.cause().getMessage()));
+        }
+        counter.succeed();
+      });
+    }
+    counter.setHandler(result -> analyze(current));
+  }
+
+  /**
+   * Analyzes the network from the previous and current samples.
+   */
+  private void analyze(Map<String, JsonObject> current) {
+    if (!previous.isEmpty() && timerID != -1) {
+      snapshot = NetworkAnalysis.analyze(context, previous, current);
+      vertx.eventBus().publish(context.address() + ANALYSIS_ADDRESS_SUFFIX, snapshot);
+      if (handler != null) {
+        handler.handle(snapshot);
+      }
+    }
+    previous = current;
+  }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.metrics.impl;
+
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.metrics.ConnectionMetrics;
+import net.kuujo.vertigo.metrics.LatencyHistogram;
+import net.kuujo.vertigo.metrics.PortMetrics;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Port metrics implementation.<p>
+ *
+ * Port metrics hold no counters of their own. Values are aggregated from
+ * the port's current connections each time they're read.
+ */
+public class PortMetricsImpl implements PortMetrics {
+  private final String name;
+  private final Supplier<Collection<ConnectionMetrics>> connections;
+
+  public PortMetricsImpl(String name, Supplier<Collection<ConnectionMetrics>> connections) {
+    this.name = name;
+    this.connections = connections;
+  }
+
+  @Override
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public Collection<ConnectionMetrics> connections() {
+    return connections.get();
+  }
+
+  private long sum(ToLongFunction<ConnectionMetrics> counter) {
+    long sum = 0;
+    for (ConnectionMetrics connection : connections.get()) {
+      sum += counter.applyAsLong(connection);
+    }
+    return sum;
+  }
+
+  @Override
+  public long messagesSent() {
+    return sum(ConnectionMetrics::messagesSent);
+  }
+
+  @Override
+  public long messagesReceived() {
+    return sum(ConnectionMetrics::messagesReceived);
+  }
+
+  @Override
+  public long acks() {
+    return sum(ConnectionMetrics::acks);
+  }
+
+  @Override
+  public long fails() {
+    return sum(ConnectionMetrics::fails);
+  }
+
+  @Override
+  public long resends() {
+    return sum(ConnectionMetrics::resends);
+  }
+
+  @Override
+  public long pauses() {
+    return sum(ConnectionMetrics::pauses);
+  }
+
+  @Override
+  public long pausedTime() {
+    return sum(ConnectionMetrics::pausedTime);
+  }
+
+  @Override
+  public int queueSize() {
+    int highest = 0;
+    for (ConnectionMetrics connection : connections.get()) {
+      highest = Math.max(highest, connection.queueSize());
+    }
+    return highest;
+  }
+
+  @Override
+  public long handlerTime() {
+    return sum(ConnectionMetrics::handlerTime);
+  }
+
+  @Override
+  public LatencyHistogram hopLatency() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (ConnectionMetrics connection : connections.get()) {
+      histogram.merge(connection.hopLatency());
+    }
+    return histogram;
+  }
+
+  @Override
+  public LatencyHistogram latency() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (ConnectionMetrics connection : connections.get()) {
+      histogram.merge(connection.latency());
+    }
+    return histogram;
+  }
+
+  @Override
+  public JsonObject toJson() {
+    JsonObject connections = new JsonObject();
+    for (ConnectionMetrics connection : this.connections.get()) {
+      connections.put(connection.name(), connection.toJson());
+    }
+    return MetricsJson.toJson(this).put("connections", connections);
+  }
+
+  @Override
+  public String toString() {
+    return toJson().encode();
+  }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.metrics.impl;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.CaseInsensitiveHeaders;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sampled message tracing.<p>
+ *
+ * When a message enters the network through a network input reference it is
+ * sampled with probability <code>vertigo.trace.sample-rate</code> (default <code>0</code>,
+ * meaning tracing is disabled). Sampled messages carry a trace ID, the time at
+ * which they entered the network, and the time at which they were sent on
+ * their current hop. While a component's handler processes a traced message,
+ * the trace is held for the current thread so that any messages the handler
+ * sends are stamped with the same trace. Messages sent asynchronously after
+ * the handler returns are not traced.<p>
+ *
+ * Timestamps are epoch microseconds derived from a monotonic clock anchored to
+ * the wall clock once per JVM, so hop times within a JVM are monotonic.
+ */
+public final class Tracing {
+
+  /**
+   * The trace ID header.
+   */
+  public static final String TRACE_ID_HEADER = "trace-id";
+
+  /**
+   * The header holding the time at which the traced message entered the network.
+   */
+  public static final String TRACE_ORIGIN_HEADER = "trace-origin";
+
+  /**
+   * The header holding the time at which the traced message was sent on its current hop.
+   */
+  public static final String TRACE_HOP_HEADER = "trace-hop";
+
+  /**
+   * The fraction of network input messages to trace.
+   */
+  public static final double SAMPLE_RATE = Double.parseDouble(System.getProperty("vertigo.trace.sample-rate", "0"));
+
+  private static final long CLOCK_BASE_MICROS = System.currentTimeMillis() * 1000;
+  private static final long CLOCK_BASE_NANOS = System.nanoTime();
+  private static final ThreadLocal<Trace> CURRENT = ThreadLocal.withInitial(Trace::new);
+
+  private Tracing() {
+  }
+
+  /**
+   * Returns the current time in epoch microseconds.
+   *
+   * @return The current time in microseconds.
+   */
+  public static long now() {
+    return CLOCK_BASE_MICROS + (System.nanoTime() - CLOCK_BASE_NANOS) / 1000;
+  }
+
+  /**
+   * Samples a message entering the network, stamping it with a new trace if selected.
+   * Messages that already carry a trace are left unchanged.
+   *
+   * @param headers The message headers, or <code>null</code> if the message has no headers.
+   * @return The headers to send, or <code>null</code> if the message was not sampled and had no headers.
+   */
+  public static MultiMap sample(MultiMap headers) {
+    if (headers != null && headers.contains(TRACE_ID_HEADER)) {
+      return headers;
+    }
+    if (SAMPLE_RATE <= 0 || (SAMPLE_RATE < 1 && ThreadLocalRandom.current().nextDouble() >= SAMPLE_RATE)) {
+      return headers;
+    }
+    if (headers == null) {
+      headers = new CaseInsensitiveHeaders();
+    }
+    String time = String.valueOf(now());
+    headers.set(TRACE_ID_HEADER, Long.toHexString(ThreadLocalRandom.current().nextLong()))
+        .set(TRACE_ORIGIN_HEADER, time)
+        .set(TRACE_HOP_HEADER, time);
+    return headers;
+  }
+
+  /**
+   * Records latencies for a received message and, if it is traced, makes its
+   * trace current for the calling thread.
+   *
+   * @param headers The received message headers.
+   * @param metrics The receiving connection metrics.
+   * @return Indicates whether the message is traced and {@link #exit()} must be called.
+   */
+  public static boolean enter(MultiMap headers, ConnectionMetricsImpl metrics) {
+    String id = headers.get(TRACE_ID_HEADER);
+    if (id == null) {
+      return false;
+    }
+    long origin;
+    long hop;
+    try {
+      origin = Long.parseLong(headers.get(TRACE_ORIGIN_HEADER));
+      hop = Long.parseLong(headers.get(TRACE_HOP_HEADER));
+    } catch (NumberFormatException | NullPointerException e) {
+      return false;
+    }
+    long now = now();
+    metrics.hopLatency(now - hop);
+    metrics.latency(now - origin);
+    Trace trace = CURRENT.get();
+    trace.id = id;
+    trace.origin = origin;
+    return true;
+  }
+
+  /**
+   * Clears the current thread's trace.
+   */
+  public static void exit() {
+    CURRENT.get().id = null;
+  }
+
+  /**
+   * Stamps outgoing message headers with the current thread's trace, if any.
+   *
+   * @param headers The outgoing message headers.
+   */
+  public static void propagate(MultiMap headers) {
+    Trace trace = CURRENT.get();
+    if (trace.id != null && !headers.contains(TRACE_ID_HEADER)) {
+      headers.set(TRACE_ID_HEADER, trace.id)
+          .set(TRACE_ORIGIN_HEADER, String.valueOf(trace.origin))
+          .set(TRACE_HOP_HEADER, String.valueOf(now()));
+    } else if (headers.contains(TRACE_ID_HEADER)) {
+      headers.set(TRACE_HOP_HEADER, String.valueOf(now()));
+    }
+  }
+
+  /**
+   * Mutable per-thread trace holder.
+   */
+  private static class Trace {
+    private String id;
+    private long origin;
+  }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Contains runtime metrics for components, ports and connections.
+ */
+package net.kuujo.vertigo.metrics;
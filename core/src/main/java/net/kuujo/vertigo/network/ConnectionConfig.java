@@ -60,6 +60,13 @@ public interface ConnectionConfig extends TypeConfig {
    */
   public static final String CONNECTION_SEND_TIMEOUT = "send-timeout";
 
+  /**
+   * <code>rate</code> is a number indicating the expected message rate on the connection
+   * in messages per second. It is used as a placement hint when a network is deployed
+   * across cluster nodes. Defaults to <code>0</code>, meaning unknown.
+   */
+  public static final String CONNECTION_RATE = "rate";
+
   /**
    * Sets the connection source.
    *
@@ -140,4 +147,20 @@ public interface ConnectionConfig extends TypeConfig {
    */
   long getSendTimeout();
 
+  /**
+   * Sets the expected message rate on the connection.
+   *
+   * @param rate The expected message rate in messages per second.
+   * @return The connection info.
+   */
+  @Fluent
+  ConnectionConfig setRate(double rate);
+
+  /**
+   * Returns the expected message rate on the connection.
+   *
+   * @return The expected message rate in messages per second, or <code>0</code> if unknown.
+   */
+  double getRate();
+
 }
@@ -38,4 +38,13 @@ public interface ConnectionEndpointBuilder<T> {
    */
   T sendTimeout(long timeout);
 
+  /**
+   * Sets the expected message rate on the connection, used as a placement hint
+   * when the network is deployed across cluster nodes.
+   *
+   * @param rate The expected message rate in messages per second.
+   * @return The endpoint builder.
+   */
+  T rate(double rate);
+
 }
@@ -24,8 +24,13 @@ import io.vertx.codegen.annotations.VertxGen;
  */
 @VertxGen
 public interface ConnectionTargetBuilder extends ConnectionBuilder<ConnectionTargetComponentBuilder> {
-//  /**
-//   * Creates a blank connection that can be listened to from outside the network.
-//   */
-//  ConnectionTargetComponentBuilder network();
+
+  /**
+   * Targets the connection at the network, so that messages can be received
+   * from outside the network with {@link net.kuujo.vertigo.reference.NetworkReference#output()}.
+   *
+   * @return The connection target builder.
+   */
+  ConnectionTargetComponentBuilder network();
+
 }
@@ -115,6 +115,12 @@ public class ConnectionSourceComponentBuilderImpl implements ConnectionSourceCom
     return this;
   }
 
+  @Override
+  public ConnectionSourceComponentBuilder rate(double rate) {
+    connection.setRate(rate);
+    return this;
+  }
+
   @Override
   public ConnectionSourceBuilder and() {
     return new ConnectionSourceBuilderImpl(network, connections);
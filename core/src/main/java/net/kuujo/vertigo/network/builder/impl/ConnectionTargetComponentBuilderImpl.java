@@ -95,7 +95,9 @@ public class ConnectionTargetComponentBuilderImpl implements ConnectionTargetCom
   public ConnectionTargetComponentBuilder port(String port) {
     for (ConnectionConfig connection : connections) {
       connection.getTarget().setPort(port);
-      network.component(connection.getTarget().getComponent()).input().port(port);
+      if (!connection.getTarget().getIsNetwork()) {
+        network.component(connection.getTarget().getComponent()).input().port(port);
+      }
     }
     return this;
   }
@@ -108,6 +110,14 @@ public class ConnectionTargetComponentBuilderImpl implements ConnectionTargetCom
     return this;
   }
 
+  @Override
+  public ConnectionTargetComponentBuilder rate(double rate) {
+    for (ConnectionConfig connection : connections) {
+      connection.setRate(rate);
+    }
+    return this;
+  }
+
   @Override
   public ConnectionTargetBuilder and() {
     return new ConnectionTargetBuilderImpl(network, connections);
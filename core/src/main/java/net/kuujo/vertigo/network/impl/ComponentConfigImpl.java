@@ -75,7 +75,11 @@ public class ComponentConfigImpl implements ComponentConfig {
 
   @Override
   public ComponentConfig setName(String name) {
+    String previous = this.name;
     this.name = name;
+    if (network instanceof NetworkImpl) {
+      ((NetworkImpl) network).rename(previous, this);
+    }
     return this;
   }
 
@@ -38,6 +38,7 @@ public class ConnectionConfigImpl implements ConnectionConfig {
   private boolean ordered;
   private boolean atLeastOnce;
   private long sendTimeout;
+  private double rate;
 
   public ConnectionConfigImpl() {
     this.source = new SourceConfigImpl();
@@ -49,6 +50,8 @@ public class ConnectionConfigImpl implements ConnectionConfig {
     this.target = connection.getTarget();
     this.ordered = connection.isOrdered();
     this.atLeastOnce = connection.isAtLeastOnce();
+    this.sendTimeout = connection.getSendTimeout();
+    this.rate = connection.getRate();
   }
 
   public ConnectionConfigImpl(OutputPortConfig output, InputPortConfig input) {
@@ -115,6 +118,17 @@ public class ConnectionConfigImpl implements ConnectionConfig {
     return sendTimeout;
   }
 
+  @Override
+  public ConnectionConfig setRate(double rate) {
+    this.rate = rate;
+    return this;
+  }
+
+  @Override
+  public double getRate() {
+    return rate;
+  }
+
   @Override
   public void update(JsonObject connection) {
     if (connection.containsKey(CONNECTION_SOURCE)) {
@@ -140,6 +154,9 @@ public class ConnectionConfigImpl implements ConnectionConfig {
     if (connection.containsKey(CONNECTION_SEND_TIMEOUT)) {
       this.sendTimeout = connection.getLong(CONNECTION_SEND_TIMEOUT);
     }
+    if (connection.containsKey(CONNECTION_RATE)) {
+      this.rate = connection.getDouble(CONNECTION_RATE);
+    }
   }
 
   @Override
@@ -150,6 +167,7 @@ public class ConnectionConfigImpl implements ConnectionConfig {
     json.put(CONNECTION_ORDERED, ordered);
     json.put(CONNECTION_AT_LEAST_ONCE, atLeastOnce);
     json.put(CONNECTION_SEND_TIMEOUT, sendTimeout);
+    json.put(CONNECTION_RATE, rate);
     return json;
   }
 
@@ -23,16 +23,21 @@ import net.kuujo.vertigo.network.*;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
 /**
- * NetworkConfig implementation.
+ * NetworkConfig implementation.<p>
+ *
+ * Components are indexed by name so that component lookups while building
+ * connections and contexts take constant time regardless of the network size.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public class NetworkImpl implements NetworkConfig {
   private String name;
-  private final Collection<ComponentConfig> components = new ArrayList<>();
+  private final Map<String, ComponentConfig> components = new LinkedHashMap<>();
   private final Collection<ConnectionConfig> connections = new ArrayList<>();
 
   public NetworkImpl() {
@@ -60,58 +65,51 @@ public class NetworkImpl implements NetworkConfig {
 
   @Override
   public Collection<ComponentConfig> getComponents() {
-    return components;
+    return components.values();
   }
 
   @Override
   public ComponentConfig getComponent(String name) {
-    for (ComponentConfig component : components) {
-      if (component.getName().equals(name)) {
-        return component;
-      }
-    }
-    return null;
+    return components.get(name);
   }
 
   @Override
   public boolean hasComponent(String name) {
-    for (ComponentConfig component : components) {
-      if (component.getName().equals(name)) {
-        return true;
-      }
-    }
-    return false;
+    return components.containsKey(name);
   }
 
   @Override
   public ComponentConfig addComponent(String name) {
     ComponentConfig component = NetworkConfig.component(name).setNetwork(this);
-    components.add(component);
+    components.put(name, component);
     return component;
   }
 
   @Override
   public ComponentConfig addComponent(ComponentConfig component) {
-    components.add(NetworkConfig.component(component).setNetwork(this));
+    ComponentConfig copy = NetworkConfig.component(component).setNetwork(this);
+    components.put(copy.getName(), copy);
     return component;
   }
 
   @Override
   public ComponentConfig removeComponent(String name) {
-    Iterator<ComponentConfig> iterator = components.iterator();
-    while (iterator.hasNext()) {
-      ComponentConfig component = iterator.next();
-      if (component.getName() != null && component.getName().equals(name)) {
-        iterator.remove();
-        return component;
-      }
+    return name != null ? components.remove(name) : null;
+  }
+
+  /**
+   * Re-indexes a component whose name changed.
+   */
+  void rename(String previous, ComponentConfig component) {
+    if (components.get(previous) == component) {
+      components.remove(previous);
+      components.put(component.getName(), component);
     }
-    return null;
   }
 
   @Override
   public ComponentConfig removeComponent(ComponentConfig component) {
-    Iterator<ComponentConfig> iterator = components.iterator();
+    Iterator<ComponentConfig> iterator = components.values().iterator();
     while (iterator.hasNext()) {
       ComponentConfig info = iterator.next();
       if (info.equals(component)) {
@@ -162,7 +160,7 @@ public class NetworkImpl implements NetworkConfig {
     JsonObject components = network.getJsonObject(NETWORK_COMPONENTS);
     if (components != null) {
       for (String name : components.fieldNames()) {
-        this.components.add(NetworkConfig.component(components.getJsonObject(name)).setName(name).setNetwork(this));
+        this.components.put(name, NetworkConfig.component(components.getJsonObject(name)).setName(name).setNetwork(this));
       }
     }
     JsonArray connections = network.getJsonArray(NETWORK_CONNECTIONS);
@@ -209,7 +207,7 @@ public class NetworkImpl implements NetworkConfig {
     JsonObject json = new JsonObject();
     json.put(NETWORK_NAME, name);
     JsonObject components = new JsonObject();
-    for (ComponentConfig component : this.components) {
+    for (ComponentConfig component : this.components.values()) {
       components.put(component.getName(), component.toJson());
     }
     json.put(NETWORK_COMPONENTS, components);
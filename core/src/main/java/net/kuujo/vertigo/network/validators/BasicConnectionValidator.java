@@ -39,11 +39,11 @@ public class BasicConnectionValidator implements ConnectionValidator {
     if (connection.getTarget() == null) {
       throw new ValidationException(String.format("Connection target cannot be null (%s)", connection.toJson().toString()));
     }
-    if (connection.getTarget().getIsNetwork()) {
-      throw new ValidationException(String.format("Network cannot be a target (%s)", connection.toJson().toString()));
+    if (connection.getSource().getIsNetwork() && connection.getTarget().getIsNetwork()) {
+      throw new ValidationException(String.format("Network cannot be both source and target (%s)", connection.toJson().toString()));
     }
-    if (connection.getTarget().getComponent() == null) {
-      throw new ValidationException(String.format("Connection target component cannot be null (%s)", connection.toJson().toString()));
+    if (!connection.getTarget().getIsNetwork() && connection.getTarget().getComponent() == null) {
+      throw new ValidationException(String.format("Connection target component or network cannot be null (%s)", connection.toJson().toString()));
     }
     if (connection.getTarget().getPort() == null) {
       throw new ValidationException(String.format("Connection target port cannot be null (%s)", connection.toJson().toString()));
@@ -16,6 +16,9 @@
 package net.kuujo.vertigo.reference;
 
 import io.vertx.codegen.annotations.VertxGen;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
 
 /**
  * Component reference.
@@ -32,6 +35,18 @@ public interface ComponentReference {
    */
   InputReference input();
 
+  /**
+   * Queries every instance of the component for its current metrics.<p>
+   *
+   * The counters, queue sizes and latency histograms of all instances that respond
+   * are summed into the component's metrics, whose <code>instances</code> object
+   * holds the metrics of each instance keyed by instance. The query fails only if
+   * no instance responds within <code>vertigo.metrics.timeout</code> milliseconds.
+   *
+   * @param handler A handler to be called with the component's aggregated metrics.
+   */
+  void metrics(Handler<AsyncResult<JsonObject>> handler);
+
 //  /**
 //   * Returns a reference to the component's output.
 //   *
@@ -15,16 +15,26 @@
  */
 package net.kuujo.vertigo.reference;
 
+import io.vertx.codegen.annotations.Fluent;
 import io.vertx.codegen.annotations.VertxGen;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.streams.WriteStream;
 import net.kuujo.vertigo.instance.Output;
 
 /**
- * Input port reference.
+ * Input port reference.<p>
+ *
+ * The reference is also a {@link WriteStream}, so external producers can be
+ * pumped into a network with {@link io.vertx.core.streams.Pump}. Messages written
+ * to the stream are sent with an ack handler, and the write queue is the number
+ * of messages not yet acked by the target component, so a producer is held back
+ * once the target falls behind.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 @VertxGen
-public interface InputPortReference<T> extends Output<InputPortReference<T>, T> {
+public interface InputPortReference<T> extends Output<InputPortReference<T>, T>, WriteStream<T> {
 
   /**
    * Returns the port name.
@@ -33,4 +43,40 @@ public interface InputPortReference<T> extends Output<InputPortReference<T>, T>
    */
   String name();
 
+  /**
+   * Sends a batch of messages to the port.<p>
+   *
+   * This is not an overload of <code>send</code> so that message bodies which
+   * are themselves iterable, like {@link io.vertx.core.json.JsonArray}, are
+   * still sent as a single message.
+   *
+   * @param messages The messages to send.
+   * @return The port reference.
+   */
+  @Fluent
+  InputPortReference<T> sendAll(Iterable<T> messages);
+
+  /**
+   * Sends a batch of messages to the port.
+   *
+   * @param messages The messages to send.
+   * @param ackHandler A handler to be called once all messages have been acked
+   *                   or as soon as one of them fails.
+   * @return The port reference.
+   */
+  @Fluent
+  InputPortReference<T> sendAll(Iterable<T> messages, Handler<AsyncResult<Void>> ackHandler);
+
+  @Override
+  InputPortReference<T> exceptionHandler(Handler<Throwable> handler);
+
+  @Override
+  InputPortReference<T> write(T message);
+
+  @Override
+  InputPortReference<T> setWriteQueueMaxSize(int maxSize);
+
+  @Override
+  InputPortReference<T> drainHandler(Handler<Void> handler);
+
 }
@@ -1,6 +1,53 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
 package net.kuujo.vertigo.reference;
 
+import io.vertx.core.Handler;
+import io.vertx.core.streams.ReadStream;
 import net.kuujo.vertigo.instance.Input;
+import net.kuujo.vertigo.message.VertigoMessage;
+
+/**
+ * Network output reference.<p>
+ *
+ * Receives messages sent by components on connections that target the network.
+ * Messages must be acked by the handler, just like messages received by
+ * components. While the reference is paused, received messages are held without
+ * being acked and the components sending to the network are asked to pause, so
+ * a slow consumer holds back the network instead of being flooded.<p>
+ *
+ * The end handler is called once every component sending to the network has
+ * ended its output port {@link net.kuujo.vertigo.instance.OutputPort#writeStream()}.
+ * Setting a <code>null</code> handler stops receiving messages.
+ */
+public interface NetworkOutputReference<T> extends Input<NetworkOutputReference<T>, T>, ReadStream<VertigoMessage<T>> {
+
+  @Override
+  NetworkOutputReference<T> handler(Handler<VertigoMessage<T>> handler);
+
+  @Override
+  NetworkOutputReference<T> exceptionHandler(Handler<Throwable> handler);
+
+  @Override
+  NetworkOutputReference<T> pause();
+
+  @Override
+  NetworkOutputReference<T> resume();
+
+  @Override
+  NetworkOutputReference<T> endHandler(Handler<Void> endHandler);
 
-public interface NetworkOutputReference<T> extends Input<NetworkOutputReference<T>, T> {
 }
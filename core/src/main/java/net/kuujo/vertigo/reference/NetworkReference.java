@@ -16,6 +16,10 @@
 package net.kuujo.vertigo.reference;
 
 import io.vertx.codegen.annotations.VertxGen;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.metrics.NetworkAnalyzer;
 
 /**
  * NetworkConfig reference.
@@ -33,13 +37,14 @@ public interface NetworkReference {
    */
   ComponentReference component(String id);
 
-//  /**
-//   * Returns an output port that receives all messages connected from components to the network.
-//   * If multiple components are connected, all messages will be received.
-//   * @param <T>
-//   * @return
-//   */
-//  <T> NetworkOutputReference<T> output();
+  /**
+   * Returns an output that receives all messages sent by components to the network.
+   * If multiple components are connected, all messages will be received. Each call
+   * returns a new reference, and references with a handler share the messages.
+   *
+   * @return The network output reference.
+   */
+  <T> NetworkOutputReference<T> output();
 
   /**
    * Returns an input port that can be used to send messages to components that are connected to the network.
@@ -49,6 +54,27 @@ public interface NetworkReference {
    */
   <T> InputReference input();
 
+  /**
+   * Queries all components in the network for the latency of traced messages.<p>
+   *
+   * The result contains a <code>components</code> object holding each component's
+   * <code>hopLatency</code> and cumulative <code>latency</code> histograms, and a
+   * <code>latency</code> histogram merged from all components that don't send to
+   * other components, which is the network's end-to-end latency. Messages are only
+   * traced when the <code>vertigo.trace.sample-rate</code> system property is set.
+   *
+   * @param handler A handler to be called with the network latency.
+   */
+  void latency(Handler<AsyncResult<JsonObject>> handler);
+
+  /**
+   * Returns a new analyzer for identifying bottlenecks in the network.
+   * The analyzer does not sample the network until it's started.
+   *
+   * @return A network analyzer.
+   */
+  NetworkAnalyzer analyzer();
+
   /**
    * Returns the name of the network
    * @return The name.
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.reference.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import net.kuujo.vertigo.reference.InputPortReference;
+import net.kuujo.vertigo.util.AckAggregator;
+
+/**
+ * Base input port reference implementing batch sends and the write stream.<p>
+ *
+ * Messages written to the stream are sent with an ack handler and count against
+ * the write queue until they are acked or failed, which is how far the target
+ * component is behind. The queue is full at <code>vertigo.reference.write-queue-max-size</code>
+ * unacked messages (default <code>1000</code>) and the drain handler is called once
+ * it is back at or below half of that. Like other Vert.x streams, the stream should be
+ * used from a single context.
+ */
+public abstract class AbstractInputPortReference<T> implements InputPortReference<T> {
+  private static final Logger logger = LoggerFactory.getLogger(AbstractInputPortReference.class);
+  protected static final int DEFAULT_WRITE_QUEUE_MAX_SIZE = Integer.getInteger("vertigo.reference.write-queue-max-size", 1000);
+  private int maxQueueSize = DEFAULT_WRITE_QUEUE_MAX_SIZE;
+  private int pending;
+  private boolean full;
+  private Handler<Void> drainHandler;
+  private Handler<Throwable> exceptionHandler;
+
+  @Override
+  public InputPortReference<T> sendAll(Iterable<T> messages) {
+    for (T message : messages) {
+      send(message);
+    }
+    return this;
+  }
+
+  @Override
+  public InputPortReference<T> sendAll(Iterable<T> messages, Handler<AsyncResult<Void>> ackHandler) {
+    if (ackHandler == null) {
+      return sendAll(messages);
+    }
+    AckAggregator acks = new AckAggregator();
+    for (T message : messages) {
+      send(message, acks.increment());
+    }
+    acks.completed(ackHandler);
+    return this;
+  }
+
+  @Override
+  public InputPortReference<T> exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public InputPortReference<T> write(T message) {
+    pending++;
+    checkFull();
+    send(message, result -> {
+      pending--;
+      if (result.failed()) {
+        if (exceptionHandler != null) {
+          exceptionHandler.handle(result.cause());
+        } else {
+          logger.warn(String.format("Failed to send message to port %s", name()), result.cause());
+        }
+      }
+      checkDrain();
+    });
+    return this;
+  }
+
+  @Override
+  public void end() {
+    // The reference does not own the port, so there is nothing to close.
+  }
+
+  @Override
+  public InputPortReference<T> setWriteQueueMaxSize(int maxSize) {
+    this.maxQueueSize = maxSize;
+    return this;
+  }
+
+  @Override
+  public boolean writeQueueFull() {
+    return pending >= maxQueueSize;
+  }
+
+  @Override
+  public InputPortReference<T> drainHandler(Handler<Void> handler) {
+    this.drainHandler = handler;
+    return this;
+  }
+
+  /**
+   * Checks whether the write queue is full.
+   */
+  private void checkFull() {
+    if (!full && pending >= maxQueueSize) {
+      full = true;
+    }
+  }
+
+  /**
+   * Checks whether the write queue has been drained.
+   */
+  private void checkDrain() {
+    if (full && pending <= maxQueueSize / 2) {
+      full = false;
+      if (drainHandler != null) {
+        drainHandler.handle((Void) null);
+      }
+    }
+  }
+
+}
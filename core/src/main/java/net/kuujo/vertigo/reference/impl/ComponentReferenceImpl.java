@@ -15,11 +15,24 @@
  */
 package net.kuujo.vertigo.reference.impl;
 
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.json.JsonObject;
 import net.kuujo.vertigo.context.ComponentContext;
+import net.kuujo.vertigo.metrics.ComponentMetrics;
+import net.kuujo.vertigo.metrics.impl.ComponentMetricsImpl;
 import net.kuujo.vertigo.reference.ComponentReference;
 import net.kuujo.vertigo.reference.InputReference;
 import net.kuujo.vertigo.reference.OutputReference;
+import net.kuujo.vertigo.util.Delivery;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Component reference implementation.
@@ -40,6 +53,22 @@ public class ComponentReferenceImpl implements ComponentReference {
     return new InputReferenceImpl(vertx, context.address(), context.input());
   }
 
+  @Override
+  public void metrics(Handler<AsyncResult<JsonObject>> handler) {
+    Delivery.<JsonObject>publish(vertx, context.address() + ComponentMetrics.METRICS_ADDRESS_SUFFIX, null, new DeliveryOptions(),
+        Math.max(1, context.replicas()), ComponentMetrics.METRICS_TIMEOUT, result -> {
+      if (result.failed()) {
+        handler.handle(Future.failedFuture(result.cause()));
+      } else if (result.result().isEmpty()) {
+        handler.handle(Future.failedFuture(new ReplyException(ReplyFailure.TIMEOUT, "No instance of " + context.name() + " responded")));
+      } else {
+        List<JsonObject> metrics = new ArrayList<>(result.result().size());
+        result.result().forEach(reply -> metrics.add(reply.body()));
+        handler.handle(Future.succeededFuture(ComponentMetricsImpl.aggregate(metrics)));
+      }
+    });
+  }
+
 //  @Override
 //  public OutputReference output() {
 //    return new OutputReferenceImpl(vertx, context.address());
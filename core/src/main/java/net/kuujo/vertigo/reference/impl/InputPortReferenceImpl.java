@@ -18,17 +18,19 @@ package net.kuujo.vertigo.reference.impl;
 import io.vertx.core.*;
 import io.vertx.core.eventbus.DeliveryOptions;
 import net.kuujo.vertigo.reference.InputPortReference;
+import net.kuujo.vertigo.util.Delivery;
 
 /**
  * Input port reference implementation.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
-public class InputPortReferenceImpl<T> implements InputPortReference<T> {
+public class InputPortReferenceImpl<T> extends AbstractInputPortReference<T> {
   private final Vertx vertx;
   private final String address;
   private final String name;
   private long timeout;
+  private final DeliveryOptions options;
 
   public InputPortReferenceImpl(Vertx vertx, String address, String name) {
     this(vertx, address, name, -1);
@@ -39,6 +41,7 @@ public class InputPortReferenceImpl<T> implements InputPortReference<T> {
     this.address = address;
     this.timeout = timeout;
     this.name = name;
+    this.options = getDeliveryOptions(null);
   }
 
   @Override
@@ -62,34 +65,37 @@ public class InputPortReferenceImpl<T> implements InputPortReference<T> {
 
   @Override
   public InputPortReference<T> send(T message, Handler<AsyncResult<Void>> ackHandler) {
-    vertx.eventBus()
-        .send(address, message, getDeliveryOptions(null), result -> {
-          if (result.succeeded()) {
-            Future.<Void>succeededFuture().setHandler(ackHandler);
-          } else {
-            Future.<Void>failedFuture(result.cause()).setHandler(ackHandler);
-          }
-        });
+    Delivery.send(vertx, address, message, getDeliveryOptions(null), result -> {
+      if (result.succeeded()) {
+        Future.<Void>succeededFuture().setHandler(ackHandler);
+      } else {
+        Future.<Void>failedFuture(result.cause()).setHandler(ackHandler);
+      }
+    });
     return this;
   }
 
   @Override
   public InputPortReference<T> send(T message, MultiMap headers, Handler<AsyncResult<Void>> ackHandler) {
-    vertx.eventBus()
-        .send(address, message, getDeliveryOptions(headers), result -> {
-          if (result.succeeded()) {
-            Future.<Void>succeededFuture().setHandler(ackHandler);
-          } else {
-            Future.<Void>failedFuture(result.cause()).setHandler(ackHandler);
-          }
-        });
+    Delivery.send(vertx, address, message, getDeliveryOptions(headers), result -> {
+      if (result.succeeded()) {
+        Future.<Void>succeededFuture().setHandler(ackHandler);
+      } else {
+        Future.<Void>failedFuture(result.cause()).setHandler(ackHandler);
+      }
+    });
     return this;
   }
 
   private DeliveryOptions getDeliveryOptions(MultiMap headers) {
+    // Messages without headers all share the same options.
+    if (headers == null && options != null) {
+      return options;
+    }
     DeliveryOptions deliveryOptions = new DeliveryOptions();
     if (headers != null) {
-      deliveryOptions.setHeaders(headers);
+      // Copy the headers since the same headers may be sent to multiple ports.
+      headers.forEach(entry -> deliveryOptions.addHeader(entry.getKey(), entry.getValue()));
     }
     if (timeout > 0) {
       deliveryOptions.setSendTimeout(timeout);
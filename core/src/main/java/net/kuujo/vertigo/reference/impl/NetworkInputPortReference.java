@@ -7,6 +7,7 @@ import io.vertx.core.Vertx;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.metrics.impl.Tracing;
 import net.kuujo.vertigo.reference.InputPortReference;
 import net.kuujo.vertigo.util.AckAggregator;
 
@@ -16,7 +17,7 @@ import java.util.stream.Collectors;
 /**
  * Created by Magnus.Koch on 9/1/2016.
  */
-public class NetworkInputPortReference<T> implements InputPortReference<T> {
+public class NetworkInputPortReference<T> extends AbstractInputPortReference<T> {
 
   private final Vertx vertx;
   private final String name;
@@ -59,18 +60,27 @@ public class NetworkInputPortReference<T> implements InputPortReference<T> {
 
   @Override
   public InputPortReference<T> send(T message) {
+    MultiMap headers = Tracing.sample(null);
+    if (headers != null) {
+      return send(message, headers);
+    }
     ports.forEach(port -> port.send(message));
     return this;
   }
 
   @Override
   public InputPortReference<T> send(T message, MultiMap headers) {
-    ports.forEach(port -> port.send(message, headers));
+    MultiMap traced = Tracing.sample(headers);
+    ports.forEach(port -> port.send(message, traced));
     return this;
   }
 
   @Override
   public InputPortReference<T> send(T message, Handler<AsyncResult<Void>> ackHandler) {
+    MultiMap headers = Tracing.sample(null);
+    if (headers != null) {
+      return send(message, headers, ackHandler);
+    }
     AckAggregator acks = new AckAggregator();
     ports.forEach(port -> port.send(message, acks.increment()));
     acks.completed(ackHandler);
@@ -79,8 +89,9 @@ public class NetworkInputPortReference<T> implements InputPortReference<T> {
 
   @Override
   public InputPortReference<T> send(T message, MultiMap headers, Handler<AsyncResult<Void>> ackHandler) {
+    MultiMap traced = Tracing.sample(headers);
     AckAggregator acks = new AckAggregator();
-    ports.forEach(port -> port.send(message, headers, acks.increment()));
+    ports.forEach(port -> port.send(message, traced, acks.increment()));
     acks.completed(ackHandler);
     return this;
   }
@@ -2,27 +2,223 @@ package net.kuujo.vertigo.reference.impl;
 
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import net.kuujo.vertigo.context.ComponentContext;
 import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.context.OutputConnectionContext;
+import net.kuujo.vertigo.context.OutputPortContext;
+import net.kuujo.vertigo.instance.impl.ComponentInstanceImpl;
+import net.kuujo.vertigo.instance.impl.OutputPortWriteStream;
 import net.kuujo.vertigo.message.VertigoMessage;
 import net.kuujo.vertigo.message.impl.VertigoMessageImpl;
 import net.kuujo.vertigo.reference.NetworkOutputReference;
+import net.kuujo.vertigo.util.AckBatcher;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Network output reference implementation.<p>
+ *
+ * A single consumer is registered on the network address while a handler is set.
+ * Pausing the reference publishes a pause action to every component port that
+ * sends to the network, which every output connection honours by queueing new
+ * messages, and holds received messages unacked, which holds back senders waiting
+ * for acks.
+ */
 public class NetworkOutputReferenceImpl<T> implements NetworkOutputReference<T> {
+  private static final Logger logger = LoggerFactory.getLogger(NetworkOutputReferenceImpl.class);
+  private static final String ACTION_HEADER = "action";
+  private static final String PORT_HEADER = "port";
+  private static final String SOURCE_HEADER = "source";
+  private static final String ID_HEADER = "name";
+  private static final String INDEX_HEADER = "index";
+  private static final String PAUSE_ACTION = "pause";
+  private static final String RESUME_ACTION = "resume";
 
   private final Vertx vertx;
   private final NetworkContext context;
+  private final AckBatcher acks;
+  private final List<OutputConnectionContext> sources = new ArrayList<>();
+  private final Queue<Message<T>> queue = new ArrayDeque<>();
+  private final Map<String, Integer> ends = new HashMap<>();
+  private MessageConsumer<T> consumer;
+  private Handler<VertigoMessage<T>> handler;
+  private Handler<Void> endHandler;
+  private Handler<Throwable> exceptionHandler;
+  private boolean paused;
+  private int ended;
 
   public NetworkOutputReferenceImpl(Vertx vertx, NetworkContext context) {
     this.vertx = vertx;
     this.context = context;
+    this.acks = new AckBatcher(vertx);
+    for (ComponentContext component : context.components()) {
+      for (OutputPortContext port : component.output().ports()) {
+        for (OutputConnectionContext connection : port.connections()) {
+          if (context.address().equals(connection.target().address())) {
+            sources.add(connection);
+          }
+        }
+      }
+    }
   }
 
   @Override
   public NetworkOutputReference<T> handler(Handler<VertigoMessage<T>> handler) {
-    vertx.eventBus().<T>consumer(context.address()).handler(message -> {
-      handler.handle(new VertigoMessageImpl<T>(message.headers().get("name"), message));
-    });
+    this.handler = handler;
+    if (handler != null) {
+      if (consumer == null) {
+        consumer = vertx.eventBus().<T>consumer(context.address()).handler(this::handleMessage);
+      }
+      deliverQueued();
+    } else if (consumer != null) {
+      consumer.unregister();
+      consumer = null;
+      Message<T> message;
+      while ((message = queue.poll()) != null) {
+        message.fail(ReplyFailure.RECIPIENT_FAILURE.toInt(), "Network output closed");
+      }
+      if (paused) {
+        paused = false;
+        control(RESUME_ACTION);
+      }
+    }
+    return this;
+  }
+
+  @Override
+  public NetworkOutputReference<T> exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public NetworkOutputReference<T> pause() {
+    if (!paused) {
+      paused = true;
+      control(PAUSE_ACTION);
+    }
+    return this;
+  }
+
+  @Override
+  public NetworkOutputReference<T> resume() {
+    if (paused) {
+      paused = false;
+      control(RESUME_ACTION);
+      deliverQueued();
+    }
+    return this;
+  }
+
+  @Override
+  public NetworkOutputReference<T> endHandler(Handler<Void> endHandler) {
+    this.endHandler = endHandler;
     return this;
   }
 
+  /**
+   * Publishes a flow control action to every component port sending to the network.
+   */
+  private void control(String action) {
+    for (OutputConnectionContext connection : sources) {
+      vertx.eventBus().publish(ComponentInstanceImpl.controlAddress(connection.source().address()), null, new DeliveryOptions()
+          .addHeader(ACTION_HEADER, action)
+          .addHeader(PORT_HEADER, connection.source().port())
+          .addHeader(SOURCE_HEADER, context.address())
+          .addHeader(INDEX_HEADER, "0"));
+    }
+  }
+
+  /**
+   * Returns whether messages are currently delivered to the handler.
+   */
+  private boolean flowing() {
+    return !paused && handler != null;
+  }
+
+  /**
+   * Handles a message received on the network address.
+   */
+  private void handleMessage(Message<T> message) {
+    message = acks.wrap(message);
+    if (flowing() && queue.isEmpty()) {
+      deliver(message);
+    } else {
+      queue.add(message);
+    }
+  }
+
+  /**
+   * Delivers queued messages until the queue is empty or the reference is paused.
+   */
+  private void deliverQueued() {
+    while (flowing() && !queue.isEmpty()) {
+      deliver(queue.poll());
+    }
+  }
+
+  /**
+   * Delivers a message to the handler or handles an end-of-stream marker.
+   */
+  private void deliver(Message<T> message) {
+    String source = message.headers().get(OutputPortWriteStream.END_HEADER);
+    if (source != null) {
+      message.reply(null);
+      doEnd(source, message.headers().get(OutputPortWriteStream.END_INSTANCES_HEADER));
+      return;
+    }
+
+    String id = message.headers().get(ID_HEADER);
+    VertigoMessage<T> vertigoMessage = new VertigoMessageImpl<>(id != null ? id : UUID.randomUUID().toString(), message);
+    try {
+      handler.handle(vertigoMessage);
+    } catch (Exception e) {
+      vertigoMessage.fail(e);
+      if (exceptionHandler != null) {
+        exceptionHandler.handle(e);
+      } else {
+        logger.error(String.format("Failed to handle output of network %s", context.name()), e);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of components sending to the network.
+   */
+  private int senders() {
+    Set<String> addresses = new HashSet<>();
+    for (OutputConnectionContext connection : sources) {
+      addresses.add(connection.source().address());
+    }
+    return addresses.size();
+  }
+
+  /**
+   * Records an end-of-stream marker and ends the stream once all sources have ended.
+   */
+  private void doEnd(String source, String instances) {
+    int expected = instances != null ? Integer.parseInt(instances) : 1;
+    int count = ends.merge(source, 1, Integer::sum);
+    if (count == expected) {
+      ended++;
+      if (ended >= Math.max(1, senders()) && endHandler != null) {
+        endHandler.handle((Void) null);
+      }
+    }
+  }
+
 }
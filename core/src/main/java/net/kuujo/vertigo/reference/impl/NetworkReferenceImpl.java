@@ -15,9 +15,20 @@
  */
 package net.kuujo.vertigo.reference.impl;
 
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.context.ComponentContext;
+import net.kuujo.vertigo.context.OutputConnectionContext;
+import net.kuujo.vertigo.context.OutputPortContext;
+import net.kuujo.vertigo.metrics.LatencyHistogram;
+import net.kuujo.vertigo.metrics.NetworkAnalyzer;
+import net.kuujo.vertigo.metrics.impl.NetworkAnalyzerImpl;
 import net.kuujo.vertigo.reference.*;
 import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.util.CountingCompletionHandler;
 
 /**
  * NetworkConfig reference implementation.
@@ -38,15 +49,67 @@ public class NetworkReferenceImpl implements NetworkReference {
     return new ComponentReferenceImpl(vertx, context.component(id));
   }
 
+  @Override
+  public void latency(Handler<AsyncResult<JsonObject>> handler) {
+    JsonObject components = new JsonObject();
+    LatencyHistogram latency = new LatencyHistogram();
+    CountingCompletionHandler<Void> counter = new CountingCompletionHandler<>(context.components().size());
+    for (ComponentContext component : context.components()) {
+      new ComponentReferenceImpl(vertx, component).metrics(result -> {
+        if (result.succeeded()) {
+          JsonObject metrics = result.result();
+          components.put(component.name(), new JsonObject()
+              .put("hopLatency", metrics.getJsonObject("hopLatency"))
+              .put("latency", metrics.getJsonObject("latency")));
+          if (isSink(component)) {
+            latency.merge(metrics.getJsonObject("latency", new JsonObject()));
+          }
+          counter.succeed();
+        } else {
+          counter.fail(result.cause());
+        }
+      });
+    }
+    counter.setHandler(result -> {
+      if (result.succeeded()) {
+        handler.handle(Future.succeededFuture(new JsonObject()
+            .put("network", context.name())
+            .put("latency", latency.toJson())
+            .put("components", components)));
+      } else {
+        handler.handle(Future.failedFuture(result.cause()));
+      }
+    });
+  }
+
+  @Override
+  public NetworkAnalyzer analyzer() {
+    return new NetworkAnalyzerImpl(vertx, context);
+  }
+
+  /**
+   * Returns a boolean indicating whether the component sends to no other components.
+   */
+  private boolean isSink(ComponentContext component) {
+    for (OutputPortContext port : component.output().ports()) {
+      for (OutputConnectionContext connection : port.connections()) {
+        if (!context.name().equals(connection.target().address())) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
   @Override
   public String name() {
     return context.name();
   }
 
-//  @Override
-//  public <T> NetworkOutputReference<T> output() {
-//    return new NetworkOutputReferenceImpl<>(vertx, context);
-//  }
+  @Override
+  public <T> NetworkOutputReference<T> output() {
+    return new NetworkOutputReferenceImpl<>(vertx, context);
+  }
 
   @Override
   public InputReference input() {
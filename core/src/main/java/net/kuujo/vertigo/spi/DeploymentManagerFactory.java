@@ -35,4 +35,14 @@ public interface DeploymentManagerFactory {
    */
   DeploymentManager createContextManager(Vertx vertx, VertigoOptions options);
 
+  /**
+   * Returns the factory priority. When several factories are available on the
+   * classpath, the factory with the highest priority is used.
+   *
+   * @return The factory priority.
+   */
+  default int priority() {
+    return 0;
+  }
+
 }
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.util;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.VertigoException;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Batches acks for messages sent by output connections.<p>
+ *
+ * Output connections send acked messages without an event bus reply handler,
+ * and instead tag them with the address on which the connection collects acks
+ * and a per-connection ack id. Messages {@link #wrap(Message) wrapped} by the
+ * batcher record their replies and failures rather than sending them. Acks for
+ * the same connection are sent together as id ranges once
+ * <code>vertigo.ack.batch-size</code> of them have been recorded (default
+ * <code>100</code>), or otherwise after <code>vertigo.ack.flush-interval</code>
+ * milliseconds (default <code>10</code>).<p>
+ *
+ * A batch is a JSON object with an <code>acks</code> array of alternating first and
+ * last ids of acked ranges and a <code>fails</code> array of <code>[id, code, message]</code>
+ * entries.
+ */
+public class AckBatcher {
+  public static final String ADDRESS_HEADER = "ack-address";
+  public static final String ID_HEADER = "ack-id";
+  public static final String ACKS_KEY = "acks";
+  public static final String FAILS_KEY = "fails";
+  private static final int BATCH_SIZE = Integer.getInteger("vertigo.ack.batch-size", 100);
+  private static final long FLUSH_INTERVAL = Long.getLong("vertigo.ack.flush-interval", 10);
+
+  private final Vertx vertx;
+  private final Map<String, Batch> batches = new HashMap<>();
+
+  public AckBatcher(Vertx vertx) {
+    this.vertx = vertx;
+  }
+
+  /**
+   * Returns whether a message is acked through a batcher.
+   *
+   * @param message The message to check.
+   * @return Indicates whether the message has batched acks.
+   */
+  public static boolean isBatched(Message<?> message) {
+    return message.headers() != null && message.headers().contains(ADDRESS_HEADER);
+  }
+
+  /**
+   * Wraps a message so that its replies and failures are batched.
+   *
+   * @param message The message to wrap.
+   * @return The wrapped message, or the message itself if it does not have batched acks.
+   */
+  public <T> Message<T> wrap(Message<T> message) {
+    if (!isBatched(message)) {
+      return message;
+    }
+    return new BatchedMessage<>(message);
+  }
+
+  /**
+   * Records an ack.
+   */
+  private void ack(String address, long id) {
+    Batch batch = batch(address);
+    batch.add(id);
+    if (batch.size() >= BATCH_SIZE) {
+      flush(address);
+    }
+  }
+
+  /**
+   * Records a failure.
+   */
+  private void fail(String address, long id, int failureCode, String failureMessage) {
+    batch(address).fails.add(new JsonArray().add(id).add(failureCode).add(failureMessage));
+    flush(address);
+  }
+
+  private Batch batch(String address) {
+    Batch batch = batches.get(address);
+    if (batch == null) {
+      batch = new Batch();
+      batch.timerID = vertx.setTimer(FLUSH_INTERVAL, id -> flush(address));
+      batches.put(address, batch);
+    }
+    return batch;
+  }
+
+  /**
+   * Sends all recorded acks and failures.
+   */
+  public void flush() {
+    for (String address : batches.keySet().toArray(new String[batches.size()])) {
+      flush(address);
+    }
+  }
+
+  private void flush(String address) {
+    Batch batch = batches.remove(address);
+    if (batch != null) {
+      vertx.cancelTimer(batch.timerID);
+      vertx.eventBus().send(address, new JsonObject()
+          .put(ACKS_KEY, batch.ranges())
+          .put(FAILS_KEY, batch.fails));
+    }
+  }
+
+  /**
+   * Acks and failures recorded for a single connection.
+   */
+  private static class Batch {
+    private final JsonArray fails = new JsonArray();
+    private long[] ids = new long[16];
+    private int count;
+    private long timerID;
+
+    private void add(long id) {
+      if (count == ids.length) {
+        ids = Arrays.copyOf(ids, count * 2);
+      }
+      ids[count++] = id;
+    }
+
+    private int size() {
+      return count + fails.size();
+    }
+
+    /**
+     * Collapses the acked ids into ranges.
+     */
+    private JsonArray ranges() {
+      JsonArray ranges = new JsonArray();
+      if (count > 0) {
+        Arrays.sort(ids, 0, count);
+        long first = ids[0];
+        long last = ids[0];
+        for (int i = 1; i < count; i++) {
+          if (ids[i] > last + 1) {
+            ranges.add(first).add(last);
+            first = ids[i];
+          }
+          last = ids[i];
+        }
+        ranges.add(first).add(last);
+      }
+      return ranges;
+    }
+  }
+
+  /**
+   * Message whose replies and failures are recorded by the batcher.
+   */
+  private class BatchedMessage<T> implements Message<T> {
+    private final Message<T> message;
+    private final String address;
+    private final long id;
+
+    private BatchedMessage(Message<T> message) {
+      this.message = message;
+      this.address = message.headers().get(ADDRESS_HEADER);
+      this.id = Long.parseLong(message.headers().get(ID_HEADER));
+    }
+
+    @Override
+    public String address() {
+      return message.address();
+    }
+
+    @Override
+    public MultiMap headers() {
+      return message.headers();
+    }
+
+    @Override
+    public T body() {
+      return message.body();
+    }
+
+    @Override
+    public String replyAddress() {
+      return address;
+    }
+
+    @Override
+    public void reply(Object reply) {
+      ack(address, id);
+    }
+
+    @Override
+    public <R> void reply(Object reply, Handler<AsyncResult<Message<R>>> replyHandler) {
+      ack(address, id);
+      replyHandler.handle(Future.failedFuture(new VertigoException("Batched acks cannot be replied to")));
+    }
+
+    @Override
+    public void reply(Object reply, DeliveryOptions options) {
+      ack(address, id);
+    }
+
+    @Override
+    public <R> void reply(Object reply, DeliveryOptions options, Handler<AsyncResult<Message<R>>> replyHandler) {
+      reply(reply, replyHandler);
+    }
+
+    @Override
+    public void fail(int failureCode, String failureMessage) {
+      AckBatcher.this.fail(address, id, failureCode, failureMessage);
+    }
+  }
+
+}
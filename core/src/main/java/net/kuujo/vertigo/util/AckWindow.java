@@ -0,0 +1,255 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Sliding bitmap over a sequence of message indices.<p>
+ *
+ * The window records which indices at or above its base have been marked.
+ * Marking the base slides the window past every contiguously marked index, so
+ * the bitmap only spans the gap between the lowest unmarked index and the
+ * highest marked one. The marks above the base can be encoded as a compact
+ * string and applied to another window, which is how receivers report
+ * selective acks to senders.<p>
+ *
+ * A window may be given a maximum size, in which case indices that far or
+ * further above the base are refused rather than growing the bitmap.
+ */
+public class AckWindow {
+  private static final int MIN_WORDS = 4;
+  private final long maxSize;
+  private long base;
+  private long highest;
+  private long[] words = new long[MIN_WORDS];
+  private int marked;
+
+  public AckWindow(long base) {
+    this(base, Long.MAX_VALUE);
+  }
+
+  /**
+   * @param base The lowest index of the window.
+   * @param maxSize The maximum number of indices the window spans above its base.
+   */
+  public AckWindow(long base, long maxSize) {
+    Args.check(maxSize > 0, "max size must be positive");
+    this.base = base;
+    this.highest = base - 1;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns the lowest index that has not been marked.
+   *
+   * @return The window base.
+   */
+  public long base() {
+    return base;
+  }
+
+  /**
+   * Returns the highest marked index.
+   *
+   * @return The highest marked index, or <code>base() - 1</code> if no index above the base is marked.
+   */
+  public long highest() {
+    return highest;
+  }
+
+  /**
+   * Returns the number of marked indices above the base.
+   *
+   * @return The number of marked indices above the base.
+   */
+  public int marked() {
+    return marked;
+  }
+
+  /**
+   * Returns whether an index has been marked.
+   *
+   * @param index The index to check.
+   * @return Indicates whether the index has been marked.
+   */
+  public boolean isMarked(long index) {
+    if (index < base) {
+      return true;
+    }
+    if (index - base >= capacity()) {
+      return false;
+    }
+    return (words[word(index)] & bit(index)) != 0;
+  }
+
+  /**
+   * Returns whether an index lies within the maximum size of the window.
+   *
+   * @param index The index to check.
+   * @return Indicates whether the index can be marked without exceeding the maximum size.
+   */
+  public boolean fits(long index) {
+    return index - base < maxSize;
+  }
+
+  /**
+   * Marks a single index.
+   *
+   * @param index The index to mark.
+   * @return Indicates whether the index was not already marked and fits in the window.
+   */
+  public boolean mark(long index) {
+    if (isMarked(index) || !fits(index)) {
+      return false;
+    }
+    while (index - base >= capacity()) {
+      grow();
+    }
+    words[word(index)] |= bit(index);
+    marked++;
+    if (index > highest) {
+      highest = index;
+    }
+    slide();
+    return true;
+  }
+
+  /**
+   * Marks every index up to and including the given index.
+   *
+   * @param index The highest index to mark.
+   */
+  public void markTo(long index) {
+    if (index < base) {
+      return;
+    }
+    if (index - base >= capacity()) {
+      Arrays.fill(words, 0);
+      marked = 0;
+    } else {
+      for (long i = base; i <= index; i++) {
+        int word = word(i);
+        long bit = bit(i);
+        if ((words[word] & bit) != 0) {
+          words[word] &= ~bit;
+          marked--;
+        }
+      }
+    }
+    base = index + 1;
+    if (highest < index) {
+      highest = index;
+    }
+    slide();
+  }
+
+  /**
+   * Encodes the marks above the base.<p>
+   *
+   * The encoding is a comma separated list of hexadecimal words whose bits
+   * correspond to consecutive indices starting at the base.
+   *
+   * @return The encoded marks, or an empty string if no index above the base is marked.
+   */
+  public String encode() {
+    if (marked == 0) {
+      return "";
+    }
+    StringBuilder sb = new StringBuilder();
+    for (long start = base; start <= highest; start += 64) {
+      long word = 0;
+      for (int i = 0; i < 64 && start + i <= highest; i++) {
+        if (isMarked(start + i)) {
+          word |= 1L << i;
+        }
+      }
+      if (sb.length() > 0) {
+        sb.append(',');
+      }
+      sb.append(Long.toHexString(word));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Decodes marks encoded by {@link #encode()}.
+   *
+   * @param base The base of the window that encoded the marks.
+   * @param encoded The encoded marks.
+   * @param consumer A consumer to be called with each marked index.
+   */
+  public static void decode(long base, String encoded, LongConsumer consumer) {
+    if (encoded == null || encoded.isEmpty()) {
+      return;
+    }
+    long start = base;
+    for (String part : encoded.split(",")) {
+      long word = Long.parseUnsignedLong(part, 16);
+      while (word != 0) {
+        int i = Long.numberOfTrailingZeros(word);
+        consumer.accept(start + i);
+        word &= word - 1;
+      }
+      start += 64;
+    }
+  }
+
+  private long capacity() {
+    return (long) words.length * 64;
+  }
+
+  private int word(long index) {
+    return (int) ((index >>> 6) & (words.length - 1));
+  }
+
+  private static long bit(long index) {
+    return 1L << (index & 63);
+  }
+
+  /**
+   * Slides the base past contiguously marked indices.
+   */
+  private void slide() {
+    while (marked > 0) {
+      int word = word(base);
+      long bit = bit(base);
+      if ((words[word] & bit) == 0) {
+        break;
+      }
+      words[word] &= ~bit;
+      marked--;
+      base++;
+    }
+  }
+
+  /**
+   * Doubles the window capacity.
+   */
+  private void grow() {
+    long[] old = words;
+    int oldMask = old.length - 1;
+    words = new long[old.length * 2];
+    long capacity = (long) old.length * 64;
+    for (long i = base; i < base + capacity; i++) {
+      if ((old[(int) ((i >>> 6) & oldMask)] & bit(i)) != 0) {
+        words[word(i)] |= bit(i);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.util;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Event bus delivery with retries.<p>
+ *
+ * While a component instance is migrated between nodes, its address may briefly
+ * have no handler on the node a message was routed to. Messages sent with a
+ * reply handler are then retried up to <code>vertigo.delivery.retries</code>
+ * times (default <code>10</code>) with a linearly increasing delay of
+ * <code>vertigo.delivery.retry-delay</code> milliseconds (default <code>10</code>),
+ * so the pause is bounded to well under a second.<p>
+ *
+ * Messages published to every handler of an address can be answered by each
+ * handler: the publisher listens on a temporary address passed in the
+ * {@link #REPLY_HEADER} header, and handlers respond with {@link #reply(Vertx, Message, Object)}.
+ */
+public final class Delivery {
+  public static final String REPLY_HEADER = "reply-address";
+  private static final int MAX_RETRIES = Integer.getInteger("vertigo.delivery.retries", 10);
+  private static final long RETRY_DELAY = Long.getLong("vertigo.delivery.retry-delay", 10);
+
+  private Delivery() {
+  }
+
+  /**
+   * Sends a message, retrying if no handler is registered for the address.
+   *
+   * @param vertx The Vert.x instance.
+   * @param address The address to which to send the message.
+   * @param message The message body.
+   * @param options The delivery options.
+   * @param replyHandler The reply handler.
+   */
+  public static <T> void send(Vertx vertx, String address, Object message, DeliveryOptions options, Handler<AsyncResult<Message<T>>> replyHandler) {
+    send(vertx, address, message, options, replyHandler, 0);
+  }
+
+  private static <T> void send(Vertx vertx, String address, Object message, DeliveryOptions options, Handler<AsyncResult<Message<T>>> replyHandler, int attempt) {
+    vertx.eventBus().<T>send(address, message, options, result -> {
+      if (result.failed() && attempt < MAX_RETRIES && isNoHandlers(result.cause())) {
+        vertx.setTimer(RETRY_DELAY * (attempt + 1), id -> send(vertx, address, message, options, replyHandler, attempt + 1));
+      } else {
+        replyHandler.handle(result);
+      }
+    });
+  }
+
+  /**
+   * Publishes a message and gathers the replies of the handlers that receive it.<p>
+   *
+   * The reply handler is called once the expected number of replies has arrived,
+   * or with the replies received so far once the timeout elapses.
+   *
+   * @param vertx The Vert.x instance.
+   * @param address The address to which to publish the message.
+   * @param message The message body.
+   * @param options The delivery options.
+   * @param expected The number of replies to wait for.
+   * @param timeout The time to wait for replies in milliseconds.
+   * @param replyHandler The handler to be called with the replies.
+   */
+  public static <T> void publish(Vertx vertx, String address, Object message, DeliveryOptions options, int expected, long timeout,
+                                 Handler<AsyncResult<List<Message<T>>>> replyHandler) {
+    List<Message<T>> replies = new ArrayList<>(expected);
+    String replyAddress = UUID.randomUUID().toString();
+    MessageConsumer<T> consumer = vertx.eventBus().consumer(replyAddress);
+    long[] timer = new long[]{-1};
+    boolean[] done = new boolean[1];
+    Handler<Void> complete = v -> {
+      if (!done[0]) {
+        done[0] = true;
+        vertx.cancelTimer(timer[0]);
+        consumer.unregister();
+        Future.succeededFuture(replies).setHandler(replyHandler);
+      }
+    };
+    consumer.handler(reply -> {
+      replies.add(reply);
+      if (replies.size() >= expected) {
+        complete.handle(null);
+      }
+    });
+    consumer.completionHandler(result -> {
+      if (result.failed()) {
+        done[0] = true;
+        consumer.unregister();
+        Future.<List<Message<T>>>failedFuture(result.cause()).setHandler(replyHandler);
+      } else if (expected <= 0) {
+        complete.handle(null);
+      } else {
+        timer[0] = vertx.setTimer(timeout, id -> complete.handle(null));
+        vertx.eventBus().publish(address, message, new DeliveryOptions(options).addHeader(REPLY_HEADER, replyAddress));
+      }
+    });
+  }
+
+  /**
+   * Replies to a message, or to the publisher if it was published with {@link #publish}.
+   *
+   * @param vertx The Vert.x instance.
+   * @param message The message to which to reply.
+   * @param reply The reply body.
+   */
+  public static void reply(Vertx vertx, Message<?> message, Object reply) {
+    String replyAddress = message.headers().get(REPLY_HEADER);
+    if (replyAddress != null) {
+      vertx.eventBus().send(replyAddress, reply);
+    } else if (message.replyAddress() != null) {
+      message.reply(reply);
+    }
+  }
+
+  /**
+   * Returns whether a send failed because no handler was registered for the address.
+   *
+   * @param cause The send failure.
+   * @return Indicates whether the failure was caused by a missing handler.
+   */
+  public static boolean isNoHandlers(Throwable cause) {
+    return cause instanceof ReplyException && ((ReplyException) cause).failureType() == ReplyFailure.NO_HANDLERS;
+  }
+
+}
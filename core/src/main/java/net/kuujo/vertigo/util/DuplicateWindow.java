@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Bounded window of received message indices.<p>
+ *
+ * Indices within <code>size</code> of the highest index received are tracked in
+ * a ring bitset. Indices that slide out of the window without having been
+ * received are moved to a small overflow set so they are still accepted if they
+ * arrive late. Any other index below the window is considered a duplicate, so
+ * memory stays bounded at a few bits per index in the window.
+ */
+public class DuplicateWindow {
+  private final int size;
+  private final int maxOverflow;
+  private final long[] words;
+  private final Set<Long> overflow = new LinkedHashSet<>();
+  private long highest;
+
+  /**
+   * @param size The number of indices tracked below the highest index. Rounded up to a power of two.
+   */
+  public DuplicateWindow(int size) {
+    this(size, Math.max(64, size / 16));
+  }
+
+  /**
+   * @param size The number of indices tracked below the highest index. Rounded up to a power of two.
+   * @param maxOverflow The maximum number of missing indices kept once they slide out of the window.
+   */
+  public DuplicateWindow(int size, int maxOverflow) {
+    Args.checkPositive(size, "size must be positive");
+    int bits = Integer.highestOneBit(Math.max(64, size));
+    if (bits < size) {
+      bits <<= 1;
+    }
+    this.words = new long[bits / 64];
+    this.size = bits;
+    this.maxOverflow = maxOverflow;
+  }
+
+  /**
+   * Returns the number of indices tracked in the bitset.
+   *
+   * @return The window size.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns whether an index has already been received.
+   *
+   * @param index The index to check.
+   * @return Indicates whether the index is a duplicate.
+   */
+  public boolean contains(long index) {
+    if (index > highest) {
+      return false;
+    }
+    if (index > highest - size) {
+      return (words[word(index)] & bit(index)) != 0;
+    }
+    return !overflow.contains(index);
+  }
+
+  /**
+   * Records a received index.
+   *
+   * @param index The received index.
+   * @return Indicates whether the index had not been received before.
+   */
+  public boolean add(long index) {
+    if (index > highest) {
+      slide(index);
+      words[word(index)] |= bit(index);
+      return true;
+    }
+    if (index > highest - size) {
+      int word = word(index);
+      long bit = bit(index);
+      if ((words[word] & bit) != 0) {
+        return false;
+      }
+      words[word] |= bit;
+      return true;
+    }
+    return overflow.remove(index);
+  }
+
+  /**
+   * Forgets all received indices.
+   */
+  public void reset() {
+    Arrays.fill(words, 0);
+    overflow.clear();
+    highest = 0;
+  }
+
+  /**
+   * Slides the window up to a new highest index.
+   */
+  private void slide(long index) {
+    // Move indices that leave the window without having been received to the overflow set.
+    long first = Math.max(1, highest - size + 1);
+    long last = index - size;
+    for (long i = first; i <= Math.min(last, highest); i++) {
+      if ((words[word(i)] & bit(i)) == 0) {
+        addOverflow(i);
+      }
+    }
+    for (long i = Math.max(highest + 1, last - maxOverflow + 1); i <= last; i++) {
+      addOverflow(i);
+    }
+
+    if (index - highest >= size) {
+      Arrays.fill(words, 0);
+    } else {
+      for (long i = highest + 1; i <= index; i++) {
+        words[word(i)] &= ~bit(i);
+      }
+    }
+    highest = index;
+  }
+
+  private void addOverflow(long index) {
+    if (index < 1) {
+      return;
+    }
+    overflow.add(index);
+    if (overflow.size() > maxOverflow) {
+      Iterator<Long> iterator = overflow.iterator();
+      iterator.next();
+      iterator.remove();
+    }
+  }
+
+  private int word(long index) {
+    return (int) ((index >>> 6) & (words.length - 1));
+  }
+
+  private static long bit(long index) {
+    return 1L << (index & 63);
+  }
+
+}
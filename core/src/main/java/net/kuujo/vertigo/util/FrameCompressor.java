@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.util;
+
+import io.vertx.core.buffer.Buffer;
+import net.kuujo.vertigo.VertigoException;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Adaptive frame compressor.<p>
+ *
+ * Frames are deflated at the fastest level and prefixed with a flag byte telling
+ * the reader whether the rest of the frame is compressed. Compression is skipped
+ * for frames smaller than the minimum size. After each compressed frame the
+ * compressor checks whether it paid off: the compressed frame must be at most the
+ * maximum ratio of the original, and compressing must save at least the minimum
+ * number of bytes per microsecond of CPU time spent. Once a frame fails either
+ * check, frames are sent uncompressed and only every <code>probeInterval</code>th
+ * frame is compressed to measure again.<p>
+ *
+ * The native zlib streams are created on first use and must be freed with
+ * {@link #release()} once the compressor is no longer used. The compressor is
+ * not thread safe.
+ */
+public class FrameCompressor {
+  public static final byte RAW = 0;
+  public static final byte DEFLATED = 1;
+
+  private final int minSize;
+  private final double maxRatio;
+  private final double minSavings;
+  private final int probeInterval;
+  private Deflater deflater;
+  private Inflater inflater;
+  private final byte[] chunk = new byte[8192];
+  private boolean skipping;
+  private int skipped;
+  private long nanos;
+
+  /**
+   * @param minSize The minimum size in bytes of frames to compress.
+   * @param maxRatio The maximum ratio of compressed to original size for compression to be worthwhile.
+   * @param minSavings The minimum bytes saved per microsecond of compression for compression to be worthwhile.
+   * @param probeInterval The number of frames between compressed frames while compression is not worthwhile.
+   */
+  public FrameCompressor(int minSize, double maxRatio, double minSavings, int probeInterval) {
+    Args.check(maxRatio > 0, "max ratio must be positive");
+    Args.checkPositive(probeInterval, "probe interval must be positive");
+    this.minSize = minSize;
+    this.maxRatio = maxRatio;
+    this.minSavings = minSavings;
+    this.probeInterval = probeInterval;
+  }
+
+  /**
+   * Returns whether frames are currently sent uncompressed because compression did not pay off.
+   *
+   * @return Indicates whether compression is being skipped.
+   */
+  public boolean isSkipping() {
+    return skipping;
+  }
+
+  /**
+   * Returns the time spent compressing the last frame.
+   *
+   * @return The compression time of the last frame in nanoseconds, or <code>0</code> if it was not compressed.
+   */
+  public long lastCompressionTime() {
+    return nanos;
+  }
+
+  /**
+   * Encodes a frame, compressing it if compression is worthwhile.
+   *
+   * @param frame The frame to encode.
+   * @return The flag byte followed by the compressed or original frame.
+   */
+  public Buffer compress(Buffer frame) {
+    nanos = 0;
+    if (frame.length() < minSize || (skipping && ++skipped < probeInterval)) {
+      return Buffer.buffer(frame.length() + 1).appendByte(RAW).appendBuffer(frame);
+    }
+    skipped = 0;
+
+    long start = System.nanoTime();
+    Buffer compressed = Buffer.buffer(frame.length() / 2 + 1).appendByte(DEFLATED);
+    if (deflater == null) {
+      deflater = new Deflater(Deflater.BEST_SPEED);
+    }
+    deflater.reset();
+    deflater.setInput(frame.getBytes());
+    deflater.finish();
+    while (!deflater.finished()) {
+      compressed.appendBytes(chunk, 0, deflater.deflate(chunk));
+    }
+    nanos = System.nanoTime() - start;
+
+    int saved = frame.length() + 1 - compressed.length();
+    double ratio = (double) (compressed.length() - 1) / frame.length();
+    skipping = ratio > maxRatio || saved / Math.max(1.0, nanos / 1000.0) < minSavings;
+    if (saved <= 0) {
+      return Buffer.buffer(frame.length() + 1).appendByte(RAW).appendBuffer(frame);
+    }
+    return compressed;
+  }
+
+  /**
+   * Decodes a frame encoded by {@link #compress(Buffer)}.
+   *
+   * @param frame The encoded frame.
+   * @return The original frame.
+   */
+  public Buffer decompress(Buffer frame) {
+    if (frame.getByte(0) != DEFLATED) {
+      return frame.getBuffer(1, frame.length());
+    }
+
+    Buffer decompressed = Buffer.buffer(frame.length() * 2);
+    if (inflater == null) {
+      inflater = new Inflater();
+    }
+    inflater.reset();
+    inflater.setInput(frame.getBytes(1, frame.length()));
+    try {
+      while (!inflater.finished()) {
+        int count = inflater.inflate(chunk);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new VertigoException("Truncated compressed frame");
+        }
+        decompressed.appendBytes(chunk, 0, count);
+      }
+    } catch (DataFormatException e) {
+      throw new VertigoException(e);
+    }
+    return decompressed;
+  }
+
+  /**
+   * Frees the native zlib streams. The compressor creates them again if it is used afterwards.
+   */
+  public void release() {
+    if (deflater != null) {
+      deflater.end();
+      deflater = null;
+    }
+    if (inflater != null) {
+      inflater.end();
+      inflater = null;
+    }
+  }
+
+}
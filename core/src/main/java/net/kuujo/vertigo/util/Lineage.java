@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.util;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.http.CaseInsensitiveHeaders;
+import net.kuujo.vertigo.message.VertigoMessage;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Position of a message in a tree tracked by a {@link LineageTracker}.<p>
+ *
+ * A lineage is a constant-memory alternative to an {@link AckAggregator} for
+ * fanning out messages: rather than holding a handler per child until every
+ * child has acked, each child is sent with the headers returned by
+ * {@link #anchor()} and the received message is acked straight away with
+ * {@link #ack()}. The tracker completes the root once every message in the
+ * tree has been acked.
+ *
+ * <pre>
+ * Lineage lineage = Lineage.of(vertx, message);
+ * for (String word : words) {
+ *   output().port("words").send(word, lineage.anchor());
+ * }
+ * lineage.ack();
+ * </pre>
+ *
+ * Messages that were not sent with lineage headers get a detached lineage,
+ * which only acks and fails the message itself.
+ */
+public class Lineage {
+  private final Vertx vertx;
+  private final LineageTracker tracker;
+  private final String address;
+  private final long root;
+  private final VertigoMessage<?> message;
+  private long edges;
+  private boolean done;
+
+  Lineage(Vertx vertx, LineageTracker tracker, String address, long root, long edge, VertigoMessage<?> message) {
+    this.vertx = vertx;
+    this.tracker = tracker;
+    this.address = address;
+    this.root = root;
+    this.edges = edge;
+    this.message = message;
+  }
+
+  /**
+   * Returns the lineage of a received message.
+   *
+   * @param vertx The Vert.x instance.
+   * @param message The received message.
+   * @return The message lineage.
+   */
+  public static Lineage of(Vertx vertx, VertigoMessage<?> message) {
+    String address = message.headers().get(LineageTracker.TRACKER_HEADER);
+    if (address == null) {
+      return new Lineage(vertx, null, null, 0, 0, message);
+    }
+    return new Lineage(vertx, null, address,
+        Long.parseLong(message.headers().get(LineageTracker.ROOT_HEADER)),
+        Long.parseLong(message.headers().get(LineageTracker.EDGE_HEADER)),
+        message);
+  }
+
+  /**
+   * Returns whether the lineage belongs to a tracked tree.
+   *
+   * @return Indicates whether the lineage is tracked.
+   */
+  public boolean isTracked() {
+    return address != null;
+  }
+
+  /**
+   * Creates the headers for a child message.<p>
+   *
+   * A new set of headers is returned for each child, since each child carries
+   * its own edge id.
+   *
+   * @return The headers with which to send the child message.
+   */
+  public MultiMap anchor() {
+    MultiMap headers = new CaseInsensitiveHeaders();
+    if (address != null) {
+      long edge;
+      do {
+        edge = ThreadLocalRandom.current().nextLong();
+      } while (edge == 0);
+      edges ^= edge;
+      headers.add(LineageTracker.TRACKER_HEADER, address)
+          .add(LineageTracker.ROOT_HEADER, String.valueOf(root))
+          .add(LineageTracker.EDGE_HEADER, String.valueOf(edge));
+    }
+    return headers;
+  }
+
+  /**
+   * Acks the message and reports its children to the tracker.
+   */
+  public void ack() {
+    if (!done) {
+      done = true;
+      if (message != null) {
+        message.ack();
+      }
+      if (tracker != null) {
+        tracker.update(root, edges, true);
+      } else if (address != null) {
+        vertx.eventBus().send(address, null, new DeliveryOptions()
+            .addHeader(LineageTracker.ACTION_HEADER, LineageTracker.ACK_ACTION)
+            .addHeader(LineageTracker.ROOT_HEADER, String.valueOf(root))
+            .addHeader(LineageTracker.EDGE_HEADER, String.valueOf(edges)));
+      }
+    }
+  }
+
+  /**
+   * Fails the message and the root of its tree.
+   *
+   * @param cause The cause of the failure.
+   */
+  public void fail(Throwable cause) {
+    if (!done) {
+      done = true;
+      if (message != null) {
+        message.fail(cause);
+      }
+      String reason = cause != null ? cause.getMessage() : null;
+      if (tracker != null) {
+        tracker.fail(root, reason);
+      } else if (address != null) {
+        vertx.eventBus().send(address, reason, new DeliveryOptions()
+            .addHeader(LineageTracker.ACTION_HEADER, LineageTracker.FAIL_ACTION)
+            .addHeader(LineageTracker.ROOT_HEADER, String.valueOf(root)));
+      }
+    }
+  }
+
+}
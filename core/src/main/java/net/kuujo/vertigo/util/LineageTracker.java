@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.util;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import net.kuujo.vertigo.VertigoException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Tracks the completion of message trees.<p>
+ *
+ * Each root registered with the tracker is held as a single 64-bit XOR
+ * accumulator. Every message sent in the tree carries a random edge id, and each
+ * {@link Lineage} reports the XOR of the edge it received and the edges it sent
+ * when it is acked. Every edge is therefore reported exactly twice, and the root
+ * completes once its accumulator is back to zero, whatever the width or depth of
+ * the tree. Roots that have not completed within <code>vertigo.lineage.timeout</code>
+ * milliseconds (default <code>30000</code>) are failed. The timeout timer only runs
+ * while roots are being tracked.<p>
+ *
+ * The tracker listens on its own event bus address, so messages in the tree may
+ * be handled by components anywhere in the cluster. It must be used from the
+ * context on which it was created.
+ */
+public class LineageTracker {
+  static final String TRACKER_HEADER = "lineage-tracker";
+  static final String ROOT_HEADER = "lineage-root";
+  static final String EDGE_HEADER = "lineage-edge";
+  static final String ACTION_HEADER = "action";
+  static final String ACK_ACTION = "ack";
+  static final String FAIL_ACTION = "fail";
+  private static final long TIMEOUT = Long.getLong("vertigo.lineage.timeout", 30000);
+
+  private final Vertx vertx;
+  private final String address = String.format("vertigo.lineage.%s", UUID.randomUUID().toString());
+  private final Map<Long, Root> roots = new HashMap<>();
+  private final MessageConsumer<String> consumer;
+  private long timerID = -1;
+
+  public LineageTracker(Vertx vertx) {
+    this.vertx = vertx;
+    this.consumer = vertx.eventBus().<String>consumer(address).handler(this::handleMessage);
+  }
+
+  /**
+   * Returns the tracker address.
+   *
+   * @return The address on which the tracker receives updates.
+   */
+  public String address() {
+    return address;
+  }
+
+  /**
+   * Returns the number of roots that have not yet completed.
+   *
+   * @return The number of roots being tracked.
+   */
+  public int size() {
+    return roots.size();
+  }
+
+  /**
+   * Starts tracking a new message tree.
+   *
+   * @param doneHandler A handler to be called once every message in the tree has been acked,
+   *                    or with the cause once any message in the tree has failed.
+   * @return The lineage of the root, from which the first messages of the tree are sent.
+   */
+  public Lineage root(Handler<AsyncResult<Void>> doneHandler) {
+    long id;
+    do {
+      id = ThreadLocalRandom.current().nextLong();
+    } while (roots.containsKey(id));
+    roots.put(id, new Root(doneHandler, System.currentTimeMillis() + TIMEOUT));
+    if (timerID == -1) {
+      timerID = vertx.setPeriodic(Math.max(1, TIMEOUT / 2), this::checkTimeouts);
+    }
+    return new Lineage(vertx, this, address, id, 0, null);
+  }
+
+  /**
+   * Stops tracking, failing all incomplete roots.
+   */
+  public void close() {
+    consumer.unregister();
+    if (timerID != -1) {
+      vertx.cancelTimer(timerID);
+      timerID = -1;
+    }
+    Iterator<Root> iterator = roots.values().iterator();
+    while (iterator.hasNext()) {
+      Root root = iterator.next();
+      iterator.remove();
+      root.doneHandler.handle(Future.failedFuture(new VertigoException("Lineage tracker closed")));
+    }
+  }
+
+  /**
+   * Handles an update from a lineage.
+   */
+  private void handleMessage(Message<String> message) {
+    long id = Long.parseLong(message.headers().get(ROOT_HEADER));
+    if (FAIL_ACTION.equals(message.headers().get(ACTION_HEADER))) {
+      fail(id, message.body());
+    } else {
+      update(id, Long.parseLong(message.headers().get(EDGE_HEADER)), false);
+    }
+  }
+
+  /**
+   * XORs a lineage's edges into the accumulator of its root.
+   */
+  void update(long id, long edges, boolean root) {
+    Root entry = roots.get(id);
+    if (entry != null) {
+      entry.xor ^= edges;
+      entry.acked |= root;
+      if (entry.acked && entry.xor == 0) {
+        roots.remove(id);
+        checkIdle();
+        entry.doneHandler.handle(Future.succeededFuture());
+      }
+    }
+  }
+
+  /**
+   * Fails a root.
+   */
+  void fail(long id, String cause) {
+    Root entry = roots.remove(id);
+    if (entry != null) {
+      checkIdle();
+      entry.doneHandler.handle(Future.failedFuture(new VertigoException(cause != null ? cause : "Lineage failed")));
+    }
+  }
+
+  /**
+   * Fails roots that have timed out.
+   */
+  private void checkTimeouts(long timerID) {
+    long now = System.currentTimeMillis();
+    List<Root> expired = new ArrayList<>();
+    Iterator<Root> iterator = roots.values().iterator();
+    while (iterator.hasNext()) {
+      Root root = iterator.next();
+      if (root.deadline <= now) {
+        iterator.remove();
+        expired.add(root);
+      }
+    }
+    checkIdle();
+    for (Root root : expired) {
+      root.doneHandler.handle(Future.failedFuture(new VertigoException("Lineage timed out")));
+    }
+  }
+
+  /**
+   * Cancels the timeout timer once no roots are left.
+   */
+  private void checkIdle() {
+    if (roots.isEmpty() && timerID != -1) {
+      vertx.cancelTimer(timerID);
+      timerID = -1;
+    }
+  }
+
+  /**
+   * Completion state of a single root.
+   */
+  private static class Root {
+    private final Handler<AsyncResult<Void>> doneHandler;
+    private final long deadline;
+    private long xor;
+    private boolean acked;
+
+    private Root(Handler<AsyncResult<Void>> doneHandler, long deadline) {
+      this.doneHandler = doneHandler;
+      this.deadline = deadline;
+    }
+  }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.util;
+
+import io.vertx.core.buffer.Buffer;
+import net.kuujo.vertigo.VertigoException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-producer, single-consumer ring buffer in a memory-mapped file.<p>
+ *
+ * The file starts with a header holding the capacity, the write position and
+ * the read position, each on its own cache line, followed by the ring itself.
+ * Positions only ever grow and are masked into the ring, whose capacity is a
+ * power of two. Each record is a length followed by its bytes, padded to four
+ * bytes. A record that does not fit before the end of the ring is preceded by
+ * a padding marker and written at the start of the ring instead.<p>
+ *
+ * The producer publishes a record by writing the write position after the
+ * record, and the consumer frees it by writing the read position after copying
+ * it out. Both sides may be in different processes, so one side must only ever
+ * call {@link #offer(Buffer)} and the other {@link #poll()}.<p>
+ *
+ * Java 8 has no ordered accesses to mapped memory, so positions are published
+ * and read behind an atomic update of a private counter, which orders all
+ * surrounding memory accesses like a full fence. Records are copied in bulk
+ * through a view of the mapping.
+ */
+public class SharedMemoryRing {
+  private static final int CAPACITY_OFFSET = 0;
+  private static final int WRITE_OFFSET = 64;
+  private static final int READ_OFFSET = 128;
+  private static final int HEADER_SIZE = 192;
+  private static final int PADDING = -1;
+
+  private final File file;
+  private final MappedByteBuffer buffer;
+  private final ByteBuffer view;
+  private final AtomicLong fence = new AtomicLong();
+  private final int capacity;
+  private final int mask;
+  private long writePosition;
+  private long readPosition;
+  private volatile boolean closed;
+
+  private SharedMemoryRing(File file, MappedByteBuffer buffer) {
+    this.file = file;
+    this.buffer = buffer;
+    this.view = buffer.duplicate();
+    this.capacity = buffer.getInt(CAPACITY_OFFSET);
+    this.mask = capacity - 1;
+    this.writePosition = buffer.getLong(WRITE_OFFSET);
+    this.readPosition = buffer.getLong(READ_OFFSET);
+  }
+
+  /**
+   * Creates a new ring, replacing any existing file.
+   *
+   * @param file The file in which to map the ring.
+   * @param capacity The minimum capacity of the ring in bytes.
+   * @return The ring, to be written by the producer.
+   */
+  public static SharedMemoryRing create(File file, int capacity) {
+    Args.checkPositive(capacity, "capacity must be positive");
+    int size = Integer.highestOneBit(Math.max(capacity, 64) - 1) << 1;
+    file.delete();
+    MappedByteBuffer buffer = map(file, HEADER_SIZE + size);
+    buffer.putInt(CAPACITY_OFFSET, size);
+    buffer.putLong(WRITE_OFFSET, 0);
+    buffer.putLong(READ_OFFSET, 0);
+    SharedMemoryRing ring = new SharedMemoryRing(file, buffer);
+    ring.fence();
+    return ring;
+  }
+
+  /**
+   * Opens a ring created by {@link #create(File, int)}.
+   *
+   * @param file The file in which the ring is mapped.
+   * @return The ring, to be read by the consumer.
+   */
+  public static SharedMemoryRing open(File file) {
+    if (!file.exists()) {
+      throw new VertigoException("Ring " + file + " does not exist");
+    }
+    return new SharedMemoryRing(file, map(file, (int) file.length()));
+  }
+
+  private static MappedByteBuffer map(File file, int size) {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      if (raf.length() < size) {
+        raf.setLength(size);
+      }
+      return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    } catch (IOException e) {
+      throw new VertigoException(e);
+    }
+  }
+
+  /**
+   * Keeps memory accesses from being reordered across the call.
+   */
+  private void fence() {
+    fence.incrementAndGet();
+  }
+
+  /**
+   * Returns the ring file.
+   *
+   * @return The file in which the ring is mapped.
+   */
+  public File file() {
+    return file;
+  }
+
+  /**
+   * Returns the capacity of the ring.
+   *
+   * @return The capacity of the ring in bytes.
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Writes a record to the ring.
+   *
+   * @param record The record to write.
+   * @return Indicates whether the record was written, or <code>false</code> if the ring is too full or closed.
+   */
+  public boolean offer(Buffer record) {
+    int size = align(4 + record.length());
+    Args.check(size <= capacity, "record of %d bytes does not fit in ring of %d bytes", record.length(), capacity);
+    if (closed) {
+      return false;
+    }
+    fence();
+    long read = buffer.getLong(READ_OFFSET);
+    long write = writePosition;
+    int index = (int) (write & mask);
+    int remaining = capacity - index;
+    if (remaining < size) {
+      if (write + remaining + size - read > capacity) {
+        return false;
+      }
+      buffer.putInt(HEADER_SIZE + index, PADDING);
+      write += remaining;
+      index = 0;
+    } else if (write + size - read > capacity) {
+      return false;
+    }
+
+    buffer.putInt(HEADER_SIZE + index, record.length());
+    view.position(HEADER_SIZE + index + 4);
+    view.put(record.getByteBuf().nioBuffer());
+    writePosition = write + size;
+    fence();
+    buffer.putLong(WRITE_OFFSET, writePosition);
+    return true;
+  }
+
+  /**
+   * Reads the next record from the ring.
+   *
+   * @return The next record, or <code>null</code> if the ring is empty or closed.
+   */
+  public Buffer poll() {
+    if (closed) {
+      return null;
+    }
+    long write = buffer.getLong(WRITE_OFFSET);
+    fence();
+    if (readPosition == write) {
+      return null;
+    }
+
+    int index = (int) (readPosition & mask);
+    int length = buffer.getInt(HEADER_SIZE + index);
+    if (length == PADDING) {
+      readPosition += capacity - index;
+      index = 0;
+      length = buffer.getInt(HEADER_SIZE);
+    }
+    byte[] bytes = new byte[length];
+    view.position(HEADER_SIZE + index + 4);
+    view.get(bytes);
+    readPosition += align(4 + length);
+    fence();
+    buffer.putLong(READ_OFFSET, readPosition);
+    return Buffer.buffer(bytes);
+  }
+
+  /**
+   * Closes the ring and deletes its file.<p>
+   *
+   * Java 8 has no public way to unmap a file, so the mapping is released once the
+   * ring is garbage collected. It stays valid until then, so a side still polling
+   * or offering while the ring is closed simply finds it empty or full.
+   */
+  public void close() {
+    closed = true;
+    file.delete();
+  }
+
+  private static int align(int size) {
+    return (size + 3) & ~3;
+  }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.vertigo.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel.<p>
+ *
+ * Timeouts are hashed into a fixed ring of buckets by the tick on which they
+ * expire, and timeouts further away than a full turn of the wheel wait for the
+ * required number of rounds. Each call to {@link #tick()} advances the wheel by
+ * one bucket and returns every value that expired in it, so a single periodic
+ * timer can expire any number of timeouts in bulk. Timeouts are rounded up to
+ * whole ticks.<p>
+ *
+ * The wheel is not thread safe.
+ */
+public class TimingWheel<T> {
+  private final long tickDuration;
+  private final List<Entry<T>>[] buckets;
+  private final Map<Long, Entry<T>> entries = new HashMap<>();
+  private int cursor;
+
+  /**
+   * @param tickDuration The duration of a tick in milliseconds.
+   * @param size The number of buckets in the wheel.
+   */
+  @SuppressWarnings("unchecked")
+  public TimingWheel(long tickDuration, int size) {
+    Args.checkPositive(size, "size must be positive");
+    Args.check(tickDuration > 0, "tick duration must be positive");
+    this.tickDuration = tickDuration;
+    this.buckets = new List[size];
+  }
+
+  /**
+   * Returns the duration of a tick.
+   *
+   * @return The duration of a tick in milliseconds.
+   */
+  public long tickDuration() {
+    return tickDuration;
+  }
+
+  /**
+   * Returns the number of scheduled timeouts.
+   *
+   * @return The number of scheduled timeouts.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Schedules a timeout.
+   *
+   * @param id The unique timeout id.
+   * @param timeout The timeout in milliseconds.
+   * @param value The value to return once the timeout expires.
+   */
+  public void schedule(long id, long timeout, T value) {
+    long ticks = Math.max(1, (timeout + tickDuration - 1) / tickDuration);
+    int bucket = (int) ((cursor + ticks) % buckets.length);
+    Entry<T> entry = new Entry<>(id, value, (ticks - 1) / buckets.length);
+    Entry<T> previous = entries.put(id, entry);
+    if (previous != null) {
+      previous.value = null;
+    }
+    if (buckets[bucket] == null) {
+      buckets[bucket] = new ArrayList<>();
+    }
+    buckets[bucket].add(entry);
+  }
+
+  /**
+   * Cancels a timeout.
+   *
+   * @param id The timeout id.
+   * @return The value of the cancelled timeout, or <code>null</code> if no timeout is scheduled with the id.
+   */
+  public T remove(long id) {
+    Entry<T> entry = entries.remove(id);
+    if (entry == null) {
+      return null;
+    }
+    T value = entry.value;
+    entry.value = null;
+    return value;
+  }
+
+  /**
+   * Cancels every timeout.
+   *
+   * @return The values of the cancelled timeouts.
+   */
+  public List<T> clear() {
+    List<T> values = new ArrayList<>(entries.size());
+    for (Entry<T> entry : entries.values()) {
+      values.add(entry.value);
+    }
+    entries.clear();
+    Arrays.fill(buckets, null);
+    return values;
+  }
+
+  /**
+   * Advances the wheel by one tick.
+   *
+   * @return The values of timeouts that expired on this tick.
+   */
+  public List<T> tick() {
+    cursor = (cursor + 1) % buckets.length;
+    List<Entry<T>> bucket = buckets[cursor];
+    if (bucket == null) {
+      return Collections.emptyList();
+    }
+
+    List<T> expired = new ArrayList<>();
+    Iterator<Entry<T>> iterator = bucket.iterator();
+    while (iterator.hasNext()) {
+      Entry<T> entry = iterator.next();
+      if (entry.value == null) {
+        iterator.remove();
+      } else if (entry.rounds > 0) {
+        entry.rounds--;
+      } else {
+        iterator.remove();
+        entries.remove(entry.id);
+        expired.add(entry.value);
+      }
+    }
+    if (bucket.isEmpty()) {
+      buckets[cursor] = null;
+    }
+    return expired;
+  }
+
+  /**
+   * Scheduled timeout.
+   */
+  private static class Entry<T> {
+    private final long id;
+    private T value;
+    private long rounds;
+
+    private Entry(long id, T value, long rounds) {
+      this.id = id;
+      this.value = value;
+      this.rounds = rounds;
+    }
+  }
+
+}
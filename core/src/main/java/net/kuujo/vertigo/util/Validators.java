@@ -18,18 +18,22 @@ package net.kuujo.vertigo.util;
 import net.kuujo.vertigo.network.validators.ValidationException;
 import net.kuujo.vertigo.spi.ConfigValidator;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Configuration validator utilities.
+ * Configuration validator utilities.<p>
+ *
+ * Validators are loaded once per validator type and cached, since validation
+ * runs for every component, port and connection in a network.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public final class Validators {
-  private static final Map<Class, List<?>> validators = new HashMap<>();
+  private static final Map<Class, List<?>> validators = new ConcurrentHashMap<>();
 
   /**
    * Validates the configuration for the given value.
@@ -42,10 +46,22 @@ public final class Validators {
    * @throws ValidationException if a validation error occurs.
    */
   public static <T, U extends ConfigValidator<T>> T validate(T value, Class<U> type) {
-    for (U validator : ServiceLoader.load(type)) {
+    for (U validator : validators(type)) {
       validator.validate(value);
     }
     return value;
   }
 
+  /**
+   * Returns the cached validators of the given type, loading them on first use.
+   */
+  @SuppressWarnings("unchecked")
+  private static <U> List<U> validators(Class<U> type) {
+    return (List<U>) validators.computeIfAbsent(type, t -> {
+      List<U> loaded = new ArrayList<>();
+      ServiceLoader.load(type).forEach(loaded::add);
+      return loaded;
+    });
+  }
+
 }
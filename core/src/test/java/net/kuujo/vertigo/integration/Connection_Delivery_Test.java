@@ -0,0 +1,527 @@
+package net.kuujo.vertigo.integration;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.http.CaseInsensitiveHeaders;
+import io.vertx.core.json.JsonObject;
+import io.vertx.test.core.VertxTestBase;
+import net.kuujo.vertigo.context.ContextBuilder;
+import net.kuujo.vertigo.context.InputConnectionContext;
+import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.context.OutputConnectionContext;
+import net.kuujo.vertigo.instance.ComponentInstance;
+import net.kuujo.vertigo.instance.InputConnection;
+import net.kuujo.vertigo.instance.OutputConnection;
+import net.kuujo.vertigo.instance.impl.ComponentInstanceImpl;
+import net.kuujo.vertigo.instance.impl.ControlledComponentInstanceFactory;
+import net.kuujo.vertigo.instance.impl.ControlledInputConnection;
+import net.kuujo.vertigo.instance.impl.ControlledOutputConnection;
+import net.kuujo.vertigo.instance.impl.SimpleInputConnection;
+import net.kuujo.vertigo.instance.impl.SimpleOutputConnection;
+import net.kuujo.vertigo.instance.impl.UnorderedInputConnection;
+import net.kuujo.vertigo.instance.impl.UnorderedOutputConnection;
+import net.kuujo.vertigo.network.ConnectionConfig;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.network.builder.NetworkBuilder;
+import net.kuujo.vertigo.util.CountingCompletionHandler;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class Connection_Delivery_Test extends VertxTestBase {
+  private static final int MESSAGES = 5000;
+
+  private NetworkContext createNetwork(boolean ordered, boolean atLeastOnce) {
+    NetworkBuilder builder = NetworkConfig.builder("Connection_Delivery_Test");
+    builder.connect("A").identifier("stub").port("out")
+        .to("B").identifier("stub").port("in");
+    NetworkConfig network = builder.build();
+    for (ConnectionConfig connection : network.getConnections()) {
+      connection.setOrdered(ordered).setAtLeastOnce(atLeastOnce);
+    }
+    return ContextBuilder.buildContext(network);
+  }
+
+  private OutputConnectionContext output(NetworkContext network) {
+    return network.component("A").output().port("out").connections().iterator().next();
+  }
+
+  private InputConnectionContext input(NetworkContext network) {
+    return network.component("B").input().port("in").connections().iterator().next();
+  }
+
+  @Test
+  public void testConnectionSelection() {
+    ControlledComponentInstanceFactory factory = new ControlledComponentInstanceFactory();
+
+    NetworkContext fast = createNetwork(false, false);
+    assertTrue(factory.createOutputConnection(vertx, output(fast)) instanceof ControlledOutputConnection);
+    assertTrue(factory.createInputConnection(vertx, input(fast)) instanceof ControlledInputConnection);
+
+    ControlledComponentInstanceFactory fireAndForget = new ControlledComponentInstanceFactory(true);
+    assertTrue(fireAndForget.createOutputConnection(vertx, output(fast)) instanceof SimpleOutputConnection);
+    assertTrue(fireAndForget.createInputConnection(vertx, input(fast)) instanceof SimpleInputConnection);
+
+    NetworkContext unordered = createNetwork(false, true);
+    assertTrue(factory.createOutputConnection(vertx, output(unordered)) instanceof UnorderedOutputConnection);
+    assertTrue(factory.createInputConnection(vertx, input(unordered)) instanceof UnorderedInputConnection);
+
+    NetworkContext ordered = createNetwork(true, true);
+    assertTrue(factory.createOutputConnection(vertx, output(ordered)) instanceof ControlledOutputConnection);
+    assertTrue(factory.createInputConnection(vertx, input(ordered)) instanceof ControlledInputConnection);
+  }
+
+  @Test
+  public void testSimpleQueuesWhilePaused() {
+    NetworkContext network = createNetwork(false, false);
+    OutputConnectionContext outputContext = output(network);
+    ControlledComponentInstanceFactory factory = new ControlledComponentInstanceFactory(true);
+
+    vertx.runOnContext(v -> {
+      OutputConnection<Integer> output = factory.createOutputConnection(vertx, outputContext);
+      output.setSendQueueMaxSize(2);
+      List<Integer> received = new ArrayList<>();
+      vertx.eventBus().<Integer>consumer(outputContext.address(), message -> received.add(message.body()));
+      String control = ComponentInstanceImpl.controlAddress(outputContext.source().address());
+      vertx.eventBus().<Integer>consumer(control, output::handle);
+
+      output.drainedHandler(d -> {
+        assertFalse(output.sendQueueFull());
+        vertx.setTimer(100, id -> {
+          assertEquals(Arrays.asList(1, 2), received);
+          testComplete();
+        });
+      });
+
+      vertx.eventBus().send(control, null, new DeliveryOptions().addHeader("action", "pause").addHeader("index", "0"));
+      vertx.setTimer(100, id -> {
+        output.send(1);
+        output.send(2);
+        assertTrue(output.sendQueueFull());
+        output.send(3, onFailure(t -> {
+          assertEquals("Send queue full", t.getMessage());
+          assertTrue(received.isEmpty());
+          vertx.eventBus().send(control, null, new DeliveryOptions().addHeader("action", "resume").addHeader("index", "0"));
+        }));
+      });
+    });
+
+    await();
+  }
+
+  @Test
+  public void testUnorderedResendsLostMessages() {
+    NetworkContext network = createNetwork(false, true);
+    OutputConnectionContext outputContext = output(network);
+    InputConnectionContext inputContext = input(network);
+    ControlledComponentInstanceFactory factory = new ControlledComponentInstanceFactory();
+
+    vertx.runOnContext(v -> {
+      OutputConnection<Integer> output = factory.createOutputConnection(vertx, outputContext);
+      InputConnection<Integer> input = factory.createInputConnection(vertx, inputContext);
+      Set<Integer> received = new HashSet<>();
+      Set<String> dropped = new HashSet<>();
+
+      // Drop the first copy of every hundredth message to force resends.
+      vertx.eventBus().<Integer>consumer(inputContext.address(), message -> {
+        String index = message.headers().get("index");
+        if (Long.valueOf(index) % 100 == 0 && dropped.add(index)) {
+          return;
+        }
+        input.handle(message);
+      });
+      vertx.eventBus().<Integer>consumer(ComponentInstanceImpl.controlAddress(outputContext.source().address()), output::handle);
+
+      input.handler(message -> {
+        assertTrue(received.add(message.body()));
+        message.ack();
+      });
+
+      for (int i = 0; i < MESSAGES; i++) {
+        output.send(i);
+      }
+
+      vertx.setPeriodic(10, id -> {
+        if (received.size() == MESSAGES && output.size() == 0) {
+          vertx.cancelTimer(id);
+          assertEquals(MESSAGES / 100, dropped.size());
+          testComplete();
+        }
+      });
+    });
+
+    await();
+  }
+
+  @Test
+  public void testUnorderedWindowStartsAtSenderBase() {
+    NetworkContext network = createNetwork(false, true);
+    InputConnectionContext inputContext = input(network);
+    ControlledComponentInstanceFactory factory = new ControlledComponentInstanceFactory();
+
+    vertx.runOnContext(v -> {
+      InputConnection<Integer> input = factory.createInputConnection(vertx, inputContext);
+      vertx.eventBus().<Integer>consumer(inputContext.address(), input::handle);
+
+      List<Integer> received = new ArrayList<>();
+      input.handler(message -> {
+        received.add(message.body());
+        if (received.size() == 4) {
+          assertEquals(Arrays.asList(2, 1, 1, 2), received);
+          testComplete();
+        }
+      });
+
+      // The second message overtakes the first, then the sender restarts with a new id.
+      String[][] messages = {{"2", "a"}, {"1", "a"}, {"2", "a"}, {"1", "b"}, {"2", "b"}};
+      for (String[] message : messages) {
+        vertx.eventBus().send(inputContext.address(), Integer.valueOf(message[0]), new DeliveryOptions()
+            .addHeader("index", message[0])
+            .addHeader("base", "1")
+            .addHeader("sender", "sender")
+            .addHeader("sender-id", message[1]));
+      }
+    });
+
+    await();
+  }
+
+  @Test
+  public void testUnorderedCloseStopsFeedback() {
+    testCloseStopsFeedback(false);
+  }
+
+  @Test
+  public void testOrderedCloseStopsFeedback() {
+    testCloseStopsFeedback(true);
+  }
+
+  private void testCloseStopsFeedback(boolean ordered) {
+    NetworkContext network = createNetwork(ordered, true);
+    InputConnectionContext inputContext = input(network);
+    ControlledComponentInstanceFactory factory = new ControlledComponentInstanceFactory();
+    String sender = "Connection_Delivery_Test.sender";
+
+    vertx.runOnContext(v -> {
+      InputConnection<Integer> input = factory.createInputConnection(vertx, inputContext);
+      vertx.eventBus().<Integer>consumer(inputContext.address(), input::handle);
+      vertx.eventBus().consumer(sender, message -> fail("Received feedback from a closed connection "));
+
+      // The message would be acked on the next feedback tick if the connection was still open.
+      input.handler(message -> {
+        if (input instanceof UnorderedInputConnection) {
+          ((UnorderedInputConnection<Integer>) input).close();
+        } else {
+          ((ControlledInputConnection<Integer>) input).close();
+        }
+        vertx.setTimer(500, id -> testComplete());
+      });
+
+      vertx.eventBus().send(inputContext.address(), 1, new DeliveryOptions()
+          .addHeader("index", "1")
+          .addHeader("sender", sender)
+          .addHeader("sender-id", "a"));
+    });
+
+    await();
+  }
+
+  @Test
+  public void testUnorderedHeadersPerConnection() {
+    NetworkBuilder builder = NetworkConfig.builder("Connection_Delivery_Test");
+    builder.connect("A").identifier("stub").port("out").to("B").identifier("stub").port("in");
+    builder.connect("A").port("out").to("C").identifier("stub").port("in");
+    NetworkConfig config = builder.build();
+    for (ConnectionConfig connection : config.getConnections()) {
+      connection.setOrdered(false).setAtLeastOnce(true);
+    }
+    NetworkContext network = ContextBuilder.buildContext(config);
+    ControlledComponentInstanceFactory factory = new ControlledComponentInstanceFactory();
+
+    vertx.runOnContext(v -> {
+      Set<String> sources = new HashSet<>();
+      for (OutputConnectionContext outputContext : network.component("A").output().port("out").connections()) {
+        vertx.eventBus().<Integer>consumer(outputContext.address(), message -> {
+          assertEquals(Arrays.asList("bar"), message.headers().getAll("foo"));
+          assertEquals(Arrays.asList("1"), message.headers().getAll("index"));
+          assertEquals(Arrays.asList(outputContext.address()), message.headers().getAll("source"));
+          sources.add(message.headers().get("source"));
+          if (sources.size() == 2) {
+            testComplete();
+          }
+        });
+      }
+
+      MultiMap headers = new CaseInsensitiveHeaders().add("foo", "bar");
+      for (OutputConnectionContext outputContext : network.component("A").output().port("out").connections()) {
+        factory.<Integer>createOutputConnection(vertx, outputContext).send(1, headers);
+      }
+    });
+
+    await();
+  }
+
+  @Test
+  public void testOrderedAcksInBatches() {
+    NetworkContext network = createNetwork(true, true);
+    OutputConnectionContext outputContext = output(network);
+    ControlledComponentInstanceFactory factory = new ControlledComponentInstanceFactory();
+
+    vertx.runOnContext(v -> {
+      OutputConnection<Integer> output = factory.createOutputConnection(vertx, outputContext);
+      vertx.eventBus().<Integer>consumer(outputContext.address(), message -> {
+        assertNull(message.replyAddress());
+        assertNotNull(message.headers().get("ack-address"));
+        assertEquals("1", message.headers().get("index"));
+
+        // Closing the connection fails the pending ack and stops listening for acks.
+        ((ControlledOutputConnection<Integer>) output).close();
+        vertx.eventBus().send(message.headers().get("ack-address"), new JsonObject(), onFailure(t -> testComplete()));
+      });
+      output.send(1, onFailure(t -> assertEquals("Connection closed", t.getMessage())));
+    });
+
+    await();
+  }
+
+  @Test
+  public void testOrderedFeedbackReachesSender() {
+    NetworkContext network = createNetwork(true, true);
+    OutputConnectionContext outputContext = output(network);
+    InputConnectionContext inputContext = input(network);
+    ControlledComponentInstanceFactory factory = new ControlledComponentInstanceFactory();
+
+    vertx.runOnContext(v -> {
+      OutputConnection<Integer> output = factory.createOutputConnection(vertx, outputContext);
+      InputConnection<Integer> input = factory.createInputConnection(vertx, inputContext);
+      vertx.eventBus().<Integer>consumer(inputContext.address(), input::handle);
+      vertx.eventBus().<Integer>consumer(ComponentInstanceImpl.controlAddress(outputContext.source().address()), message -> {
+        output.handle(message);
+        if ("ack".equals(message.headers().get("action"))) {
+          assertEquals(inputContext.address(), message.headers().get("source"));
+          assertEquals("1000", message.headers().get("index"));
+          input.pause();
+        } else if ("pause".equals(message.headers().get("action"))) {
+          assertTrue(output.sendQueueFull());
+          testComplete();
+        }
+      });
+
+      input.handler(message -> message.ack());
+      for (int i = 1; i <= 1000; i++) {
+        output.send(i);
+      }
+    });
+
+    await();
+  }
+
+  @Test
+  public void testOrderedResendsLostMessages() {
+    NetworkContext network = createNetwork(true, true);
+    OutputConnectionContext outputContext = output(network);
+    InputConnectionContext inputContext = input(network);
+    ControlledComponentInstanceFactory factory = new ControlledComponentInstanceFactory();
+
+    vertx.runOnContext(v -> {
+      OutputConnection<Integer> output = factory.createOutputConnection(vertx, outputContext);
+      output.setSendQueueMaxSize(MESSAGES);
+      InputConnection<Integer> input = factory.createInputConnection(vertx, inputContext);
+      List<Integer> received = new ArrayList<>();
+      Set<String> dropped = new HashSet<>();
+
+      // Drop the first copy of every hundredth message to force resends.
+      vertx.eventBus().<Integer>consumer(inputContext.address(), message -> {
+        String index = message.headers().get("index");
+        if (Long.valueOf(index) % 100 == 50 && dropped.add(index)) {
+          return;
+        }
+        input.handle(message);
+      });
+      vertx.eventBus().<Integer>consumer(ComponentInstanceImpl.controlAddress(outputContext.source().address()), output::handle);
+
+      input.handler(message -> {
+        received.add(message.body());
+        message.ack();
+      });
+
+      for (int i = 0; i < MESSAGES; i++) {
+        output.send(i);
+      }
+
+      vertx.setPeriodic(10, id -> {
+        if (received.size() == MESSAGES && output.size() == 0) {
+          vertx.cancelTimer(id);
+          for (int i = 0; i < MESSAGES; i++) {
+            assertEquals(i, (int) received.get(i));
+          }
+          assertEquals(MESSAGES / 100, dropped.size());
+          testComplete();
+        }
+      });
+    });
+
+    await();
+  }
+
+  @Test
+  public void testOrderedSenderRestart() {
+    NetworkContext network = createNetwork(true, true);
+    InputConnectionContext inputContext = input(network);
+    ControlledComponentInstanceFactory factory = new ControlledComponentInstanceFactory();
+
+    vertx.runOnContext(v -> {
+      InputConnection<Integer> input = factory.createInputConnection(vertx, inputContext);
+      vertx.eventBus().<Integer>consumer(inputContext.address(), input::handle);
+
+      List<Integer> received = new ArrayList<>();
+      input.handler(message -> {
+        received.add(message.body());
+        if (received.size() == 5) {
+          assertEquals(Arrays.asList(1, 2, 3, 1, 2), received);
+          testComplete();
+        }
+      });
+
+      // The sender is recreated after three messages and restarts at the first index.
+      String[][] messages = {{"1", "a"}, {"2", "a"}, {"3", "a"}, {"1", "b"}, {"2", "b"}};
+      for (String[] message : messages) {
+        vertx.eventBus().send(inputContext.address(), Integer.valueOf(message[0]), new DeliveryOptions()
+            .addHeader("index", message[0])
+            .addHeader("sender", "sender")
+            .addHeader("sender-id", message[1]));
+      }
+    });
+
+    await();
+  }
+
+  @Test
+  public void testOrderedRejectedSendHoldsNothing() {
+    NetworkBuilder builder = NetworkConfig.builder("Connection_Delivery_Test");
+    builder.connect("A").identifier("stub").port("out")
+        .to("B").identifier("stub").port("in");
+    NetworkConfig config = builder.build();
+    for (ConnectionConfig connection : config.getConnections()) {
+      connection.setOrdered(true).setAtLeastOnce(true).setSendTimeout(200);
+    }
+    NetworkContext network = ContextBuilder.buildContext(config);
+    OutputConnectionContext outputContext = output(network);
+    InputConnectionContext inputContext = input(network);
+    ControlledComponentInstanceFactory factory = new ControlledComponentInstanceFactory();
+
+    vertx.runOnContext(v -> {
+      OutputConnection<Object> output = factory.createOutputConnection(vertx, outputContext);
+      InputConnection<Object> input = factory.createInputConnection(vertx, inputContext);
+      vertx.eventBus().consumer(inputContext.address(), input::handle);
+      vertx.eventBus().consumer(ComponentInstanceImpl.controlAddress(outputContext.source().address()), output::handle);
+
+      // Wait past the send timeout to make sure the rejected send is not failed later.
+      input.handler(message -> {
+        assertEquals("Hello world!", message.body());
+        assertEquals("1", message.headers().get("index"));
+        vertx.setTimer(500, id -> testComplete());
+      });
+
+      try {
+        output.send(new Object(), result -> fail("Rejected send was acked or timed out"));
+        fail("Expected the send to be rejected");
+      } catch (IllegalArgumentException e) {
+        assertEquals(0, output.size());
+      }
+      output.send("Hello world!");
+    });
+
+    await();
+  }
+
+  @Test
+  public void testOrderedDropsDuplicates() {
+    NetworkContext network = createNetwork(true, true);
+    InputConnectionContext inputContext = input(network);
+    ControlledComponentInstanceFactory factory = new ControlledComponentInstanceFactory();
+
+    vertx.runOnContext(v -> {
+      InputConnection<Integer> input = factory.createInputConnection(vertx, inputContext);
+      vertx.eventBus().<Integer>consumer(inputContext.address(), input::handle);
+
+      List<Integer> received = new ArrayList<>();
+      input.handler(message -> {
+        received.add(message.body());
+        if (message.body() == 11) {
+          assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11), received);
+          testComplete();
+        }
+      });
+
+      // Send ten messages, resend the last six of them and then send the eleventh.
+      List<Integer> indices = new ArrayList<>();
+      for (int i = 1; i <= 10; i++) {
+        indices.add(i);
+      }
+      for (int i = 5; i <= 11; i++) {
+        indices.add(i);
+      }
+      for (int index : indices) {
+        vertx.eventBus().send(inputContext.address(), index, new DeliveryOptions()
+            .addHeader("index", String.valueOf(index)));
+      }
+    });
+
+    await();
+  }
+
+  @Test
+  public void testDrainReleasesDroppedDuplicates() {
+    NetworkContext network = createNetwork(true, true);
+    InputConnectionContext inputContext = input(network);
+
+    vertx.runOnContext(v -> {
+      ComponentInstance instance = new ComponentInstanceImpl(vertx, network.component("B"), new ControlledComponentInstanceFactory());
+      instance.input().port("in").handler(message -> message.ack());
+      instance.start(onSuccess(started -> {
+        CountingCompletionHandler<Void> acked = new CountingCompletionHandler<Void>(2).setHandler(onSuccess(r -> {
+          long start = System.currentTimeMillis();
+          vertx.eventBus().<JsonObject>send(network.component("B").address(), new JsonObject().put("forward", "nowhere").put("timeout", 5000),
+              new DeliveryOptions().addHeader("action", ComponentInstanceImpl.DRAIN_ACTION).setSendTimeout(10000), onSuccess(reply -> {
+                assertEquals(0, (int) reply.body().getInteger("inFlight"));
+                assertTrue(System.currentTimeMillis() - start < 5000);
+                testComplete();
+              }));
+        }));
+        // The resent second message is dropped as a duplicate and never acked.
+        for (int index : new int[]{1, 2, 2}) {
+          vertx.eventBus().send(inputContext.address(), index, new DeliveryOptions()
+              .addHeader("index", String.valueOf(index)), reply -> {
+            if (reply.succeeded()) {
+              acked.succeed();
+            }
+          });
+        }
+      }));
+    });
+
+    await();
+  }
+
+}
@@ -0,0 +1,86 @@
+package net.kuujo.vertigo.integration;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.vertx.test.core.VertxTestBase;
+import net.kuujo.vertigo.Vertigo;
+import net.kuujo.vertigo.component.MessageHandlerComponent;
+import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.context.NetworkPlan;
+import net.kuujo.vertigo.message.VertigoMessage;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.network.builder.NetworkBuilder;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+public class Deployment_Plan_Test extends VertxTestBase {
+  private static final String RECEIVED = "Deployment_Plan_Test.received";
+
+  @Test
+  public void testDeployPlan() throws Exception {
+    NetworkBuilder builder = NetworkConfig.builder("Deployment_Plan_Test");
+    builder.component("A")
+        .identifier(ForwardingComponent.class.getName())
+        .input().port("in");
+    builder.connect("A").port("out")
+        .to("B").identifier(ForwardingComponent.class.getName()).port("in");
+
+    NetworkContext compiled = NetworkPlan.load(NetworkPlan.compile(builder.build()));
+    File plan = File.createTempFile("vertigo", ".plan");
+    plan.deleteOnExit();
+    Files.write(plan.toPath(), NetworkPlan.compile(compiled).getBytes());
+
+    vertx.eventBus().<String>consumer(RECEIVED, message -> {
+      if (message.body().equals("B:hello")) {
+        testComplete();
+      }
+    });
+
+    vertx.runOnContext(v -> Vertigo.vertigo(vertx).deployPlan(plan.getAbsolutePath(), onSuccess(network -> {
+      assertEquals(compiled.name(), network.name());
+      network.component("A").input().port("in").send("hello");
+    })));
+
+    await();
+  }
+
+  @Test
+  public void testDeployInvalidPlan() throws Exception {
+    File plan = File.createTempFile("vertigo", ".plan");
+    plan.deleteOnExit();
+    Files.write(plan.toPath(), "not a plan".getBytes());
+
+    vertx.runOnContext(v -> Vertigo.vertigo(vertx).deployPlan(plan.getAbsolutePath(), result -> {
+      assertTrue(result.failed());
+      testComplete();
+    }));
+
+    await();
+  }
+
+  public static class ForwardingComponent extends MessageHandlerComponent<String> {
+    @Override
+    public void handle(VertigoMessage<String> message) {
+      vertx.eventBus().publish(RECEIVED, context().name() + ":" + message.body());
+      output().port("out").send(message.body());
+      message.ack();
+    }
+  }
+
+}
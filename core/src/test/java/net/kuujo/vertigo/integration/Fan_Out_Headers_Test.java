@@ -0,0 +1,101 @@
+package net.kuujo.vertigo.integration;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.CaseInsensitiveHeaders;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.component.MessageHandlerComponent;
+import net.kuujo.vertigo.message.VertigoMessage;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.network.builder.NetworkBuilder;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class Fan_Out_Headers_Test extends VertigoTestBase {
+  private static final String RECEIVED = "Fan_Out_Headers_Test.received";
+
+  @Override
+  protected NetworkConfig createNetwork() {
+    NetworkBuilder builder = NetworkConfig.builder("Fan_Out_Headers_Test");
+    builder.component("A")
+        .identifier(SourceComponent.class.getName())
+        .input().port("in");
+    builder.connect("A").port("out")
+        .to("B").identifier(TargetComponent.class.getName()).port("in");
+    builder.connect("A").port("out")
+        .to("C").identifier(TargetComponent.class.getName()).port("in");
+    return builder.build();
+  }
+
+  @Test
+  public void testHeadersPerConnection() {
+    Set<String> targets = new HashSet<>();
+    vertx.eventBus().<JsonObject>consumer(RECEIVED, message -> {
+      JsonObject received = message.body();
+      String component = received.getString("component");
+      assertEquals(new JsonArray().add("bar"), received.getJsonArray("foo"));
+      assertEquals(1, received.getJsonArray("target").size());
+      assertTrue(received.getJsonArray("target").getString(0).endsWith(component));
+      assertEquals(1, received.getJsonArray("ack-address").size());
+      targets.add(component);
+    });
+
+    vertx.runOnContext(v -> getNetworkReference().component("A").input().port("in").send("go", onSuccess(r -> {
+      assertEquals(2, targets.size());
+      testComplete();
+    })));
+
+    await();
+  }
+
+  /**
+   * Sends one message with shared headers to both targets and acks once both have acked.
+   */
+  public static class SourceComponent extends MessageHandlerComponent<String> {
+    @Override
+    public void handle(VertigoMessage<String> message) {
+      MultiMap headers = new CaseInsensitiveHeaders().add("foo", "bar");
+      output().<String>port("out").send(message.body(), headers, result -> {
+        if (result.succeeded()) {
+          message.ack();
+        } else {
+          message.fail(result.cause());
+        }
+      });
+    }
+  }
+
+  /**
+   * Reports the headers it received and acks the message.
+   */
+  public static class TargetComponent extends MessageHandlerComponent<String> {
+    @Override
+    public void handle(VertigoMessage<String> message) {
+      vertx.eventBus().send(RECEIVED, new JsonObject()
+          .put("component", component().context().name())
+          .put("foo", new JsonArray(message.headers().getAll("foo")))
+          .put("target", new JsonArray(message.headers().getAll("target")))
+          .put("ack-address", new JsonArray(message.headers().getAll("ack-address"))));
+      message.ack();
+    }
+  }
+
+}
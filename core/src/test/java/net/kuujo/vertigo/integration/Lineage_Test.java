@@ -0,0 +1,114 @@
+package net.kuujo.vertigo.integration;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import net.kuujo.vertigo.component.MessageHandlerComponent;
+import net.kuujo.vertigo.message.VertigoMessage;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.network.builder.NetworkBuilder;
+import net.kuujo.vertigo.util.Lineage;
+import net.kuujo.vertigo.util.LineageTracker;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Lineage_Test extends VertigoTestBase {
+  private static final String COUNTED = "Lineage_Test.counted";
+
+  @Override
+  protected NetworkConfig createNetwork() {
+    NetworkBuilder builder = NetworkConfig.builder("Lineage_Test");
+    builder.connect().network().port("in")
+        .to("splitter").identifier(SplitterComponent.class.getName()).port("in");
+    builder.connect("splitter").port("out")
+        .to("letters").identifier(SplitterComponent.class.getName()).port("in");
+    builder.connect("letters").port("out")
+        .to("counter").identifier(CounterComponent.class.getName()).port("in");
+    return builder.build();
+  }
+
+  @Test
+  public void testTreeCompletes() {
+    List<String> counted = new ArrayList<>();
+    vertx.runOnContext(v -> {
+      vertx.eventBus().<String>consumer(COUNTED, message -> counted.add(message.body()));
+      LineageTracker tracker = new LineageTracker(vertx);
+      Lineage root = tracker.root(onSuccess(r -> {
+        // Each sentence is split into words and each word into letters.
+        assertEquals(10, counted.size());
+        assertEquals(0, tracker.size());
+        tracker.close();
+        testComplete();
+      }));
+      getNetworkReference().input().<String>port("in").send("ab cde", root.anchor());
+      getNetworkReference().input().<String>port("in").send("fg hij", root.anchor());
+      root.ack();
+    });
+
+    await();
+  }
+
+  @Test
+  public void testTreeFails() {
+    vertx.runOnContext(v -> {
+      LineageTracker tracker = new LineageTracker(vertx);
+      Lineage root = tracker.root(onFailure(t -> {
+        assertEquals(0, tracker.size());
+        tracker.close();
+        testComplete();
+      }));
+      getNetworkReference().input().<String>port("in").send("ab x", root.anchor());
+      root.ack();
+    });
+
+    await();
+  }
+
+  /**
+   * Splits strings on spaces, or into single characters if there are no spaces.
+   */
+  public static class SplitterComponent extends MessageHandlerComponent<String> {
+    @Override
+    public void handle(VertigoMessage<String> message) {
+      Lineage lineage = Lineage.of(vertx, message);
+      String body = message.body();
+      String[] parts = body.contains(" ") ? body.split(" ") : body.split("");
+      for (String part : parts) {
+        output().<String>port("out").send(part, lineage.anchor());
+      }
+      lineage.ack();
+    }
+  }
+
+  /**
+   * Counts single characters, failing the character x.
+   */
+  public static class CounterComponent extends MessageHandlerComponent<String> {
+    @Override
+    public void handle(VertigoMessage<String> message) {
+      Lineage lineage = Lineage.of(vertx, message);
+      if (message.body().equals("x")) {
+        lineage.fail(new IllegalArgumentException("x"));
+      } else {
+        vertx.eventBus().send(COUNTED, message.body());
+        lineage.ack();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,166 @@
+package net.kuujo.vertigo.integration;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.vertx.core.Handler;
+import io.vertx.core.streams.Pump;
+import io.vertx.core.streams.ReadStream;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.network.builder.NetworkBuilder;
+import net.kuujo.vertigo.reference.InputPortReference;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class Network_Input_Stream_Test extends VertigoTestBase {
+  private static final int MESSAGES = 1000;
+  private static final int MAX_QUEUE_SIZE = 10;
+
+  static String address = UUID.randomUUID().toString();
+
+  @Override
+  protected NetworkConfig createNetwork() {
+    NetworkBuilder builder = NetworkConfig.builder();
+    builder
+        .component("start").identifier(EventBusForwardingComponent.class.getName())
+        .config(EventBusForwardingComponent.config(address));
+
+    builder
+        .connect()
+        .network().port("in")
+        .to("start").port("in");
+
+    return builder.build();
+  }
+
+  @Test
+  public void testPump() {
+    List<Integer> received = new ArrayList<>();
+    vertx.eventBus().<Integer>consumer(address, message -> {
+      received.add(message.body());
+      if (received.size() == MESSAGES) {
+        for (int i = 0; i < MESSAGES; i++) {
+          assertEquals(i, received.get(i).intValue());
+        }
+        testComplete();
+      }
+    });
+
+    AtomicBoolean full = new AtomicBoolean();
+    vertx.runOnContext(v -> {
+      InputPortReference<Integer> port = getNetworkReference().input().port("in");
+      port.setWriteQueueMaxSize(MAX_QUEUE_SIZE);
+      port.exceptionHandler(this::fail);
+      CountingStream stream = new CountingStream(MESSAGES, () -> {
+        if (port.writeQueueFull()) {
+          full.set(true);
+        }
+      });
+      Pump.pump(stream, port).start();
+      stream.resume();
+    });
+
+    await();
+    assertTrue(full.get());
+  }
+
+  @Test
+  public void testSendAll() {
+    List<Integer> messages = new ArrayList<>();
+    for (int i = 0; i < MESSAGES; i++) {
+      messages.add(i);
+    }
+
+    List<Integer> received = new ArrayList<>();
+    vertx.runOnContext(v -> {
+      // Register the consumer on the sending context so that forwarded messages
+      // are handled in order with the acks.
+      vertx.eventBus().<Integer>consumer(address, message -> received.add(message.body()));
+      getNetworkReference().component("start").input().<Integer>port("in")
+          .sendAll(messages, onSuccess(r -> {
+            assertEquals(messages, received);
+            testComplete();
+          }));
+    });
+
+    await();
+  }
+
+  /**
+   * Read stream emitting a sequence of integers while it is not paused.
+   */
+  private class CountingStream implements ReadStream<Integer> {
+    private final int count;
+    private final Runnable writeHook;
+    private Handler<Integer> handler;
+    private Handler<Void> endHandler;
+    private boolean paused = true;
+    private int next;
+
+    private CountingStream(int count, Runnable writeHook) {
+      this.count = count;
+      this.writeHook = writeHook;
+    }
+
+    @Override
+    public ReadStream<Integer> exceptionHandler(Handler<Throwable> handler) {
+      return this;
+    }
+
+    @Override
+    public ReadStream<Integer> handler(Handler<Integer> handler) {
+      this.handler = handler;
+      return this;
+    }
+
+    @Override
+    public ReadStream<Integer> pause() {
+      paused = true;
+      return this;
+    }
+
+    @Override
+    public ReadStream<Integer> resume() {
+      if (paused) {
+        paused = false;
+        vertx.runOnContext(v -> emit());
+      }
+      return this;
+    }
+
+    @Override
+    public ReadStream<Integer> endHandler(Handler<Void> endHandler) {
+      this.endHandler = endHandler;
+      return this;
+    }
+
+    private void emit() {
+      while (!paused && next < count) {
+        handler.handle(next++);
+        writeHook.run();
+      }
+      if (next == count && endHandler != null) {
+        endHandler.handle(null);
+        endHandler = null;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,136 @@
+package net.kuujo.vertigo.integration;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.vertx.core.Handler;
+import io.vertx.core.streams.Pump;
+import io.vertx.core.streams.WriteStream;
+import net.kuujo.vertigo.message.VertigoMessage;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.network.builder.NetworkBuilder;
+import net.kuujo.vertigo.reference.NetworkOutputReference;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Network_Output_Stream_Test extends VertigoTestBase {
+  private static final int MESSAGES = 1000;
+
+  @Override
+  protected NetworkConfig createNetwork() {
+    NetworkBuilder builder = NetworkConfig.builder("Network_Output_Stream_Test");
+    builder.connect().network().port("in")
+        .to("A").identifier(AutoForwardingComponent.class.getName()).port("in");
+    builder.connect("A").port("out")
+        .to().network().port("out");
+    return builder.build();
+  }
+
+  @Test
+  public void testOutputHandler() {
+    vertx.runOnContext(v -> {
+      getNetworkReference().<String>output().handler(message -> {
+        assertEquals("hello > A", message.body());
+        message.ack();
+        testComplete();
+      });
+      getNetworkReference().input().port("in").send("hello");
+    });
+
+    await();
+  }
+
+  @Test
+  public void testPumpOutput() {
+    List<String> messages = new ArrayList<>();
+    for (int i = 0; i < MESSAGES; i++) {
+      messages.add(String.valueOf(i));
+    }
+
+    vertx.runOnContext(v -> {
+      NetworkOutputReference<String> output = getNetworkReference().output();
+      SlowStream sink = new SlowStream(() -> {
+        output.handler(null);
+        testComplete();
+      });
+      Pump.pump(output, sink).start();
+      getNetworkReference().input().<String>port("in").sendAll(messages);
+    });
+
+    await();
+  }
+
+  /**
+   * Write stream that acks messages, fills up every 50 messages and drains on a timer.
+   */
+  private class SlowStream implements WriteStream<VertigoMessage<String>> {
+    private final Runnable onComplete;
+    private Handler<Void> drainHandler;
+    private boolean full;
+    private int count;
+
+    private SlowStream(Runnable onComplete) {
+      this.onComplete = onComplete;
+    }
+
+    @Override
+    public WriteStream<VertigoMessage<String>> exceptionHandler(Handler<Throwable> handler) {
+      return this;
+    }
+
+    @Override
+    public WriteStream<VertigoMessage<String>> write(VertigoMessage<String> message) {
+      assertEquals(count + " > A", message.body());
+      message.ack();
+      count++;
+      if (count == MESSAGES) {
+        onComplete.run();
+      } else if (count % 50 == 0) {
+        full = true;
+        vertx.setTimer(1, id -> {
+          full = false;
+          if (drainHandler != null) {
+            drainHandler.handle(null);
+          }
+        });
+      }
+      return this;
+    }
+
+    @Override
+    public void end() {
+    }
+
+    @Override
+    public WriteStream<VertigoMessage<String>> setWriteQueueMaxSize(int maxSize) {
+      return this;
+    }
+
+    @Override
+    public boolean writeQueueFull() {
+      return full;
+    }
+
+    @Override
+    public WriteStream<VertigoMessage<String>> drainHandler(Handler<Void> handler) {
+      this.drainHandler = handler;
+      return this;
+    }
+  }
+
+}
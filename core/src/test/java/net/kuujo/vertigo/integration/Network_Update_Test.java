@@ -0,0 +1,189 @@
+package net.kuujo.vertigo.integration;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import net.kuujo.vertigo.Vertigo;
+import net.kuujo.vertigo.component.MessageHandlerComponent;
+import net.kuujo.vertigo.message.VertigoMessage;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.network.builder.NetworkBuilder;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class Network_Update_Test extends VertigoTestBase {
+  private static final String NAME = "Network_Update_Test";
+  private static final String RECEIVED = "Network_Update_Test.received";
+  static final Map<String, Integer> started = new ConcurrentHashMap<>();
+  static final Map<String, Integer> stopped = new ConcurrentHashMap<>();
+
+  @Override
+  public void setUp() throws Exception {
+    started.clear();
+    stopped.clear();
+    super.setUp();
+  }
+
+  @Override
+  protected NetworkConfig createNetwork() {
+    NetworkBuilder builder = NetworkConfig.builder(NAME);
+    builder.component("A")
+        .identifier(ReportingComponent.class.getName())
+        .input().port("in");
+    builder.connect("A").port("out")
+        .to("B").identifier(ReportingComponent.class.getName()).port("in");
+    return builder.build();
+  }
+
+  @Test
+  public void testAddComponent() {
+    NetworkBuilder builder = NetworkConfig.builder(NAME);
+    builder.component("A")
+        .identifier(ReportingComponent.class.getName())
+        .input().port("in");
+    builder.connect("A").port("out")
+        .to("B").identifier(ReportingComponent.class.getName()).port("in");
+    builder.connect("A").port("out")
+        .to("C").identifier(ReportingComponent.class.getName()).port("in");
+
+    waitFor(2);
+    vertx.eventBus().<String>consumer(RECEIVED, message -> {
+      assertTrue(message.body().equals("B:hello") || message.body().equals("C:hello") || message.body().equals("A:hello"));
+      if (!message.body().startsWith("A")) {
+        complete();
+      }
+    });
+
+    vertx.runOnContext(v -> Vertigo.vertigo(vertx).updateNetwork(builder.build(), onSuccess(network -> {
+      assertEquals(1, (int) started.get("A"));
+      assertEquals(1, (int) started.get("B"));
+      assertEquals(1, (int) started.get("C"));
+      assertTrue(stopped.isEmpty());
+      network.component("A").input().port("in").send("hello");
+    })));
+
+    await();
+  }
+
+  @Test
+  public void testReplaceComponent() {
+    NetworkBuilder builder = NetworkConfig.builder(NAME);
+    builder.component("A")
+        .identifier(ReportingComponent.class.getName())
+        .input().port("in");
+    builder.connect("A").port("out")
+        .to("C").identifier(ReportingComponent.class.getName()).port("in");
+
+    vertx.eventBus().<String>consumer(RECEIVED, message -> {
+      assertFalse(message.body().startsWith("B"));
+      if (message.body().equals("C:hello")) {
+        testComplete();
+      }
+    });
+
+    vertx.runOnContext(v -> Vertigo.vertigo(vertx).updateNetwork(builder.build(), onSuccess(network -> {
+      assertEquals(1, (int) started.get("A"));
+      assertEquals(1, (int) stopped.get("B"));
+      assertFalse(stopped.containsKey("A"));
+      network.component("A").input().port("in").send("hello");
+    })));
+
+    await();
+  }
+
+  @Test
+  public void testFailedUpdateRollsBack() {
+    NetworkBuilder builder = NetworkConfig.builder(NAME);
+    builder.component("A")
+        .identifier(ReportingComponent.class.getName())
+        .input().port("in");
+    builder.connect("A").port("out")
+        .to("B").identifier(ReportingComponent.class.getName()).port("in");
+    builder.connect("A").port("out")
+        .to("C").identifier(ReportingComponent.class.getName()).port("in");
+    builder.connect("A").port("out")
+        .to("D").identifier(FailingComponent.class.getName()).port("in");
+
+    vertx.eventBus().<String>consumer(RECEIVED, message -> {
+      if (message.body().equals("B:hello")) {
+        testComplete();
+      }
+    });
+
+    vertx.runOnContext(v -> Vertigo.vertigo(vertx).updateNetwork(builder.build(), result -> {
+      assertTrue(result.failed());
+      assertEquals(1, (int) started.get("C"));
+      assertEquals(1, (int) stopped.get("C"));
+      assertTrue(stopped.get("B") == null);
+      Vertigo.vertigo(vertx).network(NAME, onSuccess(network -> {
+        network.component("A").input().port("in").send("hello");
+      }));
+    }));
+
+    await();
+  }
+
+  @Test
+  public void testUpdateUndeployedNetwork() {
+    NetworkBuilder builder = NetworkConfig.builder("Network_Update_Test_Missing");
+    builder.connect("A").identifier(ReportingComponent.class.getName()).port("out")
+        .to("B").identifier(ReportingComponent.class.getName()).port("in");
+
+    vertx.runOnContext(v -> Vertigo.vertigo(vertx).updateNetwork(builder.build(), result -> {
+      assertTrue(result.failed());
+      testComplete();
+    }));
+
+    await();
+  }
+
+  public static class ReportingComponent extends MessageHandlerComponent<String> {
+    private String name;
+
+    @Override
+    public void start() throws Exception {
+      name = name();
+      started.merge(name, 1, Integer::sum);
+    }
+
+    @Override
+    public void stop() throws Exception {
+      stopped.merge(name, 1, Integer::sum);
+    }
+
+    @Override
+    public void handle(VertigoMessage<String> message) {
+      vertx.eventBus().publish(RECEIVED, name() + ":" + message.body());
+      output().port("out").send(message.body());
+      message.ack();
+    }
+  }
+
+  public static class FailingComponent extends MessageHandlerComponent<String> {
+    @Override
+    public void start() throws Exception {
+      throw new IllegalStateException("Failed to start");
+    }
+
+    @Override
+    public void handle(VertigoMessage<String> message) {
+      message.ack();
+    }
+  }
+
+}
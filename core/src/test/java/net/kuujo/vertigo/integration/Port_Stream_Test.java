@@ -0,0 +1,208 @@
+package net.kuujo.vertigo.integration;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.Pump;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.core.streams.WriteStream;
+import net.kuujo.vertigo.component.MessageHandlerComponent;
+import net.kuujo.vertigo.message.VertigoMessage;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.network.builder.NetworkBuilder;
+import org.junit.Test;
+
+public class Port_Stream_Test extends VertigoTestBase {
+  private static final String RESULT = "Port_Stream_Test.result";
+  private static final int MESSAGES = 5000;
+
+  @Override
+  protected NetworkConfig createNetwork() {
+    NetworkBuilder builder = NetworkConfig.builder("Port_Stream_Test");
+    builder.component("producer")
+        .identifier(ProducerComponent.class.getName())
+        .input().port("in");
+    builder.connect("producer").port("out")
+        .to("consumer").identifier(ConsumerComponent.class.getName()).port("in");
+    return builder.build();
+  }
+
+  @Test
+  public void testPumpBetweenPorts() {
+    vertx.eventBus().<JsonObject>consumer(RESULT, message -> {
+      assertEquals(MESSAGES, message.body().getInteger("count").intValue());
+      assertTrue(message.body().getBoolean("ordered"));
+      assertTrue(message.body().getBoolean("paused"));
+      testComplete();
+    });
+
+    vertx.runOnContext(v -> getNetworkReference().component("producer").input().port("in").send("go"));
+
+    await();
+  }
+
+  /**
+   * Pumps a sequence of integers into its output port write stream.
+   */
+  public static class ProducerComponent extends MessageHandlerComponent<String> {
+    @Override
+    public void handle(VertigoMessage<String> message) {
+      WriteStream<Integer> out = output().<Integer>port("out").writeStream();
+      out.setWriteQueueMaxSize(100);
+      CountingStream in = new CountingStream(MESSAGES, () -> out.end());
+      Pump.pump(in, out).start();
+      in.resume();
+      message.ack();
+    }
+
+    /**
+     * Read stream emitting a sequence of integers while it is not paused.
+     */
+    private class CountingStream implements ReadStream<Integer> {
+      private final int count;
+      private final Runnable onEnd;
+      private Handler<Integer> handler;
+      private boolean paused = true;
+      private int next;
+
+      private CountingStream(int count, Runnable onEnd) {
+        this.count = count;
+        this.onEnd = onEnd;
+      }
+
+      @Override
+      public ReadStream<Integer> exceptionHandler(Handler<Throwable> handler) {
+        return this;
+      }
+
+      @Override
+      public ReadStream<Integer> handler(Handler<Integer> handler) {
+        this.handler = handler;
+        return this;
+      }
+
+      @Override
+      public ReadStream<Integer> pause() {
+        paused = true;
+        return this;
+      }
+
+      @Override
+      public ReadStream<Integer> resume() {
+        if (paused) {
+          paused = false;
+          vertx.runOnContext(v -> emit());
+        }
+        return this;
+      }
+
+      @Override
+      public ReadStream<Integer> endHandler(Handler<Void> endHandler) {
+        return this;
+      }
+
+      private void emit() {
+        while (!paused && next < count) {
+          handler.handle(next++);
+        }
+        if (next == count) {
+          next++;
+          onEnd.run();
+        }
+      }
+    }
+  }
+
+  /**
+   * Pumps its input port read stream into a slow write stream.
+   */
+  public static class ConsumerComponent extends MessageHandlerComponent<Integer> {
+    private int count;
+    private boolean ordered = true;
+    private boolean paused;
+
+    @Override
+    protected void initComponent(Future<Void> initFuture) throws Exception {
+      super.initComponent(initFuture);
+      ReadStream<Integer> in = input().<Integer>port("in").readStream();
+      SlowStream out = new SlowStream();
+      in.endHandler(v -> vertx.eventBus().publish(RESULT, new JsonObject()
+          .put("count", count)
+          .put("ordered", ordered)
+          .put("paused", paused)));
+      Pump.pump(in, out).start();
+    }
+
+    @Override
+    public void handle(VertigoMessage<Integer> message) {
+      message.ack();
+    }
+
+    /**
+     * Write stream that fills up every 50 messages and drains on a timer.
+     */
+    private class SlowStream implements WriteStream<Integer> {
+      private Handler<Void> drainHandler;
+      private boolean full;
+
+      @Override
+      public WriteStream<Integer> exceptionHandler(Handler<Throwable> handler) {
+        return this;
+      }
+
+      @Override
+      public WriteStream<Integer> write(Integer message) {
+        ordered &= message == count;
+        count++;
+        if (count % 50 == 0) {
+          full = true;
+          paused = true;
+          vertx.setTimer(1, id -> {
+            full = false;
+            if (drainHandler != null) {
+              drainHandler.handle(null);
+            }
+          });
+        }
+        return this;
+      }
+
+      @Override
+      public void end() {
+      }
+
+      @Override
+      public WriteStream<Integer> setWriteQueueMaxSize(int maxSize) {
+        return this;
+      }
+
+      @Override
+      public boolean writeQueueFull() {
+        return full;
+      }
+
+      @Override
+      public WriteStream<Integer> drainHandler(Handler<Void> handler) {
+        this.drainHandler = handler;
+        return this;
+      }
+    }
+  }
+
+}
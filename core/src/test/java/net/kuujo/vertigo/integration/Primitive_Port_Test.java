@@ -0,0 +1,122 @@
+package net.kuujo.vertigo.integration;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.component.MessageHandlerComponent;
+import net.kuujo.vertigo.instance.DoubleOutputPort;
+import net.kuujo.vertigo.instance.LongOutputPort;
+import net.kuujo.vertigo.message.VertigoMessage;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.network.builder.NetworkBuilder;
+import org.junit.Test;
+
+public class Primitive_Port_Test extends VertigoTestBase {
+  private static final String RESULT = "Primitive_Port_Test.result";
+  private static final int VALUES = 10000;
+
+  @Override
+  protected NetworkConfig createNetwork() {
+    NetworkBuilder builder = NetworkConfig.builder("Primitive_Port_Test");
+    builder.component("producer")
+        .identifier(ProducerComponent.class.getName())
+        .input().port("in");
+    builder.connect("producer").port("longs")
+        .to("consumer").identifier(ConsumerComponent.class.getName()).port("longs");
+    builder.connect("producer").port("doubles")
+        .to("consumer").port("doubles");
+    return builder.build();
+  }
+
+  @Test
+  public void testSendsChunks() {
+    vertx.eventBus().<JsonObject>consumer(RESULT, message -> {
+      JsonObject result = message.body();
+      if (result.getInteger("longs") == VALUES && result.getInteger("doubles") == VALUES) {
+        assertTrue(result.getBoolean("ordered"));
+        assertTrue(result.getInteger("chunks") < VALUES / 100);
+        assertEquals((double) VALUES * (VALUES - 1) / 4, result.getDouble("sum"), 0.0);
+        testComplete();
+      }
+    });
+
+    vertx.runOnContext(v -> getNetworkReference().component("producer").input().port("in").send("go"));
+
+    await();
+  }
+
+  /**
+   * Sends a sequence of longs and their halves as doubles.
+   */
+  public static class ProducerComponent extends MessageHandlerComponent<String> {
+    @Override
+    public void handle(VertigoMessage<String> message) {
+      LongOutputPort longs = output().port("longs").longs();
+      DoubleOutputPort doubles = output().port("doubles").doubles();
+      for (int i = 0; i < VALUES; i++) {
+        longs.send(i);
+        doubles.send(i / 2.0);
+      }
+      message.ack();
+    }
+  }
+
+  /**
+   * Checks the order of received longs and sums received doubles.
+   */
+  public static class ConsumerComponent extends MessageHandlerComponent<Object> {
+    private int longs;
+    private int doubles;
+    private int chunks;
+    private boolean ordered = true;
+    private double sum;
+
+    @Override
+    protected void initComponent(Future<Void> initFuture) throws Exception {
+      super.initComponent(initFuture);
+      input().port("longs").longs().handler(chunk -> {
+        chunks++;
+        for (int i = 0; i < chunk.size(); i++) {
+          ordered &= chunk.get(i) == longs++;
+        }
+        publish();
+      });
+      input().port("doubles").doubles().handler(chunk -> {
+        chunks++;
+        doubles += chunk.size();
+        chunk.forEach(value -> sum += value);
+        publish();
+      });
+    }
+
+    @Override
+    public void handle(VertigoMessage<Object> message) {
+      message.ack();
+    }
+
+    private void publish() {
+      vertx.eventBus().publish(RESULT, new JsonObject()
+          .put("longs", longs)
+          .put("doubles", doubles)
+          .put("chunks", chunks)
+          .put("ordered", ordered)
+          .put("sum", sum));
+    }
+  }
+
+}
@@ -0,0 +1,292 @@
+package net.kuujo.vertigo.integration;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.vertx.core.Context;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.test.core.VertxTestBase;
+import net.kuujo.vertigo.instance.impl.TcpTransport;
+import net.kuujo.vertigo.metrics.impl.ConnectionMetricsImpl;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Tcp_Transport_Test extends VertxTestBase {
+  private static final int MESSAGES = 10000;
+
+  @Test
+  public void testSendsBetweenNodes() {
+    // Both transports are on the same host, so shared memory would be used instead of a socket.
+    TcpTransport receiver = new TcpTransport(vertx).setSharedMemory(false);
+    TcpTransport sender = new TcpTransport(vertx).setSharedMemory(false);
+    List<Object> received = new ArrayList<>();
+
+    vertx.runOnContext(v -> {
+      // Messages that fall back to the event bus would fail with no handlers.
+      receiver.register("Tcp_Transport_Test.in", message -> {
+        assertNull(message.replyAddress());
+        assertEquals(String.valueOf(received.size()), message.headers().get("index"));
+        received.add(message.body());
+        if (received.size() == MESSAGES) {
+          for (int i = 0; i < MESSAGES; i++) {
+            assertEquals(i, received.get(i));
+          }
+          receiver.close();
+          sender.close();
+          testComplete();
+        }
+      });
+
+      for (int i = 0; i < MESSAGES; i++) {
+        sender.send("Tcp_Transport_Test.in", i, new DeliveryOptions().addHeader("index", String.valueOf(i)));
+      }
+    });
+
+    await();
+  }
+
+  @Test
+  public void testEncodesBodies() {
+    // Both transports are on the same host, so shared memory would be used instead of a socket.
+    TcpTransport receiver = new TcpTransport(vertx).setSharedMemory(false);
+    TcpTransport sender = new TcpTransport(vertx).setSharedMemory(false);
+    List<Object> bodies = Arrays.asList("foo", Buffer.buffer("bar"), new JsonObject().put("baz", 1),
+        1L, 1.5, true, null, new byte[]{1, 2, 3}, 2.5f, (short) 4, 'c', (byte) 5);
+    List<Object> received = new ArrayList<>();
+
+    vertx.runOnContext(v -> {
+      receiver.register("Tcp_Transport_Test.bodies", message -> {
+        Object body = message.body();
+        if (body instanceof byte[]) {
+          assertTrue(Arrays.equals((byte[]) bodies.get(received.size()), (byte[]) body));
+          body = bodies.get(received.size());
+        }
+        received.add(body);
+        if (received.size() == bodies.size()) {
+          assertEquals(bodies, received);
+          receiver.close();
+          sender.close();
+          testComplete();
+        }
+      });
+
+      for (Object body : bodies) {
+        sender.send("Tcp_Transport_Test.bodies", body, new DeliveryOptions());
+      }
+    });
+
+    await();
+  }
+
+  @Test
+  public void testRejectsUnsupportedBodies() {
+    TcpTransport transport = new TcpTransport(vertx);
+
+    vertx.runOnContext(v -> {
+      try {
+        transport.send("Tcp_Transport_Test.unsupported", new Object(), new DeliveryOptions());
+        fail("Unsupported body was sent");
+      } catch (IllegalArgumentException e) {
+      }
+      transport.close();
+      testComplete();
+    });
+
+    await();
+  }
+
+  @Test
+  public void testCompressesFrames() {
+    TcpTransport receiver = new TcpTransport(vertx).setSharedMemory(false);
+    TcpTransport sender = new TcpTransport(vertx).setSharedMemory(false).setCompression(true);
+    ConnectionMetricsImpl metrics = new ConnectionMetricsImpl("Tcp_Transport_Test.compressed");
+    List<Object> received = new ArrayList<>();
+
+    vertx.runOnContext(v -> {
+      receiver.register("Tcp_Transport_Test.compressed", message -> {
+        received.add(message.body());
+        if (received.size() == MESSAGES) {
+          for (int i = 0; i < MESSAGES; i++) {
+            assertEquals("the quick brown fox jumps over the lazy dog " + i, received.get(i));
+          }
+          assertTrue(metrics.bytesFramed() > 0);
+          assertTrue(metrics.bytesWritten() < metrics.bytesFramed() / 2);
+          assertTrue(metrics.compressionTime() > 0);
+          receiver.close();
+          sender.close();
+          testComplete();
+        }
+      });
+
+      for (int i = 0; i < MESSAGES; i++) {
+        sender.send("Tcp_Transport_Test.compressed", "the quick brown fox jumps over the lazy dog " + i, new DeliveryOptions(), metrics);
+      }
+    });
+
+    await();
+  }
+
+  @Test
+  public void testSendsThroughSharedMemory() {
+    TcpTransport receiver = new TcpTransport(vertx);
+    TcpTransport sender = new TcpTransport(vertx);
+    List<Object> received = new ArrayList<>();
+
+    vertx.runOnContext(v -> {
+      receiver.register("Tcp_Transport_Test.shm", message -> {
+        assertEquals(String.valueOf(received.size()), message.headers().get("index"));
+        received.add(message.body());
+        if (received.size() == MESSAGES) {
+          for (int i = 0; i < MESSAGES; i++) {
+            assertEquals("message-" + i, received.get(i));
+          }
+          receiver.close();
+          sender.close();
+          testComplete();
+        }
+      });
+
+      for (int i = 0; i < MESSAGES; i++) {
+        sender.send("Tcp_Transport_Test.shm", "message-" + i, new DeliveryOptions().addHeader("index", String.valueOf(i)));
+      }
+    });
+
+    await();
+  }
+
+  @Test
+  public void testSendsFramesLargerThanRingThroughSocket() {
+    TcpTransport receiver = new TcpTransport(vertx);
+    TcpTransport sender = new TcpTransport(vertx);
+    // Larger than the default ring of 8 MB.
+    Buffer large = Buffer.buffer(new byte[9 * 1024 * 1024]);
+    List<Object> received = new ArrayList<>();
+
+    vertx.runOnContext(v -> {
+      receiver.register("Tcp_Transport_Test.large", message -> {
+        received.add(message.body());
+        if (received.size() == 2) {
+          assertEquals("small", received.get(0));
+          assertEquals(large, received.get(1));
+          receiver.close();
+          sender.close();
+          testComplete();
+        }
+      });
+
+      sender.send("Tcp_Transport_Test.large", "small", new DeliveryOptions());
+      vertx.setTimer(100, id -> sender.send("Tcp_Transport_Test.large", large, new DeliveryOptions()));
+    });
+
+    await();
+  }
+
+  @Test
+  public void testCallsDrainHandlerOnEveryDrain() {
+    TcpTransport receiver = new TcpTransport(vertx).setSharedMemory(false);
+    TcpTransport sender = new TcpTransport(vertx).setSharedMemory(false);
+    Buffer chunk = Buffer.buffer(new byte[1024 * 1024]);
+    AtomicInteger drains = new AtomicInteger();
+
+    vertx.runOnContext(v -> {
+      // The route is only known once the first message has arrived. Routes are kept
+      // per context, so the sender is filled from the context that sent that message.
+      Context context = vertx.getOrCreateContext();
+      receiver.register("Tcp_Transport_Test.drain", message -> {
+        if (message.body() instanceof String) {
+          context.runOnContext(f -> fill(sender, chunk));
+        }
+      });
+      // The handler is set once and must be called each time the socket drains.
+      sender.drainHandler("Tcp_Transport_Test.drain", d -> {
+        assertFalse(sender.writeQueueFull("Tcp_Transport_Test.drain"));
+        if (drains.incrementAndGet() == 3) {
+          receiver.close();
+          sender.close();
+          testComplete();
+        } else {
+          vertx.runOnContext(f -> fill(sender, chunk));
+        }
+      });
+      sender.send("Tcp_Transport_Test.drain", "start", new DeliveryOptions());
+    });
+
+    await();
+  }
+
+  private void fill(TcpTransport transport, Buffer chunk) {
+    for (int i = 0; i < 100 && !transport.writeQueueFull("Tcp_Transport_Test.drain"); i++) {
+      transport.send("Tcp_Transport_Test.drain", chunk, new DeliveryOptions());
+    }
+    assertTrue(transport.writeQueueFull("Tcp_Transport_Test.drain"));
+  }
+
+  @Test
+  public void testStopsPollingClosedRings() {
+    TcpTransport receiver = new TcpTransport(vertx);
+    TcpTransport sender = new TcpTransport(vertx);
+    AtomicInteger received = new AtomicInteger();
+
+    vertx.runOnContext(v -> {
+      receiver.register("Tcp_Transport_Test.closed", message -> {
+        if (received.incrementAndGet() == MESSAGES) {
+          assertTrue(pollers() > 0);
+          sender.close();
+          testComplete();
+        }
+      });
+
+      for (int i = 0; i < MESSAGES; i++) {
+        sender.send("Tcp_Transport_Test.closed", "message-" + i, new DeliveryOptions());
+      }
+    });
+
+    await();
+    // Closing the sender closes its ring on the receiving node, which then stops polling.
+    waitUntil(() -> pollers() == 0);
+    receiver.close();
+  }
+
+  private long pollers() {
+    return Thread.getAllStackTraces().keySet().stream()
+        .filter(thread -> thread.getName().startsWith("vertigo-shm-"))
+        .count();
+  }
+
+  @Test
+  public void testLocalAddressUsesEventBus() {
+    TcpTransport transport = new TcpTransport(vertx);
+
+    vertx.runOnContext(v -> {
+      vertx.eventBus().<String>consumer("Tcp_Transport_Test.local", message -> {
+        assertEquals("foo", message.body());
+        transport.close();
+        testComplete();
+      });
+      transport.register("Tcp_Transport_Test.local", message -> fail("Message sent through the transport"));
+      transport.send("Tcp_Transport_Test.local", "foo", new DeliveryOptions());
+    });
+
+    await();
+  }
+
+}
@@ -0,0 +1,125 @@
+package net.kuujo.vertigo.unit;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import net.kuujo.vertigo.util.AckWindow;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AckWindowTest {
+
+  @Test
+  public void testMarkInOrder() {
+    AckWindow window = new AckWindow(1);
+    for (long i = 1; i <= 1000; i++) {
+      assertTrue(window.mark(i));
+    }
+    assertEquals(1001, window.base());
+    assertEquals(0, window.marked());
+    assertEquals("", window.encode());
+  }
+
+  @Test
+  public void testMarkOutOfOrder() {
+    AckWindow window = new AckWindow(1);
+    assertTrue(window.mark(3));
+    assertTrue(window.mark(5));
+    assertEquals(1, window.base());
+    assertEquals(2, window.marked());
+    assertEquals(5, window.highest());
+    assertTrue(window.mark(1));
+    assertEquals(2, window.base());
+    assertTrue(window.mark(2));
+    assertEquals(4, window.base());
+    assertTrue(window.mark(4));
+    assertEquals(6, window.base());
+    assertEquals(0, window.marked());
+  }
+
+  @Test
+  public void testDuplicates() {
+    AckWindow window = new AckWindow(1);
+    assertTrue(window.mark(1));
+    assertTrue(window.mark(10));
+    assertFalse(window.mark(1));
+    assertFalse(window.mark(10));
+    assertTrue(window.isMarked(10));
+    assertFalse(window.isMarked(9));
+  }
+
+  @Test
+  public void testGrow() {
+    AckWindow window = new AckWindow(1);
+    assertTrue(window.mark(100000));
+    assertTrue(window.mark(70));
+    assertEquals(1, window.base());
+    assertTrue(window.isMarked(70));
+    assertTrue(window.isMarked(100000));
+    window.markTo(99999);
+    assertEquals(100001, window.base());
+    assertEquals(0, window.marked());
+  }
+
+  @Test
+  public void testMarkTo() {
+    AckWindow window = new AckWindow(1);
+    window.mark(5);
+    window.mark(8);
+    window.markTo(3);
+    assertEquals(4, window.base());
+    window.markTo(4);
+    assertEquals(6, window.base());
+    assertEquals(1, window.marked());
+  }
+
+  @Test
+  public void testEncodeDecode() {
+    AckWindow window = new AckWindow(1);
+    long[] indices = {2, 3, 64, 65, 130, 200};
+    for (long index : indices) {
+      window.mark(index);
+    }
+    List<Long> decoded = new ArrayList<>();
+    AckWindow.decode(window.base(), window.encode(), decoded::add);
+    assertEquals(Arrays.asList(2L, 3L, 64L, 65L, 130L, 200L), decoded);
+
+    AckWindow copy = new AckWindow(1);
+    AckWindow.decode(window.base(), window.encode(), copy::mark);
+    assertEquals(window.encode(), copy.encode());
+  }
+
+  @Test
+  public void testMaxSize() {
+    AckWindow window = new AckWindow(1, 128);
+    assertTrue(window.fits(128));
+    assertFalse(window.fits(129));
+    assertFalse(window.mark(129));
+    assertFalse(window.isMarked(129));
+    assertTrue(window.mark(128));
+    assertTrue(window.mark(1));
+    assertTrue(window.fits(129));
+    assertTrue(window.mark(129));
+  }
+
+}
@@ -0,0 +1,127 @@
+package net.kuujo.vertigo.unit;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.VertigoException;
+import net.kuujo.vertigo.context.ComponentContext;
+import net.kuujo.vertigo.context.ContextBuilder;
+import net.kuujo.vertigo.context.ContextCodec;
+import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.context.NetworkPlan;
+import net.kuujo.vertigo.context.InputConnectionContext;
+import net.kuujo.vertigo.context.OutputConnectionContext;
+import net.kuujo.vertigo.network.ConnectionConfig;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.network.builder.NetworkBuilder;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ContextCodecTest {
+
+  private static final String STUB_IDENTIFIER = "stub";
+
+  private NetworkContext createNetwork() {
+    NetworkBuilder builder = NetworkConfig.builder("network-1");
+    builder.component("sender")
+        .identifier(STUB_IDENTIFIER)
+        .config(new JsonObject().put("foo", "bar"))
+        .worker()
+        .replicas(2)
+        .output()
+        .port("out");
+    builder.connect("sender").port("out")
+        .to("receiver-1").identifier(STUB_IDENTIFIER).port("in")
+        .sendTimeout(1000);
+    builder.connect("sender").port("out")
+        .to("receiver-2").identifier(STUB_IDENTIFIER).port("in");
+    NetworkConfig network = builder.build();
+    for (ConnectionConfig connection : network.getConnections()) {
+      if (connection.getTarget().getComponent().equals("receiver-1")) {
+        connection.setOrdered(true).setAtLeastOnce(true);
+      }
+    }
+    return ContextBuilder.buildContext(network);
+  }
+
+  @Test
+  public void testEncodeDecode() {
+    NetworkContext network = createNetwork();
+    for (ComponentContext component : network.components()) {
+      ComponentContext decoded = ContextCodec.decode(ContextCodec.encode(component));
+      assertEquals(component.toJson(), decoded.toJson());
+    }
+
+    ComponentContext sender = ContextCodec.decode(ContextCodec.encode(network.component("sender")));
+    assertTrue(sender.worker());
+    assertEquals(2, sender.replicas());
+    assertEquals("bar", sender.config().getString("foo"));
+    assertSame(sender.output(), sender.output().port("out").output());
+    for (OutputConnectionContext connection : sender.output().port("out").connections()) {
+      assertSame(sender.output().port("out"), connection.port());
+      boolean guaranteed = connection.target().component().equals("receiver-1");
+      assertEquals(guaranteed, connection.ordered());
+      assertEquals(guaranteed, connection.atLeastOnce());
+    }
+
+    ComponentContext receiver = ContextCodec.decode(ContextCodec.encode(network.component("receiver-1")));
+    for (InputConnectionContext connection : receiver.input().port("in").connections()) {
+      assertTrue(connection.ordered());
+      assertTrue(connection.atLeastOnce());
+      assertNotEquals(connection.target().address(), connection.address());
+    }
+    Set<String> addresses = new HashSet<>();
+    for (OutputConnectionContext connection : sender.output().port("out").connections()) {
+      assertTrue(addresses.add(connection.address()));
+    }
+    assertTrue(addresses.contains(receiver.input().port("in").connections().iterator().next().address()));
+  }
+
+  @Test
+  public void testEncodingIsSmallerThanJson() {
+    ComponentContext sender = createNetwork().component("sender");
+    Buffer encoded = ContextCodec.encode(sender);
+    assertTrue(encoded.length() < sender.toJson().encode().length());
+  }
+
+  @Test
+  public void testNetworkPlan() {
+    NetworkContext network = createNetwork();
+    NetworkContext loaded = NetworkPlan.load(NetworkPlan.compile(network));
+    assertEquals(network.name(), loaded.name());
+    assertEquals(network.address(), loaded.address());
+    assertEquals(network.version(), loaded.version());
+    assertEquals(network.components().size(), loaded.components().size());
+    for (ComponentContext component : network.components()) {
+      assertEquals(component.toJson(), loaded.component(component.name()).toJson());
+    }
+    assertEquals(network.config().toJson(), loaded.config().toJson());
+    assertEquals("network-1", loaded.config().getName());
+    assertNotNull(loaded.config().getComponent("sender"));
+  }
+
+  @Test(expected = VertigoException.class)
+  public void testInvalidNetworkPlan() {
+    NetworkPlan.load(Buffer.buffer("not a plan"));
+  }
+
+}
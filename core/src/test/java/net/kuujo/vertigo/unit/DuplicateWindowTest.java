@@ -0,0 +1,101 @@
+package net.kuujo.vertigo.unit;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import net.kuujo.vertigo.util.DuplicateWindow;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DuplicateWindowTest {
+
+  @Test
+  public void testSizeIsRoundedUp() {
+    assertEquals(64, new DuplicateWindow(1).size());
+    assertEquals(128, new DuplicateWindow(100).size());
+    assertEquals(1024, new DuplicateWindow(1024).size());
+  }
+
+  @Test
+  public void testDuplicatesWithinWindow() {
+    DuplicateWindow window = new DuplicateWindow(128);
+    for (long i = 1; i <= 1000; i++) {
+      assertTrue(window.add(i));
+    }
+    for (long i = 900; i <= 1000; i++) {
+      assertTrue(window.contains(i));
+      assertFalse(window.add(i));
+    }
+    assertFalse(window.contains(1001));
+  }
+
+  @Test
+  public void testOutOfOrderWithinWindow() {
+    DuplicateWindow window = new DuplicateWindow(128);
+    assertTrue(window.add(10));
+    assertTrue(window.add(5));
+    assertFalse(window.add(5));
+    assertFalse(window.contains(6));
+    assertTrue(window.add(6));
+  }
+
+  @Test
+  public void testIndicesBelowWindowAreDuplicates() {
+    DuplicateWindow window = new DuplicateWindow(64);
+    for (long i = 1; i <= 1000; i++) {
+      window.add(i);
+    }
+    assertTrue(window.contains(1));
+    assertFalse(window.add(1));
+  }
+
+  @Test
+  public void testMissingIndicesOverflow() {
+    DuplicateWindow window = new DuplicateWindow(64, 8);
+    for (long i = 1; i <= 1000; i++) {
+      if (i != 3) {
+        window.add(i);
+      }
+    }
+    assertFalse(window.contains(3));
+    assertTrue(window.add(3));
+    assertFalse(window.add(3));
+  }
+
+  @Test
+  public void testOverflowIsBounded() {
+    DuplicateWindow window = new DuplicateWindow(64, 4);
+    window.add(1);
+    window.add(1000);
+    // Only the four most recent missing indices are remembered.
+    assertTrue(window.contains(2));
+    assertFalse(window.contains(936));
+    assertTrue(window.add(936));
+  }
+
+  @Test
+  public void testReset() {
+    DuplicateWindow window = new DuplicateWindow(64);
+    window.add(1);
+    window.add(2);
+    window.reset();
+    assertTrue(window.add(1));
+  }
+
+}
@@ -0,0 +1,107 @@
+package net.kuujo.vertigo.unit;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.vertx.core.buffer.Buffer;
+import net.kuujo.vertigo.util.FrameCompressor;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FrameCompressorTest {
+
+  private static Buffer text(int words) {
+    Buffer buffer = Buffer.buffer();
+    for (int i = 0; i < words; i++) {
+      buffer.appendString("the quick brown fox jumps over the lazy dog ");
+    }
+    return buffer;
+  }
+
+  private static Buffer random(int size) {
+    byte[] bytes = new byte[size];
+    new Random(1).nextBytes(bytes);
+    return Buffer.buffer(bytes);
+  }
+
+  @Test
+  public void testCompressesText() {
+    FrameCompressor compressor = new FrameCompressor(64, 0.9, 0, 8);
+    Buffer frame = text(1000);
+    Buffer compressed = compressor.compress(frame);
+    assertEquals(FrameCompressor.DEFLATED, compressed.getByte(0));
+    assertTrue(compressed.length() < frame.length() / 10);
+    assertTrue(compressor.lastCompressionTime() > 0);
+    assertFalse(compressor.isSkipping());
+    assertEquals(frame, compressor.decompress(compressed));
+  }
+
+  @Test
+  public void testSkipsSmallFrames() {
+    FrameCompressor compressor = new FrameCompressor(64, 0.9, 0, 8);
+    Buffer frame = Buffer.buffer("foo");
+    Buffer encoded = compressor.compress(frame);
+    assertEquals(FrameCompressor.RAW, encoded.getByte(0));
+    assertEquals(0, compressor.lastCompressionTime());
+    assertEquals(frame, compressor.decompress(encoded));
+  }
+
+  @Test
+  public void testSkipsIncompressibleFrames() {
+    FrameCompressor compressor = new FrameCompressor(64, 0.9, 0, 4);
+    Buffer frame = random(4096);
+    assertEquals(FrameCompressor.RAW, compressor.compress(frame).getByte(0));
+    assertTrue(compressor.isSkipping());
+
+    // Compressible frames are sent raw until the next probe.
+    Buffer text = text(100);
+    for (int i = 0; i < 3; i++) {
+      Buffer encoded = compressor.compress(text);
+      assertEquals(FrameCompressor.RAW, encoded.getByte(0));
+      assertEquals(text, compressor.decompress(encoded));
+    }
+    assertEquals(FrameCompressor.DEFLATED, compressor.compress(text).getByte(0));
+    assertFalse(compressor.isSkipping());
+  }
+
+  @Test
+  public void testSkipsWhenTooSlow() {
+    FrameCompressor compressor = new FrameCompressor(64, 0.9, Double.MAX_VALUE, 4);
+    Buffer frame = text(1000);
+    Buffer compressed = compressor.compress(frame);
+    assertEquals(FrameCompressor.DEFLATED, compressed.getByte(0));
+    assertTrue(compressor.isSkipping());
+    assertEquals(FrameCompressor.RAW, compressor.compress(frame).getByte(0));
+  }
+
+  @Test
+  public void testReleaseAndReuse() {
+    FrameCompressor compressor = new FrameCompressor(64, 0.9, 0, 8);
+    compressor.release();
+    Buffer frame = text(100);
+    Buffer compressed = compressor.compress(frame);
+    compressor.release();
+    assertEquals(frame, compressor.decompress(compressed));
+    compressor.release();
+    assertEquals(frame, compressor.decompress(compressor.compress(frame)));
+  }
+
+}
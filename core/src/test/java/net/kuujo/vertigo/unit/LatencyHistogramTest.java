@@ -0,0 +1,110 @@
+package net.kuujo.vertigo.unit;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.CaseInsensitiveHeaders;
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.metrics.LatencyHistogram;
+import net.kuujo.vertigo.metrics.impl.ConnectionMetricsImpl;
+import net.kuujo.vertigo.metrics.impl.Tracing;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void histogram_Percentiles_Test() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 10000; i++) {
+      histogram.record(i);
+    }
+    assertEquals(10000, histogram.count());
+    assertEquals(1, histogram.min());
+    assertEquals(10000, histogram.max());
+    assertEquals(5000.5, histogram.mean(), 0.001);
+    assertWithin(5000, histogram.percentile(50));
+    assertWithin(9900, histogram.percentile(99));
+    assertEquals(10000, histogram.percentile(100));
+  }
+
+  @Test
+  public void histogram_Clamp_Test() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(0, histogram.min());
+    assertEquals(LatencyHistogram.MAX_VALUE, histogram.max());
+  }
+
+  @Test
+  public void histogram_Merge_Test() {
+    LatencyHistogram first = new LatencyHistogram();
+    LatencyHistogram second = new LatencyHistogram();
+    for (int i = 0; i < 100; i++) {
+      first.record(10);
+      second.record(1000);
+    }
+
+    LatencyHistogram merged = new LatencyHistogram().merge(first).merge(second);
+    assertEquals(200, merged.count());
+    assertEquals(10, merged.min());
+    assertEquals(1000, merged.max());
+    assertEquals(10, merged.percentile(50));
+    assertWithin(1000, merged.percentile(99));
+
+    LatencyHistogram fromJson = new LatencyHistogram().merge(first.toJson()).merge(second.toJson());
+    assertEquals(merged.count(), fromJson.count());
+    assertEquals(merged.percentile(50), fromJson.percentile(50));
+    assertEquals(merged.percentile(99), fromJson.percentile(99));
+    assertEquals(merged.mean(), fromJson.mean(), 0.001);
+  }
+
+  @Test
+  public void tracing_Propagate_Test() {
+    ConnectionMetricsImpl metrics = new ConnectionMetricsImpl("test");
+    MultiMap received = new CaseInsensitiveHeaders()
+        .set(Tracing.TRACE_ID_HEADER, "abc")
+        .set(Tracing.TRACE_ORIGIN_HEADER, String.valueOf(Tracing.now() - 1000))
+        .set(Tracing.TRACE_HOP_HEADER, String.valueOf(Tracing.now() - 100));
+
+    assertTrue(Tracing.enter(received, metrics));
+    MultiMap sent = new CaseInsensitiveHeaders();
+    Tracing.propagate(sent);
+    Tracing.exit();
+
+    assertEquals("abc", sent.get(Tracing.TRACE_ID_HEADER));
+    assertEquals(received.get(Tracing.TRACE_ORIGIN_HEADER), sent.get(Tracing.TRACE_ORIGIN_HEADER));
+    assertEquals(1, metrics.latency().count());
+    assertTrue(metrics.latency().max() >= 1000);
+    assertTrue(metrics.hopLatency().max() >= 100);
+
+    MultiMap untraced = new CaseInsensitiveHeaders();
+    Tracing.propagate(untraced);
+    assertFalse(untraced.contains(Tracing.TRACE_ID_HEADER));
+    assertTrue(metrics.toJson().containsKey("latency"));
+    assertFalse(new ConnectionMetricsImpl("empty").toJson().containsKey("latency"));
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(String.format("expected %d but was %d", expected, actual), Math.abs(actual - expected) <= expected * 0.04);
+  }
+
+}
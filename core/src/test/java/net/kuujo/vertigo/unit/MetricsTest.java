@@ -0,0 +1,76 @@
+package net.kuujo.vertigo.unit;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.metrics.ConnectionMetrics;
+import net.kuujo.vertigo.metrics.impl.ConnectionMetricsImpl;
+import net.kuujo.vertigo.metrics.impl.PortMetricsImpl;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest {
+
+  @Test
+  public void connectionMetrics_Record_Test() {
+    ConnectionMetricsImpl metrics = new ConnectionMetricsImpl(ConnectionMetricsImpl.name("receiver", "receiver-address", "in"), () -> 3);
+    metrics.messageSent();
+    metrics.messageSent();
+    metrics.messageAcked();
+    metrics.messageFailed();
+    metrics.messagesResent(2);
+    metrics.paused();
+    metrics.paused();
+    metrics.resumed();
+
+    assertEquals("receiver.in", metrics.name());
+    assertEquals(2, metrics.messagesSent());
+    assertEquals(1, metrics.acks());
+    assertEquals(1, metrics.fails());
+    assertEquals(2, metrics.resends());
+    assertEquals(1, metrics.pauses());
+    assertTrue(metrics.pausedTime() >= 0);
+    assertEquals(3, metrics.queueSize());
+
+    JsonObject json = metrics.toJson();
+    assertEquals(2, (long) json.getLong("sent"));
+    assertEquals(3, (int) json.getInteger("queueSize"));
+  }
+
+  @Test
+  public void portMetrics_Aggregate_Test() {
+    ConnectionMetricsImpl first = new ConnectionMetricsImpl("a.out", () -> 5);
+    ConnectionMetricsImpl second = new ConnectionMetricsImpl("b.out", () -> 2);
+    first.messageReceived();
+    second.messageReceived();
+    second.handlerTime(100);
+
+    PortMetricsImpl port = new PortMetricsImpl("in", () -> Arrays.<ConnectionMetrics>asList(first, second));
+    assertEquals(2, port.messagesReceived());
+    assertEquals(100, port.handlerTime());
+    assertEquals(5, port.queueSize());
+
+    JsonObject json = port.toJson();
+    assertEquals(2, json.getJsonObject("connections").size());
+    assertEquals(1, (long) json.getJsonObject("connections").getJsonObject("a.out").getLong("received"));
+  }
+
+}
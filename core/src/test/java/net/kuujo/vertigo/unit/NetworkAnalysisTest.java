@@ -0,0 +1,139 @@
+package net.kuujo.vertigo.unit;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.vertx.core.json.JsonObject;
+import net.kuujo.vertigo.context.ContextBuilder;
+import net.kuujo.vertigo.context.NetworkContext;
+import net.kuujo.vertigo.metrics.impl.NetworkAnalysis;
+import net.kuujo.vertigo.network.NetworkConfig;
+import net.kuujo.vertigo.network.builder.NetworkBuilder;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NetworkAnalysisTest {
+
+  private static final String STUB_IDENTIFIER = StubComponent.class.getName();
+
+  @Test
+  public void analysis_Bottleneck_Test() {
+    NetworkBuilder builder = NetworkConfig.builder("analysis");
+    builder.component("A").identifier(STUB_IDENTIFIER).input().port("in").output().port("out");
+    builder.component("B").identifier(STUB_IDENTIFIER).input().port("in").output().port("out");
+    builder.component("C").identifier(STUB_IDENTIFIER).input().port("in");
+    builder.connect().network().port("in").to("A").port("in");
+    builder.connect("A").port("out").to("B").port("in");
+    builder.connect("B").port("out").to("C").port("in");
+    NetworkContext network = ContextBuilder.buildContext(builder.build());
+
+    Map<String, JsonObject> previous = new HashMap<>();
+    previous.put("A", metrics(0, 0, 0, 0, "B.in", 0, 0));
+    previous.put("B", metrics(0, 0, 0, 0, "C.in", 0, 0));
+    previous.put("C", metrics(0, 0, 0, 0, null, 0, 0));
+
+    // A spends 10% of its time handling messages and is paused by B half of the time,
+    // B spends 90% of its time handling messages, and C is mostly idle.
+    Map<String, JsonObject> current = new HashMap<>();
+    current.put("A", metrics(1000, 1000, 100_000_000L, 1000, "B.in", 500_000_000L, 50));
+    current.put("B", metrics(1000, 1000, 900_000_000L, 1000, "C.in", 0, 0));
+    current.put("C", metrics(1000, 1000, 50_000_000L, 0, null, 0, 0));
+
+    JsonObject analysis = NetworkAnalysis.analyze(network, previous, current);
+    assertEquals("B", analysis.getString("bottleneck"));
+    assertEquals(Arrays.asList("A", "B", "C"), analysis.getJsonArray("criticalPath").getList());
+
+    JsonObject a = analysis.getJsonObject("components").getJsonObject("A");
+    assertEquals(1000, a.getDouble("arrivalRate"), 0.001);
+    assertEquals(1000, a.getDouble("outputRate"), 0.001);
+    assertEquals(0.1, a.getDouble("utilization"), 0.001);
+    assertEquals(0.5, a.getDouble("pauseFraction"), 0.001);
+    assertEquals(50, (int) a.getInteger("queueSize"));
+    assertEquals(1, (int) a.getInteger("suggestedReplicas"));
+    assertFalse(a.getBoolean("saturated"));
+
+    JsonObject b = analysis.getJsonObject("components").getJsonObject("B");
+    assertEquals(0.9, b.getDouble("utilization"), 0.001);
+    assertEquals(900_000, b.getDouble("serviceTime"), 0.001);
+    assertEquals(2, (int) b.getInteger("suggestedReplicas"));
+    assertTrue(b.getBoolean("saturated"));
+    assertEquals("A", b.getJsonArray("upstream").getString(0));
+    assertEquals("C", b.getJsonArray("downstream").getString(0));
+
+    assertEquals(2, analysis.getJsonArray("connections").stream()
+        .filter(connection -> ((JsonObject) connection).getDouble("rate") == 1000)
+        .count());
+  }
+
+  @Test
+  public void analysis_Replicas_Test() {
+    NetworkBuilder builder = NetworkConfig.builder("replicas");
+    builder.component("A").identifier(STUB_IDENTIFIER).replicas(2).input().port("in");
+    builder.connect().network().port("in").to("A").port("in");
+    NetworkContext network = ContextBuilder.buildContext(builder.build());
+
+    // The instances have processed very different numbers of messages, so comparing
+    // counters of different instances would yield negative or inflated rates.
+    Map<String, JsonObject> previous = new HashMap<>();
+    previous.put("A", instances(metrics(0, 5000, 500_000_000L, 0, null, 0, 0), metrics(0, 100, 10_000_000L, 0, null, 0, 0)));
+    Map<String, JsonObject> current = new HashMap<>();
+    current.put("A", instances(metrics(1000, 5400, 900_000_000L, 0, null, 0, 0), metrics(1000, 700, 210_000_000L, 0, null, 0, 0)));
+
+    JsonObject a = NetworkAnalysis.analyze(network, previous, current).getJsonObject("components").getJsonObject("A");
+    assertEquals(1000, a.getDouble("arrivalRate"), 0.001);
+    assertEquals(0.3, a.getDouble("utilization"), 0.001);
+    assertEquals(600_000, a.getDouble("serviceTime"), 0.001);
+    assertEquals(1, (int) a.getInteger("suggestedReplicas"));
+  }
+
+  public static class StubComponent {
+  }
+
+  private static JsonObject instances(JsonObject... instances) {
+    JsonObject byInstance = new JsonObject();
+    for (int i = 0; i < instances.length; i++) {
+      byInstance.put(String.valueOf(i), instances[i]);
+    }
+    return new JsonObject()
+        .put("timestamp", instances[0].getLong("timestamp"))
+        .put("instances", byInstance);
+  }
+
+  private static JsonObject metrics(long timestamp, long received, long handlerTime, long sent, String connection, long pausedTime, int queueSize) {
+    JsonObject output = new JsonObject();
+    if (connection != null) {
+      output.put("out", new JsonObject()
+          .put("sent", sent)
+          .put("pausedTime", pausedTime)
+          .put("queueSize", queueSize)
+          .put("connections", new JsonObject().put(connection, new JsonObject().put("sent", sent))));
+    }
+    return new JsonObject()
+        .put("timestamp", timestamp)
+        .put("input", new JsonObject().put("in", new JsonObject()
+            .put("received", received)
+            .put("handlerTime", handlerTime)))
+        .put("output", output);
+  }
+
+}
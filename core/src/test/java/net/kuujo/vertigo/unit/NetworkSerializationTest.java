@@ -116,6 +116,34 @@ public class NetworkSerializationTest {
     assertEquals("in", connection.getTarget().getPort());
   }
 
+  @Test
+  public void networkBuilder_Serialize_Deserialize_Network_Target_Test() {
+
+    NetworkBuilder builder = NetworkConfig.builder("network-1");
+
+    builder.component("sender")
+        .identifier(STUB_IDENTIFIER)
+        .output();
+
+    builder.connect("sender")
+        .port("out")
+        .to()
+        .network()
+        .port("network_out");
+
+    JsonObject json = builder.build().toJson();
+
+    NetworkConfig network = NetworkConfig.network(json);
+
+    assertEquals(1, network.getConnections().size());
+    ConnectionConfig connection = network.getConnections().stream().findFirst().get();
+    assertEquals("sender", connection.getSource().getComponent());
+    assertEquals("out", connection.getSource().getPort());
+    assertEquals(null, connection.getTarget().getComponent());
+    assertEquals(true, connection.getTarget().getIsNetwork());
+    assertEquals("network_out", connection.getTarget().getPort());
+  }
+
   @Test
   public void networkBuilder_Deserialize_Test() {
 
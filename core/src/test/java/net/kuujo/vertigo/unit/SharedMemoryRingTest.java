@@ -0,0 +1,108 @@
+package net.kuujo.vertigo.unit;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import io.vertx.core.buffer.Buffer;
+import net.kuujo.vertigo.util.SharedMemoryRing;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SharedMemoryRingTest {
+  private File file;
+
+  @Before
+  public void createFile() throws IOException {
+    file = File.createTempFile("SharedMemoryRingTest", ".ring");
+  }
+
+  @After
+  public void deleteFile() {
+    file.delete();
+  }
+
+  @Test
+  public void testOfferPoll() {
+    SharedMemoryRing ring = SharedMemoryRing.create(file, 1024);
+    assertEquals(1024, ring.capacity());
+    assertNull(ring.poll());
+    assertTrue(ring.offer(Buffer.buffer("foo")));
+    assertTrue(ring.offer(Buffer.buffer("bar")));
+    assertEquals("foo", ring.poll().toString());
+    assertEquals("bar", ring.poll().toString());
+    assertNull(ring.poll());
+  }
+
+  @Test
+  public void testRoundsCapacity() {
+    assertEquals(128, SharedMemoryRing.create(file, 100).capacity());
+  }
+
+  @Test
+  public void testWrapsAround() {
+    SharedMemoryRing ring = SharedMemoryRing.create(file, 64);
+    for (int i = 0; i < 100; i++) {
+      String record = "record-" + i;
+      assertTrue(ring.offer(Buffer.buffer(record)));
+      assertEquals(record, ring.poll().toString());
+    }
+    assertNull(ring.poll());
+  }
+
+  @Test
+  public void testRejectsWhenFull() {
+    SharedMemoryRing ring = SharedMemoryRing.create(file, 64);
+    // Each record takes 16 bytes including its length.
+    for (int i = 0; i < 4; i++) {
+      assertTrue(ring.offer(Buffer.buffer("abcdefghijkl")));
+    }
+    assertFalse(ring.offer(Buffer.buffer("abcdefghijkl")));
+    assertEquals("abcdefghijkl", ring.poll().toString());
+    assertTrue(ring.offer(Buffer.buffer("abcdefghijkl")));
+  }
+
+  @Test
+  public void testReadsFromSeparateMapping() {
+    SharedMemoryRing producer = SharedMemoryRing.create(file, 256);
+    SharedMemoryRing consumer = SharedMemoryRing.open(file);
+    assertEquals(256, consumer.capacity());
+    for (int i = 0; i < 50; i++) {
+      assertTrue(producer.offer(Buffer.buffer().appendInt(i)));
+      assertEquals(i, consumer.poll().getInt(0));
+    }
+    assertNull(consumer.poll());
+  }
+
+  @Test
+  public void testClose() {
+    SharedMemoryRing ring = SharedMemoryRing.create(file, 64);
+    assertTrue(ring.offer(Buffer.buffer("foo")));
+    ring.close();
+    assertFalse(file.exists());
+    assertNull(ring.poll());
+    assertFalse(ring.offer(Buffer.buffer("bar")));
+  }
+
+}
@@ -0,0 +1,96 @@
+package net.kuujo.vertigo.unit;
+
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import net.kuujo.vertigo.util.TimingWheel;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TimingWheelTest {
+
+  @Test
+  public void testExpiresOnTick() {
+    TimingWheel<String> wheel = new TimingWheel<>(10, 8);
+    wheel.schedule(1, 25, "a");
+    assertEquals(1, wheel.size());
+    assertEquals(Collections.emptyList(), wheel.tick());
+    assertEquals(Collections.emptyList(), wheel.tick());
+    assertEquals(Arrays.asList("a"), wheel.tick());
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void testExpiresInBulk() {
+    TimingWheel<String> wheel = new TimingWheel<>(10, 8);
+    wheel.schedule(1, 20, "a");
+    wheel.schedule(2, 15, "b");
+    wheel.schedule(3, 20, "c");
+    wheel.tick();
+    assertEquals(Arrays.asList("a", "b", "c"), wheel.tick());
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void testExpiresAfterRounds() {
+    TimingWheel<String> wheel = new TimingWheel<>(10, 4);
+    wheel.schedule(1, 100, "a");
+    for (int i = 0; i < 9; i++) {
+      assertEquals(Collections.emptyList(), wheel.tick());
+    }
+    assertEquals(Arrays.asList("a"), wheel.tick());
+  }
+
+  @Test
+  public void testRemoveCancelsTimeout() {
+    TimingWheel<String> wheel = new TimingWheel<>(10, 8);
+    wheel.schedule(1, 10, "a");
+    wheel.schedule(2, 10, "b");
+    assertEquals("a", wheel.remove(1));
+    assertNull(wheel.remove(1));
+    assertEquals(Arrays.asList("b"), wheel.tick());
+    assertNull(wheel.remove(2));
+  }
+
+  @Test
+  public void testRescheduleReplacesTimeout() {
+    TimingWheel<String> wheel = new TimingWheel<>(10, 8);
+    wheel.schedule(1, 10, "a");
+    wheel.schedule(1, 30, "b");
+    assertEquals(Collections.emptyList(), wheel.tick());
+    assertEquals(Collections.emptyList(), wheel.tick());
+    assertEquals(Arrays.asList("b"), wheel.tick());
+  }
+
+  @Test
+  public void testClearCancelsTimeouts() {
+    TimingWheel<String> wheel = new TimingWheel<>(10, 8);
+    wheel.schedule(1, 10, "a");
+    wheel.schedule(2, 100, "b");
+    assertEquals(Arrays.asList("a", "b"), wheel.clear());
+    assertEquals(0, wheel.size());
+    assertNull(wheel.remove(1));
+    for (int i = 0; i < 10; i++) {
+      assertEquals(Collections.emptyList(), wheel.tick());
+    }
+  }
+
+}
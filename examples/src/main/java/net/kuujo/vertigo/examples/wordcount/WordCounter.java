@@ -2,6 +2,7 @@ package net.kuujo.vertigo.examples.wordcount;
 
 import net.kuujo.vertigo.component.MessageHandlerComponent;
 import net.kuujo.vertigo.message.VertigoMessage;
+import net.kuujo.vertigo.util.Lineage;
 
 /**
  * Vertigo component which counts incoming words and sends out the latest word count to a known event bus address.
@@ -24,7 +25,8 @@ public class WordCounter extends MessageHandlerComponent<String> {
           .send(resultAddress, count);
 
     }
-    message.ack();
+    // Acks the message and, if it was sent in a tracked tree, reports it to the tracker.
+    Lineage.of(vertx, message).ack();
   }
 
 }
@@ -3,6 +3,7 @@ package net.kuujo.vertigo.examples.wordcount;
 import net.kuujo.vertigo.component.MessageHandlerComponent;
 import net.kuujo.vertigo.message.VertigoMessage;
 import net.kuujo.vertigo.util.AckAggregator;
+import net.kuujo.vertigo.util.Lineage;
 
 /**
  * Vertigo component which splits incoming strings into words.
@@ -17,6 +18,17 @@ public class WordMapper extends MessageHandlerComponent<String> {
     String input = message.body();
     String[] words = input.split(" ");
 
+    // Sentences sent in a tracked tree are acked straight away, and the tracker
+    // completes the tree once every word has been counted
+    Lineage lineage = Lineage.of(vertx, message);
+    if (lineage.isTracked()) {
+      for (String word : words) {
+        output().port("words").send(word, lineage.anchor());
+      }
+      lineage.ack();
+      return;
+    }
+
     // Forward words individually, and ack when they are all completed
     AckAggregator acks = new AckAggregator();
     for (String word : words) {
@@ -23,6 +23,8 @@ import net.kuujo.vertigo.Vertigo;
 import net.kuujo.vertigo.examples.wordcount.WordCountNetwork;
 import net.kuujo.vertigo.network.NetworkConfig;
 import net.kuujo.vertigo.reference.NetworkReference;
+import net.kuujo.vertigo.util.Lineage;
+import net.kuujo.vertigo.util.LineageTracker;
 import org.junit.Test;
 
 import java.util.UUID;
@@ -93,6 +95,40 @@ public class WordCountTest extends VertxTestBase {
     await();
   }
 
+  @Test
+  public void lineageTest() throws Exception {
+    AtomicInteger highestCount = new AtomicInteger();
+
+    vertx.eventBus()
+        .consumer(resultAddress, event -> {
+          Integer count = (Integer)event.body();
+          highestCount.accumulateAndGet(count, Math::max);
+        });
+
+    vertx.runOnContext(v -> {
+      // Track the sentence and every word sent for it as a single tree
+      LineageTracker tracker = new LineageTracker(vertx);
+      Lineage root = tracker.root(event -> {
+        assertTrue(event.succeeded());
+        assertEquals(0, tracker.size());
+        tracker.close();
+
+        vertx.setTimer(50, id -> {
+          assertEquals(8, highestCount.get());
+          testComplete();
+        });
+      });
+
+      network
+          .input()
+          .<String>port("input")
+          .send("Lorem ipsum dolor sit amet, consectetur adipiscing elit", root.anchor());
+      root.ack();
+    });
+
+    await();
+  }
+
   @Test
   public void emptyStringTest() throws Exception {
 